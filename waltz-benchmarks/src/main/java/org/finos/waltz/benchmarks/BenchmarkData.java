@@ -0,0 +1,158 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.benchmarks;
+
+import org.finos.waltz.common.LoggingUtilities;
+import org.finos.waltz.integration_test.inmem.DIInMemoryTestConfiguration;
+import org.finos.waltz.jobs.WaltzUtilities;
+import org.finos.waltz.jobs.generators.LoadAll;
+import org.finos.waltz.jobs.generators.SampleDataGenerator;
+import org.finos.waltz.jobs.generators.stress.LogicalFlowStressGenerator;
+import org.finos.waltz.jobs.generators.stress.MeasurableStressGenerator;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.service.entity_hierarchy.EntityHierarchyService;
+import org.jooq.DSLContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import static org.finos.waltz.common.CollectionUtilities.first;
+import static org.finos.waltz.schema.Tables.MEASURABLE;
+import static org.finos.waltz.schema.Tables.ORGANISATIONAL_UNIT;
+
+/**
+ * Sets up the in-memory (H2) database used by the integration tests and seeds it
+ * with the sample data generators plus the measurable and logical flow stress generators.
+ * <p>
+ * Seeding is slow, so it is done once per JVM (i.e. once per benchmark fork) and shared
+ * by all benchmarks running in that fork.
+ */
+public class BenchmarkData {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BenchmarkData.class);
+
+    private static BenchmarkData instance;
+
+    private final AnnotationConfigApplicationContext ctx;
+    private final long rootOrgUnitId;
+    private final long hubAppId;
+    private final long stressCategoryId;
+    private final long stressMidLevelMeasurableId;
+
+
+    private BenchmarkData() {
+        LoggingUtilities.configureLogging();
+
+        long start = System.currentTimeMillis();
+        ctx = new AnnotationConfigApplicationContext(DIInMemoryTestConfiguration.class);
+        DSLContext dsl = ctx.getBean(DSLContext.class);
+
+        LOG.info("Seeding sample data");
+        LoadAll.loadAll(ctx);
+
+        hubAppId = first(WaltzUtilities.getActiveAppIds(dsl));
+        new LogicalFlowStressGenerator(ctx, hubAppId).go();
+        stressCategoryId = MeasurableStressGenerator.generate(dsl);
+
+        LOG.info("Building hierarchies");
+        EntityHierarchyService hierarchyService = ctx.getBean(EntityHierarchyService.class);
+        for (EntityKind kind : new EntityKind[] {
+                EntityKind.CHANGE_INITIATIVE,
+                EntityKind.DATA_TYPE,
+                EntityKind.MEASURABLE,
+                EntityKind.ORG_UNIT,
+                EntityKind.PERSON}) {
+            hierarchyService.buildFor(kind);
+        }
+
+        rootOrgUnitId = dsl
+                .select(ORGANISATIONAL_UNIT.ID)
+                .from(ORGANISATIONAL_UNIT)
+                .where(ORGANISATIONAL_UNIT.PARENT_ID.isNull())
+                .orderBy(ORGANISATIONAL_UNIT.ID)
+                .limit(1)
+                .fetchOne(ORGANISATIONAL_UNIT.ID);
+
+        // the stress taxonomy uses dotted external ids, e.g. '1.2.1' is at level 3
+        stressMidLevelMeasurableId = dsl
+                .select(MEASURABLE.ID)
+                .from(MEASURABLE)
+                .where(MEASURABLE.MEASURABLE_CATEGORY_ID.eq(stressCategoryId))
+                .and(MEASURABLE.EXTERNAL_ID.eq("1.2.1"))
+                .fetchOne(MEASURABLE.ID);
+
+        LOG.info("Seeded benchmark data in {}ms", System.currentTimeMillis() - start);
+    }
+
+
+    public static synchronized BenchmarkData get() {
+        if (instance == null) {
+            instance = new BenchmarkData();
+        }
+        return instance;
+    }
+
+
+    public <T> T getBean(Class<T> beanClass) {
+        return ctx.getBean(beanClass);
+    }
+
+
+    public DSLContext dsl() {
+        return ctx.getBean(DSLContext.class);
+    }
+
+
+    public String username() {
+        return SampleDataGenerator.SAMPLE_DATA_USER;
+    }
+
+
+    /**
+     * @return id of an org unit at the root of the org unit tree
+     */
+    public long rootOrgUnitId() {
+        return rootOrgUnitId;
+    }
+
+
+    /**
+     * @return id of the application which has had additional flows generated for it
+     */
+    public long hubAppId() {
+        return hubAppId;
+    }
+
+
+    /**
+     * @return id of the category containing the (large) stress measurable taxonomy
+     */
+    public long stressCategoryId() {
+        return stressCategoryId;
+    }
+
+
+    /**
+     * @return id of a measurable part way down the stress taxonomy, used when benchmarking subtree updates
+     */
+    public long stressMidLevelMeasurableId() {
+        return stressMidLevelMeasurableId;
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.Optional;
+
+/**
+ * Entry point for the shaded benchmark jar.
+ * <p>
+ * Usage: <code>java -jar waltz-benchmarks.jar [include-regex] [result-dir]</code>
+ * <p>
+ * Results are written as JSON to <code>[result-dir]/waltz-benchmarks-[version].json</code>
+ * (result-dir defaults to <code>target/jmh</code>) so that runs from different releases
+ * can be compared.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0
+                ? args[0]
+                : BenchmarkRunner.class.getPackage().getName() + ".*";
+
+        File resultDir = new File(args.length > 1
+                ? args[1]
+                : "target/jmh");
+
+        resultDir.mkdirs();
+
+        String version = Optional
+                .ofNullable(BenchmarkRunner.class.getPackage().getImplementationVersion())
+                .orElse("dev");
+
+        File resultFile = new File(resultDir, "waltz-benchmarks-" + version + ".json");
+
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(include)
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultFile.getPath());
+
+        new Runner(options.build()).run();
+
+        System.out.println("Results written to: " + resultFile.getAbsolutePath());
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.benchmarks;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.service.entity_hierarchy.EntityHierarchyService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.finos.waltz.model.EntityReference.mkRef;
+
+/**
+ * Compares full rebuilds of the measurable hierarchy (which includes the large
+ * stress taxonomy) with the reconciling and subtree based updates.
+ * <p>
+ * The hierarchy is already up to date when the reconcile and subtree benchmarks run,
+ * so they measure the cost of detecting that nothing (or little) has changed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EntityHierarchyBenchmark {
+
+    private EntityHierarchyService entityHierarchyService;
+    private long stressCategoryId;
+    private long subtreeRootId;
+
+
+    @Setup
+    public void setup() {
+        BenchmarkData data = BenchmarkData.get();
+        entityHierarchyService = data.getBean(EntityHierarchyService.class);
+        stressCategoryId = data.stressCategoryId();
+        subtreeRootId = data.stressMidLevelMeasurableId();
+    }
+
+
+    @Benchmark
+    public int buildAll() {
+        return entityHierarchyService.buildFor(EntityKind.MEASURABLE);
+    }
+
+
+    @Benchmark
+    public int buildCategory() {
+        return entityHierarchyService.buildForMeasurableByCategory(stressCategoryId);
+    }
+
+
+    @Benchmark
+    public int reconcile() {
+        return entityHierarchyService.reconcileFor(EntityKind.MEASURABLE);
+    }
+
+
+    @Benchmark
+    public int updateSubtree() {
+        return entityHierarchyService.updateSubtree(mkRef(EntityKind.MEASURABLE, subtreeRootId));
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.benchmarks;
+
+import org.finos.waltz.data.changelog.ChangeLogDao;
+import org.finos.waltz.data.entity_search.EntitySearchIndexDao;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.entity_search.EntitySearchOptions;
+import org.finos.waltz.model.entity_search.ImmutableEntitySearchOptions;
+import org.finos.waltz.service.entity_search.EntitySearchIndex;
+import org.finos.waltz.service.entity_search.EntitySearchService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.finos.waltz.common.ListUtilities.newArrayList;
+
+/**
+ * Compares type-ahead searches answered by the database with those
+ * answered by the in-memory entity search index.
+ * <p>
+ * Note: H2 does not support the full text searches used in production, so the
+ * database figures only reflect the name/alias/external id searches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EntitySearchBenchmark {
+
+    private static final List<EntityKind> KINDS = newArrayList(
+            EntityKind.APPLICATION,
+            EntityKind.CHANGE_INITIATIVE,
+            EntityKind.DATA_TYPE,
+            EntityKind.MEASURABLE,
+            EntityKind.ORG_UNIT,
+            EntityKind.PERSON);
+
+    @Param({"a", "data", "1.2"})
+    public String query;
+
+    private EntitySearchService entitySearchService;
+    private EntitySearchIndex entitySearchIndex;
+    private EntitySearchOptions options;
+
+
+    @Setup
+    public void setup() throws InterruptedException {
+        BenchmarkData data = BenchmarkData.get();
+
+        // the context's index is disabled, so the service falls back to the database
+        entitySearchService = data.getBean(EntitySearchService.class);
+
+        entitySearchIndex = new EntitySearchIndex(
+                data.getBean(EntitySearchIndexDao.class),
+                data.getBean(ChangeLogDao.class),
+                true,
+                60);
+
+        long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(5);
+        while (! entitySearchIndex.isReady()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("Entity search index was not built within 5 minutes");
+            }
+            Thread.sleep(100);
+        }
+
+        options = ImmutableEntitySearchOptions
+                .builder()
+                .entityKinds(KINDS)
+                .searchQuery(query)
+                .userId(data.username())
+                .build();
+    }
+
+
+    @Benchmark
+    public List<EntityReference> database() {
+        return entitySearchService.search(options);
+    }
+
+
+    @Benchmark
+    public List<EntityReference> index() {
+        List<EntityReference> results = new ArrayList<>();
+        for (EntityKind kind : KINDS) {
+            results.addAll(entitySearchIndex.search(kind, options));
+        }
+        return results;
+    }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.benchmarks;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.schema.tables.Application;
+import org.finos.waltz.web.endpoints.extracts.DirectQueryBasedDataExtractor;
+import org.finos.waltz.web.endpoints.extracts.ExtractFormat;
+import org.finos.waltz.web.endpoints.extracts.SupportsJsonExtraction;
+import org.jooq.DSLContext;
+import org.jooq.Select;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import spark.Request;
+import spark.Response;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.finos.waltz.schema.Tables.APPLICATION;
+import static org.finos.waltz.schema.Tables.LOGICAL_FLOW;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Streams an extract of every logical flow (with source and target names) in each
+ * of the supported formats.  The web request/response are mocked and the output
+ * is discarded, so the figures reflect query and formatting costs only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExtractBenchmark {
+
+    @Param({"CSV", "XLSX", "JSON"})
+    public ExtractFormat format;
+
+    private LogicalFlowExtractor extractor;
+    private Request request;
+    private Response response;
+
+
+    @Setup
+    public void setup() {
+        extractor = new LogicalFlowExtractor(BenchmarkData.get().dsl());
+
+        HttpServletResponse httpResponse = mock(HttpServletResponse.class);
+        when(httpResponse.getOutputStream())
+                .thenAnswer(i -> mkDiscardingOutputStream());
+
+        request = mock(Request.class);
+        when(request.queryParams("format"))
+                .thenReturn(format.name());
+
+        response = mock(Response.class);
+        when(response.raw())
+                .thenReturn(httpResponse);
+    }
+
+
+    @Benchmark
+    public Object extract() throws IOException {
+        return extractor.extract(request, response);
+    }
+
+
+    private static ServletOutputStream mkDiscardingOutputStream() {
+        return new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+            }
+        };
+    }
+
+
+    private static class LogicalFlowExtractor extends DirectQueryBasedDataExtractor implements SupportsJsonExtraction {
+
+        private LogicalFlowExtractor(DSLContext dsl) {
+            super(dsl);
+        }
+
+
+        @Override
+        public void register() {
+            // not exposed as an endpoint
+        }
+
+
+        private Object extract(Request request, Response response) throws IOException {
+            return writeExtract("logical-flows", mkQuery(), request, response);
+        }
+
+
+        private Select<?> mkQuery() {
+            Application source = APPLICATION.as("source");
+            Application target = APPLICATION.as("target");
+
+            return dsl
+                    .select(LOGICAL_FLOW.ID.as("Id"),
+                            source.NAME.as("Source"),
+                            source.ASSET_CODE.as("Source Asset Code"),
+                            target.NAME.as("Target"),
+                            target.ASSET_CODE.as("Target Asset Code"),
+                            LOGICAL_FLOW.LAST_UPDATED_AT.as("Last Updated At"),
+                            LOGICAL_FLOW.LAST_UPDATED_BY.as("Last Updated By"))
+                    .from(LOGICAL_FLOW)
+                    .innerJoin(source).on(source.ID.eq(LOGICAL_FLOW.SOURCE_ENTITY_ID))
+                    .innerJoin(target).on(target.ID.eq(LOGICAL_FLOW.TARGET_ENTITY_ID))
+                    .where(LOGICAL_FLOW.SOURCE_ENTITY_KIND.eq(EntityKind.APPLICATION.name()))
+                    .and(LOGICAL_FLOW.TARGET_ENTITY_KIND.eq(EntityKind.APPLICATION.name()));
+        }
+    }
+
+}
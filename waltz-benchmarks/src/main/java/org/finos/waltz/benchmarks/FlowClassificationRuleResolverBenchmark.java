@@ -0,0 +1,209 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.benchmarks;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.flow_classification_rule.FlowClassificationRuleVantagePoint;
+import org.finos.waltz.model.flow_classification_rule.ImmutableFlowClassificationRuleVantagePoint;
+import org.finos.waltz.model.rating.AuthoritativenessRatingValue;
+import org.finos.waltz.service.flow_classification_rule.FlowClassificationRuleResolver;
+import org.finos.waltz.service.flow_classification_rule.FlowClassificationRuleResolver.Resolution;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.finos.waltz.service.flow_classification_rule.FlowClassificationRuleResolver.getMostSpecificRanked;
+import static org.finos.waltz.service.flow_classification_rule.FlowClassificationRuleResolver.mkKey;
+
+/**
+ * Compares the primitive keyed flow classification rule resolver with the nested
+ * <code>Map&lt;EntityReference, ...&gt;</code> structure it replaced.
+ * <p>
+ * Unlike the other benchmarks this does not need the database, the vantage points
+ * and lookups are generated in memory (with a fixed seed).  Each invocation performs
+ * {@link #LOOKUP_COUNT} lookups, roughly a third of which hit a rule naming the source.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FlowClassificationRuleResolverBenchmark {
+
+    private static final int ORG_UNIT_COUNT = 500;
+    private static final int DATA_TYPE_COUNT = 200;
+    private static final int APP_COUNT = 5_000;
+    private static final int VANTAGE_POINT_COUNT = 200_000;
+    private static final int LOOKUP_COUNT = 1_000_000;
+
+    private FlowClassificationRuleResolver resolver;
+    private LegacyResolver legacyResolver;
+
+    private EntityReference[] vantagePoints;
+    private EntityReference[] sources;
+    private long[] dataTypeIds;
+
+    private long[] vantagePointKeys;
+    private long[] sourceKeys;
+
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+
+        List<FlowClassificationRuleVantagePoint> rules = new ArrayList<>(VANTAGE_POINT_COUNT);
+        for (int i = 0; i < VANTAGE_POINT_COUNT; i++) {
+            rules.add(ImmutableFlowClassificationRuleVantagePoint
+                    .builder()
+                    .vantagePoint(mkRef(EntityKind.ORG_UNIT, random.nextInt(ORG_UNIT_COUNT)))
+                    .vantagePointRank(random.nextInt(5))
+                    .dataType(mkRef(EntityKind.DATA_TYPE, random.nextInt(DATA_TYPE_COUNT)))
+                    .dataTypeRank(random.nextInt(5))
+                    .subjectReference(mkRef(EntityKind.APPLICATION, random.nextInt(APP_COUNT)))
+                    .ruleId((long) i)
+                    .classificationCode(random.nextBoolean() ? "PRIMARY" : "SECONDARY")
+                    .build());
+        }
+
+        resolver = new FlowClassificationRuleResolver(rules);
+        legacyResolver = new LegacyResolver(rules);
+
+        vantagePoints = new EntityReference[LOOKUP_COUNT];
+        sources = new EntityReference[LOOKUP_COUNT];
+        dataTypeIds = new long[LOOKUP_COUNT];
+        vantagePointKeys = new long[LOOKUP_COUNT];
+        sourceKeys = new long[LOOKUP_COUNT];
+
+        for (int i = 0; i < LOOKUP_COUNT; i++) {
+            FlowClassificationRuleVantagePoint rule = rules.get(random.nextInt(VANTAGE_POINT_COUNT));
+            int variation = random.nextInt(3);
+            // a mix of exact hits, unknown sources (discouraged) and unknown data types (no opinion)
+            vantagePoints[i] = rule.vantagePoint();
+            sources[i] = variation == 1
+                    ? mkRef(EntityKind.APPLICATION, APP_COUNT + random.nextInt(APP_COUNT))
+                    : rule.subjectReference();
+            dataTypeIds[i] = variation == 2
+                    ? DATA_TYPE_COUNT + random.nextInt(DATA_TYPE_COUNT)
+                    : rule.dataType().id();
+            vantagePointKeys[i] = mkKey(vantagePoints[i]);
+            sourceKeys[i] = mkKey(sources[i]);
+        }
+    }
+
+
+    @Benchmark
+    public void legacyResolve(Blackhole blackhole) {
+        for (int i = 0; i < LOOKUP_COUNT; i++) {
+            blackhole.consume(legacyResolver.resolve(vantagePoints[i], sources[i], dataTypeIds[i]));
+        }
+    }
+
+
+    @Benchmark
+    public void resolve(Blackhole blackhole) {
+        for (int i = 0; i < LOOKUP_COUNT; i++) {
+            blackhole.consume(resolver.resolve(vantagePoints[i], sources[i], dataTypeIds[i]));
+        }
+    }
+
+
+    @Benchmark
+    public Resolution[] resolveAll() {
+        return resolver.resolveAll(vantagePointKeys, sourceKeys, dataTypeIds);
+    }
+
+
+    @Benchmark
+    public Object legacyBuild() {
+        return new LegacyResolver(legacyResolver.rules);
+    }
+
+
+    @Benchmark
+    public Object build() {
+        return new FlowClassificationRuleResolver(legacyResolver.rules);
+    }
+
+
+    /**
+     * The original resolver structure, kept here as a baseline.
+     */
+    private static class LegacyResolver {
+
+        private final List<FlowClassificationRuleVantagePoint> rules;
+        private final Map<EntityReference, Map<Long, Map<EntityReference, Optional<FlowClassificationRuleVantagePoint>>>> byOuThenDataTypeThenSubject = new HashMap<>();
+
+
+        private LegacyResolver(List<FlowClassificationRuleVantagePoint> rules) {
+            this.rules = rules;
+
+            Map<EntityReference, Map<Long, Map<EntityReference, List<FlowClassificationRuleVantagePoint>>>> grouped = new HashMap<>();
+            rules.forEach(vp -> grouped
+                    .computeIfAbsent(vp.vantagePoint(), k -> new HashMap<>())
+                    .computeIfAbsent(vp.dataType().id(), k -> new HashMap<>())
+                    .computeIfAbsent(vp.subjectReference(), k -> new ArrayList<>())
+                    .add(vp));
+
+            grouped.forEach((ou, byDt) -> byDt.forEach((dt, bySubject) -> bySubject.forEach((subject, vps) -> byOuThenDataTypeThenSubject
+                    .computeIfAbsent(ou, k -> new HashMap<>())
+                    .computeIfAbsent(dt, k -> new HashMap<>())
+                    .put(subject, getMostSpecificRanked(vps)))));
+        }
+
+
+        private AuthoritativenessRatingValue resolve(EntityReference vantagePoint,
+                                                     EntityReference source,
+                                                     Long dataTypeId) {
+            Map<Long, Map<EntityReference, Optional<FlowClassificationRuleVantagePoint>>> ouGroup = byOuThenDataTypeThenSubject.get(vantagePoint);
+            if (ouGroup == null) {
+                return AuthoritativenessRatingValue.NO_OPINION;
+            }
+
+            Map<EntityReference, Optional<FlowClassificationRuleVantagePoint>> dataTypeGroup = ouGroup.get(dataTypeId);
+            if (dataTypeGroup == null) {
+                return AuthoritativenessRatingValue.NO_OPINION;
+            }
+
+            return dataTypeGroup
+                    .getOrDefault(source, Optional.empty())
+                    .map(r -> AuthoritativenessRatingValue.of(r.classificationCode()))
+                    .orElse(AuthoritativenessRatingValue.DISCOURAGED);
+        }
+    }
+
+}
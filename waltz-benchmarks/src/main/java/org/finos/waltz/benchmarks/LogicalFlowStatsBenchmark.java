@@ -0,0 +1,85 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.benchmarks;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.HierarchyQueryScope;
+import org.finos.waltz.model.IdSelectionOptions;
+import org.finos.waltz.model.logical_flow.LogicalFlowStatistics;
+import org.finos.waltz.service.logical_flow.LogicalFlowService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.finos.waltz.model.IdSelectionOptions.mkOpts;
+
+/**
+ * Calculates logical flow statistics for the whole org unit tree and for
+ * the application which has had stress flows generated for it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LogicalFlowStatsBenchmark {
+
+    private LogicalFlowService logicalFlowService;
+    private IdSelectionOptions orgUnitOptions;
+    private IdSelectionOptions hubAppOptions;
+
+
+    @Setup
+    public void setup() {
+        BenchmarkData data = BenchmarkData.get();
+        logicalFlowService = data.getBean(LogicalFlowService.class);
+
+        orgUnitOptions = mkOpts(
+                mkRef(EntityKind.ORG_UNIT, data.rootOrgUnitId()),
+                HierarchyQueryScope.CHILDREN);
+
+        hubAppOptions = mkOpts(
+                mkRef(EntityKind.APPLICATION, data.hubAppId()),
+                HierarchyQueryScope.EXACT);
+    }
+
+
+    @Benchmark
+    public LogicalFlowStatistics orgUnitStats() {
+        return logicalFlowService.calculateStats(orgUnitOptions);
+    }
+
+
+    @Benchmark
+    public LogicalFlowStatistics hubAppStats() {
+        return logicalFlowService.calculateStats(hubAppOptions);
+    }
+
+}
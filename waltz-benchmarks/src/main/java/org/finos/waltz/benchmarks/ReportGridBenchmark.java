@@ -0,0 +1,148 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.benchmarks;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.HierarchyQueryScope;
+import org.finos.waltz.model.IdSelectionOptions;
+import org.finos.waltz.model.report_grid.ImmutableReportGridColumnDefinitionsUpdateCommand;
+import org.finos.waltz.model.report_grid.ImmutableReportGridCreateCommand;
+import org.finos.waltz.model.report_grid.ImmutableReportGridFixedColumnDefinition;
+import org.finos.waltz.model.report_grid.ReportGridFixedColumnDefinition;
+import org.finos.waltz.model.report_grid.ReportGridInfo;
+import org.finos.waltz.model.report_grid.ReportGridInstance;
+import org.finos.waltz.service.report_grid.ReportGridService;
+import org.jooq.DSLContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.finos.waltz.model.IdSelectionOptions.mkOpts;
+import static org.finos.waltz.schema.Tables.ASSESSMENT_DEFINITION;
+import static org.finos.waltz.schema.Tables.INVOLVEMENT_KIND;
+import static org.finos.waltz.schema.Tables.MEASURABLE;
+
+/**
+ * Builds a report grid instance for the whole org unit tree, the grid has
+ * measurable, involvement and assessment columns.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ReportGridBenchmark {
+
+    private static final int COLUMNS_PER_KIND = 5;
+
+    private ReportGridService reportGridService;
+    private IdSelectionOptions options;
+    private long gridId;
+
+
+    @Setup
+    public void setup() throws Exception {
+        BenchmarkData data = BenchmarkData.get();
+        DSLContext dsl = data.dsl();
+
+        reportGridService = data.getBean(ReportGridService.class);
+        options = mkOpts(
+                mkRef(EntityKind.ORG_UNIT, data.rootOrgUnitId()),
+                HierarchyQueryScope.CHILDREN);
+
+        ReportGridInfo grid = reportGridService.create(
+                ImmutableReportGridCreateCommand
+                        .builder()
+                        .name("Benchmark grid")
+                        .subjectKind(EntityKind.APPLICATION)
+                        .build(),
+                data.username());
+
+        gridId = grid.gridId();
+
+        List<ReportGridFixedColumnDefinition> columns = new ArrayList<>();
+
+        addColumns(
+                columns,
+                EntityKind.MEASURABLE,
+                dsl.select(MEASURABLE.ID)
+                        .from(MEASURABLE)
+                        .where(MEASURABLE.PARENT_ID.isNull())
+                        .and(MEASURABLE.MEASURABLE_CATEGORY_ID.ne(data.stressCategoryId()))
+                        .limit(COLUMNS_PER_KIND)
+                        .fetch(MEASURABLE.ID));
+
+        addColumns(
+                columns,
+                EntityKind.INVOLVEMENT_KIND,
+                dsl.select(INVOLVEMENT_KIND.ID)
+                        .from(INVOLVEMENT_KIND)
+                        .limit(COLUMNS_PER_KIND)
+                        .fetch(INVOLVEMENT_KIND.ID));
+
+        addColumns(
+                columns,
+                EntityKind.ASSESSMENT_DEFINITION,
+                dsl.select(ASSESSMENT_DEFINITION.ID)
+                        .from(ASSESSMENT_DEFINITION)
+                        .where(ASSESSMENT_DEFINITION.ENTITY_KIND.eq(EntityKind.APPLICATION.name()))
+                        .limit(COLUMNS_PER_KIND)
+                        .fetch(ASSESSMENT_DEFINITION.ID));
+
+        reportGridService.updateColumnDefinitions(
+                gridId,
+                ImmutableReportGridColumnDefinitionsUpdateCommand
+                        .builder()
+                        .fixedColumnDefinitions(columns)
+                        .build(),
+                data.username());
+    }
+
+
+    @Benchmark
+    public ReportGridInstance mkInstance() {
+        return reportGridService.mkInstance(gridId, options, EntityKind.APPLICATION);
+    }
+
+
+    private static void addColumns(List<ReportGridFixedColumnDefinition> columns,
+                                   EntityKind kind,
+                                   List<Long> ids) {
+        ids.forEach(id -> columns.add(ImmutableReportGridFixedColumnDefinition
+                .builder()
+                .columnEntityKind(kind)
+                .columnEntityId(id)
+                .position(columns.size())
+                .build()));
+    }
+
+}
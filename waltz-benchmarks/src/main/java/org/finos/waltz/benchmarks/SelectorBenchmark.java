@@ -0,0 +1,108 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.benchmarks;
+
+import org.finos.waltz.data.application.ApplicationIdSelectorFactory;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.HierarchyQueryScope;
+import org.finos.waltz.model.IdSelectionOptions;
+import org.finos.waltz.service.application.ApplicationIdSelectorResolver;
+import org.jooq.DSLContext;
+import org.jooq.Record1;
+import org.jooq.Result;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.finos.waltz.model.IdSelectionOptions.mkOpts;
+import static org.finos.waltz.schema.Tables.MEASURABLE;
+
+/**
+ * Compares evaluating application id selectors directly against the
+ * database with resolving them via the (caching) selector resolver.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SelectorBenchmark {
+
+    @Param({"ORG_UNIT", "MEASURABLE"})
+    public String selectorKind;
+
+    private final ApplicationIdSelectorFactory selectorFactory = new ApplicationIdSelectorFactory();
+    private ApplicationIdSelectorResolver selectorResolver;
+    private DSLContext dsl;
+    private IdSelectionOptions options;
+
+
+    @Setup
+    public void setup() {
+        BenchmarkData data = BenchmarkData.get();
+        dsl = data.dsl();
+        selectorResolver = data.getBean(ApplicationIdSelectorResolver.class);
+
+        long id = EntityKind.valueOf(selectorKind) == EntityKind.ORG_UNIT
+                ? data.rootOrgUnitId()
+                : dsl.select(MEASURABLE.ID)
+                    .from(MEASURABLE)
+                    .where(MEASURABLE.PARENT_ID.isNull())
+                    .and(MEASURABLE.MEASURABLE_CATEGORY_ID.ne(data.stressCategoryId()))
+                    .orderBy(MEASURABLE.ID)
+                    .limit(1)
+                    .fetchOne(MEASURABLE.ID);
+
+        options = mkOpts(
+                mkRef(EntityKind.valueOf(selectorKind), id),
+                HierarchyQueryScope.CHILDREN);
+    }
+
+
+    @Benchmark
+    public Result<Record1<Long>> direct() {
+        return dsl.fetch(selectorFactory.apply(options));
+    }
+
+
+    @Benchmark
+    public long[] resolved() {
+        return selectorResolver.resolveIds(options);
+    }
+
+
+    @Benchmark
+    public long[] resolvedUncached() {
+        selectorResolver.clear();
+        return selectorResolver.resolveIds(options);
+    }
+
+}
@@ -0,0 +1,343 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.common;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.Checks.checkTrue;
+
+/**
+ * Simple, thread-safe, in-process cache which evicts the least recently used
+ * entries once a maximum total weight is exceeded.  Entries may optionally expire
+ * after a fixed time-to-live.
+ * <p>
+ * By default every entry has a weight of one, making the max weight equivalent
+ * to a maximum number of entries.  Supply a weigher to bound the cache by an
+ * approximation of memory use instead (e.g. the number of rows held by each value).
+ * <p>
+ * Values are computed outside of the cache lock, so concurrent misses for the same
+ * key may compute the value more than once, the last computed value wins.
+ * <p>
+ * Every invalidation advances the cache's generation.  A value computed by
+ * {@link #getOrCompute(Object, Function)} is only stored if no invalidation happened
+ * whilst it was being computed, otherwise it may reflect data from before the
+ * invalidation.  Callers doing their own compute-then-put should capture the
+ * {@link #generation()} before computing and use {@link #putIfCurrent(Object, Object, long)}.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class BoundedCache<K, V> {
+
+    private final long maxWeight;
+    private final long ttlMillis;
+    private final ToLongFunction<V> weigher;
+    private final LongSupplier clock;
+
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalWeight = 0;
+    private long generation = 0;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong invalidationCount = new AtomicLong();
+
+
+    /**
+     * @param maxWeight  maximum total weight of all entries before LRU eviction kicks in
+     * @param ttlMillis  time to live for each entry, values of zero or less disable expiry
+     * @param weigher    function to determine the weight of a value
+     */
+    public BoundedCache(long maxWeight,
+                        long ttlMillis,
+                        ToLongFunction<V> weigher) {
+        this(maxWeight, ttlMillis, weigher, System::currentTimeMillis);
+    }
+
+
+    /**
+     * @param maxWeight  maximum total weight of all entries before LRU eviction kicks in
+     * @param ttlMillis  time to live for each entry, values of zero or less disable expiry
+     * @param weigher    function to determine the weight of a value
+     * @param clock      source of the current time (in millis), mainly useful for testing
+     */
+    public BoundedCache(long maxWeight,
+                        long ttlMillis,
+                        ToLongFunction<V> weigher,
+                        LongSupplier clock) {
+        checkTrue(maxWeight > 0, "maxWeight must be positive");
+        checkNotNull(weigher, "weigher cannot be null");
+        checkNotNull(clock, "clock cannot be null");
+
+        this.maxWeight = maxWeight;
+        this.ttlMillis = ttlMillis;
+        this.weigher = weigher;
+        this.clock = clock;
+    }
+
+
+    /**
+     * Creates a cache where every entry has a weight of one.
+     *
+     * @param maxEntries  maximum number of entries to hold
+     * @param ttlMillis   time to live for each entry, values of zero or less disable expiry
+     * @param <K> key type
+     * @param <V> value type
+     * @return  new, empty, cache
+     */
+    public static <K, V> BoundedCache<K, V> mkCountBoundedCache(long maxEntries,
+                                                                long ttlMillis) {
+        return new BoundedCache<>(maxEntries, ttlMillis, v -> 1);
+    }
+
+
+    /**
+     * Returns the cached value for the given key if present and not expired.
+     * Hit and miss counts are updated accordingly.
+     *
+     * @param key  cache key
+     * @return  optional value
+     */
+    public Optional<V> get(K key) {
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry == null) {
+                missCount.incrementAndGet();
+                return Optional.empty();
+            } else if (isExpired(entry)) {
+                removeEntry(key);
+                missCount.incrementAndGet();
+                return Optional.empty();
+            } else {
+                hitCount.incrementAndGet();
+                return Optional.of(entry.value);
+            }
+        }
+    }
+
+
+    /**
+     * Returns the cached value for the given key, computing (and storing) it if
+     * not present.  Null values returned by the compute function are not cached.
+     *
+     * @param key  cache key
+     * @param computeFn  function used to calculate the value on a cache miss
+     * @return  the cached or newly computed value
+     */
+    public V getOrCompute(K key, Function<K, V> computeFn) {
+        return get(key)
+                .orElseGet(() -> {
+                    long computeGeneration = generation();
+                    V value = computeFn.apply(key);
+                    if (value != null) {
+                        putIfCurrent(key, value, computeGeneration);
+                    }
+                    return value;
+                });
+    }
+
+
+    public void put(K key, V value) {
+        checkNotNull(value, "value cannot be null");
+        long weight = weigher.applyAsLong(value);
+
+        synchronized (entries) {
+            store(key, value, weight);
+        }
+    }
+
+
+    /**
+     * Stores the value only if the cache has not been invalidated since the given
+     * generation was captured (via {@link #generation()}), i.e. the value cannot have
+     * been computed from data which has since changed.
+     *
+     * @param key  cache key
+     * @param value  value to store
+     * @param expectedGeneration  generation captured before the value was computed
+     * @return  true if the value was stored
+     */
+    public boolean putIfCurrent(K key, V value, long expectedGeneration) {
+        checkNotNull(value, "value cannot be null");
+        long weight = weigher.applyAsLong(value);
+
+        synchronized (entries) {
+            if (generation != expectedGeneration) {
+                return false;
+            }
+            store(key, value, weight);
+            return true;
+        }
+    }
+
+
+    /**
+     * @return  the current generation, advanced by every invalidation (including clears)
+     */
+    public long generation() {
+        synchronized (entries) {
+            return generation;
+        }
+    }
+
+
+    public void invalidate(K key) {
+        synchronized (entries) {
+            generation++;
+            if (removeEntry(key)) {
+                invalidationCount.incrementAndGet();
+            }
+        }
+    }
+
+
+    /**
+     * Removes every entry matching the given predicate.
+     *
+     * @param predicate  test applied to each key/value pair
+     * @return  number of entries removed
+     */
+    public int invalidateIf(BiPredicate<K, V> predicate) {
+        synchronized (entries) {
+            // values being computed cannot be tested against the predicate, so treat them as affected
+            generation++;
+            int removed = 0;
+            Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<K, Entry<V>> e = iterator.next();
+                if (predicate.test(e.getKey(), e.getValue().value)) {
+                    totalWeight -= e.getValue().weight;
+                    iterator.remove();
+                    removed++;
+                }
+            }
+            invalidationCount.addAndGet(removed);
+            return removed;
+        }
+    }
+
+
+    public void clear() {
+        synchronized (entries) {
+            generation++;
+            invalidationCount.addAndGet(entries.size());
+            entries.clear();
+            totalWeight = 0;
+        }
+    }
+
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+
+    public long totalWeight() {
+        synchronized (entries) {
+            return totalWeight;
+        }
+    }
+
+
+    public long hitCount() {
+        return hitCount.get();
+    }
+
+
+    public long missCount() {
+        return missCount.get();
+    }
+
+
+    public long evictionCount() {
+        return evictionCount.get();
+    }
+
+
+    public long invalidationCount() {
+        return invalidationCount.get();
+    }
+
+
+    // -- HELPERS ---
+
+    private void store(K key, V value, long weight) {
+        removeEntry(key);
+        if (weight > maxWeight) {
+            // too big to ever fit, do not bother caching it
+            evictionCount.incrementAndGet();
+            return;
+        }
+        entries.put(key, new Entry<>(value, weight, clock.getAsLong()));
+        totalWeight += weight;
+        evictIfNeeded();
+    }
+
+
+    private boolean isExpired(Entry<V> entry) {
+        return ttlMillis > 0 && clock.getAsLong() - entry.createdAt >= ttlMillis;
+    }
+
+
+    private boolean removeEntry(K key) {
+        Entry<V> existing = entries.remove(key);
+        if (existing == null) {
+            return false;
+        } else {
+            totalWeight -= existing.weight;
+            return true;
+        }
+    }
+
+
+    private void evictIfNeeded() {
+        Iterator<Entry<V>> iterator = entries.values().iterator();
+        while (totalWeight > maxWeight && iterator.hasNext()) {
+            Entry<V> eldest = iterator.next();
+            totalWeight -= eldest.weight;
+            iterator.remove();
+            evictionCount.incrementAndGet();
+        }
+    }
+
+
+    private static class Entry<V> {
+        private final V value;
+        private final long weight;
+        private final long createdAt;
+
+        private Entry(V value, long weight, long createdAt) {
+            this.value = value;
+            this.weight = weight;
+            this.createdAt = createdAt;
+        }
+    }
+}
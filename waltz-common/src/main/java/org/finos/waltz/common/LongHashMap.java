@@ -0,0 +1,182 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.common;
+
+import java.util.function.LongFunction;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.Checks.checkTrue;
+
+/**
+ * Minimal open-addressing hash map keyed by primitive <code>long</code>s.
+ * <p>
+ * Intended for large, build-once / read-many lookup structures where boxing keys
+ * (and hashing composite keys such as entity references) would dominate.  Keys are
+ * stored in a flat <code>long[]</code> and probed linearly, <code>null</code> values
+ * are not permitted (a null slot marks an empty entry) and entries cannot be removed.
+ * <p>
+ * Not thread-safe for concurrent writes, however once populated it may be safely
+ * read from multiple threads (providing it is published safely, e.g. via a final field).
+ *
+ * @param <V> value type
+ */
+public class LongHashMap<V> {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size = 0;
+
+
+    public LongHashMap() {
+        this(16);
+    }
+
+
+    /**
+     * @param expectedSize  number of entries expected, used to size the table to avoid rehashing
+     */
+    public LongHashMap(int expectedSize) {
+        checkTrue(expectedSize >= 0, "expectedSize cannot be negative");
+        allocate(tableSizeFor(expectedSize));
+    }
+
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int idx = indexOf(key);
+        return (V) values[idx];
+    }
+
+
+    public V getOrDefault(long key, V dflt) {
+        V value = get(key);
+        return value == null
+                ? dflt
+                : value;
+    }
+
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+
+    /**
+     * @return the previous value associated with the key, or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        checkNotNull(value, "value cannot be null");
+
+        int idx = indexOf(key);
+        V previous = (V) values[idx];
+        keys[idx] = key;
+        values[idx] = value;
+
+        if (previous == null && ++size > keys.length * LOAD_FACTOR) {
+            allocate(keys.length * 2);
+        }
+
+        return previous;
+    }
+
+
+    public V computeIfAbsent(long key, LongFunction<V> mappingFn) {
+        V existing = get(key);
+        if (existing != null) {
+            return existing;
+        }
+
+        V value = checkNotNull(mappingFn.apply(key), "mappingFn cannot return null");
+        put(key, value);
+        return value;
+    }
+
+
+    public int size() {
+        return size;
+    }
+
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+
+    // -- HELPERS ---
+
+    /**
+     * @return the slot holding the key, or the empty slot where it would be inserted
+     */
+    private int indexOf(long key) {
+        int idx = mix(key) & mask;
+        while (values[idx] != null && keys[idx] != key) {
+            idx = (idx + 1) & mask;
+        }
+        return idx;
+    }
+
+
+    private void allocate(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+
+        if (oldKeys != null) {
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    int idx = indexOf(oldKeys[i]);
+                    keys[idx] = oldKeys[i];
+                    values[idx] = oldValues[i];
+                }
+            }
+        }
+    }
+
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = 16;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+
+    /**
+     * Spreads the bits of the key (murmur3 finaliser) as ids are often sequential
+     * and packed keys differ mostly in their high bits.
+     */
+    private static int mix(long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.common;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+
+/**
+ * Holds a single, lazily loaded, value (typically an immutable snapshot of a small
+ * reference table) which is shared by all readers.
+ * <p>
+ * Readers see the current snapshot without locking.  The snapshot is reloaded on the
+ * first read after it has been invalidated or after the time-to-live has elapsed, only
+ * one thread performs the reload and the new snapshot replaces the old one in a single
+ * write.  An invalidation which happens whilst a reload is in progress causes the
+ * reloaded value to be treated as stale, so changes are never lost.
+ * <p>
+ * The loader should return a value which is safe to share, i.e. immutable.
+ *
+ * @param <T> type of the snapshot
+ */
+public class SnapshotCache<T> {
+
+    private final Supplier<T> loader;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Snapshot<T> current;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong refreshCount = new AtomicLong();
+    private final AtomicLong invalidationCount = new AtomicLong();
+
+
+    /**
+     * @param loader     function to load a fresh snapshot
+     * @param ttlMillis  maximum age of a snapshot, values of zero or less disable expiry
+     */
+    public SnapshotCache(Supplier<T> loader,
+                         long ttlMillis) {
+        this(loader, ttlMillis, System::currentTimeMillis);
+    }
+
+
+    /**
+     * @param loader     function to load a fresh snapshot
+     * @param ttlMillis  maximum age of a snapshot, values of zero or less disable expiry
+     * @param clock      source of the current time (in millis), mainly useful for testing
+     */
+    public SnapshotCache(Supplier<T> loader,
+                         long ttlMillis,
+                         LongSupplier clock) {
+        checkNotNull(loader, "loader cannot be null");
+        checkNotNull(clock, "clock cannot be null");
+
+        this.loader = loader;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+    }
+
+
+    /**
+     * Returns the current snapshot, loading a new one if there is no
+     * valid snapshot.  Hit and miss counts are updated accordingly.
+     *
+     * @return  the current snapshot
+     */
+    public T get() {
+        Snapshot<T> snapshot = current;
+        if (isValid(snapshot)) {
+            hitCount.incrementAndGet();
+            return snapshot.value;
+        }
+
+        missCount.incrementAndGet();
+        return reload();
+    }
+
+
+    /**
+     * Marks the current snapshot as stale, the next read will load a new snapshot.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        invalidationCount.incrementAndGet();
+    }
+
+
+    public long hitCount() {
+        return hitCount.get();
+    }
+
+
+    public long missCount() {
+        return missCount.get();
+    }
+
+
+    public long refreshCount() {
+        return refreshCount.get();
+    }
+
+
+    public long invalidationCount() {
+        return invalidationCount.get();
+    }
+
+
+    // -- HELPERS ---
+
+    private synchronized T reload() {
+        // another thread may have reloaded whilst we were waiting for the lock
+        Snapshot<T> snapshot = current;
+        if (isValid(snapshot)) {
+            return snapshot.value;
+        }
+
+        long loadGeneration = generation.get();
+        long loadedAt = clock.getAsLong();
+        T value = loader.get();
+
+        current = new Snapshot<>(value, loadGeneration, loadedAt);
+        refreshCount.incrementAndGet();
+        return value;
+    }
+
+
+    private boolean isValid(Snapshot<T> snapshot) {
+        return snapshot != null
+                && snapshot.generation == generation.get()
+                && (ttlMillis <= 0 || clock.getAsLong() - snapshot.loadedAt < ttlMillis);
+    }
+
+
+    private static class Snapshot<T> {
+
+        private final T value;
+        private final long generation;
+        private final long loadedAt;
+
+
+        private Snapshot(T value, long generation, long loadedAt) {
+            this.value = value;
+            this.generation = generation;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoundedCacheTest {
+
+    @Test
+    public void maxWeightMustBePositive() {
+        assertThrows(IllegalArgumentException.class,
+                () -> BoundedCache.mkCountBoundedCache(0, 0));
+    }
+
+
+    @Test
+    public void getOrComputeOnlyComputesOnMiss() {
+        BoundedCache<String, Integer> cache = BoundedCache.mkCountBoundedCache(10, 0);
+        AtomicInteger computeCount = new AtomicInteger();
+
+        assertEquals(3, cache.getOrCompute("abc", k -> { computeCount.incrementAndGet(); return k.length(); }));
+        assertEquals(3, cache.getOrCompute("abc", k -> { computeCount.incrementAndGet(); return k.length(); }));
+
+        assertEquals(1, computeCount.get());
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+    }
+
+
+    @Test
+    public void nullValuesAreNotCached() {
+        BoundedCache<String, Integer> cache = BoundedCache.mkCountBoundedCache(10, 0);
+
+        assertNull(cache.getOrCompute("abc", k -> null));
+        assertEquals(0, cache.size());
+    }
+
+
+    @Test
+    public void leastRecentlyUsedEntriesAreEvicted() {
+        BoundedCache<String, Integer> cache = BoundedCache.mkCountBoundedCache(2, 0);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.get("a");
+        cache.put("c", 3);
+
+        assertTrue(cache.get("a").isPresent());
+        assertFalse(cache.get("b").isPresent(), "b was the least recently used so should have been evicted");
+        assertTrue(cache.get("c").isPresent());
+        assertEquals(1, cache.evictionCount());
+    }
+
+
+    @Test
+    public void evictionIsBasedOnWeight() {
+        BoundedCache<String, String> cache = new BoundedCache<>(10, 0, String::length);
+        cache.put("a", "12345");
+        cache.put("b", "12345");
+        assertEquals(10, cache.totalWeight());
+
+        cache.put("c", "1");
+        assertEquals(2, cache.size());
+        assertEquals(6, cache.totalWeight());
+        assertFalse(cache.get("a").isPresent());
+    }
+
+
+    @Test
+    public void valuesHeavierThanMaxWeightAreNotCached() {
+        BoundedCache<String, String> cache = new BoundedCache<>(3, 0, String::length);
+        cache.put("a", "12345");
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.totalWeight());
+    }
+
+
+    @Test
+    public void entriesExpireAfterTtl() {
+        AtomicLong now = new AtomicLong(1000);
+        BoundedCache<String, Integer> cache = new BoundedCache<>(10, 100, v -> 1, now::get);
+        cache.put("a", 1);
+
+        now.set(1099);
+        assertTrue(cache.get("a").isPresent());
+
+        now.set(1100);
+        assertFalse(cache.get("a").isPresent());
+        assertEquals(0, cache.size());
+    }
+
+
+    @Test
+    public void canInvalidateByPredicate() {
+        BoundedCache<String, Integer> cache = BoundedCache.mkCountBoundedCache(10, 0);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.put("c", 3);
+
+        assertEquals(2, cache.invalidateIf((k, v) -> v % 2 == 1));
+        assertEquals(1, cache.size());
+        assertTrue(cache.get("b").isPresent());
+        assertEquals(2, cache.invalidationCount());
+    }
+
+
+    @Test
+    public void canInvalidateSingleKeyAndClear() {
+        BoundedCache<String, Integer> cache = BoundedCache.mkCountBoundedCache(10, 0);
+        cache.put("a", 1);
+        cache.put("b", 2);
+
+        cache.invalidate("a");
+        assertFalse(cache.get("a").isPresent());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.totalWeight());
+    }
+
+
+    @Test
+    public void invalidationDuringComputeIsNotLost() {
+        BoundedCache<String, Integer> cache = BoundedCache.mkCountBoundedCache(10, 0);
+        AtomicInteger computeCount = new AtomicInteger();
+
+        Integer first = cache.getOrCompute("a", k -> {
+            int count = computeCount.incrementAndGet();
+            // simulate a change being made whilst the value is being computed
+            cache.invalidate(k);
+            return count;
+        });
+
+        assertEquals(1, first);
+        assertFalse(cache.get("a").isPresent(), "value computed before the invalidation should not be cached");
+        assertEquals(2, cache.getOrCompute("a", k -> computeCount.incrementAndGet()));
+        assertEquals(2, cache.getOrCompute("a", k -> computeCount.incrementAndGet()));
+    }
+
+
+    @Test
+    public void predicateInvalidationDuringComputeIsNotLost() {
+        BoundedCache<String, Integer> cache = BoundedCache.mkCountBoundedCache(10, 0);
+
+        cache.getOrCompute("a", k -> {
+            cache.invalidateIf((key, v) -> false);
+            return 1;
+        });
+
+        assertFalse(cache.get("a").isPresent(), "an in-flight value may be affected by any predicate invalidation");
+    }
+
+
+    @Test
+    public void putIfCurrentOnlyStoresWhenNotInvalidated() {
+        BoundedCache<String, Integer> cache = BoundedCache.mkCountBoundedCache(10, 0);
+
+        long generation = cache.generation();
+        assertTrue(cache.putIfCurrent("a", 1, generation));
+
+        cache.clear();
+        assertFalse(cache.putIfCurrent("b", 2, generation));
+        assertFalse(cache.get("b").isPresent());
+        assertTrue(cache.putIfCurrent("b", 2, cache.generation()));
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LongHashMapTest {
+
+    @Test
+    public void missingKeysReturnNull() {
+        LongHashMap<String> map = new LongHashMap<>();
+        assertNull(map.get(1L));
+        assertEquals("x", map.getOrDefault(1L, "x"));
+        assertFalse(map.containsKey(1L));
+        assertTrue(map.isEmpty());
+    }
+
+
+    @Test
+    public void putReplacesExistingValues() {
+        LongHashMap<String> map = new LongHashMap<>();
+        assertNull(map.put(0L, "a"));
+        assertEquals("a", map.put(0L, "b"));
+        assertEquals("b", map.get(0L));
+        assertEquals(1, map.size());
+    }
+
+
+    @Test
+    public void growsBeyondInitialCapacity() {
+        LongHashMap<Long> map = new LongHashMap<>(1);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 10_000; i++) {
+            long key = i % 2 == 0
+                    ? i
+                    : random.nextLong();
+            map.put(key, -key);
+            expected.put(key, -key);
+        }
+
+        assertEquals(expected.size(), map.size());
+        expected.forEach((k, v) -> assertEquals(v, map.get(k)));
+        assertNull(map.get(-1L));
+    }
+
+
+    @Test
+    public void computeIfAbsentOnlyComputesOnce() {
+        LongHashMap<StringBuilder> map = new LongHashMap<>();
+        map.computeIfAbsent(7L, k -> new StringBuilder()).append("a");
+        map.computeIfAbsent(7L, k -> new StringBuilder()).append("b");
+        assertEquals("ab", map.get(7L).toString());
+    }
+
+
+    @Test
+    public void nullValuesAreRejected() {
+        LongHashMap<String> map = new LongHashMap<>();
+        assertThrows(IllegalArgumentException.class, () -> map.put(1L, null));
+    }
+
+}
@@ -0,0 +1,111 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnapshotCacheTest {
+
+    @Test
+    public void snapshotIsOnlyLoadedOnce() {
+        AtomicInteger loadCount = new AtomicInteger();
+        SnapshotCache<Integer> cache = new SnapshotCache<>(loadCount::incrementAndGet, 0);
+
+        assertEquals(1, cache.get());
+        assertEquals(1, cache.get());
+
+        assertEquals(1, loadCount.get());
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+        assertEquals(1, cache.refreshCount());
+    }
+
+
+    @Test
+    public void invalidationCausesReload() {
+        AtomicInteger loadCount = new AtomicInteger();
+        SnapshotCache<Integer> cache = new SnapshotCache<>(loadCount::incrementAndGet, 0);
+
+        assertEquals(1, cache.get());
+        cache.invalidate();
+        assertEquals(2, cache.get());
+        assertEquals(2, cache.get());
+
+        assertEquals(1, cache.invalidationCount());
+        assertEquals(2, cache.refreshCount());
+    }
+
+
+    @Test
+    public void snapshotsExpireAfterTtl() {
+        AtomicLong now = new AtomicLong(1000);
+        AtomicInteger loadCount = new AtomicInteger();
+        SnapshotCache<Integer> cache = new SnapshotCache<>(loadCount::incrementAndGet, 100, now::get);
+
+        assertEquals(1, cache.get());
+        now.addAndGet(99);
+        assertEquals(1, cache.get());
+        now.addAndGet(1);
+        assertEquals(2, cache.get());
+    }
+
+
+    @Test
+    public void invalidationDuringLoadIsNotLost() {
+        AtomicInteger loadCount = new AtomicInteger();
+        SnapshotCache<Integer>[] holder = new SnapshotCache[1];
+        holder[0] = new SnapshotCache<>(
+                () -> {
+                    int count = loadCount.incrementAndGet();
+                    if (count == 1) {
+                        // simulate a change being made whilst the first snapshot is loading
+                        holder[0].invalidate();
+                    }
+                    return count;
+                },
+                0);
+
+        assertEquals(1, holder[0].get());
+        assertEquals(2, holder[0].get(), "snapshot loaded before the invalidation should be considered stale");
+        assertEquals(2, holder[0].get());
+    }
+
+
+    @Test
+    public void failedLoadsArePropagatedAndRetried() {
+        AtomicInteger loadCount = new AtomicInteger();
+        SnapshotCache<Integer> cache = new SnapshotCache<>(
+                () -> {
+                    if (loadCount.incrementAndGet() == 1) {
+                        throw new IllegalStateException("boom");
+                    }
+                    return loadCount.get();
+                },
+                0);
+
+        assertThrows(IllegalStateException.class, cache::get);
+        assertEquals(2, cache.get());
+    }
+
+}
@@ -19,33 +19,208 @@
 package org.finos.waltz.data;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
 
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Executes database tasks on behalf of services and daos which fan out queries.
+ * <p>
+ * Tasks are frequently submitted from within other tasks (e.g. the entity search
+ * fans out one task per entity kind, and the application search then fans out a
+ * further task per search strategy, blocking until they complete).  With a single
+ * pool the threads can all end up blocked waiting on nested tasks which are stuck
+ * in the queue behind them.
+ * <p>
+ * To prevent this each level of nesting has its own pool:
+ * <ul>
+ *     <li>top level tasks (submitted from request threads etc.) run on the <code>DB Executor</code> pool</li>
+ *     <li>tasks submitted by a top level task run on the <code>DB Executor (nested)</code> pool</li>
+ *     <li>any deeper submissions are run immediately on the submitting thread</li>
+ * </ul>
+ * As nested tasks never wait on tasks in their own (or an outer) pool they will always
+ * make progress.  The pools share a budget of half the database connection pool size
+ * worth of threads (as a single pool previously had), leaving the remaining connections
+ * for request threads.  Each pool has at least one thread, so with a very small connection
+ * pool the budget is exceeded by one.
+ */
+@ManagedResource(description = "Executor pools used to run fan-out database queries")
 public class DBExecutorPool implements DBExecutorPoolInterface {
 
-    private final ExecutorService executorPool;
+    private static final ThreadLocal<Integer> NESTING_LEVEL = ThreadLocal.withInitial(() -> 0);
+
+    private final Tier topLevel;
+    private final Tier nested;
+    private final AtomicLong inlineCount = new AtomicLong();
 
 
     @Autowired
     public DBExecutorPool(int dbPoolMin, int dbPoolMax) {
-        executorPool = Executors.newFixedThreadPool(
-                Integer.max(dbPoolMax / 2, 1),
-                (runnable) -> {
-                    Thread t = new Thread(runnable, "DB Executor");
-                    t.setDaemon(true);
-                    return t;
-                });
-
+        int threadBudget = Integer.max(dbPoolMax / 2, 1);
+        int topLevelThreads = Integer.max(threadBudget / 2, 1);
+        int nestedThreads = Integer.max(threadBudget - topLevelThreads, 1);
+        topLevel = new Tier("DB Executor", 1, topLevelThreads);
+        nested = new Tier("DB Executor (nested)", 2, nestedThreads);
     }
 
 
     @Override
     public <T> Future<T> submit(Callable<T> task) {
-        return executorPool.submit(task);
+        switch (NESTING_LEVEL.get()) {
+            case 0:
+                return topLevel.submit(task);
+            case 1:
+                return nested.submit(task);
+            default:
+                inlineCount.incrementAndGet();
+                FutureTask<T> inlineTask = new FutureTask<>(task);
+                inlineTask.run();
+                return inlineTask;
+        }
+    }
+
+
+    @ManagedAttribute(description = "Number of threads available to top level tasks")
+    public int getPoolSize() {
+        return topLevel.executor.getMaximumPoolSize();
+    }
+
+
+    @ManagedAttribute(description = "Number of top level tasks waiting for a thread")
+    public int getQueueDepth() {
+        return topLevel.executor.getQueue().size();
+    }
+
+
+    @ManagedAttribute(description = "Number of top level tasks currently executing")
+    public int getActiveCount() {
+        return topLevel.executor.getActiveCount();
+    }
+
+
+    @ManagedAttribute
+    public long getCompletedCount() {
+        return topLevel.executor.getCompletedTaskCount();
+    }
+
+
+    @ManagedAttribute(description = "Average time (ms) top level tasks spend queued before executing")
+    public double getAverageWaitMillis() {
+        return topLevel.averageWaitMillis();
+    }
+
+
+    @ManagedAttribute(description = "Longest time (ms) a top level task has spent queued before executing")
+    public long getMaxWaitMillis() {
+        return topLevel.maxWaitMillis.get();
+    }
+
+
+    @ManagedAttribute(description = "Number of threads available to nested tasks")
+    public int getNestedPoolSize() {
+        return nested.executor.getMaximumPoolSize();
+    }
+
+
+    @ManagedAttribute(description = "Number of nested tasks waiting for a thread")
+    public int getNestedQueueDepth() {
+        return nested.executor.getQueue().size();
+    }
+
+
+    @ManagedAttribute(description = "Number of nested tasks currently executing")
+    public int getNestedActiveCount() {
+        return nested.executor.getActiveCount();
+    }
+
+
+    @ManagedAttribute
+    public long getNestedCompletedCount() {
+        return nested.executor.getCompletedTaskCount();
+    }
+
+
+    @ManagedAttribute(description = "Average time (ms) nested tasks spend queued before executing")
+    public double getNestedAverageWaitMillis() {
+        return nested.averageWaitMillis();
+    }
+
+
+    @ManagedAttribute(description = "Longest time (ms) a nested task has spent queued before executing")
+    public long getNestedMaxWaitMillis() {
+        return nested.maxWaitMillis.get();
+    }
+
+
+    @ManagedAttribute(description = "Number of deeply nested tasks which were run on the submitting thread")
+    public long getInlineCount() {
+        return inlineCount.get();
+    }
+
+
+    private static class Tier {
+
+        private final ThreadPoolExecutor executor;
+        private final int nestingLevel;
+
+        private final AtomicLong startedCount = new AtomicLong();
+        private final AtomicLong totalWaitMillis = new AtomicLong();
+        private final AtomicLong maxWaitMillis = new AtomicLong();
+
+
+        private Tier(String threadName,
+                     int nestingLevel,
+                     int threadCount) {
+            this.nestingLevel = nestingLevel;
+            this.executor = new ThreadPoolExecutor(
+                    threadCount,
+                    threadCount,
+                    0L,
+                    TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(),
+                    (runnable) -> {
+                        Thread t = new Thread(runnable, threadName);
+                        t.setDaemon(true);
+                        return t;
+                    });
+        }
+
+
+        private <T> Future<T> submit(Callable<T> task) {
+            long submittedAt = System.currentTimeMillis();
+            Callable<T> trackedTask = QueryStats.propagate(task);
+            return executor.submit(() -> {
+                recordWait(System.currentTimeMillis() - submittedAt);
+                NESTING_LEVEL.set(nestingLevel);
+                try {
+                    return trackedTask.call();
+                } finally {
+                    NESTING_LEVEL.remove();
+                }
+            });
+        }
+
+
+        private void recordWait(long waitMillis) {
+            startedCount.incrementAndGet();
+            totalWaitMillis.addAndGet(waitMillis);
+            maxWaitMillis.accumulateAndGet(waitMillis, Math::max);
+        }
+
+
+        private double averageWaitMillis() {
+            long started = startedCount.get();
+            return started == 0
+                    ? 0
+                    : (double) totalWaitMillis.get() / started;
+        }
     }
 
 }
@@ -0,0 +1,470 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data;
+
+import org.finos.waltz.data.changelog.ChangeLogDao;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityLifecycleStatus;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.ImmutableEntityReference;
+import org.finos.waltz.model.changelog.ChangeLog;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Param;
+import org.jooq.Record;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.jooq.lambda.tuple.Tuple3;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.toList;
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.EnumUtilities.readEnum;
+import static org.finos.waltz.common.StreamUtilities.batchProcessingCollector;
+import static org.finos.waltz.model.EntityReference.mkRef;
+
+/**
+ * Resolves entity references to their names, external ids and lifecycle statuses.
+ * <p>
+ * This is the post-fetch alternative to the {@link InlineSelectFieldFactory} fields,
+ * daos select the raw (kind, id) pairs and then enrich them in bulk via {@link #lookup(Collection)}
+ * or {@link #resolve(Collection)}, keeping their queries free of correlated subqueries.
+ * The same table/column mappings as the inline fields are used, so the supported kinds
+ * and values are identical.
+ * <p>
+ * If enabled (<code>entity_name_dictionary.enabled</code>) the details of every supported
+ * entity are held in memory.  The dictionary is loaded in the background at startup and
+ * reloaded periodically.  Entries are dropped, rather than reloaded, when entities are changed,
+ * either explicitly via {@link #invalidate(Collection)} from the services which rename entities
+ * or when a change log entry mentioning them is written.  Lookups which miss (e.g. dropped
+ * entries or entities created since the last load) are loaded from the database and added to
+ * the dictionary, unless an invalidation happened whilst they were being loaded.  As change log
+ * entries may be written before the change itself (or inside an uncommitted transaction) the
+ * services invalidate again once their writes are complete.  Until the first load completes,
+ * or if the dictionary is disabled, lookups are answered by querying the entity tables
+ * directly (one query per kind).
+ */
+@Repository
+@ManagedResource(description = "In-memory dictionary of entity names, external ids and lifecycle statuses")
+public class EntityNameDictionary {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EntityNameDictionary.class);
+
+    private static final int ID_BATCH_SIZE = 1000;
+
+    private static final Map<EntityKind, Tuple3<Table, Field<Long>, Field<String>>> NAME_MAPPINGS = InlineSelectFieldFactory.getNameMappings();
+    private static final Map<EntityKind, Tuple3<Table, Field<Long>, Field<String>>> EXTERNAL_ID_MAPPINGS = InlineSelectFieldFactory.getExternalIdMappings();
+    private static final Map<EntityKind, Tuple3<Table, Field<Long>, Field<String>>> LIFECYCLE_MAPPINGS = InlineSelectFieldFactory.getLifecycleMappings();
+
+    private final DSLContext dsl;
+    private final boolean enabled;
+    private final ScheduledExecutorService loader;
+
+    /**
+     * Entries keyed by kind then id.  The outer map is replaced on each full load, the
+     * inner maps are updated in place as entities change or are loaded on demand.
+     */
+    private volatile Map<EntityKind, Map<Long, EntityReference>> entriesByKind = Collections.emptyMap();
+    private volatile long lastLoadDurationMillis = -1;
+
+    /**
+     * Guards the generation and the set of references invalidated whilst a full load is in progress
+     */
+    private final Object invalidationLock = new Object();
+    private long generation = 0;
+    private Set<EntityReference> invalidatedDuringLoad = null;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+
+    @Autowired
+    public EntityNameDictionary(DSLContext dsl,
+                                ChangeLogDao changeLogDao,
+                                @Value("${entity_name_dictionary.enabled:false}") boolean enabled,
+                                @Value("${entity_name_dictionary.refresh_minutes:60}") long refreshMinutes) {
+        checkNotNull(dsl, "dsl cannot be null");
+        checkNotNull(changeLogDao, "changeLogDao cannot be null");
+
+        this.dsl = dsl;
+        this.enabled = enabled;
+
+        // full loads happen on this single thread, so they cannot interleave
+        this.loader = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread t = new Thread(runnable, "Entity Name Dictionary Loader");
+            t.setDaemon(true);
+            return t;
+        });
+
+        if (enabled) {
+            loader.scheduleWithFixedDelay(
+                    this::loadQuietly,
+                    0,
+                    Math.max(refreshMinutes, 1),
+                    TimeUnit.MINUTES);
+            changeLogDao.addWriteListener(this::onChangeLogWritten);
+        }
+    }
+
+
+    public Set<EntityKind> getSupportedEntityKinds() {
+        return NAME_MAPPINGS.keySet();
+    }
+
+
+    /**
+     * Finds the details of the given entities.  The result is keyed by (kind, id) only
+     * references (i.e. <code>mkRef(kind, id)</code>), entities which cannot be found, or
+     * are of an unsupported kind, are omitted.
+     *
+     * @param refs  entities to look up
+     * @return  full references (name, external id and lifecycle status) keyed by (kind, id)
+     */
+    public Map<EntityReference, EntityReference> lookup(Collection<EntityReference> refs) {
+        checkNotNull(refs, "refs cannot be null");
+
+        Map<EntityKind, Map<Long, EntityReference>> entries = entriesByKind;
+        Map<EntityReference, EntityReference> result = new HashMap<>(refs.size());
+        Map<EntityKind, Set<Long>> missingIdsByKind = new EnumMap<>(EntityKind.class);
+
+        for (EntityReference ref : refs) {
+            if (! NAME_MAPPINGS.containsKey(ref.kind())) {
+                continue;
+            }
+
+            EntityReference entry = entries
+                    .getOrDefault(ref.kind(), Collections.emptyMap())
+                    .get(ref.id());
+
+            if (entry == null) {
+                missingIdsByKind
+                        .computeIfAbsent(ref.kind(), k -> new HashSet<>())
+                        .add(ref.id());
+            } else {
+                result.put(mkRef(ref.kind(), ref.id()), entry);
+            }
+        }
+
+        if (enabled) {
+            hitCount.add(result.size());
+            missCount.add(missingIdsByKind.values().stream().mapToLong(Set::size).sum());
+        }
+
+        missingIdsByKind.forEach((kind, ids) -> {
+            long fetchGeneration = currentGeneration();
+            List<EntityReference> fetched = fetchByIds(kind, ids);
+            fetched.forEach(entry -> result.put(mkRef(kind, entry.id()), entry));
+            storeIfCurrent(entries.get(kind), fetched, fetchGeneration);
+        });
+
+        return result;
+    }
+
+
+    /**
+     * Drops the given entities from the dictionary, they will be reloaded when next looked up.
+     * Services which change entity names, external ids or lifecycle statuses should call this
+     * once the change has been written.
+     *
+     * @param refs  entities which have changed
+     */
+    public void invalidate(Collection<EntityReference> refs) {
+        checkNotNull(refs, "refs cannot be null");
+
+        if (! enabled) {
+            return;
+        }
+
+        synchronized (invalidationLock) {
+            generation++;
+            Map<EntityKind, Map<Long, EntityReference>> entries = entriesByKind;
+            for (EntityReference ref : refs) {
+                Map<Long, EntityReference> kindEntries = entries.get(ref.kind());
+                if (kindEntries != null) {
+                    kindEntries.remove(ref.id());
+                }
+                if (invalidatedDuringLoad != null && NAME_MAPPINGS.containsKey(ref.kind())) {
+                    invalidatedDuringLoad.add(mkRef(ref.kind(), ref.id()));
+                }
+            }
+        }
+    }
+
+
+    public void invalidate(EntityReference ref) {
+        checkNotNull(ref, "ref cannot be null");
+        invalidate(Collections.singleton(ref));
+    }
+
+
+    /**
+     * Fills in the names and external ids of the given references, preserving their order.
+     * The remaining attributes (including the lifecycle status, which takes part in
+     * equality checks) are left untouched, references which cannot be found are returned as given.
+     *
+     * @param refs  references to resolve
+     * @return  the references with names and external ids
+     */
+    public List<EntityReference> resolve(Collection<EntityReference> refs) {
+        checkNotNull(refs, "refs cannot be null");
+
+        Map<EntityReference, EntityReference> entries = lookup(refs);
+
+        return refs
+                .stream()
+                .map(ref -> Optional
+                        .ofNullable(entries.get(mkRef(ref.kind(), ref.id())))
+                        .map(entry -> (EntityReference) ImmutableEntityReference
+                                .copyOf(ref)
+                                .withName(entry.name())
+                                .withExternalId(entry.externalId()))
+                        .orElse(ref))
+                .collect(toList());
+    }
+
+
+    @ManagedOperation(description = "Reload the entity name dictionary")
+    public void reload() {
+        if (! enabled) {
+            throw new IllegalStateException("Entity name dictionary is not enabled (entity_name_dictionary.enabled)");
+        }
+        loader.execute(this::loadQuietly);
+    }
+
+
+    @ManagedAttribute
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+
+    @ManagedAttribute
+    public boolean isReady() {
+        return ! entriesByKind.isEmpty();
+    }
+
+
+    @ManagedAttribute
+    public long getEntityCount() {
+        return entriesByKind
+                .values()
+                .stream()
+                .mapToLong(Map::size)
+                .sum();
+    }
+
+
+    @ManagedAttribute(description = "Number of references found in the dictionary")
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+
+    @ManagedAttribute(description = "Number of references which had to be loaded from the database")
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+
+    @ManagedAttribute
+    public long getLastLoadDurationMillis() {
+        return lastLoadDurationMillis;
+    }
+
+
+    // -- HELPERS ---
+
+    private void loadQuietly() {
+        synchronized (invalidationLock) {
+            invalidatedDuringLoad = new HashSet<>();
+        }
+
+        try {
+            long st = System.currentTimeMillis();
+            Map<EntityKind, Map<Long, EntityReference>> newEntries = new EnumMap<>(EntityKind.class);
+
+            for (EntityKind kind : NAME_MAPPINGS.keySet()) {
+                Map<Long, EntityReference> kindEntries = new ConcurrentHashMap<>();
+                fetch(kind, idField -> DSL.trueCondition())
+                        .forEach(entry -> kindEntries.put(entry.id(), entry));
+                newEntries.put(kind, kindEntries);
+            }
+
+            synchronized (invalidationLock) {
+                // entities changed whilst loading may have been read before the change
+                invalidatedDuringLoad.forEach(ref -> newEntries.get(ref.kind()).remove(ref.id()));
+                entriesByKind = newEntries;
+            }
+
+            lastLoadDurationMillis = System.currentTimeMillis() - st;
+
+            LOG.info("Loaded entity name dictionary of {} entities in {}ms", getEntityCount(), lastLoadDurationMillis);
+        } catch (Exception e) {
+            LOG.error("Failed to load entity name dictionary, lookups will use the database until the next load", e);
+        } finally {
+            synchronized (invalidationLock) {
+                invalidatedDuringLoad = null;
+            }
+        }
+    }
+
+
+    private void onChangeLogWritten(Collection<ChangeLog> changeLogs) {
+        List<EntityReference> changedRefs = changeLogs
+                .stream()
+                .map(ChangeLog::parentReference)
+                .filter(ref -> NAME_MAPPINGS.containsKey(ref.kind()))
+                .collect(toList());
+
+        if (! changedRefs.isEmpty()) {
+            invalidate(changedRefs);
+        }
+    }
+
+
+    private long currentGeneration() {
+        synchronized (invalidationLock) {
+            return generation;
+        }
+    }
+
+
+    /**
+     * Adds entries fetched on demand, unless an invalidation happened whilst they were being
+     * fetched (in which case they may be stale and the next lookup will fetch them again).
+     */
+    private void storeIfCurrent(Map<Long, EntityReference> kindEntries,
+                                List<EntityReference> fetched,
+                                long fetchGeneration) {
+        if (kindEntries == null) {
+            return;
+        }
+        synchronized (invalidationLock) {
+            if (generation == fetchGeneration) {
+                fetched.forEach(entry -> kindEntries.putIfAbsent(entry.id(), entry));
+            }
+        }
+    }
+
+
+    private List<EntityReference> fetchByIds(EntityKind kind,
+                                             Collection<Long> ids) {
+        List<EntityReference> entries = new ArrayList<>(ids.size());
+        ids.stream()
+                .collect(batchProcessingCollector(
+                        ID_BATCH_SIZE,
+                        batch -> {
+                            if (! batch.isEmpty()) {
+                                entries.addAll(fetch(kind, idField -> idField.in(batch)));
+                            }
+                        }));
+        return entries;
+    }
+
+
+    private List<EntityReference> fetch(EntityKind kind,
+                                        Function<Field<Long>, Condition> conditionFn) {
+        Tuple3<Table, Field<Long>, Field<String>> nameMapping = NAME_MAPPINGS.get(kind);
+        Table<?> table = nameMapping.v1();
+        Field<Long> idField = nameMapping.v2();
+        Field<String> nameField = nameMapping.v3();
+        Field<String> externalIdField = findField(EXTERNAL_ID_MAPPINGS, kind, table);
+        Field<String> lifecycleField = findField(LIFECYCLE_MAPPINGS, kind, table);
+
+        // constant values (e.g. the 'Logical Flow' name) are not selected, every entry shares the same value
+        List<Field<?>> fields = new ArrayList<>();
+        fields.add(idField);
+        addIfSelectable(fields, nameField);
+        addIfSelectable(fields, externalIdField);
+        addIfSelectable(fields, lifecycleField);
+
+        return dsl
+                .select(fields)
+                .from(table)
+                .where(conditionFn.apply(idField))
+                .fetch(r -> ImmutableEntityReference.builder()
+                        .kind(kind)
+                        .id(r.get(idField))
+                        .name(Optional.ofNullable(readValue(r, nameField)))
+                        .externalId(Optional.ofNullable(readValue(r, externalIdField)))
+                        .entityLifecycleStatus(readEnum(
+                                readValue(r, lifecycleField),
+                                EntityLifecycleStatus.class,
+                                s -> EntityLifecycleStatus.ACTIVE))
+                        .build());
+    }
+
+
+    /**
+     * Only fields from the same table as the name are used, so each kind is loaded by a single query
+     */
+    private static Field<String> findField(Map<EntityKind, Tuple3<Table, Field<Long>, Field<String>>> mappings,
+                                           EntityKind kind,
+                                           Table<?> table) {
+        Tuple3<Table, Field<Long>, Field<String>> mapping = mappings.get(kind);
+        return mapping != null && mapping.v1().equals(table)
+                ? mapping.v3()
+                : null;
+    }
+
+
+    private static void addIfSelectable(List<Field<?>> fields, Field<String> field) {
+        if (field != null && ! (field instanceof Param)) {
+            fields.add(field);
+        }
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private static String readValue(Record r, Field<String> field) {
+        if (field == null) {
+            return null;
+        } else if (field instanceof Param) {
+            return ((Param<String>) field).getValue();
+        } else {
+            return r.get(field);
+        }
+    }
+
+}
@@ -18,36 +18,32 @@
 
 package org.finos.waltz.data;
 
-import org.finos.waltz.common.ListUtilities;
-import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityReference;
-import org.jooq.*;
-import org.jooq.impl.DSL;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
-import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.CollectionUtilities.maybeFirst;
-import static org.finos.waltz.common.ListUtilities.map;
 import static org.finos.waltz.common.ListUtilities.newArrayList;
-import static org.finos.waltz.model.EntityReference.mkRef;
 
 /**
  * Service which takes a list of entity references and returns a list
  * enriched with entity names.
+ * <p>
+ * Names are looked up via the {@link EntityNameDictionary}.
  */
 @Repository
 public class EntityReferenceNameResolver {
 
-    private final DSLContext dsl;
+    private final EntityNameDictionary entityNameDictionary;
 
     @Autowired
-    public EntityReferenceNameResolver(DSLContext dsl) {
-        this.dsl = dsl;
+    public EntityReferenceNameResolver(EntityNameDictionary entityNameDictionary) {
+        checkNotNull(entityNameDictionary, "entityNameDictionary cannot be null");
+        this.entityNameDictionary = entityNameDictionary;
     }
 
     public Optional<EntityReference> resolve(EntityReference ref) {
@@ -56,40 +52,7 @@ public class EntityReferenceNameResolver {
 
     public List<EntityReference> resolve(List<EntityReference> refs) {
         checkNotNull(refs, "refs cannot be null");
-        
-        Field<Long> idField = DSL.field("tref_id", Long.class);
-        Field<String> kindField = DSL.field("tref_kind", String.class);
-
-        Field<String> nameField = InlineSelectFieldFactory.mkNameField(
-                idField,
-                kindField);
-
-        List<SelectSelectStep<Record2<String, Long>>> parts = map(
-                refs,
-                r -> DSL.select(
-                        DSL.val(r.kind().name()).as(kindField),
-                        DSL.val(r.id()).as(idField)));
-
-
-        if (parts.size() > 0) {
-            SelectSelectStep<Record2<String, Long>> firstPart = parts.get(0);
-            if (parts.size() > 1) {
-                List<SelectSelectStep<Record2<String, Long>>> tail = ListUtilities.drop(parts, 1);
-                tail.forEach(firstPart::union);
-            }
-
-            Table<Record2<String, Long>> tempRefs = firstPart.asTable("temp_refs");
-            return dsl
-                    .select(idField, kindField, nameField)
-                    .from(tempRefs)
-                    .fetch(r -> mkRef(
-                            EntityKind.valueOf(r.get(kindField)),
-                            r.get(idField),
-                            r.get(nameField)));
-        } else {
-            return Collections.emptyList();
-        }
-
+        return entityNameDictionary.resolve(refs);
     }
 
 }
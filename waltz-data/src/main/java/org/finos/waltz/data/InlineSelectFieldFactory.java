@@ -88,6 +88,21 @@ public class InlineSelectFieldFactory {
     }
 
 
+    // --- Mappings (used by the EntityNameDictionary to load entity details in bulk)
+
+    static Map<EntityKind, Tuple3<Table, Field<Long>, Field<String>>> getNameMappings() {
+        return Collections.unmodifiableMap(NAME_RESOLVER.mappings);
+    }
+
+    static Map<EntityKind, Tuple3<Table, Field<Long>, Field<String>>> getExternalIdMappings() {
+        return Collections.unmodifiableMap(EXTERNAL_ID_RESOLVER.mappings);
+    }
+
+    static Map<EntityKind, Tuple3<Table, Field<Long>, Field<String>>> getLifecycleMappings() {
+        return Collections.unmodifiableMap(LIFECYCLE_RESOLVER.mappings);
+    }
+
+
     // --- Internals ----------------------
 
     private static final InlineSelectFieldFactory NAME_RESOLVER = new InlineSelectFieldFactory(mkNameFieldMappings());
@@ -0,0 +1,178 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data;
+
+import org.jooq.lambda.tuple.Tuple2;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.stream.Collectors.toList;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+
+/**
+ * Tallies the database queries made on behalf of a unit of work (typically a web request).
+ * <p>
+ * A tally is bound to the current thread via {@link #start(String)}, queries are recorded against it
+ * by an <code>ExecuteListener</code> and it is carried across to tasks submitted to the
+ * {@link DBExecutorPool} (see {@link #propagate(Callable)}) so fanned-out queries are included.
+ * <p>
+ * Queries are also counted by their sql (with bind variables as placeholders), so repeated
+ * identical queries, typically the result of an N+1 access pattern, can be identified.
+ */
+public class QueryStats {
+
+    // limits memory use for units of work issuing many distinct statements
+    private static final int MAX_TRACKED_SQL = 1000;
+
+    private static final ThreadLocal<QueryStats> CURRENT = new ThreadLocal<>();
+
+    private final String description;
+    private final AtomicLong queryCount = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final Map<String, AtomicLong> countsBySql = new ConcurrentHashMap<>();
+    private final AtomicBoolean flagged = new AtomicBoolean(false);
+
+
+    public QueryStats(String description) {
+        this.description = description;
+    }
+
+
+    /**
+     * Binds a new tally to the current thread, replacing any existing one.
+     *
+     * @param description  describes the unit of work, e.g. <code>GET api/app/id/:id</code>
+     */
+    public static QueryStats start(String description) {
+        QueryStats stats = new QueryStats(description);
+        CURRENT.set(stats);
+        return stats;
+    }
+
+
+    /**
+     * Unbinds the tally (if any) from the current thread.
+     */
+    public static void stop() {
+        CURRENT.remove();
+    }
+
+
+    public static Optional<QueryStats> current() {
+        return Optional.ofNullable(CURRENT.get());
+    }
+
+
+    /**
+     * Wraps the task so that it records queries against the submitting thread's tally (if any).
+     */
+    public static <T> Callable<T> propagate(Callable<T> task) {
+        QueryStats stats = CURRENT.get();
+        if (stats == null) {
+            return task;
+        }
+
+        return () -> {
+            QueryStats previous = CURRENT.get();
+            CURRENT.set(stats);
+            try {
+                return task.call();
+            } finally {
+                if (previous == null) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set(previous);
+                }
+            }
+        };
+    }
+
+
+    /**
+     * @param sql  the statement executed, or null if not known
+     * @param elapsedNanos  time taken to execute the statement and fetch any results
+     * @return the number of times the statement has now been executed in this unit of work
+     */
+    public long record(String sql, long elapsedNanos) {
+        queryCount.incrementAndGet();
+        totalNanos.addAndGet(elapsedNanos);
+
+        if (sql == null) {
+            return 1;
+        }
+
+        AtomicLong count = countsBySql.get(sql);
+        if (count == null) {
+            if (countsBySql.size() >= MAX_TRACKED_SQL) {
+                return 1;
+            }
+            count = countsBySql.computeIfAbsent(sql, k -> new AtomicLong());
+        }
+        return count.incrementAndGet();
+    }
+
+
+    /**
+     * Marks the tally as having been reported (e.g. for exceeding a query budget).
+     *
+     * @return true if the tally had not previously been flagged
+     */
+    public boolean flag() {
+        return flagged.compareAndSet(false, true);
+    }
+
+
+    /**
+     * @param limit  maximum number of statements to return
+     * @return statements and their execution counts, most frequently executed first
+     */
+    public List<Tuple2<String, Long>> findMostRepeated(int limit) {
+        return countsBySql
+                .entrySet()
+                .stream()
+                .map(e -> tuple(e.getKey(), e.getValue().get()))
+                .sorted(Comparator.comparing((Tuple2<String, Long> t) -> t.v2).reversed())
+                .limit(limit)
+                .collect(toList());
+    }
+
+
+    public String getDescription() {
+        return description;
+    }
+
+
+    public long getQueryCount() {
+        return queryCount.get();
+    }
+
+
+    public long getTotalMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalNanos.get());
+    }
+
+}
@@ -26,6 +26,7 @@ import org.finos.waltz.model.entity_relationship.RelationshipKind;
 import org.finos.waltz.schema.tables.EntityRelationship;
 import org.finos.waltz.schema.tables.records.ApplicationGroupEntryRecord;
 import org.finos.waltz.schema.tables.records.EntityRelationshipRecord;
+import org.jooq.Condition;
 import org.jooq.DSLContext;
 import org.jooq.Query;
 import org.jooq.Record;
@@ -37,13 +38,24 @@ import org.springframework.stereotype.Repository;
 
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.stream.IntStream;
 
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.emptySet;
 import static java.util.stream.Collectors.collectingAndThen;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
+import static java.util.stream.Collectors.toMap;
 import static java.util.stream.Collectors.toSet;
+import static org.finos.waltz.common.CollectionUtilities.isEmpty;
 import static org.finos.waltz.common.SetUtilities.map;
+import static org.finos.waltz.common.SetUtilities.minus;
 import static org.finos.waltz.data.application.ApplicationDao.IS_ACTIVE;
 import static org.finos.waltz.schema.Tables.ENTITY_RELATIONSHIP;
 import static org.finos.waltz.schema.tables.Application.APPLICATION;
@@ -148,6 +160,88 @@ public class AppGroupEntryDao {
         });
     }
 
+    /**
+     * Brings the application entries of each of the given groups in line with the desired
+     * entries.  Unlike {@link #replaceGroupApplicationEntries(Set)} only the entries which
+     * differ are removed or inserted, unchanged entries are left as they are.  An existing
+     * entry is unchanged if it refers to a desired application and has the same read-only flag.
+     *
+     * @param entriesForGroups  tuples of group id and the complete set of desired entries for that group
+     * @return  number of entries removed plus number of entries inserted
+     */
+    public int updateGroupApplicationEntries(Set<Tuple2<Long, Set<AppGroupEntry>>> entriesForGroups) {
+        if (isEmpty(entriesForGroups)) {
+            return 0;
+        }
+
+        Set<Long> groupIds = map(entriesForGroups, d -> d.v1);
+
+        return dsl.transactionResult(ctx -> {
+            DSLContext tx = ctx.dsl();
+
+            Map<Long, Map<Long, Boolean>> existingReadOnlyFlagsByAppIdByGroupId = tx
+                    .select(APPLICATION_GROUP_ENTRY.GROUP_ID,
+                            APPLICATION_GROUP_ENTRY.APPLICATION_ID,
+                            APPLICATION_GROUP_ENTRY.IS_READONLY)
+                    .from(APPLICATION_GROUP_ENTRY)
+                    .where(APPLICATION_GROUP_ENTRY.GROUP_ID.in(groupIds))
+                    .fetch()
+                    .stream()
+                    .collect(groupingBy(
+                            r -> r.get(APPLICATION_GROUP_ENTRY.GROUP_ID),
+                            toMap(r -> r.get(APPLICATION_GROUP_ENTRY.APPLICATION_ID),
+                                  r -> r.get(APPLICATION_GROUP_ENTRY.IS_READONLY))));
+
+            Timestamp now = DateTimeUtilities.nowUtcTimestamp();
+            List<Query> removals = new ArrayList<>();
+            List<ApplicationGroupEntryRecord> additions = new ArrayList<>();
+
+            entriesForGroups.forEach(t -> {
+                Map<Long, Boolean> existing = existingReadOnlyFlagsByAppIdByGroupId.getOrDefault(t.v1, emptyMap());
+
+                Set<Long> unchangedAppIds = t.v2
+                        .stream()
+                        .filter(e -> Objects.equals(existing.get(e.id()), e.isReadOnly()))
+                        .map(AppGroupEntry::id)
+                        .collect(toSet());
+
+                Set<Long> appIdsToRemove = minus(existing.keySet(), unchangedAppIds);
+
+                if (!appIdsToRemove.isEmpty()) {
+                    removals.add(DSL
+                            .deleteFrom(APPLICATION_GROUP_ENTRY)
+                            .where(APPLICATION_GROUP_ENTRY.GROUP_ID.eq(t.v1))
+                            .and(APPLICATION_GROUP_ENTRY.APPLICATION_ID.in(appIdsToRemove)));
+                }
+
+                t.v2
+                        .stream()
+                        .filter(e -> !unchangedAppIds.contains(e.id()))
+                        .map(e -> {
+                            ApplicationGroupEntryRecord record = tx.newRecord(APPLICATION_GROUP_ENTRY);
+                            record.setGroupId(t.v1);
+                            record.setApplicationId(e.id());
+                            record.setIsReadonly(e.isReadOnly());
+                            record.setProvenance(e.provenance());
+                            record.setCreatedAt(now);
+                            return record;
+                        })
+                        .forEach(additions::add);
+            });
+
+            int removedCount = removals.isEmpty()
+                    ? 0
+                    : IntStream.of(tx.batch(removals).execute()).filter(c -> c > 0).sum();
+
+            if (!additions.isEmpty()) {
+                tx.batchInsert(additions).execute();
+            }
+
+            return removedCount + additions.size();
+        });
+    }
+
+
     public void replaceGroupChangeInitiativeEntries(Set<Tuple2<Long, Set<AppGroupEntry>>> entriesForGroups) {
         Set<Long> groupIds = map(entriesForGroups, d -> d.v1);
 
@@ -182,4 +276,85 @@ public class AppGroupEntryDao {
                     .execute();
         });
     }
+
+
+    /**
+     * Brings the change initiative relationships of each of the given groups in line with
+     * the desired entries.  Unlike {@link #replaceGroupChangeInitiativeEntries(Set)} only
+     * the relationships which differ are removed or inserted.
+     *
+     * @param entriesForGroups  tuples of group id and the complete set of desired entries for that group
+     * @return  number of relationships removed plus number of relationships inserted
+     */
+    public int updateGroupChangeInitiativeEntries(Set<Tuple2<Long, Set<AppGroupEntry>>> entriesForGroups) {
+        if (isEmpty(entriesForGroups)) {
+            return 0;
+        }
+
+        Set<Long> groupIds = map(entriesForGroups, d -> d.v1);
+
+        Condition groupToChangeInitiativeCondition = ENTITY_RELATIONSHIP.KIND_A.eq(EntityKind.APP_GROUP.name())
+                .and(ENTITY_RELATIONSHIP.KIND_B.eq(EntityKind.CHANGE_INITIATIVE.name()));
+
+        return dsl.transactionResult(ctx -> {
+            DSLContext tx = ctx.dsl();
+
+            Map<Long, Set<Long>> existingChangeInitiativeIdsByGroupId = tx
+                    .select(ENTITY_RELATIONSHIP.ID_A, ENTITY_RELATIONSHIP.ID_B)
+                    .from(ENTITY_RELATIONSHIP)
+                    .where(ENTITY_RELATIONSHIP.ID_A.in(groupIds))
+                    .and(groupToChangeInitiativeCondition)
+                    .fetch()
+                    .stream()
+                    .collect(groupingBy(
+                            r -> r.get(ENTITY_RELATIONSHIP.ID_A),
+                            mapping(r -> r.get(ENTITY_RELATIONSHIP.ID_B), toSet())));
+
+            Timestamp now = DateTimeUtilities.nowUtcTimestamp();
+            List<Query> removals = new ArrayList<>();
+            List<EntityRelationshipRecord> additions = new ArrayList<>();
+
+            entriesForGroups.forEach(t -> {
+                Set<Long> existing = existingChangeInitiativeIdsByGroupId.getOrDefault(t.v1, emptySet());
+                Set<Long> desired = map(t.v2, AppGroupEntry::id);
+
+                Set<Long> idsToRemove = minus(existing, desired);
+
+                if (!idsToRemove.isEmpty()) {
+                    removals.add(DSL
+                            .deleteFrom(ENTITY_RELATIONSHIP)
+                            .where(ENTITY_RELATIONSHIP.ID_A.eq(t.v1))
+                            .and(groupToChangeInitiativeCondition)
+                            .and(ENTITY_RELATIONSHIP.ID_B.in(idsToRemove)));
+                }
+
+                t.v2
+                        .stream()
+                        .filter(e -> !existing.contains(e.id()))
+                        .map(e -> {
+                            EntityRelationshipRecord record = tx.newRecord(ENTITY_RELATIONSHIP);
+                            record.setIdA(t.v1);
+                            record.setKindA(EntityKind.APP_GROUP.name());
+                            record.setIdB(e.id());
+                            record.setKindB(EntityKind.CHANGE_INITIATIVE.name());
+                            record.setProvenance(e.provenance());
+                            record.setRelationship(RelationshipKind.RELATES_TO.name());
+                            record.setLastUpdatedAt(now);
+                            record.setLastUpdatedBy("admin");
+                            return record;
+                        })
+                        .forEach(additions::add);
+            });
+
+            int removedCount = removals.isEmpty()
+                    ? 0
+                    : IntStream.of(tx.batch(removals).execute()).filter(c -> c > 0).sum();
+
+            if (!additions.isEmpty()) {
+                tx.batchInsert(additions).execute();
+            }
+
+            return removedCount + additions.size();
+        });
+    }
 }
@@ -26,6 +26,7 @@ import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.application.ApplicationKind;
 import org.finos.waltz.model.application.LifecyclePhase;
 import org.finos.waltz.model.attestation.*;
+import org.finos.waltz.schema.tables.records.AttestationInstanceRecipientRecord;
 import org.finos.waltz.schema.tables.records.AttestationInstanceRecord;
 import org.jooq.*;
 import org.jooq.impl.DSL;
@@ -39,6 +40,8 @@ import org.springframework.stereotype.Repository;
 
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -121,6 +124,91 @@ public class AttestationInstanceDao {
     }
 
 
+    /**
+     * Creates the given instances and their recipients in a single transaction.  The
+     * instances are written in one multi-row insert (returning their generated ids)
+     * and the recipients in a batch.
+     *
+     * @param recipientsByInstance  user ids of the recipients of each instance to create
+     * @return  number of instances created
+     */
+    public int createInstancesAndRecipients(Map<AttestationInstance, ? extends Collection<String>> recipientsByInstance) {
+        checkNotNull(recipientsByInstance, "recipientsByInstance cannot be null");
+
+        if (recipientsByInstance.isEmpty()) {
+            return 0;
+        }
+
+        return dsl.transactionResult(ctx -> {
+            DSLContext tx = DSL.using(ctx);
+
+            InsertSetStep<AttestationInstanceRecord> insert = tx.insertInto(ATTESTATION_INSTANCE);
+            InsertSetMoreStep<AttestationInstanceRecord> insertWithValues = null;
+            for (AttestationInstance instance : recipientsByInstance.keySet()) {
+                AttestationInstanceRecord record = new AttestationInstanceRecord();
+                record.setAttestationRunId(instance.attestationRunId());
+                record.setParentEntityKind(instance.parentEntity().kind().name());
+                record.setParentEntityId(instance.parentEntity().id());
+                record.setAttestedEntityKind(instance.attestedEntityKind().name());
+
+                insertWithValues = insertWithValues == null
+                        ? insert.set(record)
+                        : insertWithValues.newRecord().set(record);
+            }
+
+            Map<Tuple4<Long, String, Long, String>, Long> idsByInstance = insertWithValues
+                    .returning(
+                            ATTESTATION_INSTANCE.ID,
+                            ATTESTATION_INSTANCE.ATTESTATION_RUN_ID,
+                            ATTESTATION_INSTANCE.PARENT_ENTITY_KIND,
+                            ATTESTATION_INSTANCE.PARENT_ENTITY_ID,
+                            ATTESTATION_INSTANCE.ATTESTED_ENTITY_KIND)
+                    .fetch()
+                    .stream()
+                    .collect(toMap(
+                            r -> tuple(r.getAttestationRunId(), r.getParentEntityKind(), r.getParentEntityId(), r.getAttestedEntityKind()),
+                            AttestationInstanceRecord::getId));
+
+            List<AttestationInstanceRecipientRecord> recipients = new ArrayList<>();
+            recipientsByInstance.forEach((instance, userIds) -> {
+                Long instanceId = idsByInstance.get(tuple(
+                        instance.attestationRunId(),
+                        instance.parentEntity().kind().name(),
+                        instance.parentEntity().id(),
+                        instance.attestedEntityKind().name()));
+                checkNotNull(instanceId, "No id returned for attestation instance of: %s", instance.parentEntity());
+
+                userIds.forEach(userId -> {
+                    AttestationInstanceRecipientRecord record = new AttestationInstanceRecipientRecord();
+                    record.setAttestationInstanceId(instanceId);
+                    record.setUserId(userId);
+                    recipients.add(record);
+                });
+            });
+
+            tx.batchInsert(recipients).execute();
+
+            return idsByInstance.size();
+        });
+    }
+
+
+    /**
+     * Instances are issued in ascending order of their parent entity id, one chunk per
+     * transaction, so the highest parent id issued so far marks where issuing should resume.
+     *
+     * @param runId  attestation run being issued
+     * @return  highest parent entity id with an instance in the run, empty if none have been issued
+     */
+    public Optional<Long> findIssuanceCheckpoint(long runId) {
+        return dsl
+                .select(DSL.max(ATTESTATION_INSTANCE.PARENT_ENTITY_ID))
+                .from(ATTESTATION_INSTANCE)
+                .where(ATTESTATION_INSTANCE.ATTESTATION_RUN_ID.eq(runId))
+                .fetchOptional(Record1::value1);
+    }
+
+
     public List<AttestationInstance> findByRecipient(String userId, boolean unattestedOnly) {
         Condition condition = ATTESTATION_INSTANCE_RECIPIENT.USER_ID.eq(userId);
         if(unattestedOnly) {
@@ -246,7 +246,35 @@ public class AttestationRunDao {
     }
 
 
+    /**
+     * @return ids of the entities matched by the selector, in ascending order
+     */
+    public List<Long> findEntityIds(Select<Record1<Long>> idSelector) {
+        Table<Record1<Long>> ids = idSelector.asTable("entity_ids");
+        Field<Long> id = ids.field(0, Long.class);
+
+        return dsl
+                .selectDistinct(id)
+                .from(ids)
+                .orderBy(id)
+                .fetch(id);
+    }
+
+
     public Set<AttestationRun> findPendingRuns() {
+        return findRunsByStatus(AttestationStatus.PENDING);
+    }
+
+
+    /**
+     * Runs are left in the ISSUING state if issuing their instances did not complete
+     */
+    public Set<AttestationRun> findIssuingRuns() {
+        return findRunsByStatus(AttestationStatus.ISSUING);
+    }
+
+
+    private Set<AttestationRun> findRunsByStatus(AttestationStatus status) {
 
         Map<Long, List<Long>> involvementsByGroupId = InvolvementGroupDao.findAllInvolvementsByGroupId(dsl);
 
@@ -255,7 +283,7 @@ public class AttestationRunDao {
                 .select(ENTITY_NAME_FIELD)
                 .select(ATTESTED_ENTITY_NAME_FIELD)
                 .from(ATTESTATION_RUN)
-                .where(ATTESTATION_RUN.STATUS.eq(AttestationStatus.PENDING.name()))
+                .where(ATTESTATION_RUN.STATUS.eq(status.name()))
                 .fetchSet(r -> mkAttestationRun(r, involvementsByGroupId));
     }
 
@@ -27,6 +27,8 @@ import org.finos.waltz.schema.tables.AttestationInstance;
 import org.finos.waltz.schema.tables.records.ChangeLogRecord;
 import org.jooq.*;
 import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
@@ -36,10 +38,13 @@ import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 import static org.finos.waltz.common.Checks.checkNotEmpty;
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.DateTimeUtilities.nowUtc;
+import static org.finos.waltz.common.ListUtilities.asList;
 import static org.finos.waltz.common.ObjectUtilities.firstNotNull;
 import static org.finos.waltz.data.JooqUtilities.*;
 import static org.finos.waltz.schema.Tables.PERSON;
@@ -49,8 +54,12 @@ import static org.finos.waltz.schema.tables.ChangeLog.CHANGE_LOG;
 @Repository
 public class ChangeLogDao {
 
+    private static final Logger LOG = LoggerFactory.getLogger(ChangeLogDao.class);
+
     private final DSLContext dsl;
 
+    private final List<Consumer<Collection<ChangeLog>>> writeListeners = new CopyOnWriteArrayList<>();
+
     public static final RecordMapper<? super Record, ChangeLog> TO_DOMAIN_MAPPER = r -> {
         ChangeLogRecord record = r.into(ChangeLogRecord.class);
 
@@ -292,10 +301,24 @@ public class ChangeLogDao {
     }
 
 
+    /**
+     * Registers a listener which will be told about change log entries after
+     * they have been written by this dao.  This is intended for in-process consumers
+     * (e.g. server side caches) which need to react to changes.  Listeners are
+     * invoked on the writing thread and failures are logged, not propagated.
+     *
+     * @param listener  callback receiving the entries which were written
+     */
+    public void addWriteListener(Consumer<Collection<ChangeLog>> listener) {
+        checkNotNull(listener, "listener cannot be null");
+        writeListeners.add(listener);
+    }
+
+
     public int write(ChangeLog changeLog) {
         checkNotNull(changeLog, "changeLog must not be null");
 
-        return dsl.insertInto(CHANGE_LOG)
+        int rc = dsl.insertInto(CHANGE_LOG)
                 .set(CHANGE_LOG.MESSAGE, changeLog.message())
                 .set(CHANGE_LOG.PARENT_ID, changeLog.parentReference().id())
                 .set(CHANGE_LOG.PARENT_KIND, changeLog.parentReference().kind().name())
@@ -305,6 +328,9 @@ public class ChangeLogDao {
                 .set(CHANGE_LOG.OPERATION, changeLog.operation().name())
                 .set(CHANGE_LOG.CREATED_AT, Timestamp.valueOf(changeLog.createdAt()))
                 .execute();
+
+        notifyWriteListeners(asList(changeLog));
+        return rc;
     }
 
 
@@ -323,9 +349,24 @@ public class ChangeLogDao {
                         .set(CHANGE_LOG.OPERATION, changeLog.operation().name())
                         .set(CHANGE_LOG.CREATED_AT, Timestamp.valueOf(changeLog.createdAt())))
                 .toArray(Query[]::new);
-        return dsl
+
+        int[] rcs = dsl
                 .batch(queries)
                 .execute();
+
+        notifyWriteListeners(changeLogs);
+        return rcs;
+    }
+
+
+    private void notifyWriteListeners(Collection<ChangeLog> changeLogs) {
+        writeListeners.forEach(listener -> {
+            try {
+                listener.accept(changeLogs);
+            } catch (Exception e) {
+                LOG.warn("Change log write listener failed: {}", e.getMessage(), e);
+            }
+        });
     }
 
 
@@ -18,22 +18,21 @@
 
 package org.finos.waltz.data.datatype_decorator;
 
-import org.finos.waltz.schema.tables.LogicalFlowDecorator;
 import org.finos.waltz.schema.tables.records.LogicalFlowDecoratorRecord;
 import org.finos.waltz.common.SetUtilities;
 import org.finos.waltz.data.InlineSelectFieldFactory;
 import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityLifecycleStatus;
 import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.data_flow_decorator.ImmutableLogicalFlowDecoratorRating;
+import org.finos.waltz.model.data_flow_decorator.LogicalFlowDecoratorRating;
 import org.finos.waltz.model.datatype.DataTypeDecorator;
 import org.finos.waltz.model.datatype.DataTypeUsageCharacteristics;
 import org.finos.waltz.model.datatype.ImmutableDataTypeDecorator;
 import org.finos.waltz.model.datatype.ImmutableDataTypeUsageCharacteristics;
-import org.finos.waltz.model.flow_classification_rule.FlowClassificationRuleVantagePoint;
 import org.finos.waltz.model.rating.AuthoritativenessRatingValue;
 import org.jooq.*;
 import org.jooq.impl.DSL;
-import org.jooq.lambda.function.Function2;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
@@ -54,6 +53,7 @@ import static java.lang.String.format;
 import static java.util.stream.Collectors.toList;
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.ListUtilities.newArrayList;
+import static org.finos.waltz.common.StreamUtilities.batchProcessingCollector;
 import static org.finos.waltz.data.logical_flow.LogicalFlowDao.LOGICAL_NOT_REMOVED;
 import static org.finos.waltz.model.EntityKind.DATA_TYPE;
 import static org.finos.waltz.model.EntityKind.LOGICAL_DATA_FLOW;
@@ -89,7 +89,7 @@ public class LogicalFlowDecoratorDao extends DataTypeDecoratorDao {
     };
 
 
-    private static final Function<DataTypeDecorator, LogicalFlowDecoratorRecord> TO_RECORD = d -> {
+    public static final Function<DataTypeDecorator, LogicalFlowDecoratorRecord> TO_RECORD = d -> {
         LogicalFlowDecoratorRecord r = new LogicalFlowDecoratorRecord();
         r.setId(d.id().orElse(null));
         r.changed(LOGICAL_FLOW_DECORATOR.ID, false);
@@ -105,6 +105,24 @@ public class LogicalFlowDecoratorDao extends DataTypeDecoratorDao {
         return r;
     };
 
+    private static final RecordMapper<Record, LogicalFlowDecoratorRating> TO_RATING_MAPPER = r -> ImmutableLogicalFlowDecoratorRating
+            .builder()
+            .decoratorId(r.get(LOGICAL_FLOW_DECORATOR.ID))
+            .dataTypeId(r.get(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_ID))
+            .source(mkRef(
+                    EntityKind.valueOf(r.get(LOGICAL_FLOW.SOURCE_ENTITY_KIND)),
+                    r.get(LOGICAL_FLOW.SOURCE_ENTITY_ID)))
+            .target(mkRef(
+                    EntityKind.valueOf(r.get(LOGICAL_FLOW.TARGET_ENTITY_KIND)),
+                    r.get(LOGICAL_FLOW.TARGET_ENTITY_ID)))
+            .targetOrgUnitId(Optional.ofNullable(r.get(APPLICATION.ORGANISATIONAL_UNIT_ID)))
+            .rating(AuthoritativenessRatingValue.ofNullable(r.get(LOGICAL_FLOW_DECORATOR.RATING)))
+            .flowClassificationRuleId(Optional.ofNullable(r.get(LOGICAL_FLOW_DECORATOR.FLOW_CLASSIFICATION_RULE_ID)))
+            .build();
+
+
+    private static final int RATING_UPDATE_BATCH_SIZE = 1000;
+
     private final DSLContext dsl;
 
     @Autowired
@@ -253,62 +271,6 @@ public class LogicalFlowDecoratorDao extends DataTypeDecoratorDao {
     }
 
 
-    public int updateDecoratorsForFlowClassificationRule(FlowClassificationRuleVantagePoint flowClassificationRuleVantagePoint) {
-        LogicalFlowDecorator lfd = LOGICAL_FLOW_DECORATOR.as("lfd");
-
-        EntityReference vantagePoint = flowClassificationRuleVantagePoint.vantagePoint();
-        EntityReference subjectReference = flowClassificationRuleVantagePoint.subjectReference();
-        EntityReference dataType = flowClassificationRuleVantagePoint.dataType();
-        String classificationCode = flowClassificationRuleVantagePoint.classificationCode();
-
-        SelectConditionStep<Record1<Long>> orgUnitSubselect = DSL
-                .select(ENTITY_HIERARCHY.ID)
-                .from(ENTITY_HIERARCHY)
-                .where(ENTITY_HIERARCHY.KIND.eq(vantagePoint.kind().name()))
-                .and(ENTITY_HIERARCHY.ANCESTOR_ID.eq(vantagePoint.id()));
-
-        SelectConditionStep<Record1<Long>> dataTypeSubselect = DSL
-                .select(ENTITY_HIERARCHY.ID)
-                .from(ENTITY_HIERARCHY)
-                .where(ENTITY_HIERARCHY.KIND.eq(DATA_TYPE.name()))
-                .and(ENTITY_HIERARCHY.ANCESTOR_ID.eq(dataType.id()));
-
-        Condition usingFlowClassificationRule = LOGICAL_FLOW.SOURCE_ENTITY_ID.eq(subjectReference.id()).and(LOGICAL_FLOW.SOURCE_ENTITY_KIND.eq(subjectReference.kind().name()));
-        Condition notUsingFlowClassificationRule = LOGICAL_FLOW.SOURCE_ENTITY_ID.ne(subjectReference.id()).or(LOGICAL_FLOW.SOURCE_ENTITY_KIND.ne(subjectReference.kind().name()));
-
-        Function2<Condition, String, Update<LogicalFlowDecoratorRecord>> mkQuery = (subjectScopingCondition, ratingName) -> dsl
-                .update(LOGICAL_FLOW_DECORATOR)
-                .set(LOGICAL_FLOW_DECORATOR.RATING, ratingName)
-                .set(LOGICAL_FLOW_DECORATOR.FLOW_CLASSIFICATION_RULE_ID, flowClassificationRuleVantagePoint.ruleId())
-                .where(LOGICAL_FLOW_DECORATOR.ID.in(
-                        DSL.select(lfd.ID)
-                                .from(lfd)
-                                .innerJoin(LOGICAL_FLOW).on(LOGICAL_FLOW.ID.eq(lfd.LOGICAL_FLOW_ID))
-                                .innerJoin(APPLICATION)
-                                .on(APPLICATION.ID.eq(LOGICAL_FLOW.TARGET_ENTITY_ID)
-                                        .and(LOGICAL_FLOW.TARGET_ENTITY_KIND.eq(EntityKind.APPLICATION.name())))
-                                .where(subjectScopingCondition
-                                        .and(APPLICATION.ORGANISATIONAL_UNIT_ID.in(orgUnitSubselect))
-                                        .and(lfd.DECORATOR_ENTITY_KIND.eq(DATA_TYPE.name()))
-                                        .and(lfd.DECORATOR_ENTITY_ID.in(dataTypeSubselect))
-                                        .and(lfd.RATING.in(
-                                                AuthoritativenessRatingValue.NO_OPINION.value(),
-                                                AuthoritativenessRatingValue.DISCOURAGED.value())))));
-
-        Update<LogicalFlowDecoratorRecord> updateAuthSources = mkQuery.apply(
-                usingFlowClassificationRule,
-                classificationCode);
-
-        Update<LogicalFlowDecoratorRecord> updateNonAuthSources = mkQuery.apply(
-                notUsingFlowClassificationRule,
-                AuthoritativenessRatingValue.DISCOURAGED.value());
-
-        int authSourceUpdateCount = updateAuthSources.execute();
-        int nonAuthSourceUpdateCount = updateNonAuthSources.execute();
-        return authSourceUpdateCount + nonAuthSourceUpdateCount;
-    }
-
-
     @Override
     public List<DataTypeUsageCharacteristics> findDatatypeUsageCharacteristics(EntityReference ref) {
 
@@ -347,6 +309,88 @@ public class LogicalFlowDecoratorDao extends DataTypeDecoratorDao {
                 });
     }
 
+    /**
+     * Returns the rating of every logical flow data type decorator along with the
+     * flow source, target and (if the target is an application) the target org unit.
+     */
+    public List<LogicalFlowDecoratorRating> findAllRatings() {
+        return findRatingsByCondition(DSL.trueCondition());
+    }
+
+
+    /**
+     * Returns ratings for decorators on flows into applications beneath the given org unit
+     * which have a data type beneath the given data type.
+     */
+    public List<LogicalFlowDecoratorRating> findRatingsByTargetOrgUnitAndDataType(long orgUnitId,
+                                                                                  long dataTypeId) {
+        return findRatingsByCondition(APPLICATION.ORGANISATIONAL_UNIT_ID.in(mkDescendantIdSelector(EntityKind.ORG_UNIT, orgUnitId))
+                .and(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_ID.in(mkDescendantIdSelector(DATA_TYPE, dataTypeId))));
+    }
+
+
+    /**
+     * Returns ratings for decorators on flows between the given source and target
+     * which have a data type beneath the given data type.
+     */
+    public List<LogicalFlowDecoratorRating> findRatingsByFlowEndpointsAndDataType(EntityReference source,
+                                                                                  EntityReference target,
+                                                                                  long dataTypeId) {
+        checkNotNull(source, "source cannot be null");
+        checkNotNull(target, "target cannot be null");
+
+        return findRatingsByCondition(LOGICAL_FLOW.SOURCE_ENTITY_ID.eq(source.id())
+                .and(LOGICAL_FLOW.SOURCE_ENTITY_KIND.eq(source.kind().name()))
+                .and(LOGICAL_FLOW.TARGET_ENTITY_ID.eq(target.id()))
+                .and(LOGICAL_FLOW.TARGET_ENTITY_KIND.eq(target.kind().name()))
+                .and(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_ID.in(mkDescendantIdSelector(DATA_TYPE, dataTypeId))));
+    }
+
+
+    /**
+     * Sets the rating and flow classification rule of the given decorators.
+     * All updates are made in a single transaction (sent in batches) so readers
+     * never see a partially applied set of ratings.
+     *
+     * @param ratings  decorators with their new rating and rule
+     * @return number of decorators updated
+     */
+    public int updateRatings(Collection<LogicalFlowDecoratorRating> ratings) {
+        checkNotNull(ratings, "ratings cannot be null");
+
+        if (ratings.isEmpty()) {
+            return 0;
+        }
+
+        return dsl.transactionResult(configuration -> {
+            DSLContext txDsl = DSL.using(configuration);
+
+            return ratings
+                    .stream()
+                    .collect(batchProcessingCollector(
+                            RATING_UPDATE_BATCH_SIZE,
+                            batch -> {
+                                if (batch.isEmpty()) {
+                                    return;
+                                }
+
+                                BatchBindStep updates = txDsl.batch(txDsl
+                                        .update(LOGICAL_FLOW_DECORATOR)
+                                        .set(LOGICAL_FLOW_DECORATOR.RATING, (String) null)
+                                        .set(LOGICAL_FLOW_DECORATOR.FLOW_CLASSIFICATION_RULE_ID, (Long) null)
+                                        .where(LOGICAL_FLOW_DECORATOR.ID.eq((Long) null)));
+
+                                batch.forEach(r -> updates.bind(
+                                        r.rating().map(AuthoritativenessRatingValue::value).orElse(null),
+                                        r.flowClassificationRuleId().orElse(null),
+                                        r.decoratorId()));
+
+                                updates.execute();
+                            }));
+        });
+    }
+
+
     public int updateRatingsByCondition(AuthoritativenessRatingValue rating, Condition condition) {
         return dsl
                 .update(LOGICAL_FLOW_DECORATOR)
@@ -358,6 +402,36 @@ public class LogicalFlowDecoratorDao extends DataTypeDecoratorDao {
 
     // --- HELPERS ---
 
+    private List<LogicalFlowDecoratorRating> findRatingsByCondition(Condition condition) {
+        return dsl
+                .select(LOGICAL_FLOW_DECORATOR.ID,
+                        LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_ID,
+                        LOGICAL_FLOW_DECORATOR.RATING,
+                        LOGICAL_FLOW_DECORATOR.FLOW_CLASSIFICATION_RULE_ID,
+                        LOGICAL_FLOW.SOURCE_ENTITY_KIND,
+                        LOGICAL_FLOW.SOURCE_ENTITY_ID,
+                        LOGICAL_FLOW.TARGET_ENTITY_KIND,
+                        LOGICAL_FLOW.TARGET_ENTITY_ID,
+                        APPLICATION.ORGANISATIONAL_UNIT_ID)
+                .from(LOGICAL_FLOW_DECORATOR)
+                .innerJoin(LOGICAL_FLOW).on(LOGICAL_FLOW.ID.eq(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID))
+                .leftJoin(APPLICATION).on(APPLICATION.ID.eq(LOGICAL_FLOW.TARGET_ENTITY_ID)
+                        .and(LOGICAL_FLOW.TARGET_ENTITY_KIND.eq(EntityKind.APPLICATION.name())))
+                .where(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_KIND.eq(DATA_TYPE.name()))
+                .and(condition)
+                .fetch(TO_RATING_MAPPER);
+    }
+
+
+    private static Select<Record1<Long>> mkDescendantIdSelector(EntityKind kind, long ancestorId) {
+        return DSL
+                .select(ENTITY_HIERARCHY.ID)
+                .from(ENTITY_HIERARCHY)
+                .where(ENTITY_HIERARCHY.KIND.eq(kind.name()))
+                .and(ENTITY_HIERARCHY.ANCESTOR_ID.eq(ancestorId));
+    }
+
+
     private List<DataTypeDecorator> findByCondition(Condition condition) {
         return dsl
                 .select(LOGICAL_FLOW_DECORATOR.fields())
@@ -26,6 +26,7 @@ import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.entity_hierarchy.EntityHierarchyItem;
 import org.finos.waltz.model.entity_hierarchy.ImmutableEntityHierarchyItem;
 import org.finos.waltz.model.tally.Tally;
+import org.jooq.BatchBindStep;
 import org.jooq.Condition;
 import org.jooq.DSLContext;
 import org.jooq.Record;
@@ -36,7 +37,11 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.function.Function;
 
 import static org.finos.waltz.schema.tables.EntityHierarchy.ENTITY_HIERARCHY;
@@ -50,6 +55,12 @@ public class EntityHierarchyDao {
 
     private static final EntityHierarchy eh = ENTITY_HIERARCHY;
 
+    /**
+     * Number of ids (or rows) per statement when reading/writing hierarchy deltas,
+     * kept well below the bind variable limits of the supported databases
+     */
+    private static final int CHUNK_SIZE = 1000;
+
     private static final Function<EntityHierarchyItem, EntityHierarchyRecord> ITEM_TO_RECORD_MAPPER =
             item -> item
                     .id()
@@ -75,6 +86,18 @@ public class EntityHierarchyDao {
                 .build();
     };
 
+    // descendant_level is nullable, older rows may not have it populated
+    private static final RecordMapper<Record, EntityHierarchyItem> TO_DELTA_DOMAIN_MAPPER = record -> {
+        EntityHierarchyRecord ehRecord = record.into(ENTITY_HIERARCHY);
+        return ImmutableEntityHierarchyItem.builder()
+                .id(ehRecord.getId())
+                .kind(Enum.valueOf(EntityKind.class, ehRecord.getKind()))
+                .parentId(ehRecord.getAncestorId())
+                .ancestorLevel(Optional.ofNullable(ehRecord.getLevel()).orElse(-1))
+                .descendantLevel(Optional.ofNullable(ehRecord.getDescendantLevel()).orElse(-1))
+                .build();
+    };
+
     private final DSLContext dsl;
 
     @Autowired
@@ -145,4 +168,105 @@ public class EntityHierarchyDao {
                 .fetch(TO_DOMAIN_MAPPER);
     }
 
+
+    public List<EntityHierarchyItem> findByKind(EntityKind kind) {
+        checkNotNull(kind, "kind cannot be null");
+        return dsl
+                .select(ENTITY_HIERARCHY.fields())
+                .from(ENTITY_HIERARCHY)
+                .where(ENTITY_HIERARCHY.KIND.eq(kind.name()))
+                .fetch(TO_DELTA_DOMAIN_MAPPER);
+    }
+
+
+    /**
+     * Returns all hierarchy rows (self, and ancestor rows) for the given entities
+     */
+    public List<EntityHierarchyItem> findByKindAndIds(EntityKind kind, Collection<Long> ids) {
+        checkNotNull(kind, "kind cannot be null");
+        checkNotNull(ids, "ids cannot be null");
+
+        List<EntityHierarchyItem> result = new ArrayList<>();
+        for (List<Long> chunk : chunk(new ArrayList<>(ids))) {
+            result.addAll(dsl
+                    .select(ENTITY_HIERARCHY.fields())
+                    .from(ENTITY_HIERARCHY)
+                    .where(ENTITY_HIERARCHY.KIND.eq(kind.name()))
+                    .and(ENTITY_HIERARCHY.ID.in(chunk))
+                    .fetch(TO_DELTA_DOMAIN_MAPPER));
+        }
+        return result;
+    }
+
+
+    /**
+     * @return ids of all entities which currently have the given entity as an ancestor (including itself)
+     */
+    public Set<Long> findDescendantIds(EntityKind kind, long ancestorId) {
+        checkNotNull(kind, "kind cannot be null");
+        return dsl
+                .select(ENTITY_HIERARCHY.ID)
+                .from(ENTITY_HIERARCHY)
+                .where(ENTITY_HIERARCHY.KIND.eq(kind.name()))
+                .and(ENTITY_HIERARCHY.ANCESTOR_ID.eq(ancestorId))
+                .fetchSet(ENTITY_HIERARCHY.ID);
+    }
+
+
+    /**
+     * Applies a set of changes to a hierarchy, rows are removed (matching on id and ancestor id)
+     * before the additions are inserted.  Both are written in batches within a single transaction.
+     *
+     * @param kind  the entity kind of the hierarchy being modified
+     * @param removals  items to remove
+     * @param additions  items to insert
+     * @return number of hierarchy records removed and added
+     */
+    public int applyDelta(EntityKind kind,
+                          Collection<EntityHierarchyItem> removals,
+                          Collection<EntityHierarchyItem> additions) {
+        checkNotNull(kind, "kind cannot be null");
+        checkNotNull(removals, "removals cannot be null");
+        checkNotNull(additions, "additions cannot be null");
+
+        if (removals.isEmpty() && additions.isEmpty()) {
+            return 0;
+        }
+
+        LOG.info("Updating hierarchy items for kind: {}, removing #{} and inserting #{}", kind, removals.size(), additions.size());
+        return dsl.transactionResult(configuration -> {
+            DSLContext txDsl = DSL.using(configuration);
+
+            for (List<EntityHierarchyItem> chunk : chunk(new ArrayList<>(removals))) {
+                BatchBindStep batch = txDsl.batch(txDsl
+                        .deleteFrom(ENTITY_HIERARCHY)
+                        .where(ENTITY_HIERARCHY.KIND.eq((String) null))
+                        .and(ENTITY_HIERARCHY.ID.eq((Long) null))
+                        .and(ENTITY_HIERARCHY.ANCESTOR_ID.eq((Long) null)));
+
+                chunk.forEach(item -> batch.bind(
+                        kind.name(),
+                        item.id().orElse(null),
+                        item.parentId().orElse(null)));
+
+                batch.execute();
+            }
+
+            for (List<EntityHierarchyRecord> chunk : chunk(map(additions, ITEM_TO_RECORD_MAPPER))) {
+                txDsl.batchInsert(chunk).execute();
+            }
+
+            return removals.size() + additions.size();
+        });
+    }
+
+
+    private static <T> List<List<T>> chunk(List<T> items) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < items.size(); i += CHUNK_SIZE) {
+            chunks.add(items.subList(i, Math.min(i + CHUNK_SIZE, items.size())));
+        }
+        return chunks;
+    }
+
 }
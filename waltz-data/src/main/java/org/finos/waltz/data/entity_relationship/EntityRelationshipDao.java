@@ -20,7 +20,7 @@ package org.finos.waltz.data.entity_relationship;
 
 import org.finos.waltz.common.DateTimeUtilities;
 import org.finos.waltz.data.GenericSelector;
-import org.finos.waltz.data.InlineSelectFieldFactory;
+import org.finos.waltz.data.EntityNameDictionary;
 import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.ImmutableEntityReference;
@@ -41,10 +41,13 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.CollectionUtilities.maybeFirst;
 import static org.finos.waltz.common.DateTimeUtilities.toLocalDateTime;
-import static org.finos.waltz.common.ListUtilities.newArrayList;
+import static org.finos.waltz.common.ListUtilities.map;
+import static org.finos.waltz.model.EntityReference.mkRef;
 import static org.finos.waltz.schema.tables.EntityRelationship.ENTITY_RELATIONSHIP;
 
 
@@ -53,54 +56,16 @@ public class EntityRelationshipDao {
 
     private static final Logger LOG = LoggerFactory.getLogger(EntityRelationshipDao.class);
 
-    private static final List<EntityKind> POSSIBLE_ENTITIES = newArrayList(
-            EntityKind.APPLICATION,
-            EntityKind.APP_GROUP,
-            EntityKind.ACTOR,
-            EntityKind.MEASURABLE,
-            EntityKind.CHANGE_INITIATIVE);
-
-
-    private static final Field<String> NAME_A = InlineSelectFieldFactory.mkNameField(
-            ENTITY_RELATIONSHIP.ID_A,
-            ENTITY_RELATIONSHIP.KIND_A,
-            POSSIBLE_ENTITIES);
-
-
-    private static final Field<String> NAME_B = InlineSelectFieldFactory.mkNameField(
-            ENTITY_RELATIONSHIP.ID_B,
-            ENTITY_RELATIONSHIP.KIND_B,
-            POSSIBLE_ENTITIES);
-
-
-    private static final Field<String> EXT_ID_A = InlineSelectFieldFactory.mkExternalIdField(
-            ENTITY_RELATIONSHIP.ID_A,
-            ENTITY_RELATIONSHIP.KIND_A,
-            POSSIBLE_ENTITIES);
-
-
-    private static final Field<String> EXT_ID_B = InlineSelectFieldFactory.mkExternalIdField(
-            ENTITY_RELATIONSHIP.ID_B,
-            ENTITY_RELATIONSHIP.KIND_B,
-            POSSIBLE_ENTITIES);
-
-
+    /**
+     * Maps relationships without the names and external ids of the related entities,
+     * these are added afterwards via {@link #withEntityDetails(Collection)}
+     */
     private static final RecordMapper<Record, EntityRelationship> TO_DOMAIN_MAPPER = r -> {
         EntityRelationshipRecord record = r.into(ENTITY_RELATIONSHIP);
         return ImmutableEntityRelationship.builder()
                 .id(record.getId())
-                .a(ImmutableEntityReference.builder()
-                        .kind(EntityKind.valueOf(record.getKindA()))
-                        .id(record.getIdA())
-                        .name(Optional.ofNullable(r.get(NAME_A)).orElse("_Removed_"))
-                        .externalId(Optional.ofNullable(r.get(EXT_ID_A)))
-                        .build())
-                .b(ImmutableEntityReference.builder()
-                        .kind(EntityKind.valueOf(record.getKindB()))
-                        .id(record.getIdB())
-                        .name(Optional.ofNullable(r.get(NAME_B)).orElse("_Removed_"))
-                        .externalId(Optional.ofNullable(r.get(EXT_ID_B)))
-                        .build())
+                .a(mkRef(EntityKind.valueOf(record.getKindA()), record.getIdA()))
+                .b(mkRef(EntityKind.valueOf(record.getKindB()), record.getIdB()))
                 .provenance(record.getProvenance())
                 .relationship(record.getRelationship())
                 .description(record.getDescription())
@@ -126,12 +91,16 @@ public class EntityRelationshipDao {
 
 
     private final DSLContext dsl;
+    private final EntityNameDictionary entityNameDictionary;
 
 
     @Autowired
-    public EntityRelationshipDao(DSLContext dsl) {
+    public EntityRelationshipDao(DSLContext dsl,
+                                 EntityNameDictionary entityNameDictionary) {
         checkNotNull(dsl, "dsl cannot be null");
+        checkNotNull(entityNameDictionary, "entityNameDictionary cannot be null");
         this.dsl = dsl;
+        this.entityNameDictionary = entityNameDictionary;
     }
 
 
@@ -171,13 +140,8 @@ public class EntityRelationshipDao {
 
 
     public EntityRelationship getById(Long id){
-        return dsl
-                .select(ENTITY_RELATIONSHIP.fields())
-                .select(NAME_A, NAME_B)
-                .select(EXT_ID_A, EXT_ID_B)
-                .from(ENTITY_RELATIONSHIP)
-                .where(ENTITY_RELATIONSHIP.ID.eq(id))
-                .fetchOne(TO_DOMAIN_MAPPER);
+        return maybeFirst(doQuery(ENTITY_RELATIONSHIP.ID.eq(id)))
+                .orElse(null);
     }
 
 
@@ -243,13 +207,38 @@ public class EntityRelationshipDao {
 
 
     private Collection<EntityRelationship> doQuery(Condition condition) {
-        return dsl
+        return withEntityDetails(dsl
                 .select(ENTITY_RELATIONSHIP.fields())
-                .select(NAME_A, NAME_B)
-                .select(EXT_ID_A, EXT_ID_B)
                 .from(ENTITY_RELATIONSHIP)
                 .where(condition)
-                .fetch(TO_DOMAIN_MAPPER);
+                .fetch(TO_DOMAIN_MAPPER));
+    }
+
+
+    private List<EntityRelationship> withEntityDetails(Collection<EntityRelationship> relationships) {
+        Map<EntityReference, EntityReference> entities = entityNameDictionary.lookup(relationships
+                .stream()
+                .flatMap(rel -> Stream.of(rel.a(), rel.b()))
+                .collect(Collectors.toSet()));
+
+        return map(
+                relationships,
+                rel -> ImmutableEntityRelationship
+                        .copyOf(rel)
+                        .withA(withEntityDetails(rel.a(), entities))
+                        .withB(withEntityDetails(rel.b(), entities)));
+    }
+
+
+    private static EntityReference withEntityDetails(EntityReference ref,
+                                                     Map<EntityReference, EntityReference> entities) {
+        Optional<EntityReference> entity = Optional.ofNullable(entities.get(ref));
+        return ImmutableEntityReference.builder()
+                .kind(ref.kind())
+                .id(ref.id())
+                .name(entity.flatMap(EntityReference::name).orElse("_Removed_"))
+                .externalId(entity.flatMap(EntityReference::externalId))
+                .build();
     }
 
 
@@ -0,0 +1,210 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+
+package org.finos.waltz.data.entity_search;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityLifecycleStatus;
+import org.finos.waltz.model.ImmutableEntityReference;
+import org.finos.waltz.model.entity_search.ImmutableSearchableEntity;
+import org.finos.waltz.model.entity_search.SearchableEntity;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.EnumUtilities.readEnum;
+import static org.finos.waltz.common.ListUtilities.asList;
+import static org.finos.waltz.schema.Tables.*;
+
+/**
+ * Loads the names and search keys (asset codes, external ids, aliases etc.) of
+ * entities for use by the in-memory entity search index.
+ */
+@Repository
+public class EntitySearchIndexDao {
+
+    private static final Map<EntityKind, IndexSource> SOURCES = mkSources();
+
+    private final DSLContext dsl;
+
+
+    @Autowired
+    public EntitySearchIndexDao(DSLContext dsl) {
+        checkNotNull(dsl, "dsl cannot be null");
+        this.dsl = dsl;
+    }
+
+
+    public Set<EntityKind> getSupportedEntityKinds() {
+        return Collections.unmodifiableSet(SOURCES.keySet());
+    }
+
+
+    public List<SearchableEntity> findAll(EntityKind kind) {
+        return find(kind, DSL.trueCondition(), DSL.trueCondition(), DSL.trueCondition());
+    }
+
+
+    public List<SearchableEntity> findByIds(EntityKind kind, Collection<Long> ids) {
+        IndexSource source = getSource(kind);
+        return find(
+                kind,
+                source.id.in(ids),
+                ENTITY_ALIAS.ID.in(ids),
+                EXTERNAL_IDENTIFIER.ENTITY_ID.in(ids));
+    }
+
+
+    // -- HELPERS ---
+
+    private List<SearchableEntity> find(EntityKind kind,
+                                        Condition entityCondition,
+                                        Condition aliasCondition,
+                                        Condition externalIdentifierCondition) {
+        IndexSource source = getSource(kind);
+
+        Map<Long, Set<String>> additionalKeysById = new HashMap<>();
+
+        dsl.select(ENTITY_ALIAS.ID, ENTITY_ALIAS.ALIAS)
+                .from(ENTITY_ALIAS)
+                .where(ENTITY_ALIAS.KIND.eq(kind.name()))
+                .and(aliasCondition)
+                .forEach(r -> additionalKeysById
+                        .computeIfAbsent(r.get(ENTITY_ALIAS.ID), k -> new HashSet<>())
+                        .add(r.get(ENTITY_ALIAS.ALIAS)));
+
+        dsl.select(EXTERNAL_IDENTIFIER.ENTITY_ID, EXTERNAL_IDENTIFIER.EXTERNAL_ID)
+                .from(EXTERNAL_IDENTIFIER)
+                .where(EXTERNAL_IDENTIFIER.ENTITY_KIND.eq(kind.name()))
+                .and(externalIdentifierCondition)
+                .forEach(r -> additionalKeysById
+                        .computeIfAbsent(r.get(EXTERNAL_IDENTIFIER.ENTITY_ID), k -> new HashSet<>())
+                        .add(r.get(EXTERNAL_IDENTIFIER.EXTERNAL_ID)));
+
+        List<Field<?>> fields = new ArrayList<>();
+        fields.add(source.id);
+        fields.add(source.name);
+        fields.add(source.lifecycleStatus);
+        fields.addAll(source.keys);
+
+        List<SearchableEntity> result = new ArrayList<>();
+
+        dsl.select(fields)
+                .from(source.table)
+                .where(entityCondition)
+                .forEach(r -> {
+                    long id = r.get(0, Long.class);
+
+                    Set<String> keys = new HashSet<>(additionalKeysById.getOrDefault(id, Collections.emptySet()));
+                    for (int i = 0; i < source.keys.size(); i++) {
+                        Optional.ofNullable(r.get(3 + i, String.class)).ifPresent(keys::add);
+                    }
+
+                    result.add(ImmutableSearchableEntity
+                            .builder()
+                            .entityReference(ImmutableEntityReference
+                                    .builder()
+                                    .kind(kind)
+                                    .id(id)
+                                    .name(r.get(1, String.class))
+                                    .externalId(Optional.ofNullable(source.keys.isEmpty()
+                                            ? null
+                                            : r.get(3, String.class)))
+                                    .entityLifecycleStatus(readEnum(
+                                            r.get(2, String.class),
+                                            EntityLifecycleStatus.class,
+                                            s -> EntityLifecycleStatus.ACTIVE))
+                                    .build())
+                            .searchKeys(keys)
+                            .build());
+                });
+
+        return result;
+    }
+
+
+    private static IndexSource getSource(EntityKind kind) {
+        IndexSource source = SOURCES.get(kind);
+        if (source == null) {
+            throw new UnsupportedOperationException("Cannot index entities of kind: " + kind);
+        }
+        return source;
+    }
+
+
+    private static Map<EntityKind, IndexSource> mkSources() {
+        Field<String> active = DSL.val(EntityLifecycleStatus.ACTIVE.name());
+
+        Map<EntityKind, IndexSource> sources = new EnumMap<>(EntityKind.class);
+        sources.put(EntityKind.ACTOR, new IndexSource(ACTOR, ACTOR.ID, ACTOR.NAME, active, asList(ACTOR.EXTERNAL_ID)));
+        sources.put(EntityKind.APPLICATION, new IndexSource(APPLICATION, APPLICATION.ID, APPLICATION.NAME, APPLICATION.ENTITY_LIFECYCLE_STATUS, asList(APPLICATION.ASSET_CODE)));
+        sources.put(EntityKind.CHANGE_INITIATIVE, new IndexSource(CHANGE_INITIATIVE, CHANGE_INITIATIVE.ID, CHANGE_INITIATIVE.NAME, active, asList(CHANGE_INITIATIVE.EXTERNAL_ID)));
+        sources.put(EntityKind.DATA_TYPE, new IndexSource(DATA_TYPE, DATA_TYPE.ID, DATA_TYPE.NAME, active, asList(DATA_TYPE.CODE)));
+        sources.put(EntityKind.LEGAL_ENTITY, new IndexSource(LEGAL_ENTITY, LEGAL_ENTITY.ID, LEGAL_ENTITY.NAME, LEGAL_ENTITY.ENTITY_LIFECYCLE_STATUS, asList(LEGAL_ENTITY.EXTERNAL_ID)));
+        sources.put(EntityKind.MEASURABLE, new IndexSource(MEASURABLE, MEASURABLE.ID, MEASURABLE.NAME, MEASURABLE.ENTITY_LIFECYCLE_STATUS, asList(MEASURABLE.EXTERNAL_ID)));
+        sources.put(EntityKind.ORG_UNIT, new IndexSource(ORGANISATIONAL_UNIT, ORGANISATIONAL_UNIT.ID, ORGANISATIONAL_UNIT.NAME, active, asList(ORGANISATIONAL_UNIT.EXTERNAL_ID)));
+        sources.put(EntityKind.PERSON, new IndexSource(
+                PERSON,
+                PERSON.ID,
+                PERSON.DISPLAY_NAME,
+                DSL.when(PERSON.IS_REMOVED.isTrue(), DSL.val(EntityLifecycleStatus.REMOVED.name())).otherwise(active),
+                asList(PERSON.EMPLOYEE_ID, PERSON.EMAIL)));
+        return sources;
+    }
+
+
+    private static class IndexSource {
+
+        private final Table<?> table;
+        private final Field<Long> id;
+        private final Field<String> name;
+        private final Field<String> lifecycleStatus;
+        private final List<Field<String>> keys;
+
+
+        private IndexSource(Table<?> table,
+                            Field<Long> id,
+                            Field<String> name,
+                            Field<String> lifecycleStatus,
+                            List<Field<String>> keys) {
+            this.table = table;
+            this.id = id;
+            this.name = name;
+            this.lifecycleStatus = lifecycleStatus;
+            this.keys = keys;
+        }
+    }
+}
@@ -33,8 +33,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 import static org.finos.waltz.schema.Tables.FLOW_CLASSIFICATION;
 import static org.finos.waltz.schema.Tables.FLOW_CLASSIFICATION_RULE;
@@ -43,7 +41,6 @@ import static org.finos.waltz.schema.tables.EntityHierarchy.ENTITY_HIERARCHY;
 import static org.finos.waltz.schema.tables.LogicalFlow.LOGICAL_FLOW;
 import static org.finos.waltz.schema.tables.LogicalFlowDecorator.LOGICAL_FLOW_DECORATOR;
 import static org.finos.waltz.schema.tables.OrganisationalUnit.ORGANISATIONAL_UNIT;
-import static java.util.stream.Collectors.collectingAndThen;
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.Checks.checkTrue;
 import static org.finos.waltz.common.DateTimeUtilities.nowUtcTimestamp;
@@ -61,10 +58,7 @@ public class FlowClassificationRuleDao {
 
     public final static Application CONSUMER_APP = APPLICATION.as("consumer");
     public final static Application SUPPLIER_APP = APPLICATION.as("supplier");
-    public static final org.finos.waltz.schema.tables.DataType parent_dt = org.finos.waltz.schema.tables.DataType.DATA_TYPE.as("parent_dt");
-    public static final org.finos.waltz.schema.tables.DataType child_dt = org.finos.waltz.schema.tables.DataType.DATA_TYPE.as("child_dt");
     public static final EntityHierarchy eh = ENTITY_HIERARCHY.as("eh");
-    public static final EntityHierarchy level = ENTITY_HIERARCHY.as("level");
 
     private final static AggregateFunction<Integer> COUNT_FIELD = DSL.count(LOGICAL_FLOW);
 
@@ -285,34 +279,6 @@ public class FlowClassificationRuleDao {
     }
 
 
-    public int clearRatingsForPointToPointFlows(FlowClassificationRule rule) {
-
-        // this may wipe any lower level explicit datatype mappings but these will be restored by the nightly job
-        SelectConditionStep<Record1<Long>> decoratorsToMarkAsNoOpinion = dsl
-                .select(LOGICAL_FLOW_DECORATOR.ID)
-                .from(LOGICAL_FLOW)
-                .innerJoin(LOGICAL_FLOW_DECORATOR).on(LOGICAL_FLOW.ID.eq(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID))
-                .and(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_KIND.eq(EntityKind.DATA_TYPE.name()))
-                .innerJoin(ENTITY_HIERARCHY).on(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_ID.eq(ENTITY_HIERARCHY.ID))
-                .and(ENTITY_HIERARCHY.KIND.eq(EntityKind.DATA_TYPE.name()))
-                .innerJoin(org.finos.waltz.schema.tables.DataType.DATA_TYPE).on(ENTITY_HIERARCHY.ANCESTOR_ID.eq(org.finos.waltz.schema.tables.DataType.DATA_TYPE.ID))
-                .innerJoin(FLOW_CLASSIFICATION).on(LOGICAL_FLOW_DECORATOR.RATING.eq(FLOW_CLASSIFICATION.CODE))
-                .where(dsl.renderInlined(org.finos.waltz.schema.tables.DataType.DATA_TYPE.ID.eq(rule.dataTypeId())
-                        .and(LOGICAL_FLOW.SOURCE_ENTITY_ID.eq(rule.subjectReference().id())
-                                .and(LOGICAL_FLOW.SOURCE_ENTITY_KIND.eq(EntityKind.APPLICATION.name())
-                                        .and(LOGICAL_FLOW.TARGET_ENTITY_KIND.eq(rule.vantagePointReference().kind().name())
-                                                .and(LOGICAL_FLOW.TARGET_ENTITY_ID.eq(rule.vantagePointReference().id()))))
-                                .and(FLOW_CLASSIFICATION.ID.eq(rule.classificationId())))));
-
-        return dsl
-                .update(LOGICAL_FLOW_DECORATOR)
-                .set(LOGICAL_FLOW_DECORATOR.RATING, AuthoritativenessRatingValue.NO_OPINION.value())
-                .setNull(LOGICAL_FLOW_DECORATOR.FLOW_CLASSIFICATION_RULE_ID)
-                .where(LOGICAL_FLOW_DECORATOR.ID.in(decoratorsToMarkAsNoOpinion))
-                .execute();
-    }
-
-
     public List<FlowClassificationRuleVantagePoint> findExpandedFlowClassificationRuleVantagePoints(Set<Long> orgIds) {
         SelectSeekStep3<Record8<Long, Integer, Long, Integer, Long, String, String, Long>, Integer, Integer, Long> select = dsl
                 .select(targetOrgUnitId,
@@ -342,6 +308,15 @@ public class FlowClassificationRuleDao {
 
 
     public List<FlowClassificationRuleVantagePoint> findFlowClassificationRuleVantagePoints() {
+        return findFlowClassificationRuleVantagePoints(DSL.trueCondition());
+    }
+
+
+    /**
+     * Returns vantage points for org unit rules which satisfy the given condition,
+     * the condition is applied to the rule (FLOW_CLASSIFICATION_RULE) itself.
+     */
+    public List<FlowClassificationRuleVantagePoint> findFlowClassificationRuleVantagePoints(Condition ruleCondition) {
         SelectSeekStep4<Record8<Long, Integer, Long, Integer, Long, String, String, Long>, Integer, Integer, Long, Long> select = dsl
                 .select(targetOrgUnitId,
                         declaredOrgUnitLevel,
@@ -363,6 +338,7 @@ public class FlowClassificationRuleDao {
                         .and(ehDataType.KIND.eq(EntityKind.DATA_TYPE.name()))
                         .and(ehDataType.ID.eq(ehDataType.ANCESTOR_ID)))
                 .innerJoin(FLOW_CLASSIFICATION).on(FLOW_CLASSIFICATION_RULE.FLOW_CLASSIFICATION_ID.eq(FLOW_CLASSIFICATION.ID))
+                .where(ruleCondition)
                 .orderBy(
                         ehOrgUnit.LEVEL.desc(),
                         ehDataType.LEVEL.desc(),
@@ -502,45 +478,48 @@ public class FlowClassificationRuleDao {
     }
 
 
-    public int updatePointToPointFlowClassificationRules() {
+    /**
+     * Returns vantage points for rules which are declared directly against an application or actor
+     * (i.e. point-to-point rules), the vantage point is the entity the rule is declared against.
+     * These rules are not ranked by vantage point so the vantage point rank is always zero.
+     */
+    public List<FlowClassificationRuleVantagePoint> findPointToPointFlowClassificationRuleVantagePoints() {
+        return findPointToPointFlowClassificationRuleVantagePoints(DSL.trueCondition());
+    }
 
-        Condition logicalFlowTargetIsAuthSourceParent = FLOW_CLASSIFICATION_RULE.SUBJECT_ENTITY_ID.eq(LOGICAL_FLOW.SOURCE_ENTITY_ID)
-                .and(LOGICAL_FLOW.SOURCE_ENTITY_KIND.eq(FLOW_CLASSIFICATION_RULE.SUBJECT_ENTITY_KIND)
-                        .and(LOGICAL_FLOW.TARGET_ENTITY_KIND.eq(FLOW_CLASSIFICATION_RULE.PARENT_KIND)
-                                .and(LOGICAL_FLOW.TARGET_ENTITY_ID.eq(FLOW_CLASSIFICATION_RULE.PARENT_ID))));
 
-        int[] updatedActorDecoratorRatings = dsl
-                .select(LOGICAL_FLOW_DECORATOR.ID,
-                        child_dt.ID,
+    /**
+     * Returns vantage points for point-to-point rules which satisfy the given condition,
+     * the condition is applied to the rule (FLOW_CLASSIFICATION_RULE) itself.
+     */
+    public List<FlowClassificationRuleVantagePoint> findPointToPointFlowClassificationRuleVantagePoints(Condition ruleCondition) {
+        return dsl
+                .select(FLOW_CLASSIFICATION_RULE.PARENT_KIND,
+                        FLOW_CLASSIFICATION_RULE.PARENT_ID,
+                        declaredDataTypeId,
+                        declaredDataTypeLevel,
+                        FLOW_CLASSIFICATION_RULE.SUBJECT_ENTITY_ID,
+                        FLOW_CLASSIFICATION_RULE.SUBJECT_ENTITY_KIND,
                         FLOW_CLASSIFICATION.CODE,
                         FLOW_CLASSIFICATION_RULE.ID)
                 .from(FLOW_CLASSIFICATION_RULE)
-                .innerJoin(parent_dt).on(FLOW_CLASSIFICATION_RULE.DATA_TYPE_ID.eq(parent_dt.ID))
-                .innerJoin(ENTITY_HIERARCHY).on(parent_dt.ID.eq(ENTITY_HIERARCHY.ANCESTOR_ID)
-                        .and(ENTITY_HIERARCHY.KIND.eq(EntityKind.DATA_TYPE.name())))
-                .innerJoin(child_dt).on(ENTITY_HIERARCHY.ID.eq(child_dt.ID))
-                .innerJoin(LOGICAL_FLOW).on(logicalFlowTargetIsAuthSourceParent)
-                .innerJoin(LOGICAL_FLOW_DECORATOR).on(LOGICAL_FLOW.ID.eq(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID)
-                        .and(child_dt.ID.eq(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_ID)
-                                .and(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_KIND.eq(EntityKind.DATA_TYPE.name()))))
-                .innerJoin(level).on(level.ID.eq(parent_dt.ID)
-                        .and(level.ID.eq(level.ANCESTOR_ID)
-                        .and(level.KIND.eq(EntityKind.DATA_TYPE.name()))))
+                .innerJoin(ehDataType)
+                .on(ehDataType.ANCESTOR_ID.eq(FLOW_CLASSIFICATION_RULE.DATA_TYPE_ID)
+                        .and(ehDataType.KIND.eq(EntityKind.DATA_TYPE.name()))
+                        .and(ehDataType.ID.eq(ehDataType.ANCESTOR_ID)))
                 .innerJoin(FLOW_CLASSIFICATION).on(FLOW_CLASSIFICATION_RULE.FLOW_CLASSIFICATION_ID.eq(FLOW_CLASSIFICATION.ID))
-                .where(FLOW_CLASSIFICATION.CODE.ne(LOGICAL_FLOW_DECORATOR.RATING))
-                .orderBy(level.LEVEL)
-                .fetch()
-                .stream()
-                .map(r -> dsl
-                        .update(LOGICAL_FLOW_DECORATOR)
-                        .set(LOGICAL_FLOW_DECORATOR.RATING, r.get(FLOW_CLASSIFICATION.CODE))
-                        .set(LOGICAL_FLOW_DECORATOR.FLOW_CLASSIFICATION_RULE_ID, r.get(FLOW_CLASSIFICATION_RULE.ID))
-                        .where(LOGICAL_FLOW_DECORATOR.ID.eq(r.get(LOGICAL_FLOW_DECORATOR.ID))
-                                .and(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_ID.eq(r.get(child_dt.ID))
-                                        .and(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_KIND.eq(EntityKind.DATA_TYPE.name())))))
-                .collect(collectingAndThen(Collectors.toSet(), r -> dsl.batch(r).execute()));
-
-        return IntStream.of(updatedActorDecoratorRatings).sum();
+                .where(FLOW_CLASSIFICATION_RULE.PARENT_KIND.ne(EntityKind.ORG_UNIT.name()))
+                .and(ruleCondition)
+                .fetch(r -> ImmutableFlowClassificationRuleVantagePoint
+                        .builder()
+                        .vantagePoint(mkRef(EntityKind.valueOf(r.get(FLOW_CLASSIFICATION_RULE.PARENT_KIND)), r.get(FLOW_CLASSIFICATION_RULE.PARENT_ID)))
+                        .vantagePointRank(0)
+                        .subjectReference(mkRef(EntityKind.valueOf(r.get(FLOW_CLASSIFICATION_RULE.SUBJECT_ENTITY_KIND)), r.get(FLOW_CLASSIFICATION_RULE.SUBJECT_ENTITY_ID)))
+                        .classificationCode(r.get(FLOW_CLASSIFICATION.CODE))
+                        .dataType(mkRef(EntityKind.DATA_TYPE, r.get(declaredDataTypeId)))
+                        .dataTypeRank(r.get(declaredDataTypeLevel))
+                        .ruleId(r.get(FLOW_CLASSIFICATION_RULE.ID))
+                        .build());
     }
 
 
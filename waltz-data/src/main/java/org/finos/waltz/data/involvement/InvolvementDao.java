@@ -20,7 +20,7 @@ package org.finos.waltz.data.involvement;
 
 import org.finos.waltz.common.SetUtilities;
 import org.finos.waltz.data.GenericSelector;
-import org.finos.waltz.data.InlineSelectFieldFactory;
+import org.finos.waltz.data.EntityNameDictionary;
 import org.finos.waltz.data.person.PersonDao;
 import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityReference;
@@ -41,7 +41,7 @@ import java.util.stream.IntStream;
 
 import static java.util.stream.Collectors.*;
 import static org.finos.waltz.common.Checks.checkNotNull;
-import static org.finos.waltz.common.ListUtilities.newArrayList;
+import static org.finos.waltz.common.ListUtilities.map;
 import static org.finos.waltz.schema.Tables.CHANGE_INITIATIVE;
 import static org.finos.waltz.schema.Tables.END_USER_APPLICATION;
 import static org.finos.waltz.schema.tables.Involvement.INVOLVEMENT;
@@ -54,23 +54,18 @@ import static org.jooq.lambda.tuple.Tuple.tuple;
 public class InvolvementDao {
 
     private final DSLContext dsl;
+    private final EntityNameDictionary entityNameDictionary;
 
-    private static final Field<String> ENTITY_NAME_FIELD = InlineSelectFieldFactory
-            .mkNameField(
-                    INVOLVEMENT.ENTITY_ID,
-                    INVOLVEMENT.ENTITY_KIND,
-                    newArrayList(EntityKind.values()))
-            .as("entity_name");
-
+    /**
+     * Maps involvements without their entity names, these are added afterwards via
+     * {@link #withEntityNames(Collection)}
+     */
     private final RecordMapper<Record, Involvement> TO_MODEL_MAPPER = r -> {
         InvolvementRecord involvementRecord = r.into(InvolvementRecord.class);
 
-        Optional<String> entityName = Optional.ofNullable(r.get(ENTITY_NAME_FIELD));
-
         ImmutableEntityReference entityRef = ImmutableEntityReference.builder()
                 .kind(EntityKind.valueOf(involvementRecord.getEntityKind()))
                 .id(involvementRecord.getEntityId())
-                .name(entityName.orElse("Unknown"))
                 .build();
 
         return ImmutableInvolvement.builder()
@@ -96,21 +91,23 @@ public class InvolvementDao {
 
 
     @Autowired
-    public InvolvementDao(DSLContext dsl) {
+    public InvolvementDao(DSLContext dsl,
+                          EntityNameDictionary entityNameDictionary) {
         checkNotNull(dsl, "dsl must not be null");
+        checkNotNull(entityNameDictionary, "entityNameDictionary must not be null");
 
         this.dsl = dsl;
+        this.entityNameDictionary = entityNameDictionary;
     }
 
 
     public List<Involvement> findByEntityReference(EntityReference ref) {
-        return dsl
+        return withEntityNames(dsl
                 .select(INVOLVEMENT.fields())
-                .select(ENTITY_NAME_FIELD)
                 .from(INVOLVEMENT)
                 .where(INVOLVEMENT.ENTITY_KIND.eq(ref.kind().name()))
                 .and(INVOLVEMENT.ENTITY_ID.eq(ref.id()))
-                .fetch(TO_MODEL_MAPPER);
+                .fetch(TO_MODEL_MAPPER));
     }
 
 
@@ -122,23 +119,21 @@ public class InvolvementDao {
      * @return collection of involvements
      */
     public Collection<Involvement> findByGenericEntitySelector(GenericSelector genericSelector) {
-        return dsl
+        return withEntityNames(dsl
                 .select(INVOLVEMENT.fields())
-                .select(ENTITY_NAME_FIELD)
                 .from(INVOLVEMENT)
                 .where(INVOLVEMENT.ENTITY_KIND.eq(genericSelector.kind().name()))
                 .and(INVOLVEMENT.ENTITY_ID.in(genericSelector.selector()))
-                .fetch(TO_MODEL_MAPPER);
+                .fetch(TO_MODEL_MAPPER));
     }
 
 
     public List<Involvement> findByEmployeeId(String employeeId) {
-        return dsl
+        return withEntityNames(dsl
                 .select(INVOLVEMENT.fields())
-                .select(ENTITY_NAME_FIELD)
                 .from(INVOLVEMENT)
                 .where(INVOLVEMENT.EMPLOYEE_ID.eq(employeeId))
-                .fetch(TO_MODEL_MAPPER);
+                .fetch(TO_MODEL_MAPPER));
     }
 
     public Set<Long> findExistingInvolvementKindIdsForUser(EntityReference parentEntityRef, String username) {
@@ -153,15 +148,55 @@ public class InvolvementDao {
     }
 
 
-    public List<Involvement> findAllByEmployeeId(String employeeId) {
+    /**
+     * Batch form of {@link #findExistingInvolvementKindIdsForUser(EntityReference, String)}.
+     * The returned map is keyed by (kind, id) only references, entities where the user
+     * has no involvements are omitted.
+     *
+     * @param parentEntityRefs  entities to check
+     * @param username  user to find involvement kinds for
+     * @return  involvement kind ids keyed by entity reference
+     */
+    public Map<EntityReference, Set<Long>> findExistingInvolvementKindIdsForUser(Collection<EntityReference> parentEntityRefs,
+                                                                               String username) {
+        if (parentEntityRefs.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Condition entityCondition = parentEntityRefs
+                .stream()
+                .collect(groupingBy(EntityReference::kind, mapping(EntityReference::id, toSet())))
+                .entrySet()
+                .stream()
+                .map(e -> INVOLVEMENT.ENTITY_KIND.eq(e.getKey().name())
+                        .and(INVOLVEMENT.ENTITY_ID.in(e.getValue())))
+                .reduce(DSL.falseCondition(), Condition::or);
+
         return dsl
+                .select(INVOLVEMENT.ENTITY_KIND, INVOLVEMENT.ENTITY_ID, INVOLVEMENT.KIND_ID)
+                .from(INVOLVEMENT)
+                .innerJoin(PERSON).on(PERSON.EMPLOYEE_ID.eq(INVOLVEMENT.EMPLOYEE_ID))
+                .where(PERSON.EMAIL.eq(username))
+                .and(entityCondition)
+                .fetchGroups(
+                        r -> EntityReference.mkRef(
+                                EntityKind.valueOf(r.get(INVOLVEMENT.ENTITY_KIND)),
+                                r.get(INVOLVEMENT.ENTITY_ID)),
+                        r -> r.get(INVOLVEMENT.KIND_ID))
+                .entrySet()
+                .stream()
+                .collect(toMap(Map.Entry::getKey, e -> SetUtilities.fromCollection(e.getValue())));
+    }
+
+
+    public List<Involvement> findAllByEmployeeId(String employeeId) {
+        return withEntityNames(dsl
                 .select(INVOLVEMENT.fields())
-                .select(ENTITY_NAME_FIELD)
                 .from(INVOLVEMENT)
                 .innerJoin(PERSON_HIERARCHY).on(INVOLVEMENT.EMPLOYEE_ID.eq(PERSON_HIERARCHY.EMPLOYEE_ID))
                 .where(PERSON_HIERARCHY.MANAGER_ID.eq(employeeId)
                         .or(INVOLVEMENT.EMPLOYEE_ID.eq(employeeId)))
-                .fetch(TO_MODEL_MAPPER);
+                .fetch(TO_MODEL_MAPPER));
     }
 
 
@@ -192,10 +227,10 @@ public class InvolvementDao {
             Select<Record1<Long>> entityIdSelector,
             Set<Long> involvementKindIds) {
 
-        return dsl.selectDistinct()
+        Map<EntityReference, List<Person>> peopleByEntity = dsl
+                .selectDistinct()
                 .select(PERSON.fields())
                 .select(INVOLVEMENT.fields())
-                .select(ENTITY_NAME_FIELD)
                 .from(PERSON)
                 .innerJoin(INVOLVEMENT)
                 .on(INVOLVEMENT.EMPLOYEE_ID.eq(PERSON.EMPLOYEE_ID))
@@ -208,9 +243,22 @@ public class InvolvementDao {
                 .collect(groupingBy(
                         r -> EntityReference.mkRef(
                                 entityKind,
-                                r.getValue(INVOLVEMENT.ENTITY_ID),
-                                r.getValue(ENTITY_NAME_FIELD)),
+                                r.getValue(INVOLVEMENT.ENTITY_ID)),
                         mapping(PersonDao.personMapper::map, toList())));
+
+        Map<EntityReference, EntityReference> entities = entityNameDictionary.lookup(peopleByEntity.keySet());
+
+        return peopleByEntity
+                .entrySet()
+                .stream()
+                .collect(toMap(
+                        e -> EntityReference.mkRef(
+                                entityKind,
+                                e.getKey().id(),
+                                Optional.ofNullable(entities.get(e.getKey()))
+                                        .flatMap(EntityReference::name)
+                                        .orElse(null)),
+                        Map.Entry::getValue));
     }
 
 
@@ -317,13 +365,12 @@ public class InvolvementDao {
     }
 
     public Set<Involvement> findInvolvementsByKindAndEntityKind(Long invKindId, EntityKind entityKind) {
-        return dsl
+        return SetUtilities.fromCollection(withEntityNames(dsl
                 .select(INVOLVEMENT.fields())
-                .select(ENTITY_NAME_FIELD)
                 .from(INVOLVEMENT)
                 .where(INVOLVEMENT.ENTITY_KIND.eq(entityKind.name())
                         .and(INVOLVEMENT.KIND_ID.eq(invKindId)))
-                .fetchSet(TO_MODEL_MAPPER);
+                .fetch(TO_MODEL_MAPPER)));
     }
 
     public int bulkStoreInvolvements(Set<Involvement> involvements) {
@@ -334,13 +381,12 @@ public class InvolvementDao {
 
     public Set<Involvement> findByKindIdAndEntityKind(long id, EntityKind kind) {
 
-        return dsl
+        return SetUtilities.fromCollection(withEntityNames(dsl
                 .select(INVOLVEMENT.fields())
-                .select(ENTITY_NAME_FIELD)
                 .from(INVOLVEMENT)
                 .where(INVOLVEMENT.KIND_ID.eq(id)
                         .and(INVOLVEMENT.ENTITY_KIND.eq(kind.name())))
-                .fetchSet(TO_MODEL_MAPPER);
+                .fetch(TO_MODEL_MAPPER)));
     }
 
     public int bulkDeleteInvolvements(Set<Involvement> involvements) {
@@ -355,4 +401,28 @@ public class InvolvementDao {
                 .collect(collectingAndThen(toSet(), xs -> dsl.batch(xs).execute()));
         return IntStream.of(removedInvolvements).sum();
     }
+
+
+    // --- HELPERS ---
+
+    private List<Involvement> withEntityNames(Collection<Involvement> involvements) {
+        Map<EntityReference, EntityReference> entities = entityNameDictionary.lookup(map(
+                involvements,
+                Involvement::entityReference));
+
+        return map(
+                involvements,
+                inv -> {
+                    EntityReference ref = inv.entityReference();
+                    String name = Optional
+                            .ofNullable(entities.get(EntityReference.mkRef(ref.kind(), ref.id())))
+                            .flatMap(EntityReference::name)
+                            .orElse("Unknown");
+                    return ImmutableInvolvement
+                            .copyOf(inv)
+                            .withEntityReference(ImmutableEntityReference
+                                    .copyOf(ref)
+                                    .withName(name));
+                });
+    }
 }
@@ -22,7 +22,6 @@ import org.finos.waltz.data.InlineSelectFieldFactory;
 import org.finos.waltz.model.*;
 import org.finos.waltz.model.logical_flow.ImmutableLogicalFlow;
 import org.finos.waltz.model.logical_flow.LogicalFlow;
-import org.finos.waltz.model.user.SystemRole;
 import org.finos.waltz.schema.tables.records.LogicalFlowRecord;
 import org.jooq.*;
 import org.jooq.impl.DSL;
@@ -47,13 +46,10 @@ import static org.finos.waltz.common.ListUtilities.filter;
 import static org.finos.waltz.common.ListUtilities.newArrayList;
 import static org.finos.waltz.common.MapUtilities.groupBy;
 import static org.finos.waltz.common.MapUtilities.indexBy;
-import static org.finos.waltz.common.SetUtilities.asSet;
-import static org.finos.waltz.common.SetUtilities.union;
 import static org.finos.waltz.data.application.ApplicationDao.IS_ACTIVE;
 import static org.finos.waltz.model.EntityLifecycleStatus.ACTIVE;
 import static org.finos.waltz.model.EntityLifecycleStatus.REMOVED;
 import static org.finos.waltz.schema.Tables.PHYSICAL_SPECIFICATION;
-import static org.finos.waltz.schema.Tables.USER_ROLE;
 import static org.finos.waltz.schema.tables.Application.APPLICATION;
 import static org.finos.waltz.schema.tables.LogicalFlow.LOGICAL_FLOW;
 import static org.jooq.lambda.tuple.Tuple.tuple;
@@ -459,22 +455,4 @@ public class LogicalFlowDao {
                 .execute();
     }
 
-
-    public Set<Operation> calculateAmendedFlowOperations(Set<Operation> operationsForFlow,
-                                                         String username) {
-
-        //TODO: Need to add 'FLOW_ADMIN' permissions for bulk loaders
-        boolean hasOverride = dsl
-                .fetchExists(DSL
-                        .select(USER_ROLE.ROLE)
-                        .from(USER_ROLE)
-                        .where(USER_ROLE.ROLE.eq(SystemRole.LOGICAL_DATA_FLOW_EDITOR.name())
-                                .and(USER_ROLE.USER_NAME.eq(username))));
-
-        if (hasOverride) {
-            return union(operationsForFlow, asSet(Operation.ADD, Operation.UPDATE, Operation.REMOVE));
-        } else {
-            return operationsForFlow;
-        }
-    }
 }
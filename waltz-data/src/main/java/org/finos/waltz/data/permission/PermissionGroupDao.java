@@ -18,6 +18,9 @@ import org.springframework.stereotype.Repository;
 import java.util.*;
 
 import static java.util.Collections.emptySet;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 import static org.finos.waltz.common.MapUtilities.groupAndThen;
 import static org.finos.waltz.common.MapUtilities.groupBy;
@@ -73,6 +76,95 @@ public class PermissionGroupDao {
                                 r.get(PERMISSION_GROUP_INVOLVEMENT.SUBJECT_KIND)),
                         r -> r.get(INVOLVEMENT_GROUP_ENTRY.INVOLVEMENT_KIND_ID));
 
+        return toPermissions(permissionsForSubjectQualifier);
+    }
+
+
+    /**
+     * Batch form of {@link #findPermissionsForParentEntityReference(EntityReference)}.  The
+     * override groups of all the entities, and the rules of those groups and the default
+     * groups, are fetched with two queries regardless of the number of entities.
+     *
+     * @param parentEntityRefs  entities to find permissions for
+     * @return  permissions keyed by (kind, id) only entity references, every given entity is present
+     */
+    public Map<EntityReference, Set<Permission>> findPermissionsForParentEntityReferences(Collection<EntityReference> parentEntityRefs) {
+        if (parentEntityRefs.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Condition entityCondition = parentEntityRefs
+                .stream()
+                .collect(groupingBy(EntityReference::kind, mapping(EntityReference::id, toSet())))
+                .entrySet()
+                .stream()
+                .map(e -> PERMISSION_GROUP_ENTRY.ENTITY_KIND.eq(e.getKey().name())
+                        .and(PERMISSION_GROUP_ENTRY.ENTITY_ID.in(e.getValue())))
+                .reduce(DSL.falseCondition(), Condition::or);
+
+        Map<EntityReference, List<Long>> overrideGroupIdsByRef = dsl
+                .select(PERMISSION_GROUP_ENTRY.ENTITY_KIND,
+                        PERMISSION_GROUP_ENTRY.ENTITY_ID,
+                        PERMISSION_GROUP_ENTRY.PERMISSION_GROUP_ID)
+                .from(PERMISSION_GROUP_ENTRY)
+                .where(entityCondition)
+                .fetchGroups(
+                        r -> mkRef(
+                                EntityKind.valueOf(r.get(PERMISSION_GROUP_ENTRY.ENTITY_KIND)),
+                                r.get(PERMISSION_GROUP_ENTRY.ENTITY_ID)),
+                        r -> r.get(PERMISSION_GROUP_ENTRY.PERMISSION_GROUP_ID));
+
+        Set<Long> overrideGroupIds = overrideGroupIdsByRef
+                .values()
+                .stream()
+                .flatMap(Collection::stream)
+                .collect(toSet());
+
+        Result<Record8<Long, Boolean, String, String, Long, String, String, Long>> rows = dsl
+                .select(PERMISSION_GROUP.ID,
+                        PERMISSION_GROUP.IS_DEFAULT,
+                        PERMISSION_GROUP_INVOLVEMENT.OPERATION,
+                        PERMISSION_GROUP_INVOLVEMENT.QUALIFIER_KIND,
+                        PERMISSION_GROUP_INVOLVEMENT.QUALIFIER_ID,
+                        PERMISSION_GROUP_INVOLVEMENT.PARENT_KIND,
+                        PERMISSION_GROUP_INVOLVEMENT.SUBJECT_KIND,
+                        INVOLVEMENT_GROUP_ENTRY.INVOLVEMENT_KIND_ID)
+                .from(PERMISSION_GROUP_INVOLVEMENT)
+                .innerJoin(PERMISSION_GROUP).on(PERMISSION_GROUP.ID.eq(PERMISSION_GROUP_INVOLVEMENT.PERMISSION_GROUP_ID))
+                .leftJoin(INVOLVEMENT_GROUP).on(PERMISSION_GROUP_INVOLVEMENT.INVOLVEMENT_GROUP_ID.eq(INVOLVEMENT_GROUP.ID))
+                .leftJoin(INVOLVEMENT_GROUP_ENTRY).on(INVOLVEMENT_GROUP.ID.eq(INVOLVEMENT_GROUP_ENTRY.INVOLVEMENT_GROUP_ID))
+                .where(PERMISSION_GROUP.IS_DEFAULT.isTrue()
+                        .or(PERMISSION_GROUP.ID.in(overrideGroupIds)))
+                .fetch();
+
+        Map<EntityReference, Set<Permission>> result = new HashMap<>();
+
+        for (EntityReference ref : parentEntityRefs) {
+            EntityReference key = mkRef(ref.kind(), ref.id());
+            List<Long> groupIds = overrideGroupIdsByRef.get(key);
+
+            Map<Tuple5<String, String, Long, String, String>, List<Long>> permissionsForSubjectQualifier = rows
+                    .stream()
+                    .filter(r -> groupIds == null
+                            ? Boolean.TRUE.equals(r.get(PERMISSION_GROUP.IS_DEFAULT))
+                            : groupIds.contains(r.get(PERMISSION_GROUP.ID)))
+                    .collect(groupingBy(
+                            r -> tuple(
+                                    r.get(PERMISSION_GROUP_INVOLVEMENT.OPERATION),
+                                    r.get(PERMISSION_GROUP_INVOLVEMENT.QUALIFIER_KIND),
+                                    r.get(PERMISSION_GROUP_INVOLVEMENT.QUALIFIER_ID),
+                                    r.get(PERMISSION_GROUP_INVOLVEMENT.PARENT_KIND),
+                                    r.get(PERMISSION_GROUP_INVOLVEMENT.SUBJECT_KIND)),
+                            mapping(r -> r.get(INVOLVEMENT_GROUP_ENTRY.INVOLVEMENT_KIND_ID), toList())));
+
+            result.put(key, toPermissions(permissionsForSubjectQualifier));
+        }
+
+        return result;
+    }
+
+
+    private static Set<Permission> toPermissions(Map<Tuple5<String, String, Long, String, String>, List<Long>> permissionsForSubjectQualifier) {
         return permissionsForSubjectQualifier
                 .entrySet()
                 .stream()
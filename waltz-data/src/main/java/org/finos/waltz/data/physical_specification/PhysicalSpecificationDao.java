@@ -24,7 +24,6 @@ import org.finos.waltz.model.physical_flow.PhysicalFlowParsed;
 import org.finos.waltz.model.physical_specification.DataFormatKindValue;
 import org.finos.waltz.model.physical_specification.ImmutablePhysicalSpecification;
 import org.finos.waltz.model.physical_specification.PhysicalSpecification;
-import org.finos.waltz.model.user.SystemRole;
 import org.finos.waltz.schema.tables.DataType;
 import org.finos.waltz.schema.tables.*;
 import org.finos.waltz.schema.tables.records.PhysicalSpecificationRecord;
@@ -37,16 +36,14 @@ import java.sql.Timestamp;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.function.BiFunction;
 
 import static org.finos.waltz.common.Checks.checkFalse;
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.ListUtilities.newArrayList;
-import static org.finos.waltz.common.SetUtilities.asSet;
-import static org.finos.waltz.common.SetUtilities.union;
 import static org.finos.waltz.data.logical_flow.LogicalFlowDao.LOGICAL_NOT_REMOVED;
 import static org.finos.waltz.data.physical_flow.PhysicalFlowDao.PHYSICAL_FLOW_NOT_REMOVED;
 import static org.finos.waltz.model.EntityReference.mkRef;
-import static org.finos.waltz.schema.Tables.USER_ROLE;
 import static org.finos.waltz.schema.tables.ChangeLog.CHANGE_LOG;
 import static org.finos.waltz.schema.tables.DataType.DATA_TYPE;
 import static org.finos.waltz.schema.tables.LogicalFlow.LOGICAL_FLOW;
@@ -92,6 +89,25 @@ public class PhysicalSpecificationDao {
                 .build();
     };
 
+    public static final BiFunction<PhysicalSpecification, DSLContext, PhysicalSpecificationRecord> TO_RECORD_MAPPER = (specification, dsl) -> {
+        PhysicalSpecificationRecord record = dsl.newRecord(PHYSICAL_SPECIFICATION);
+        record.setOwningEntityKind(specification.owningEntity().kind().name());
+        record.setOwningEntityId(specification.owningEntity().id());
+
+        record.setName(specification.name());
+        record.setExternalId(specification.externalId().orElse(""));
+        record.setDescription(specification.description());
+        record.setFormat(specification.format().value());
+        record.setLastUpdatedAt(Timestamp.valueOf(specification.lastUpdatedAt()));
+        record.setLastUpdatedBy(specification.lastUpdatedBy());
+        record.setIsRemoved(specification.isRemoved());
+        record.setProvenance("waltz");
+
+        record.setCreatedAt(specification.created().get().atTimestamp());
+        record.setCreatedBy(specification.created().get().by());
+        return record;
+    };
+
     public static final Condition PHYSICAL_SPEC_NOT_REMOVED = PHYSICAL_SPECIFICATION.IS_REMOVED.isFalse();
 
 
@@ -183,22 +199,7 @@ public class PhysicalSpecificationDao {
         checkNotNull(specification, "specification cannot be null");
         checkFalse(specification.id().isPresent(), "specification must not have an id");
 
-        PhysicalSpecificationRecord record = dsl.newRecord(PHYSICAL_SPECIFICATION);
-        record.setOwningEntityKind(specification.owningEntity().kind().name());
-        record.setOwningEntityId(specification.owningEntity().id());
-
-        record.setName(specification.name());
-        record.setExternalId(specification.externalId().orElse(""));
-        record.setDescription(specification.description());
-        record.setFormat(specification.format().value());
-        record.setLastUpdatedAt(Timestamp.valueOf(specification.lastUpdatedAt()));
-        record.setLastUpdatedBy(specification.lastUpdatedBy());
-        record.setIsRemoved(specification.isRemoved());
-        record.setProvenance("waltz");
-
-        record.setCreatedAt(specification.created().get().atTimestamp());
-        record.setCreatedBy(specification.created().get().by());
-
+        PhysicalSpecificationRecord record = TO_RECORD_MAPPER.apply(specification, dsl);
         record.store();
         return record.getId();
     }
@@ -393,20 +394,4 @@ public class PhysicalSpecificationDao {
                 .execute();
     }
 
-
-    public Set<Operation> calculateAmendedSpecOperations(Set<Operation> operationsForEntity,
-                                                         String username) {
-        boolean hasOverride = dsl
-                .fetchExists(DSL
-                        .select(USER_ROLE.ROLE)
-                        .from(USER_ROLE)
-                        .where(USER_ROLE.ROLE.eq(SystemRole.PHYSICAL_SPECIFICATION_EDITOR.name())
-                                .and(USER_ROLE.USER_NAME.eq(username))));
-
-        if (hasOverride) {
-            return union(operationsForEntity, asSet(Operation.ADD, Operation.UPDATE, Operation.REMOVE));
-        } else {
-            return operationsForEntity;
-        }
-    }
 }
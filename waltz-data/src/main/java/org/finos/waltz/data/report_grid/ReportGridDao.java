@@ -23,8 +23,9 @@ import org.finos.waltz.common.*;
 import org.finos.waltz.common.hierarchy.FlatNode;
 import org.finos.waltz.common.hierarchy.Forest;
 import org.finos.waltz.common.hierarchy.Node;
+import org.finos.waltz.data.DBExecutorPoolInterface;
 import org.finos.waltz.data.GenericSelector;
-import org.finos.waltz.data.InlineSelectFieldFactory;
+import org.finos.waltz.data.EntityNameDictionary;
 import org.finos.waltz.model.Cardinality;
 import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityReference;
@@ -38,11 +39,13 @@ import org.finos.waltz.schema.tables.ChangeInitiative;
 import org.finos.waltz.schema.tables.records.*;
 import org.jooq.*;
 import org.jooq.impl.DSL;
+import org.jooq.lambda.Unchecked;
 import org.jooq.lambda.tuple.Tuple2;
 import org.jooq.lambda.tuple.Tuple3;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Repository;
 
@@ -51,9 +54,15 @@ import java.sql.Types;
 import java.time.LocalDateTime;
 import java.util.Comparator;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static java.lang.String.format;
 import static java.util.Collections.emptyList;
@@ -62,11 +71,11 @@ import static java.util.Comparator.comparing;
 import static java.util.Optional.ofNullable;
 import static java.util.function.Function.identity;
 import static java.util.stream.Collectors.*;
+import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.CollectionUtilities.isEmpty;
 import static org.finos.waltz.common.DateTimeUtilities.toLocalDate;
 import static org.finos.waltz.common.DateTimeUtilities.toLocalDateTime;
 import static org.finos.waltz.common.ListUtilities.asList;
-import static org.finos.waltz.common.ListUtilities.newArrayList;
 import static org.finos.waltz.common.MapUtilities.groupBy;
 import static org.finos.waltz.common.MapUtilities.indexBy;
 import static org.finos.waltz.common.SetUtilities.*;
@@ -135,13 +144,6 @@ public class ReportGridDao {
     private final org.finos.waltz.schema.tables.EntityStatisticValue esv = ENTITY_STATISTIC_VALUE.as("esv");
     private final org.finos.waltz.schema.tables.EntityStatisticDefinition esd = ENTITY_STATISTIC_DEFINITION.as("esd");
 
-    private static final Field<String> ENTITY_NAME_FIELD = InlineSelectFieldFactory.mkNameField(
-                    SURVEY_QUESTION_RESPONSE.ENTITY_RESPONSE_ID,
-                    SURVEY_QUESTION_RESPONSE.ENTITY_RESPONSE_KIND,
-                    newArrayList(EntityKind.PERSON, EntityKind.APPLICATION))
-            .as("entity_name");
-
-
     private static final RecordMapper<? super Record, ReportGridInfo> TO_GRID_INFO_MAPPER = r -> {
         ReportGridRecord record = r.into(REPORT_GRID);
 
@@ -159,9 +161,30 @@ public class ReportGridDao {
     };
 
 
+    private final DBExecutorPoolInterface dbExecutorPool;
+    private final EntityNameDictionary entityNameDictionary;
+
+    /**
+     * Maximum number of column families (assessments, costs, involvements etc.)
+     * which will be fetched concurrently for a single grid.  A value of 1 (or less)
+     * restores the original, serial, behaviour.
+     */
+    private final int fetchParallelism;
+
+
     @Autowired
-    public ReportGridDao(DSLContext dsl) {
+    public ReportGridDao(DSLContext dsl,
+                         DBExecutorPoolInterface dbExecutorPool,
+                         EntityNameDictionary entityNameDictionary,
+                         @Value("${report_grid.fetch.parallelism:4}") int fetchParallelism) {
+        checkNotNull(dsl, "dsl cannot be null");
+        checkNotNull(dbExecutorPool, "dbExecutorPool cannot be null");
+        checkNotNull(entityNameDictionary, "entityNameDictionary cannot be null");
+
         this.dsl = dsl;
+        this.dbExecutorPool = dbExecutorPool;
+        this.entityNameDictionary = entityNameDictionary;
+        this.fetchParallelism = fetchParallelism;
     }
 
 
@@ -791,11 +814,37 @@ public class ReportGridDao {
 
         if (gridDefn == null) {
             return emptySet();
+        } else {
+            return findCellDataForColumns(gridDefn, gridDefn.fixedColumnDefinitions(), genericSelector);
+        }
+    }
+
+
+    /**
+     * Fetches the cell data for a subset of the fixed columns of a grid.
+     * <p>
+     * Only the column families present in the given columns are queried, so
+     * callers which only need a handful of columns (e.g. when evaluating grid
+     * filters) avoid the cost of fetching the rest of the grid.
+     *
+     * @param gridDefn  definition of the grid the columns belong to
+     * @param columns  fixed columns to fetch, usually a subset of the grid's fixed columns
+     * @param genericSelector  selector used to determine the subjects of the grid
+     * @return  cells for the given columns
+     */
+    public Set<ReportGridCell> findCellDataForColumns(ReportGridDefinition gridDefn,
+                                                      Collection<ReportGridFixedColumnDefinition> columns,
+                                                      GenericSelector genericSelector) {
+        checkNotNull(gridDefn, "gridDefn cannot be null");
+        checkNotNull(genericSelector, "genericSelector cannot be null");
+
+        if (CollectionUtilities.isEmpty(columns)) {
+            return emptySet();
 
         } else {
 
             Map<Boolean, Collection<ReportGridFixedColumnDefinition>> gridDefinitionsByContainingFieldRef = groupBy(
-                    gridDefn.fixedColumnDefinitions(),
+                    columns,
                     d -> d.entityFieldReference() == null);
 
             Collection<ReportGridFixedColumnDefinition> simpleColDefs = gridDefinitionsByContainingFieldRef.getOrDefault(true, emptySet());
@@ -838,30 +887,138 @@ public class ReportGridDao {
                     .collect(groupingBy(t -> t.v2.entityKind(), toSet()));
 
 
-            return union(
-                    fetchAssessmentData(genericSelector, colsByKind.get(EntityKind.ASSESSMENT_DEFINITION)),
-                    fetchInvolvementData(genericSelector, colsByKind.get(EntityKind.INVOLVEMENT_KIND)),
-                    fetchCostData(genericSelector, colsByKind.get(EntityKind.COST_KIND)),
-                    fetchComplexityData(genericSelector, colsByKind.get(EntityKind.COMPLEXITY_KIND)),
-                    fetchSummaryMeasurableData(
-                            genericSelector,
-                            measurableColumnsByRollupKind.getOrDefault(AdditionalColumnOptions.PICK_HIGHEST, emptySet()),
-                            measurableColumnsByRollupKind.getOrDefault(AdditionalColumnOptions.PICK_LOWEST, emptySet())),
-                    fetchExactMeasurableData(genericSelector, measurableColumnsByRollupKind.get(AdditionalColumnOptions.NONE)),
-                    fetchSurveyQuestionResponseData(genericSelector, colsByKind.get(EntityKind.SURVEY_QUESTION)),
-                    fetchSurveyTemplateResponseData(genericSelector, colsByKind.get(EntityKind.SURVEY_TEMPLATE)),
-                    fetchAppGroupData(genericSelector, colsByKind.get(EntityKind.APP_GROUP)),
-                    fetchApplicationFieldReferenceData(genericSelector, fieldRefColsByKind.get(EntityKind.APPLICATION)),
-                    fetchExactDataTypeData(genericSelector, dataTypeColumnsByIsExact.get(Boolean.TRUE)),
-                    fetchSummaryDataTypeData(genericSelector, dataTypeColumnsByIsExact.get(Boolean.FALSE)),
-                    fetchSurveyFieldReferenceData(genericSelector, fieldRefColsByKind.get(EntityKind.SURVEY_INSTANCE)),
-                    fetchChangeInitiativeFieldReferenceData(genericSelector, fieldRefColsByKind.get(EntityKind.CHANGE_INITIATIVE)),
-                    fetchAttestationData(genericSelector, colsByKind.get(EntityKind.ATTESTATION)),
-                    fetchOrgUnitFieldReferenceData(genericSelector, fieldRefColsByKind.get(EntityKind.ORG_UNIT)),
-                    fetchTagData(genericSelector, colsByKind.get(EntityKind.TAG)),
-                    fetchAliasData(genericSelector, colsByKind.get(EntityKind.ENTITY_ALIAS)),
-                    fetchMeasurableHierarchyData(genericSelector, colsByKind.get(EntityKind.MEASURABLE_CATEGORY)),
-                    fetchEntityStatisticData(genericSelector, colsByKind.get(EntityKind.ENTITY_STATISTIC)));
+            Collection<ReportGridFixedColumnDefinition> highMeasurableCols = measurableColumnsByRollupKind.getOrDefault(AdditionalColumnOptions.PICK_HIGHEST, emptySet());
+            Collection<ReportGridFixedColumnDefinition> lowMeasurableCols = measurableColumnsByRollupKind.getOrDefault(AdditionalColumnOptions.PICK_LOWEST, emptySet());
+
+            List<ColumnFamilyFetcher> fetchers = new ArrayList<>();
+
+            addFetcher(fetchers, "assessments", colsByKind.get(EntityKind.ASSESSMENT_DEFINITION), cols -> fetchAssessmentData(genericSelector, cols));
+            addFetcher(fetchers, "involvements", colsByKind.get(EntityKind.INVOLVEMENT_KIND), cols -> fetchInvolvementData(genericSelector, cols));
+            addFetcher(fetchers, "costs", colsByKind.get(EntityKind.COST_KIND), cols -> fetchCostData(genericSelector, cols));
+            addFetcher(fetchers, "complexities", colsByKind.get(EntityKind.COMPLEXITY_KIND), cols -> fetchComplexityData(genericSelector, cols));
+            addFetcher(fetchers, "summaryMeasurables", union(highMeasurableCols, lowMeasurableCols), cols -> fetchSummaryMeasurableData(genericSelector, highMeasurableCols, lowMeasurableCols));
+            addFetcher(fetchers, "exactMeasurables", measurableColumnsByRollupKind.get(AdditionalColumnOptions.NONE), cols -> fetchExactMeasurableData(genericSelector, cols));
+            addFetcher(fetchers, "surveyQuestions", colsByKind.get(EntityKind.SURVEY_QUESTION), cols -> fetchSurveyQuestionResponseData(genericSelector, cols));
+            addFetcher(fetchers, "surveyTemplates", colsByKind.get(EntityKind.SURVEY_TEMPLATE), cols -> fetchSurveyTemplateResponseData(genericSelector, cols));
+            addFetcher(fetchers, "appGroups", colsByKind.get(EntityKind.APP_GROUP), cols -> fetchAppGroupData(genericSelector, cols));
+            addFetcher(fetchers, "applicationFields", fieldRefColsByKind.get(EntityKind.APPLICATION), cols -> fetchApplicationFieldReferenceData(genericSelector, cols));
+            addFetcher(fetchers, "exactDataTypes", dataTypeColumnsByIsExact.get(Boolean.TRUE), cols -> fetchExactDataTypeData(genericSelector, cols));
+            addFetcher(fetchers, "summaryDataTypes", dataTypeColumnsByIsExact.get(Boolean.FALSE), cols -> fetchSummaryDataTypeData(genericSelector, cols));
+            addFetcher(fetchers, "surveyFields", fieldRefColsByKind.get(EntityKind.SURVEY_INSTANCE), cols -> fetchSurveyFieldReferenceData(genericSelector, cols));
+            addFetcher(fetchers, "changeInitiativeFields", fieldRefColsByKind.get(EntityKind.CHANGE_INITIATIVE), cols -> fetchChangeInitiativeFieldReferenceData(genericSelector, cols));
+            addFetcher(fetchers, "attestations", colsByKind.get(EntityKind.ATTESTATION), cols -> fetchAttestationData(genericSelector, cols));
+            addFetcher(fetchers, "orgUnitFields", fieldRefColsByKind.get(EntityKind.ORG_UNIT), cols -> fetchOrgUnitFieldReferenceData(genericSelector, cols));
+            addFetcher(fetchers, "tags", colsByKind.get(EntityKind.TAG), cols -> fetchTagData(genericSelector, cols));
+            addFetcher(fetchers, "aliases", colsByKind.get(EntityKind.ENTITY_ALIAS), cols -> fetchAliasData(genericSelector, cols));
+            addFetcher(fetchers, "measurableHierarchies", colsByKind.get(EntityKind.MEASURABLE_CATEGORY), cols -> fetchMeasurableHierarchyData(genericSelector, cols));
+            addFetcher(fetchers, "entityStatistics", colsByKind.get(EntityKind.ENTITY_STATISTIC), cols -> fetchEntityStatisticData(genericSelector, cols));
+
+            return fetchColumnFamilies(gridDefn.name(), fetchers);
+        }
+    }
+
+
+    private static <T extends Collection<?>> void addFetcher(List<ColumnFamilyFetcher> fetchers,
+                                                             String family,
+                                                             T cols,
+                                                             Function<T, Set<ReportGridCell>> fetcher) {
+        if (! CollectionUtilities.isEmpty(cols)) {
+            fetchers.add(new ColumnFamilyFetcher(family, () -> fetcher.apply(cols)));
+        }
+    }
+
+
+    /**
+     * Executes the given column family fetchers and merges their results.
+     * <p>
+     * When parallelism is enabled the fetchers are spread over at most
+     * `fetchParallelism` workers on the shared db executor pool.  Each worker
+     * pulls the next outstanding fetcher from a queue, so a single grid never
+     * occupies more than its share of the pool.  Results are merged in the
+     * order the fetchers were declared, regardless of completion order.
+     * <p>
+     * Per-family timings are logged at debug level.
+     *
+     * @param gridName  name of the grid, used for logging
+     * @param fetchers  list of fetchers, one per column family present in the grid
+     * @return  the union of all cells returned by the fetchers
+     */
+    private Set<ReportGridCell> fetchColumnFamilies(String gridName,
+                                                    List<ColumnFamilyFetcher> fetchers) {
+        long start = System.currentTimeMillis();
+        int workerCount = Math.min(fetchParallelism, fetchers.size());
+
+        List<Set<ReportGridCell>> results;
+
+        if (workerCount <= 1) {
+            results = ListUtilities.map(fetchers, ColumnFamilyFetcher::fetch);
+        } else {
+            AtomicInteger nextFetcher = new AtomicInteger(0);
+            AtomicReferenceArray<Set<ReportGridCell>> resultsByPosition = new AtomicReferenceArray<>(fetchers.size());
+
+            Callable<Boolean> worker = () -> {
+                int idx;
+                while ((idx = nextFetcher.getAndIncrement()) < fetchers.size()) {
+                    resultsByPosition.set(idx, fetchers.get(idx).fetch());
+                }
+                return true;
+            };
+
+            List<Future<Boolean>> workers = IntStream
+                    .range(0, workerCount)
+                    .mapToObj(i -> dbExecutorPool.submit(worker))
+                    .collect(toList());
+
+            workers.forEach(Unchecked.consumer(w -> w.get()));
+
+            results = IntStream
+                    .range(0, fetchers.size())
+                    .mapToObj(resultsByPosition::get)
+                    .collect(toList());
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(
+                    "Fetched {} column families for grid [{}] in {}ms (parallelism: {}), family timings: {}",
+                    fetchers.size(),
+                    gridName,
+                    System.currentTimeMillis() - start,
+                    Math.max(workerCount, 1),
+                    fetchers
+                            .stream()
+                            .map(f -> format("%s=%dms", f.family, f.duration))
+                            .collect(joining(", ")));
+        }
+
+        Set<ReportGridCell> cells = new HashSet<>();
+        results.forEach(cells::addAll);
+        return cells;
+    }
+
+
+    /**
+     * Fetches the cells for a single column family (e.g. all cost columns) of a grid,
+     * recording how long the fetch took.
+     */
+    private static class ColumnFamilyFetcher {
+
+        private final String family;
+        private final Supplier<Set<ReportGridCell>> fetcher;
+        private volatile long duration = -1;
+
+
+        private ColumnFamilyFetcher(String family,
+                                    Supplier<Set<ReportGridCell>> fetcher) {
+            this.family = family;
+            this.fetcher = fetcher;
+        }
+
+
+        private Set<ReportGridCell> fetch() {
+            long st = System.currentTimeMillis();
+            Set<ReportGridCell> cells = fetcher.get();
+            duration = System.currentTimeMillis() - st;
+            return cells;
         }
     }
 
@@ -2191,7 +2348,8 @@ public class ReportGridDao {
                             SURVEY_INSTANCE.ENTITY_KIND,
                             SURVEY_QUESTION.ID)
                     .select(SURVEY_QUESTION.FIELD_TYPE)
-                    .select(ENTITY_NAME_FIELD)
+                    .select(SURVEY_QUESTION_RESPONSE.ENTITY_RESPONSE_ID,
+                            SURVEY_QUESTION_RESPONSE.ENTITY_RESPONSE_KIND)
                     .select(SURVEY_QUESTION_RESPONSE.COMMENT)
                     .select(DSL.coalesce(
                             SURVEY_QUESTION_RESPONSE.STRING_RESPONSE,
@@ -2232,13 +2390,25 @@ public class ReportGridDao {
                     .where(responsesWithQuestionTypeAndEntity.field(latestInstance)
                             .eq(responsesWithQuestionTypeAndEntity.field("sid", Long.class)));
 
-            return qry
-                    .fetchSet(r -> {
+            Result<Record> responses = qry.fetch();
+
+            Map<EntityReference, EntityReference> responseEntities = entityNameDictionary.lookup(responses
+                    .stream()
+                    .map(this::readEntityResponseRef)
+                    .filter(Objects::nonNull)
+                    .collect(toSet()));
+
+            return responses
+                    .stream()
+                    .map(r -> {
                         String fieldType = r.get(SURVEY_QUESTION.FIELD_TYPE);
 
                         Long instanceId = r.get("sid", Long.class);
                         Long questionId = r.get(SURVEY_QUESTION.ID, Long.class);
-                        String entityName = r.get(ENTITY_NAME_FIELD);
+                        String entityName = Optional
+                                .ofNullable(responseEntities.get(readEntityResponseRef(r)))
+                                .flatMap(EntityReference::name)
+                                .orElse(null);
                         String response = r.get("response", String.class);
 
                         List<String> listResponses = responsesByInstanceQuestionKey.getOrDefault(tuple(instanceId, questionId), emptyList());
@@ -2255,11 +2425,21 @@ public class ReportGridDao {
                                 .comment(r.get(SURVEY_QUESTION_RESPONSE.COMMENT))
                                 .options(options)
                                 .build();
-                    });
+                    })
+                    .collect(toSet());
         }
     }
 
 
+    private EntityReference readEntityResponseRef(Record r) {
+        Long id = r.get(SURVEY_QUESTION_RESPONSE.ENTITY_RESPONSE_ID);
+        String kind = r.get(SURVEY_QUESTION_RESPONSE.ENTITY_RESPONSE_KIND);
+        return id == null || kind == null
+                ? null
+                : EntityReference.mkRef(EntityKind.valueOf(kind), id);
+    }
+
+
     private CellOption determineOptionForSurveyQuestion(String fieldType, String response) {
 
         if (isEmpty(response)) {
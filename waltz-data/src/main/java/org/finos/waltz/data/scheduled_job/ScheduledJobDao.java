@@ -19,6 +19,7 @@
 package org.finos.waltz.data.scheduled_job;
 
 
+import org.finos.waltz.common.EnumUtilities;
 import org.finos.waltz.model.scheduled_job.JobKey;
 import org.finos.waltz.model.scheduled_job.JobLifecycleStatus;
 import org.jooq.DSLContext;
@@ -26,6 +27,9 @@ import org.jooq.impl.DSL;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Set;
 
 import static org.finos.waltz.schema.tables.Settings.SETTINGS;
@@ -34,6 +38,9 @@ import static org.finos.waltz.common.Checks.checkNotNull;
 @Repository
 public class ScheduledJobDao {
 
+    public static final String LAST_RUN_STARTED_AT_SUFFIX = ".last_run_started_at";
+    public static final String LAST_RUN_DURATION_SUFFIX = ".last_run_duration_ms";
+
     private final DSLContext dsl;
 
 
@@ -83,4 +90,69 @@ public class ScheduledJobDao {
                                 .and(SETTINGS.VALUE.eq(JobLifecycleStatus.RUNNING.name()))));
     }
 
+
+    public Map<JobKey, JobLifecycleStatus> findJobStatuses() {
+        Map<JobKey, JobLifecycleStatus> statuses = new EnumMap<>(JobKey.class);
+        dsl.select(SETTINGS.NAME, SETTINGS.VALUE)
+                .from(SETTINGS)
+                .where(SETTINGS.NAME.in(EnumUtilities.names(JobKey.values())))
+                .forEach(r -> {
+                    JobLifecycleStatus status = EnumUtilities.readEnum(
+                            r.get(SETTINGS.VALUE),
+                            JobLifecycleStatus.class,
+                            v -> null);
+                    if (status != null) {
+                        statuses.put(JobKey.valueOf(r.get(SETTINGS.NAME)), status);
+                    }
+                });
+        return statuses;
+    }
+
+
+    /**
+     * Marks the job as runnable so it is picked up by the scheduler.
+     * Jobs which are currently running are left untouched.
+     *
+     * @return true if the job is now runnable
+     */
+    public boolean markJobAsRunnable(JobKey jobKey) {
+        return dsl.update(SETTINGS)
+                .set(SETTINGS.VALUE, JobLifecycleStatus.RUNNABLE.name())
+                .where(SETTINGS.NAME.eq(jobKey.name()))
+                .and(SETTINGS.VALUE.ne(JobLifecycleStatus.RUNNING.name()))
+                .execute()
+                ==
+                1;
+    }
+
+
+    /**
+     * Records when the job last started and how long it took, these are stored
+     * as settings alongside the job status (e.g. <code>HIERARCHY_REBUILD_PERSON.last_run_duration_ms</code>).
+     */
+    public void recordJobRun(JobKey jobKey, LocalDateTime startedAt, long durationMillis) {
+        dsl.transaction(ctx -> {
+            DSLContext tx = ctx.dsl();
+            upsertSetting(tx, jobKey.name() + LAST_RUN_STARTED_AT_SUFFIX, startedAt.toString());
+            upsertSetting(tx, jobKey.name() + LAST_RUN_DURATION_SUFFIX, Long.toString(durationMillis));
+        });
+    }
+
+
+    private static void upsertSetting(DSLContext tx, String name, String value) {
+        int updated = tx
+                .update(SETTINGS)
+                .set(SETTINGS.VALUE, value)
+                .where(SETTINGS.NAME.eq(name))
+                .execute();
+
+        if (updated == 0) {
+            tx.insertInto(SETTINGS)
+                    .set(SETTINGS.NAME, name)
+                    .set(SETTINGS.VALUE, value)
+                    .set(SETTINGS.RESTRICTED, false)
+                    .execute();
+        }
+    }
+
 }
@@ -22,6 +22,7 @@ import org.finos.waltz.common.CollectionUtilities;
 import org.finos.waltz.common.SetUtilities;
 import org.finos.waltz.data.InlineSelectFieldFactory;
 import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.Operation;
 import org.finos.waltz.model.ReleaseLifecycleStatus;
 import org.finos.waltz.model.Severity;
@@ -34,6 +35,7 @@ import org.finos.waltz.schema.tables.records.SurveyInstanceRecipientRecord;
 import org.finos.waltz.schema.tables.records.SurveyInstanceRecord;
 import org.jooq.*;
 import org.jooq.impl.DSL;
+import org.jooq.lambda.tuple.Tuple2;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -58,12 +60,15 @@ import static org.finos.waltz.data.JooqUtilities.maybeReadRef;
 import static org.finos.waltz.model.EntityReference.mkRef;
 import static org.finos.waltz.schema.Tables.*;
 import static org.finos.waltz.schema.tables.InvolvementGroup.INVOLVEMENT_GROUP;
+import static org.jooq.lambda.tuple.Tuple.tuple;
 
 @Repository
 public class SurveyInstanceDao {
 
     private static final Logger LOG = LoggerFactory.getLogger(SurveyInstanceDao.class);
 
+    private static final int ISSUANCE_BATCH_SIZE = 1000;
+
     private static final org.finos.waltz.schema.tables.SurveyInstance si = SURVEY_INSTANCE;
     private static final org.finos.waltz.schema.tables.SurveyRun sr = SURVEY_RUN;
     private static final org.finos.waltz.schema.tables.SurveyInstanceRecipient sir = SURVEY_INSTANCE_RECIPIENT;
@@ -458,6 +463,118 @@ public class SurveyInstanceDao {
         return dsl.batchInsert(records).execute();
     }
 
+
+    /**
+     * Replaces all the instances (and their recipients and owners) of a survey run.
+     * <p>
+     * Everything happens in a single transaction.  Instances are inserted in
+     * multi-row statements of {@link #ISSUANCE_BATCH_SIZE}, with their generated ids
+     * returned in bulk, followed by batched inserts of their recipients and owners.
+     *
+     * @param surveyRunId  the run being issued
+     * @param issuances  instances to create along with their recipients and owners
+     * @return  number of instances created
+     */
+    public int issueInstancesForSurveyRun(long surveyRunId, List<SurveyInstanceIssuance> issuances) {
+        checkNotNull(issuances, "issuances cannot be null");
+
+        return dsl.transactionResult(ctx -> {
+            DSLContext tx = DSL.using(ctx);
+
+            SelectConditionStep<Record1<Long>> existingInstanceIds = DSL
+                    .select(si.ID)
+                    .from(si)
+                    .where(si.SURVEY_RUN_ID.eq(surveyRunId));
+
+            tx.deleteFrom(sir).where(sir.SURVEY_INSTANCE_ID.in(existingInstanceIds)).execute();
+            tx.deleteFrom(sio).where(sio.SURVEY_INSTANCE_ID.in(existingInstanceIds)).execute();
+            tx.deleteFrom(si).where(si.SURVEY_RUN_ID.eq(surveyRunId)).execute();
+
+            int issued = 0;
+            for (int offset = 0; offset < issuances.size(); offset += ISSUANCE_BATCH_SIZE) {
+                List<SurveyInstanceIssuance> batch = issuances.subList(
+                        offset,
+                        Math.min(offset + ISSUANCE_BATCH_SIZE, issuances.size()));
+
+                issued += issueBatch(tx, batch);
+
+                LOG.info(format("Issued [%d/%d] instances for survey run: %d", issued, issuances.size(), surveyRunId));
+            }
+            return issued;
+        });
+    }
+
+
+    private int issueBatch(DSLContext tx, List<SurveyInstanceIssuance> batch) {
+        InsertSetStep<SurveyInstanceRecord> insert = tx.insertInto(si);
+        InsertSetMoreStep<SurveyInstanceRecord> insertWithValues = null;
+        for (SurveyInstanceIssuance issuance : batch) {
+            SurveyInstanceRecord record = mkInstanceRecord(issuance.instance());
+            insertWithValues = insertWithValues == null
+                    ? insert.set(record)
+                    : insertWithValues.newRecord().set(record);
+        }
+
+        if (insertWithValues == null) {
+            return 0;
+        }
+
+        // instances for the same subject within a run are identical, so the returned
+        // ids can be matched back to the issuances by subject regardless of their order
+        Map<Tuple2<String, Long>, Deque<Long>> idsBySubject = insertWithValues
+                .returning(si.ID, si.ENTITY_KIND, si.ENTITY_ID)
+                .fetch()
+                .stream()
+                .collect(Collectors.groupingBy(
+                        r -> tuple(r.getEntityKind(), r.getEntityId()),
+                        Collectors.mapping(SurveyInstanceRecord::getId, Collectors.toCollection(ArrayDeque::new))));
+
+        List<SurveyInstanceRecipientRecord> recipients = new ArrayList<>();
+        List<SurveyInstanceOwnerRecord> owners = new ArrayList<>();
+        for (SurveyInstanceIssuance issuance : batch) {
+            EntityReference subject = issuance.instance().entityReference();
+            Long instanceId = idsBySubject
+                    .getOrDefault(tuple(subject.kind().name(), subject.id()), new ArrayDeque<>())
+                    .poll();
+            checkNotNull(instanceId, "No id returned for survey instance of: %s", subject);
+
+            issuance.recipientPersonIds().forEach(personId -> {
+                SurveyInstanceRecipientRecord record = new SurveyInstanceRecipientRecord();
+                record.setSurveyInstanceId(instanceId);
+                record.setPersonId(personId);
+                recipients.add(record);
+            });
+
+            issuance.ownerPersonIds().forEach(personId -> {
+                SurveyInstanceOwnerRecord record = new SurveyInstanceOwnerRecord();
+                record.setSurveyInstanceId(instanceId);
+                record.setPersonId(personId);
+                owners.add(record);
+            });
+        }
+
+        tx.batchInsert(recipients).execute();
+        tx.batchInsert(owners).execute();
+
+        return batch.size();
+    }
+
+
+    private SurveyInstanceRecord mkInstanceRecord(SurveyInstanceCreateCommand command) {
+        SurveyInstanceRecord record = new SurveyInstanceRecord();
+        record.setSurveyRunId(command.surveyRunId());
+        record.setEntityKind(command.entityReference().kind().name());
+        record.setEntityId(command.entityReference().id());
+        record.setStatus(command.status().name());
+        record.setDueDate(toSqlDate(command.dueDate()));
+        record.setApprovalDueDate(toSqlDate(command.approvalDueDate()));
+        record.setOwningRole(command.owningRole());
+        record.setName(command.name());
+        record.setIssuedOn(toSqlDate(command.issuedOn()));
+        return record;
+    }
+
+
     public Set<SurveyInstance> findForOwner(Long personId) {
         return dsl.select(si.fields())
                 .select(ENTITY_NAME_FIELD)
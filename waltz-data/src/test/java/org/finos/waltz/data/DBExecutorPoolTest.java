@@ -0,0 +1,67 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class DBExecutorPoolTest {
+
+    @Test
+    public void nestedSubmissionsDoNotStarveTheirParents() throws Exception {
+        // a single thread per tier, with a single pool this would deadlock immediately
+        DBExecutorPool pool = new DBExecutorPool(1, 2);
+
+        List<Future<Integer>> parents = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            parents.add(pool.submit(() -> {
+                Future<Integer> child = pool.submit(() -> {
+                    Future<Integer> grandchild = pool.submit(() -> 1);
+                    return grandchild.get() + 1;
+                });
+                return child.get() + 1;
+            }));
+        }
+
+        for (Future<Integer> parent : parents) {
+            assertEquals(3, parent.get(5, TimeUnit.SECONDS));
+        }
+
+        assertEquals(4, pool.getInlineCount(), "grandchildren should have run on their parent's thread");
+    }
+
+
+    @Test
+    public void tiersShareHalfOfTheConnectionPool() {
+        DBExecutorPool pool = new DBExecutorPool(1, 20);
+        assertEquals(5, pool.getPoolSize());
+        assertEquals(5, pool.getNestedPoolSize());
+
+        DBExecutorPool oddPool = new DBExecutorPool(1, 10);
+        assertEquals(2, oddPool.getPoolSize());
+        assertEquals(3, oddPool.getNestedPoolSize());
+    }
+
+}
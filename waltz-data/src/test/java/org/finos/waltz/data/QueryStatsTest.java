@@ -0,0 +1,99 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data;
+
+import org.jooq.lambda.tuple.Tuple2;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QueryStatsTest {
+
+    @AfterEach
+    public void tearDown() {
+        QueryStats.stop();
+    }
+
+
+    @Test
+    public void repeatedStatementsAreCounted() {
+        QueryStats stats = new QueryStats("test");
+
+        assertEquals(1, stats.record("select a from b where id = ?", 1_000_000));
+        assertEquals(2, stats.record("select a from b where id = ?", 1_000_000));
+        assertEquals(1, stats.record("select c from d", 1_000_000));
+
+        List<Tuple2<String, Long>> mostRepeated = stats.findMostRepeated(1);
+
+        assertEquals(3, stats.getQueryCount());
+        assertEquals(3, stats.getTotalMillis());
+        assertEquals(1, mostRepeated.size());
+        assertEquals("select a from b where id = ?", mostRepeated.get(0).v1);
+        assertEquals(2, mostRepeated.get(0).v2.longValue());
+    }
+
+
+    @Test
+    public void statsAreOnlyFlaggedOnce() {
+        QueryStats stats = new QueryStats("test");
+        assertTrue(stats.flag());
+        assertFalse(stats.flag());
+    }
+
+
+    @Test
+    public void propagatedTasksRecordAgainstTheSubmittersStats() throws Exception {
+        QueryStats stats = QueryStats.start("test");
+
+        Boolean sameStats = runOnOtherThread(QueryStats.propagate(
+                () -> QueryStats.current().map(s -> s == stats).orElse(false)));
+
+        assertTrue(sameStats);
+        assertSame(stats, QueryStats.current().orElse(null));
+    }
+
+
+    @Test
+    public void tasksAreUnchangedIfThereAreNoStats() throws Exception {
+        Boolean hasStats = runOnOtherThread(QueryStats.propagate(
+                () -> QueryStats.current().isPresent()));
+
+        assertFalse(hasStats);
+    }
+
+
+    private static <T> T runOnOtherThread(Callable<T> task) throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            return executor.submit(task).get();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,202 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.integration_test.inmem.dao;
+
+import org.finos.waltz.data.EntityNameDictionary;
+import org.finos.waltz.data.changelog.ChangeLogDao;
+import org.finos.waltz.integration_test.inmem.BaseInMemoryIntegrationTest;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.Operation;
+import org.finos.waltz.model.changelog.ImmutableChangeLog;
+import org.finos.waltz.test_common.helpers.AppHelper;
+import org.jooq.DSLContext;
+import org.jooq.ExecuteContext;
+import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultExecuteListener;
+import org.jooq.impl.DefaultExecuteListenerProvider;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.finos.waltz.schema.Tables.APPLICATION;
+import static org.finos.waltz.test_common.helpers.NameHelper.mkName;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+
+public class EntityNameDictionaryTest extends BaseInMemoryIntegrationTest {
+
+    private static final long MAX_WAIT_MILLIS = 10_000;
+
+    @Autowired
+    private DSLContext dsl;
+
+    @Autowired
+    private EntityNameDictionary entityNameDictionary;
+
+    @Autowired
+    private AppHelper appHelper;
+
+
+    @Test
+    public void disabledDictionaryReadsTheEntityTables() {
+        EntityReference app = appHelper.createNewApp(mkName("dictDisabled"), ouIds.a);
+        EntityReference missing = mkRef(EntityKind.APPLICATION, -1L);
+        EntityReference unsupported = mkRef(EntityKind.ROADMAP, app.id());
+
+        assertFalse(entityNameDictionary.isEnabled(), "the dictionary is disabled by default");
+
+        Map<EntityReference, EntityReference> result = entityNameDictionary.lookup(asList(app, missing, unsupported));
+        assertEquals(asSet(mkRef(EntityKind.APPLICATION, app.id())), result.keySet());
+        assertEquals(app.name(), result.get(mkRef(EntityKind.APPLICATION, app.id())).name());
+
+        String newName = mkName("dictDisabledRenamed");
+        rename(app, newName);
+        assertEquals(Optional.of(newName), lookupName(entityNameDictionary, app), "nothing is held in memory when disabled");
+
+        List<EntityReference> resolved = entityNameDictionary.resolve(asList(missing, mkRef(EntityKind.APPLICATION, app.id())));
+        assertEquals(missing, resolved.get(0), "references which cannot be found are returned as given");
+        assertEquals(Optional.of(newName), resolved.get(1).name());
+    }
+
+
+    @Test
+    public void changedEntitiesAreReloadedOnceInvalidated() {
+        String name = mkName("dictInvalidate");
+        EntityReference app = appHelper.createNewApp(name, ouIds.a);
+        EntityNameDictionary dictionary = mkEnabledDictionary(dsl, new ChangeLogDao(dsl));
+
+        assertEquals(Optional.of(name), lookupName(dictionary, app));
+
+        String newName = mkName("dictInvalidateRenamed");
+        rename(app, newName);
+        assertEquals(Optional.of(name), lookupName(dictionary, app), "name should be served from the dictionary until invalidated");
+
+        dictionary.invalidate(app);
+        assertEquals(Optional.of(newName), lookupName(dictionary, app));
+    }
+
+
+    @Test
+    public void changeLogWritesDropChangedEntities() {
+        String name = mkName("dictChangeLog");
+        EntityReference app = appHelper.createNewApp(name, ouIds.a);
+        ChangeLogDao changeLogDao = new ChangeLogDao(dsl);
+        EntityNameDictionary dictionary = mkEnabledDictionary(dsl, changeLogDao);
+
+        assertEquals(Optional.of(name), lookupName(dictionary, app));
+
+        String newName = mkName("dictChangeLogRenamed");
+        rename(app, newName);
+        changeLogDao.write(ImmutableChangeLog.builder()
+                .parentReference(app)
+                .message("Renamed")
+                .userId(LAST_UPDATE_USER)
+                .operation(Operation.UPDATE)
+                .build());
+
+        assertEquals(Optional.of(newName), lookupName(dictionary, app));
+    }
+
+
+    @Test
+    public void entitiesInvalidatedWhilstBeingLoadedAreNotStored() {
+        AtomicReference<Runnable> onQuery = new AtomicReference<>(() -> {});
+        DSLContext listenedDsl = DSL.using(dsl
+                .configuration()
+                .derive(new DefaultExecuteListenerProvider(new DefaultExecuteListener() {
+                    @Override
+                    public void executeEnd(ExecuteContext ctx) {
+                        onQuery.get().run();
+                    }
+                })));
+
+        EntityNameDictionary dictionary = mkEnabledDictionary(listenedDsl, new ChangeLogDao(dsl));
+
+        // created after the full load, so must be loaded on demand
+        String name = mkName("dictInFlight");
+        EntityReference app = appHelper.createNewApp(name, ouIds.a);
+
+        // simulate the entity being changed whilst it is being loaded
+        onQuery.set(() -> dictionary.invalidate(app));
+        assertEquals(Optional.of(name), lookupName(dictionary, app));
+        onQuery.set(() -> {});
+
+        long missesBefore = dictionary.getMissCount();
+        lookupName(dictionary, app);
+        assertEquals(missesBefore + 1, dictionary.getMissCount(), "entry loaded before the invalidation should not be stored");
+
+        lookupName(dictionary, app);
+        assertEquals(missesBefore + 1, dictionary.getMissCount(), "entry loaded after the invalidation should be stored");
+    }
+
+
+    // -- HELPERS ---
+
+    private void rename(EntityReference app, String newName) {
+        dsl.update(APPLICATION)
+                .set(APPLICATION.NAME, newName)
+                .where(APPLICATION.ID.eq(app.id()))
+                .execute();
+    }
+
+
+    private static Optional<String> lookupName(EntityNameDictionary dictionary, EntityReference ref) {
+        return Optional
+                .ofNullable(dictionary.lookup(singletonList(ref)).get(mkRef(ref.kind(), ref.id())))
+                .flatMap(EntityReference::name);
+    }
+
+
+    static EntityNameDictionary mkEnabledDictionary(DSLContext dsl, ChangeLogDao changeLogDao) {
+        // the application context uses the default (disabled) dictionary
+        EntityNameDictionary dictionary = new EntityNameDictionary(dsl, changeLogDao, true, 60);
+        waitUntilReady(dictionary);
+        return dictionary;
+    }
+
+
+    private static void waitUntilReady(EntityNameDictionary dictionary) {
+        long deadline = System.currentTimeMillis() + MAX_WAIT_MILLIS;
+        while (! dictionary.isReady()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Dictionary not loaded within " + MAX_WAIT_MILLIS + "ms");
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("Interrupted whilst waiting");
+            }
+        }
+        assertTrue(dictionary.isEnabled());
+    }
+
+}
@@ -0,0 +1,377 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.integration_test.inmem.dao;
+
+import org.finos.waltz.common.exception.InsufficientPrivelegeException;
+import org.finos.waltz.data.DBExecutorPoolInterface;
+import org.finos.waltz.data.EntityNameDictionary;
+import org.finos.waltz.data.GenericSelector;
+import org.finos.waltz.data.ImmutableGenericSelector;
+import org.finos.waltz.data.changelog.ChangeLogDao;
+import org.finos.waltz.data.changelog.ChangeLogSummariesDao;
+import org.finos.waltz.data.entity_relationship.EntityRelationshipDao;
+import org.finos.waltz.data.involvement.InvolvementDao;
+import org.finos.waltz.data.report_grid.ReportGridDao;
+import org.finos.waltz.integration_test.inmem.BaseInMemoryIntegrationTest;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.Operation;
+import org.finos.waltz.model.changelog.ImmutableChangeLog;
+import org.finos.waltz.model.entity_relationship.EntityRelationship;
+import org.finos.waltz.model.entity_relationship.ImmutableEntityRelationship;
+import org.finos.waltz.model.involvement.Involvement;
+import org.finos.waltz.model.person.Person;
+import org.finos.waltz.model.report_grid.ImmutableReportGridColumnDefinitionsUpdateCommand;
+import org.finos.waltz.model.report_grid.ImmutableReportGridCreateCommand;
+import org.finos.waltz.model.report_grid.ImmutableReportGridFixedColumnDefinition;
+import org.finos.waltz.model.report_grid.ReportGridCell;
+import org.finos.waltz.model.report_grid.ReportGridDefinition;
+import org.finos.waltz.model.survey.SurveyInstanceStatus;
+import org.finos.waltz.model.survey.SurveyQuestionFieldType;
+import org.finos.waltz.model.tally.ChangeLogTally;
+import org.finos.waltz.schema.tables.records.SurveyInstanceRecord;
+import org.finos.waltz.schema.tables.records.SurveyQuestionResponseRecord;
+import org.finos.waltz.schema.tables.records.SurveyRunRecord;
+import org.finos.waltz.service.report_grid.ReportGridService;
+import org.finos.waltz.test_common.helpers.AppHelper;
+import org.finos.waltz.test_common.helpers.InvolvementHelper;
+import org.finos.waltz.test_common.helpers.PersonHelper;
+import org.finos.waltz.test_common.helpers.SurveyTemplateHelper;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.finos.waltz.common.CollectionUtilities.find;
+import static org.finos.waltz.common.CollectionUtilities.first;
+import static org.finos.waltz.common.DateTimeUtilities.nowUtcTimestamp;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.finos.waltz.schema.Tables.APPLICATION;
+import static org.finos.waltz.schema.Tables.SURVEY_INSTANCE;
+import static org.finos.waltz.schema.Tables.SURVEY_QUESTION;
+import static org.finos.waltz.schema.Tables.SURVEY_QUESTION_RESPONSE;
+import static org.finos.waltz.schema.Tables.SURVEY_RUN;
+import static org.finos.waltz.test_common.helpers.NameHelper.mkName;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+/**
+ * The daos below add entity names after their queries via the {@link EntityNameDictionary}.
+ * Each is checked with the (default) disabled dictionary from the application context
+ * and with an enabled one, including a rename followed by an invalidation.
+ */
+public class EntityNameResolutionDaoTest extends BaseInMemoryIntegrationTest {
+
+    @Autowired
+    private DSLContext dsl;
+
+    @Autowired
+    private DBExecutorPoolInterface dbExecutorPool;
+
+    @Autowired
+    private InvolvementDao involvementDao;
+
+    @Autowired
+    private EntityRelationshipDao entityRelationshipDao;
+
+    @Autowired
+    private ChangeLogDao changeLogDao;
+
+    @Autowired
+    private ChangeLogSummariesDao changeLogSummariesDao;
+
+    @Autowired
+    private ReportGridDao reportGridDao;
+
+    @Autowired
+    private ReportGridService reportGridService;
+
+    @Autowired
+    private AppHelper appHelper;
+
+    @Autowired
+    private PersonHelper personHelper;
+
+    @Autowired
+    private InvolvementHelper involvementHelper;
+
+    @Autowired
+    private SurveyTemplateHelper surveyTemplateHelper;
+
+
+    @Test
+    public void involvementsAreNamedAfterTheirEntity() {
+        String name = mkName("invDaoApp");
+        EntityReference app = appHelper.createNewApp(name, ouIds.a);
+        Long personId = personHelper.createPerson(mkName("invDaoPerson"));
+        long kindId = involvementHelper.mkInvolvementKind(mkName("invDaoKind"));
+        involvementHelper.createInvolvement(personId, kindId, app);
+
+        assertEquals(Optional.of(name), findInvolvementEntityName(involvementDao, app));
+        assertEquals(Optional.of(name), findPeopleEntityName(involvementDao, app, kindId));
+
+        EntityNameDictionary dictionary = EntityNameDictionaryTest.mkEnabledDictionary(dsl, new ChangeLogDao(dsl));
+        InvolvementDao dictionaryDao = new InvolvementDao(dsl, dictionary);
+        assertEquals(Optional.of(name), findInvolvementEntityName(dictionaryDao, app));
+        assertEquals(Optional.of(name), findPeopleEntityName(dictionaryDao, app, kindId));
+
+        String newName = renameAndInvalidate(app, dictionary);
+        assertEquals(Optional.of(newName), findInvolvementEntityName(dictionaryDao, app));
+        assertEquals(Optional.of(newName), findPeopleEntityName(dictionaryDao, app, kindId));
+    }
+
+
+    @Test
+    public void entityRelationshipsAreNamedAfterTheirEntities() {
+        String nameA = mkName("relDaoA");
+        String nameB = mkName("relDaoB");
+        EntityReference appA = appHelper.createNewApp(nameA, ouIds.a);
+        EntityReference appB = appHelper.createNewApp(nameB, ouIds.b);
+        EntityReference removed = mkRef(EntityKind.APPLICATION, -1L);
+
+        entityRelationshipDao.create(mkRelationship(appA, appB));
+        entityRelationshipDao.create(mkRelationship(appA, removed));
+
+        assertRelationshipNames(entityRelationshipDao.findRelationshipsInvolving(appA), nameA, nameB);
+
+        EntityNameDictionary dictionary = EntityNameDictionaryTest.mkEnabledDictionary(dsl, new ChangeLogDao(dsl));
+        EntityRelationshipDao dictionaryDao = new EntityRelationshipDao(dsl, dictionary);
+        assertRelationshipNames(dictionaryDao.findRelationshipsInvolving(appA), nameA, nameB);
+
+        String newNameB = renameAndInvalidate(appB, dictionary);
+        assertRelationshipNames(dictionaryDao.findRelationshipsInvolving(appA), nameA, newNameB);
+    }
+
+
+    @Test
+    public void changeLogTalliesAreNamedAfterTheirParent() {
+        String name = mkName("changeLogDaoApp");
+        EntityReference app = appHelper.createNewApp(name, ouIds.a);
+        changeLogDao.write(ImmutableChangeLog.builder()
+                .parentReference(app)
+                .message("Updated")
+                .userId(LAST_UPDATE_USER)
+                .operation(Operation.UPDATE)
+                .build());
+
+        assertEquals(Optional.of(name), findTallyName(changeLogSummariesDao, app));
+
+        EntityNameDictionary dictionary = EntityNameDictionaryTest.mkEnabledDictionary(dsl, new ChangeLogDao(dsl));
+        ChangeLogSummariesDao dictionaryDao = new ChangeLogSummariesDao(dsl, dictionary);
+        assertEquals(Optional.of(name), findTallyName(dictionaryDao, app));
+
+        String newName = renameAndInvalidate(app, dictionary);
+        assertEquals(Optional.of(newName), findTallyName(dictionaryDao, app));
+    }
+
+
+    @Test
+    public void surveyEntityResponsesAreNamedAfterTheEntity() throws InsufficientPrivelegeException {
+        String admin = mkName("gridDaoAdmin");
+        Long personId = personHelper.createPerson(admin);
+        EntityReference subject = appHelper.createNewApp(mkName("gridDaoSubject"), ouIds.a);
+        String name = mkName("gridDaoResponse");
+        EntityReference response = appHelper.createNewApp(name, ouIds.b);
+
+        long questionId = setupEntityResponse(admin, personId, subject, response);
+        ReportGridDefinition grid = mkSurveyQuestionGrid(admin, questionId);
+
+        assertEquals(Optional.of(name), findResponseText(reportGridDao, grid, subject));
+
+        EntityNameDictionary dictionary = EntityNameDictionaryTest.mkEnabledDictionary(dsl, new ChangeLogDao(dsl));
+        ReportGridDao dictionaryDao = new ReportGridDao(dsl, dbExecutorPool, dictionary, 1);
+        assertEquals(Optional.of(name), findResponseText(dictionaryDao, grid, subject));
+
+        String newName = renameAndInvalidate(response, dictionary);
+        assertEquals(Optional.of(newName), findResponseText(dictionaryDao, grid, subject));
+    }
+
+
+    // -- HELPERS ---
+
+    private String renameAndInvalidate(EntityReference app, EntityNameDictionary dictionary) {
+        String newName = mkName("renamed");
+
+        dsl.update(APPLICATION)
+                .set(APPLICATION.NAME, newName)
+                .where(APPLICATION.ID.eq(app.id()))
+                .execute();
+
+        dictionary.invalidate(app);
+        return newName;
+    }
+
+
+    private static GenericSelector mkSelector(EntityReference app) {
+        return ImmutableGenericSelector.builder()
+                .kind(EntityKind.APPLICATION)
+                .selector(DSL.select(APPLICATION.ID).from(APPLICATION).where(APPLICATION.ID.eq(app.id())))
+                .build();
+    }
+
+
+    private static Optional<String> findInvolvementEntityName(InvolvementDao dao, EntityReference app) {
+        List<Involvement> involvements = dao.findByEntityReference(app);
+        assertEquals(1, involvements.size());
+        return first(involvements).entityReference().name();
+    }
+
+
+    private static Optional<String> findPeopleEntityName(InvolvementDao dao, EntityReference app, long kindId) {
+        GenericSelector selector = mkSelector(app);
+        Map<EntityReference, List<Person>> peopleByEntity = dao.findPeopleByEntitySelectorAndInvolvement(
+                selector.kind(),
+                selector.selector(),
+                asSet(kindId));
+
+        assertEquals(1, peopleByEntity.size());
+        return first(peopleByEntity.keySet()).name();
+    }
+
+
+    private static EntityRelationship mkRelationship(EntityReference a, EntityReference b) {
+        return ImmutableEntityRelationship.builder()
+                .a(a)
+                .b(b)
+                .lastUpdatedBy(LAST_UPDATE_USER)
+                .build();
+    }
+
+
+    private static void assertRelationshipNames(Collection<EntityRelationship> relationships,
+                                                String nameA,
+                                                String nameB) {
+        assertEquals(2, relationships.size());
+
+        EntityRelationship toB = find(relationships, r -> r.b().id() > 0).get();
+        assertEquals(Optional.of(nameA), toB.a().name());
+        assertEquals(Optional.of(nameB), toB.b().name());
+        assertEquals(Optional.of(nameA), toB.a().externalId(), "apps are created with their name as the asset code");
+
+        EntityRelationship toRemoved = find(relationships, r -> r.b().id() < 0).get();
+        assertEquals(Optional.of("_Removed_"), toRemoved.b().name());
+    }
+
+
+    private static Optional<String> findTallyName(ChangeLogSummariesDao dao, EntityReference app) {
+        List<ChangeLogTally> tallies = dao.findCountByParentAndChildKindForDateRangeBySelector(
+                mkSelector(app),
+                Date.valueOf(LocalDate.now().minusDays(1)),
+                Date.valueOf(LocalDate.now().plusDays(1)),
+                Optional.empty());
+
+        assertEquals(1, tallies.size());
+        return first(tallies).ref().name();
+    }
+
+
+    private static Optional<String> findResponseText(ReportGridDao dao,
+                                                     ReportGridDefinition grid,
+                                                     EntityReference subject) {
+        Set<ReportGridCell> cells = dao.findCellDataByGridId(grid.id().get(), mkSelector(subject));
+        assertEquals(1, cells.size());
+        return Optional.ofNullable(first(cells).textValue());
+    }
+
+
+    private ReportGridDefinition mkSurveyQuestionGrid(String admin, long questionId) throws InsufficientPrivelegeException {
+        long gridId = reportGridService
+                .create(
+                        ImmutableReportGridCreateCommand.builder()
+                                .name(mkName("gridDao"))
+                                .subjectKind(EntityKind.APPLICATION)
+                                .build(),
+                        admin)
+                .gridId();
+
+        return reportGridService.updateColumnDefinitions(
+                gridId,
+                ImmutableReportGridColumnDefinitionsUpdateCommand.builder()
+                        .fixedColumnDefinitions(asSet(ImmutableReportGridFixedColumnDefinition.builder()
+                                .columnEntityKind(EntityKind.SURVEY_QUESTION)
+                                .columnEntityId(questionId)
+                                .position(10)
+                                .build()))
+                        .build(),
+                admin);
+    }
+
+
+    private long setupEntityResponse(String admin,
+                                     Long personId,
+                                     EntityReference subject,
+                                     EntityReference response) {
+        long templateId = surveyTemplateHelper.createTemplate(admin, mkName("gridDaoTemplate"));
+        long questionId = surveyTemplateHelper.addQuestion(templateId);
+
+        dsl.update(SURVEY_QUESTION)
+                .set(SURVEY_QUESTION.FIELD_TYPE, SurveyQuestionFieldType.APPLICATION.name())
+                .where(SURVEY_QUESTION.ID.eq(questionId))
+                .execute();
+
+        SurveyRunRecord run = dsl.newRecord(SURVEY_RUN);
+        run.setSurveyTemplateId(templateId);
+        run.setName(mkName("gridDaoRun"));
+        run.setDescription("run");
+        run.setSelectorEntityKind(EntityKind.ORG_UNIT.name());
+        run.setSelectorEntityId(ouIds.root);
+        run.setSelectorHierarchyScope("CHILDREN");
+        run.setDueDate(Date.valueOf(LocalDate.now()));
+        run.setApprovalDueDate(Date.valueOf(LocalDate.now()));
+        run.setIssuanceKind("GROUP");
+        run.setOwnerId(personId);
+        run.setContactEmail(admin);
+        run.setStatus("ISSUED");
+        run.store();
+
+        SurveyInstanceRecord instance = dsl.newRecord(SURVEY_INSTANCE);
+        instance.setSurveyRunId(run.getId());
+        instance.setEntityKind(subject.kind().name());
+        instance.setEntityId(subject.id());
+        instance.setStatus(SurveyInstanceStatus.COMPLETED.name());
+        instance.setDueDate(Date.valueOf(LocalDate.now()));
+        instance.setApprovalDueDate(Date.valueOf(LocalDate.now()));
+        instance.setName(mkName("gridDaoInstance"));
+        instance.setIssuedOn(Date.valueOf(LocalDate.now()));
+        instance.setSubmittedAt(nowUtcTimestamp());
+        instance.store();
+
+        SurveyQuestionResponseRecord questionResponse = dsl.newRecord(SURVEY_QUESTION_RESPONSE);
+        questionResponse.setSurveyInstanceId(instance.getId());
+        questionResponse.setQuestionId(questionId);
+        questionResponse.setPersonId(personId);
+        questionResponse.setLastUpdatedAt(new Timestamp(System.currentTimeMillis()));
+        questionResponse.setEntityResponseKind(response.kind().name());
+        questionResponse.setEntityResponseId(response.id());
+        questionResponse.store();
+
+        return questionId;
+    }
+
+}
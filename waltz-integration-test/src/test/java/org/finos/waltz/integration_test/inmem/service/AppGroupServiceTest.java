@@ -22,17 +22,25 @@ import org.finos.waltz.common.ListUtilities;
 import org.finos.waltz.common.SetUtilities;
 import org.finos.waltz.common.exception.InsufficientPrivelegeException;
 import org.finos.waltz.integration_test.inmem.BaseInMemoryIntegrationTest;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.app_group.*;
 import org.finos.waltz.service.app_group.AppGroupService;
 import org.finos.waltz.service.app_group.AppGroupSubscription;
+import org.finos.waltz.test_common.helpers.AppGroupHelper;
+import org.finos.waltz.test_common.helpers.AppHelper;
+import org.jooq.lambda.tuple.Tuple3;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
 import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.test_common.helpers.NameHelper.mkName;
 import static org.finos.waltz.test_common.helpers.NameHelper.mkUserId;
+import static org.jooq.lambda.tuple.Tuple.tuple;
 import static org.junit.jupiter.api.Assertions.*;
 
 public class AppGroupServiceTest extends BaseInMemoryIntegrationTest {
@@ -40,6 +48,12 @@ public class AppGroupServiceTest extends BaseInMemoryIntegrationTest {
     @Autowired
     private AppGroupService appGroupSvc;
 
+    @Autowired
+    private AppHelper appHelper;
+
+    @Autowired
+    private AppGroupHelper appGroupHelper;
+
 
     @Test
     public void getGroupDetailByIdReturnsNullIfNotFound() {
@@ -166,4 +180,42 @@ public class AppGroupServiceTest extends BaseInMemoryIntegrationTest {
         assertEquals(3, subs.size(), "Expected 3 subscriptions for user");
         assertEquals(asSet(gid1, gid2, gid3), SetUtilities.map(subs, d -> d.appGroup().id().get()));
     }
-}
\ No newline at end of file
+
+
+    @Test
+    public void updatingGroupEntriesOnlyChangesEntriesWhichDiffer() throws InsufficientPrivelegeException {
+        EntityReference a = appHelper.createNewApp(mkName("a"), ouIds.a);
+        EntityReference b = appHelper.createNewApp(mkName("b"), ouIds.a);
+        EntityReference c = appHelper.createNewApp(mkName("c"), ouIds.a);
+
+        Long gid = appGroupHelper.createAppGroupWithAppRefs(mkName("grp"), asSet(a, b));
+
+        Set<Tuple3<EntityKind, Long, Set<AppGroupEntry>>> desired = asSet(tuple(
+                EntityKind.APPLICATION,
+                gid,
+                asSet(mkReadOnlyEntry(b), mkReadOnlyEntry(c))));
+
+        assertEquals(
+                4,
+                appGroupSvc.updateGroupEntries(desired),
+                "a is removed, b is replaced with a read-only entry and c is added");
+
+        List<AppGroupEntry> entries = appGroupSvc.getGroupDetailById(gid).applications();
+        assertEquals(asSet(b.id(), c.id()), SetUtilities.map(entries, AppGroupEntry::id));
+        assertTrue(entries.stream().allMatch(AppGroupEntry::isReadOnly), "all entries should now be read-only");
+
+        assertEquals(0, appGroupSvc.updateGroupEntries(desired), "re-applying the same entries changes nothing");
+    }
+
+
+    // -- HELPERS ---
+
+    private static AppGroupEntry mkReadOnlyEntry(EntityReference appRef) {
+        return ImmutableAppGroupEntry
+                .builder()
+                .kind(EntityKind.APPLICATION)
+                .id(appRef.id())
+                .isReadOnly(true)
+                .build();
+    }
+}
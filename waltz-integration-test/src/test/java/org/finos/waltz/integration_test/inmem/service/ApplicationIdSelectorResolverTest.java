@@ -0,0 +1,215 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.integration_test.inmem.service;
+
+import org.finos.waltz.common.exception.InsufficientPrivelegeException;
+import org.finos.waltz.data.changelog.ChangeLogDao;
+import org.finos.waltz.integration_test.inmem.BaseInMemoryIntegrationTest;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.HierarchyQueryScope;
+import org.finos.waltz.model.IdSelectionOptions;
+import org.finos.waltz.model.Operation;
+import org.finos.waltz.model.changelog.ImmutableChangeLog;
+import org.finos.waltz.service.app_group.AppGroupService;
+import org.finos.waltz.service.application.ApplicationIdSelectorResolver;
+import org.finos.waltz.service.changelog.ChangeLogService;
+import org.finos.waltz.test_common.helpers.AppGroupHelper;
+import org.finos.waltz.test_common.helpers.AppHelper;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+import static java.util.Collections.singletonList;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.finos.waltz.model.IdSelectionOptions.mkOpts;
+import static org.finos.waltz.test_common.helpers.NameHelper.mkName;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+public class ApplicationIdSelectorResolverTest extends BaseInMemoryIntegrationTest {
+
+    @Autowired
+    private DSLContext dsl;
+
+    @Autowired
+    private ChangeLogDao changeLogDao;
+
+    @Autowired
+    private ChangeLogService changeLogService;
+
+    @Autowired
+    private AppGroupService appGroupService;
+
+    @Autowired
+    private AppGroupHelper appGroupHelper;
+
+    @Autowired
+    private AppHelper appHelper;
+
+    private ApplicationIdSelectorResolver resolver;
+
+
+    @BeforeEach
+    public void setupResolver() {
+        resolver = new ApplicationIdSelectorResolver(dsl, changeLogDao, 100_000, 5, 5000);
+    }
+
+
+    @Test
+    public void resolvedIdsAreCachedUntilChanged() {
+        EntityReference appInA = appHelper.createNewApp(mkName("resolverA"), ouIds.a);
+        EntityReference appInA1 = appHelper.createNewApp(mkName("resolverA1"), ouIds.a1);
+        appHelper.createNewApp(mkName("resolverB"), ouIds.b);
+
+        IdSelectionOptions opts = mkOpts(mkRef(EntityKind.ORG_UNIT, ouIds.a), HierarchyQueryScope.CHILDREN);
+
+        long[] expected = sorted(appInA.id(), appInA1.id());
+        assertArrayEquals(expected, resolver.resolveIds(opts));
+        assertArrayEquals(expected, resolver.resolveIds(opts));
+
+        assertEquals(1, resolver.getMissCount());
+        assertEquals(1, resolver.getHitCount());
+    }
+
+
+    @Test
+    public void modifyingResolvedIdsDoesNotAffectTheCache() {
+        EntityReference appInA = appHelper.createNewApp(mkName("resolverCopyA"), ouIds.a);
+        IdSelectionOptions opts = mkOpts(mkRef(EntityKind.ORG_UNIT, ouIds.a), HierarchyQueryScope.EXACT);
+
+        long[] resolved = resolver.resolveIds(opts);
+        Arrays.fill(resolved, -1L);
+
+        assertArrayEquals(sorted(appInA.id()), resolver.resolveIds(opts));
+        assertEquals(1, resolver.getHitCount());
+    }
+
+
+    @Test
+    public void changesToUnrelatedKindsDoNotInvalidateSelectors() throws InsufficientPrivelegeException {
+        EntityReference app = appHelper.createNewApp(mkName("resolverUnrelated"), ouIds.a);
+        IdSelectionOptions groupOpts = mkGroupOpts(app);
+
+        resolver.resolveIds(groupOpts);
+        writeChangeLog(mkRef(EntityKind.TAG, 1L), Optional.empty());
+        resolver.resolveIds(groupOpts);
+
+        assertEquals(1, resolver.getMissCount());
+        assertEquals(1, resolver.getHitCount());
+    }
+
+
+    @Test
+    public void changesToAGroupOnlyInvalidateThatGroup() throws InsufficientPrivelegeException {
+        EntityReference app1 = appHelper.createNewApp(mkName("resolverGroup1"), ouIds.a);
+        EntityReference app2 = appHelper.createNewApp(mkName("resolverGroup2"), ouIds.a);
+        EntityReference app3 = appHelper.createNewApp(mkName("resolverGroup3"), ouIds.a);
+
+        IdSelectionOptions group1Opts = mkGroupOpts(app1);
+        IdSelectionOptions group2Opts = mkGroupOpts(app2);
+
+        resolver.resolveIds(group1Opts);
+        resolver.resolveIds(group2Opts);
+
+        // writes a change log against group 2
+        appGroupService.addApplication("appGroupHelper", group2Opts.entityReference().id(), app3.id());
+
+        assertArrayEquals(sorted(app1.id()), resolver.resolveIds(group1Opts));
+        assertArrayEquals(sorted(app2.id(), app3.id()), resolver.resolveIds(group2Opts));
+
+        assertEquals(3, resolver.getMissCount(), "only group 2 should be recomputed");
+        assertEquals(1, resolver.getHitCount());
+    }
+
+
+    @Test
+    public void changesToAnAppInvalidateSelectorsContainingItAndAttributeBasedSelectors() throws InsufficientPrivelegeException {
+        EntityReference app = appHelper.createNewApp(mkName("resolverApp"), ouIds.a);
+
+        IdSelectionOptions groupOpts = mkGroupOpts(app);
+        IdSelectionOptions ouOpts = mkOpts(mkRef(EntityKind.ORG_UNIT, ouIds.b), HierarchyQueryScope.CHILDREN);
+        IdSelectionOptions personOpts = mkOpts(mkRef(EntityKind.PERSON, 1L), HierarchyQueryScope.EXACT);
+
+        resolver.resolveIds(groupOpts);
+        resolver.resolveIds(ouOpts);
+        resolver.resolveIds(personOpts);
+        assertEquals(3, resolver.getSize());
+
+        writeChangeLog(app, Optional.empty());
+
+        assertEquals(1, resolver.getSize(), "the group contains the app and the app may have moved into org unit b");
+
+        resolver.resolveIds(personOpts);
+        assertEquals(1, resolver.getHitCount());
+    }
+
+
+    @Test
+    public void involvementChangesOnlyInvalidatePersonSelectors() throws InsufficientPrivelegeException {
+        EntityReference app = appHelper.createNewApp(mkName("resolverPerson"), ouIds.a);
+
+        IdSelectionOptions groupOpts = mkGroupOpts(app);
+        IdSelectionOptions personOpts = mkOpts(mkRef(EntityKind.PERSON, 1L), HierarchyQueryScope.EXACT);
+
+        resolver.resolveIds(groupOpts);
+        resolver.resolveIds(personOpts);
+
+        // involvements are logged against the entity with a child kind of person
+        writeChangeLog(app, Optional.of(EntityKind.PERSON));
+
+        resolver.resolveIds(groupOpts);
+        resolver.resolveIds(personOpts);
+
+        assertEquals(3, resolver.getMissCount(), "only the person selector should be recomputed");
+        assertEquals(1, resolver.getHitCount());
+    }
+
+
+    // -- HELPERS ---
+
+    private IdSelectionOptions mkGroupOpts(EntityReference app) throws InsufficientPrivelegeException {
+        Long groupId = appGroupHelper.createAppGroupWithAppRefs(mkName("resolverGroup"), singletonList(app));
+        return mkOpts(mkRef(EntityKind.APP_GROUP, groupId), HierarchyQueryScope.EXACT);
+    }
+
+
+    private void writeChangeLog(EntityReference parentRef, Optional<EntityKind> childKind) {
+        changeLogService.write(ImmutableChangeLog.builder()
+                .parentReference(parentRef)
+                .childKind(childKind)
+                .message("updated")
+                .userId(LAST_UPDATE_USER)
+                .operation(Operation.UPDATE)
+                .build());
+    }
+
+
+    private static long[] sorted(long... ids) {
+        long[] copy = ids.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+
+}
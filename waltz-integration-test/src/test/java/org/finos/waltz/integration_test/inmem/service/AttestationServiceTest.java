@@ -20,6 +20,8 @@ package org.finos.waltz.integration_test.inmem.service;
 
 import org.finos.waltz.common.DateTimeUtilities;
 import org.finos.waltz.common.OptionalUtilities;
+import org.finos.waltz.data.attestation.AttestationInstanceDao;
+import org.finos.waltz.data.attestation.AttestationRunDao;
 import org.finos.waltz.integration_test.inmem.BaseInMemoryIntegrationTest;
 import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityReference;
@@ -37,6 +39,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.finos.waltz.common.CollectionUtilities.first;
 import static org.finos.waltz.common.CollectionUtilities.isEmpty;
@@ -65,6 +68,12 @@ public class AttestationServiceTest extends BaseInMemoryIntegrationTest {
     @Autowired
     private AppHelper appHelper;
 
+    @Autowired
+    private AttestationRunDao arDao;
+
+    @Autowired
+    private AttestationInstanceDao aiDao;
+
     @Autowired
     private DSLContext dsl;
 
@@ -102,6 +111,51 @@ public class AttestationServiceTest extends BaseInMemoryIntegrationTest {
         assertEquals(EntityKind.APPLICATION, run.targetEntityKind());
     }
 
+    @Test
+    public void partIssuedRunsAreResumedFromTheirCheckpoint() {
+        String stem = "partIssuedRunsAreResumedFromTheirCheckpoint";
+        long invId = involvementHelper.mkInvolvementKind(mkName(stem));
+
+        EntityReference appA = appHelper.createNewApp(mkName(stem, "appA"), ouIds.a);
+        EntityReference appB = appHelper.createNewApp(mkName(stem, "appB"), ouIds.a);
+        long pId = personHelper.createPerson(mkName(stem));
+        involvementHelper.createInvolvement(pId, invId, appA);
+        involvementHelper.createInvolvement(pId, invId, appB);
+
+        AttestationRunCreateCommand cmd = ImmutableAttestationRunCreateCommand.builder()
+                .dueDate(DateTimeUtilities.today().plusMonths(1))
+                .targetEntityKind(EntityKind.APPLICATION)
+                .attestedEntityKind(EntityKind.LOGICAL_DATA_FLOW)
+                .selectionOptions(mkOpts(mkRef(EntityKind.ORG_UNIT, ouIds.a)))
+                .addInvolvementKindIds(invId)
+                .name(mkName(stem))
+                .description(stem)
+                .sendEmailNotifications(false)
+                .build();
+
+        // simulate an earlier issuance which failed after writing the instance for app A
+        long runId = arDao.create(mkUserId(stem), cmd);
+        arDao.updateStatusForRunIds(asSet(runId), AttestationStatus.ISSUING);
+        aiDao.create(ImmutableAttestationInstance.builder()
+                .attestationRunId(runId)
+                .parentEntity(appA)
+                .attestedEntityKind(EntityKind.LOGICAL_DATA_FLOW)
+                .build());
+
+        assertEquals(Optional.of(appA.id()), aiDao.findIssuanceCheckpoint(runId));
+
+        arSvc.issueInstancesForPendingRuns();
+
+        List<AttestationInstance> instances = aiSvc.findByRunId(runId);
+        assertEquals(
+                asSet(appA.id(), appB.id()),
+                instances.stream().map(i -> i.parentEntity().id()).collect(Collectors.toSet()),
+                "app A should not be issued again, app B should be issued when resuming");
+        assertEquals(2, instances.size());
+        assertEquals(AttestationStatus.ISSUED, arSvc.getById(runId).status());
+    }
+
+
     @Test
     @Disabled
     public void basicRetrieval() {
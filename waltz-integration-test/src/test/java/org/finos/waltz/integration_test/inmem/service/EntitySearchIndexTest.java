@@ -0,0 +1,309 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.integration_test.inmem.service;
+
+import org.finos.waltz.data.changelog.ChangeLogDao;
+import org.finos.waltz.data.entity_alias.EntityAliasDao;
+import org.finos.waltz.data.entity_search.EntitySearchIndexDao;
+import org.finos.waltz.integration_test.inmem.BaseInMemoryIntegrationTest;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityLifecycleStatus;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.Operation;
+import org.finos.waltz.model.application.Application;
+import org.finos.waltz.model.application.ImmutableApplication;
+import org.finos.waltz.model.changelog.ImmutableChangeLog;
+import org.finos.waltz.model.entity_search.EntitySearchOptions;
+import org.finos.waltz.model.entity_search.ImmutableEntitySearchOptions;
+import org.finos.waltz.model.entity_search.SearchableEntity;
+import org.finos.waltz.model.external_identifier.ExternalIdValue;
+import org.finos.waltz.service.application.ApplicationService;
+import org.finos.waltz.service.changelog.ChangeLogService;
+import org.finos.waltz.service.entity_search.EntitySearchIndex;
+import org.finos.waltz.test_common.helpers.AppHelper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toSet;
+import static org.finos.waltz.common.CollectionUtilities.first;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.test_common.helpers.NameHelper.mkName;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class EntitySearchIndexTest extends BaseInMemoryIntegrationTest {
+
+    private static final long MAX_WAIT_MILLIS = 10_000;
+
+    @Autowired
+    private EntitySearchIndexDao entitySearchIndexDao;
+
+    @Autowired
+    private ChangeLogDao changeLogDao;
+
+    @Autowired
+    private ChangeLogService changeLogService;
+
+    @Autowired
+    private ApplicationService applicationService;
+
+    @Autowired
+    private EntityAliasDao entityAliasDao;
+
+    @Autowired
+    private AppHelper appHelper;
+
+
+    @Test
+    public void indexIsNotUsedWhenDisabled() {
+        EntitySearchIndex index = new EntitySearchIndex(entitySearchIndexDao, changeLogDao, false, 60);
+
+        assertFalse(index.isEnabled());
+        assertFalse(index.isReady());
+        assertFalse(index.canSearch(EntityKind.APPLICATION));
+        assertThrows(IllegalStateException.class, index::rebuild);
+    }
+
+
+    @Test
+    public void nameSearchesMatchTheDatabaseSearch() {
+        String stem = mkName("idxName");
+        EntityReference exact = appHelper.createNewApp(stem, ouIds.a);
+        EntityReference longer = appHelper.createNewApp(stem + " service", ouIds.a);
+        EntityReference prefixed = appHelper.createNewApp("legacy " + stem, ouIds.a);
+        appHelper.createNewApp(mkName("idxNameUnrelated"), ouIds.a);
+
+        EntitySearchIndex index = mkReadyIndex();
+        EntitySearchOptions opts = mkOpts(stem);
+
+        List<EntityReference> viaIndex = index.search(EntityKind.APPLICATION, opts);
+
+        assertEquals(
+                asSet(exact.id(), longer.id(), prefixed.id()),
+                toIds(viaIndex),
+                "index should find the same apps as the database search");
+        assertEquals(
+                toIds(viaIndex),
+                findIdsViaDatabase(opts));
+        assertEquals(exact.id(), first(viaIndex).id(), "exact name match should be ranked first");
+    }
+
+
+    @Test
+    public void searchesAreCaseInsensitive() {
+        String stem = mkName("idxCase");
+        EntityReference app = appHelper.createNewApp(stem, ouIds.a);
+
+        EntitySearchIndex index = mkReadyIndex();
+
+        assertEquals(
+                asSet(app.id()),
+                toIds(index.search(EntityKind.APPLICATION, mkOpts(stem.toUpperCase()))));
+    }
+
+
+    @Test
+    public void assetCodesAndAliasesAreSearchable() {
+        String assetCode = mkName("idxAssetCode");
+        String alias = mkName("idxAlias");
+
+        EntityReference appWithAssetCode = appHelper.createNewApp(mkName("idxKeys"), ouIds.a);
+        Application app = applicationService.getById(appWithAssetCode.id());
+        applicationService.update(ImmutableApplication.copyOf(app).withAssetCode(ExternalIdValue.of(assetCode)));
+
+        EntityReference appWithAlias = appHelper.createNewApp(mkName("idxKeys"), ouIds.a);
+        entityAliasDao.updateAliases(appWithAlias, singletonList(alias));
+
+        EntitySearchIndex index = mkReadyIndex();
+
+        EntitySearchOptions assetCodeOpts = mkOpts(assetCode);
+        assertEquals(asSet(appWithAssetCode.id()), toIds(index.search(EntityKind.APPLICATION, assetCodeOpts)));
+        assertEquals(findIdsViaDatabase(assetCodeOpts), toIds(index.search(EntityKind.APPLICATION, assetCodeOpts)));
+
+        EntitySearchOptions aliasOpts = mkOpts(alias);
+        assertEquals(asSet(appWithAlias.id()), toIds(index.search(EntityKind.APPLICATION, aliasOpts)));
+        assertEquals(findIdsViaDatabase(aliasOpts), toIds(index.search(EntityKind.APPLICATION, aliasOpts)));
+    }
+
+
+    @Test
+    public void removedEntitiesAreOnlyFoundIfRequested() {
+        String stem = mkName("idxLifecycle");
+        EntityReference active = appHelper.createNewApp(stem + " active", ouIds.a);
+        EntityReference removed = appHelper.createNewApp(stem + " removed", ouIds.a);
+        appHelper.removeApp(removed.id());
+
+        EntitySearchIndex index = mkReadyIndex();
+
+        EntitySearchOptions defaultOpts = mkOpts(stem);
+        assertEquals(asSet(active.id()), toIds(index.search(EntityKind.APPLICATION, defaultOpts)));
+        assertEquals(findIdsViaDatabase(defaultOpts), toIds(index.search(EntityKind.APPLICATION, defaultOpts)));
+
+        EntitySearchOptions allOpts = ImmutableEntitySearchOptions
+                .copyOf(defaultOpts)
+                .withEntityLifecycleStatuses(EntityLifecycleStatus.values());
+        assertEquals(asSet(active.id(), removed.id()), toIds(index.search(EntityKind.APPLICATION, allOpts)));
+        assertEquals(findIdsViaDatabase(allOpts), toIds(index.search(EntityKind.APPLICATION, allOpts)));
+    }
+
+
+    @Test
+    public void changedEntitiesAreReloadedWhenChangeLogsAreWritten() {
+        String originalName = mkName("idxOriginal");
+        String newName = mkName("idxRenamed");
+        EntityReference app = appHelper.createNewApp(originalName, ouIds.a);
+
+        EntitySearchIndex index = mkReadyIndex();
+        assertEquals(asSet(app.id()), toIds(index.search(EntityKind.APPLICATION, mkOpts(originalName))));
+
+        applicationService.update(ImmutableApplication
+                .copyOf(applicationService.getById(app.id()))
+                .withName(newName));
+        writeChangeLog(app);
+
+        waitUntil(() -> index.search(EntityKind.APPLICATION, mkOpts(newName)).size() == 1);
+
+        assertEquals(
+                newName,
+                first(index.search(EntityKind.APPLICATION, mkOpts(originalName))).name().orElse(null),
+                "app is still found via its (unchanged) asset code, but with its new name");
+        assertEquals(1, index.getOverlaySize());
+    }
+
+
+    @Test
+    public void newAndRemovedEntitiesAreReflectedWhenChangeLogsAreWritten() {
+        String stem = mkName("idxIncremental");
+        EntitySearchIndex index = mkReadyIndex();
+
+        EntityReference app = appHelper.createNewApp(stem, ouIds.a);
+        assertTrue(index.search(EntityKind.APPLICATION, mkOpts(stem)).isEmpty(), "new app not known until change log is written");
+
+        writeChangeLog(app);
+        waitUntil(() -> index.search(EntityKind.APPLICATION, mkOpts(stem)).size() == 1);
+
+        appHelper.removeApp(app.id());
+        writeChangeLog(app);
+        waitUntil(() -> index.search(EntityKind.APPLICATION, mkOpts(stem)).isEmpty());
+    }
+
+
+    @Test
+    public void findByIdsOnlyReturnsRequestedEntitiesWithTheirKeys() {
+        String alias = mkName("idxFindByIdsAlias");
+        EntityReference app = appHelper.createNewApp(mkName("idxFindByIds"), ouIds.a);
+        appHelper.createNewApp(mkName("idxFindByIdsOther"), ouIds.a);
+        entityAliasDao.updateAliases(app, singletonList(alias));
+
+        List<SearchableEntity> found = entitySearchIndexDao.findByIds(EntityKind.APPLICATION, singletonList(app.id()));
+
+        assertEquals(1, found.size());
+        SearchableEntity entity = first(found);
+        assertEquals(app.id(), entity.entityReference().id());
+        assertEquals(app.name(), entity.entityReference().name());
+        assertTrue(entity.searchKeys().contains(alias), "aliases should be included in search keys");
+        assertTrue(entity.searchKeys().contains(app.name().get()), "asset code should be included in search keys");
+
+        assertTrue(entitySearchIndexDao.findByIds(EntityKind.APPLICATION, singletonList(-1L)).isEmpty());
+    }
+
+
+    @Test
+    public void unsupportedKindsAreNotSearchedViaTheIndex() {
+        EntitySearchIndex index = mkReadyIndex();
+
+        assertFalse(entitySearchIndexDao.getSupportedEntityKinds().contains(EntityKind.FLOW_DIAGRAM));
+        assertFalse(index.canSearch(EntityKind.FLOW_DIAGRAM));
+        assertTrue(index.canSearch(EntityKind.APPLICATION));
+        assertTrue(index.search(EntityKind.FLOW_DIAGRAM, mkOpts("diagram")).isEmpty());
+
+        assertThrows(
+                UnsupportedOperationException.class,
+                () -> entitySearchIndexDao.findAll(EntityKind.FLOW_DIAGRAM));
+        assertThrows(
+                UnsupportedOperationException.class,
+                () -> entitySearchIndexDao.findByIds(EntityKind.FLOW_DIAGRAM, singletonList(1L)));
+    }
+
+
+    // -- HELPERS ---
+
+    private EntitySearchIndex mkReadyIndex() {
+        EntitySearchIndex index = new EntitySearchIndex(entitySearchIndexDao, changeLogDao, true, 60);
+        waitUntil(index::isReady);
+        return index;
+    }
+
+
+    private void writeChangeLog(EntityReference ref) {
+        changeLogService.write(ImmutableChangeLog.builder()
+                .parentReference(ref)
+                .message("updated")
+                .userId(LAST_UPDATE_USER)
+                .operation(Operation.UPDATE)
+                .build());
+    }
+
+
+    private Set<Long> findIdsViaDatabase(EntitySearchOptions opts) {
+        return applicationService
+                .search(opts)
+                .stream()
+                .map(app -> app.id().get())
+                .collect(toSet());
+    }
+
+
+    private static EntitySearchOptions mkOpts(String query) {
+        return ImmutableEntitySearchOptions.builder()
+                .entityKinds(singletonList(EntityKind.APPLICATION))
+                .searchQuery(query)
+                .build();
+    }
+
+
+    private static Set<Long> toIds(List<EntityReference> refs) {
+        return refs
+                .stream()
+                .map(EntityReference::id)
+                .collect(toSet());
+    }
+
+
+    private static void waitUntil(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + MAX_WAIT_MILLIS;
+        while (! condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Condition not met within " + MAX_WAIT_MILLIS + "ms");
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("Interrupted whilst waiting");
+            }
+        }
+    }
+
+}
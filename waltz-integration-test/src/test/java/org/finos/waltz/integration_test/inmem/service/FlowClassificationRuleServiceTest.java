@@ -0,0 +1,237 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.integration_test.inmem.service;
+
+import org.finos.waltz.integration_test.inmem.BaseInMemoryIntegrationTest;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.flow_classification_rule.ImmutableFlowClassificationRuleCreateCommand;
+import org.finos.waltz.model.logical_flow.LogicalFlow;
+import org.finos.waltz.service.flow_classification_rule.FlowClassificationRuleService;
+import org.finos.waltz.test_common.helpers.AppHelper;
+import org.finos.waltz.test_common.helpers.DataTypeHelper;
+import org.finos.waltz.test_common.helpers.LogicalFlowHelper;
+import org.jooq.DSLContext;
+import org.jooq.lambda.tuple.Tuple2;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Map;
+
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.finos.waltz.schema.Tables.DATA_TYPE;
+import static org.finos.waltz.schema.Tables.FLOW_CLASSIFICATION;
+import static org.finos.waltz.schema.Tables.LOGICAL_FLOW_DECORATOR;
+import static org.finos.waltz.test_common.helpers.NameHelper.mkName;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+public class FlowClassificationRuleServiceTest extends BaseInMemoryIntegrationTest {
+
+    @Autowired
+    private DSLContext dsl;
+
+    @Autowired
+    private FlowClassificationRuleService flowClassificationRuleService;
+
+    @Autowired
+    private AppHelper appHelper;
+
+    @Autowired
+    private DataTypeHelper dataTypeHelper;
+
+    @Autowired
+    private LogicalFlowHelper logicalFlowHelper;
+
+    private String primary;
+    private String secondary;
+    private long primaryId;
+    private long secondaryId;
+
+    private long dtParent;
+    private long dtChild;
+    private long dtOther;
+
+    private EntityReference source1;
+    private EntityReference source2;
+    private EntityReference targetInA;
+    private EntityReference targetInA1;
+    private EntityReference targetInB;
+
+
+    @BeforeEach
+    public void setup() {
+        primary = mkName("PRIMARY");
+        secondary = mkName("SECONDARY");
+        primaryId = createClassification(primary);
+        secondaryId = createClassification(secondary);
+
+        dtParent = dataTypeHelper.createDataType("fcrParent");
+        dtChild = dataTypeHelper.createDataType("fcrChild");
+        dtOther = dataTypeHelper.createDataType("fcrOther");
+        dsl.update(DATA_TYPE)
+                .set(DATA_TYPE.PARENT_ID, dtParent)
+                .where(DATA_TYPE.ID.eq(dtChild))
+                .execute();
+        rebuildHierarchy(EntityKind.DATA_TYPE);
+
+        source1 = appHelper.createNewApp(mkName("fcrSource1"), ouIds.b);
+        source2 = appHelper.createNewApp(mkName("fcrSource2"), ouIds.b);
+        targetInA = appHelper.createNewApp(mkName("fcrTargetA"), ouIds.a);
+        targetInA1 = appHelper.createNewApp(mkName("fcrTargetA1"), ouIds.a1);
+        targetInB = appHelper.createNewApp(mkName("fcrTargetB"), ouIds.b);
+    }
+
+
+    @Test
+    public void orgUnitRuleOnlyRecalculatesFlowsInScopeAndMatchesFullRecalculation() {
+        long s1ToA = createFlow(source1, targetInA, dtChild);
+        long s1ToA1 = createFlow(source1, targetInA1, dtChild, dtOther);
+        long s2ToA1 = createFlow(source2, targetInA1, dtParent);
+        long s2ToB = createFlow(source2, targetInB, dtChild);
+
+        long rootRuleId = insertRule(mkRef(EntityKind.ORG_UNIT, ouIds.root), source2, dtParent, primaryId);
+        long p2pRuleId = insertRule(targetInA1, source2, dtParent, secondaryId);
+
+        // stale ratings, in and out of the scope of the next rule
+        setRating(s2ToA1, dtParent, "X");
+        setRating(s2ToB, dtChild, "X");
+        setRating(s1ToA1, dtOther, "X");
+
+        long newRuleId = insertRule(mkRef(EntityKind.ORG_UNIT, ouIds.a), source1, dtParent, primaryId);
+
+        assertEquals(tuple(primary, newRuleId), findRating(s1ToA, dtChild));
+        assertEquals(tuple(primary, newRuleId), findRating(s1ToA1, dtChild));
+        assertEquals(tuple(secondary, p2pRuleId), findRating(s2ToA1, dtParent), "point-to-point rules beneath the org unit should be considered");
+        assertEquals(tuple("X", null), findRating(s2ToB, dtChild), "flows into other org units are out of scope");
+        assertEquals(tuple("X", null), findRating(s1ToA1, dtOther), "unrelated data types are out of scope");
+
+        Map<Long, Tuple2<String, Long>> inScope = findRatings(s1ToA, s1ToA1, s2ToA1);
+        inScope.remove(findDecoratorId(s1ToA1, dtOther));
+
+        flowClassificationRuleService.fastRecalculateAllFlowRatings();
+
+        Map<Long, Tuple2<String, Long>> afterFullRecalculation = findRatings(s1ToA, s1ToA1, s2ToA1);
+        afterFullRecalculation.remove(findDecoratorId(s1ToA1, dtOther));
+
+        assertEquals(afterFullRecalculation, inScope, "scoped recalculation should match a full recalculation");
+        assertEquals(tuple(primary, rootRuleId), findRating(s2ToB, dtChild), "the full recalculation should correct the stale rating");
+    }
+
+
+    @Test
+    public void pointToPointRuleOnlyRecalculatesFlowsBetweenItsEndpoints() {
+        long s1ToA = createFlow(source1, targetInA, dtChild);
+        long s1ToA1 = createFlow(source1, targetInA1, dtChild);
+
+        long ouRuleId = insertRule(mkRef(EntityKind.ORG_UNIT, ouIds.a), source1, dtParent, primaryId);
+        setRating(s1ToA, dtChild, "X");
+
+        long p2pRuleId = insertRule(targetInA1, source1, dtChild, secondaryId);
+
+        assertEquals(tuple(secondary, p2pRuleId), findRating(s1ToA1, dtChild));
+        assertEquals(tuple("X", null), findRating(s1ToA, dtChild), "flows to other targets are out of scope");
+
+        flowClassificationRuleService.remove(p2pRuleId, LAST_UPDATE_USER);
+
+        assertEquals(tuple(primary, ouRuleId), findRating(s1ToA1, dtChild), "should fall back to the org unit rule");
+
+        Tuple2<String, Long> afterRemoval = findRating(s1ToA1, dtChild);
+        flowClassificationRuleService.fastRecalculateAllFlowRatings();
+        assertEquals(findRating(s1ToA1, dtChild), afterRemoval, "scoped recalculation should match a full recalculation");
+    }
+
+
+    // -- HELPERS ---
+
+    private long createClassification(String code) {
+        return dsl
+                .insertInto(FLOW_CLASSIFICATION)
+                .set(FLOW_CLASSIFICATION.NAME, code)
+                .set(FLOW_CLASSIFICATION.CODE, code)
+                .set(FLOW_CLASSIFICATION.COLOR, "#000000")
+                .returning(FLOW_CLASSIFICATION.ID)
+                .fetchOne()
+                .getId();
+    }
+
+
+    private long createFlow(EntityReference source, EntityReference target, Long... dataTypeIds) {
+        LogicalFlow flow = logicalFlowHelper.createLogicalFlow(source, target);
+        logicalFlowHelper.createLogicalFlowDecorators(flow.entityReference(), asSet(dataTypeIds));
+        return flow.entityReference().id();
+    }
+
+
+    private long insertRule(EntityReference vantagePoint, EntityReference subject, long dataTypeId, long classificationId) {
+        return flowClassificationRuleService.insert(
+                ImmutableFlowClassificationRuleCreateCommand.builder()
+                        .parentReference(vantagePoint)
+                        .subjectReference(subject)
+                        .dataTypeId(dataTypeId)
+                        .classificationId(classificationId)
+                        .description("test")
+                        .build(),
+                LAST_UPDATE_USER);
+    }
+
+
+    private void setRating(long flowId, long dataTypeId, String rating) {
+        dsl.update(LOGICAL_FLOW_DECORATOR)
+                .set(LOGICAL_FLOW_DECORATOR.RATING, rating)
+                .setNull(LOGICAL_FLOW_DECORATOR.FLOW_CLASSIFICATION_RULE_ID)
+                .where(LOGICAL_FLOW_DECORATOR.ID.eq(findDecoratorId(flowId, dataTypeId)))
+                .execute();
+    }
+
+
+    private long findDecoratorId(long flowId, long dataTypeId) {
+        return dsl
+                .select(LOGICAL_FLOW_DECORATOR.ID)
+                .from(LOGICAL_FLOW_DECORATOR)
+                .where(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID.eq(flowId))
+                .and(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_KIND.eq(EntityKind.DATA_TYPE.name()))
+                .and(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_ID.eq(dataTypeId))
+                .fetchOne(LOGICAL_FLOW_DECORATOR.ID);
+    }
+
+
+    private Tuple2<String, Long> findRating(long flowId, long dataTypeId) {
+        return findRatings(flowId).get(findDecoratorId(flowId, dataTypeId));
+    }
+
+
+    private Map<Long, Tuple2<String, Long>> findRatings(Long... flowIds) {
+        return dsl
+                .select(LOGICAL_FLOW_DECORATOR.ID,
+                        LOGICAL_FLOW_DECORATOR.RATING,
+                        LOGICAL_FLOW_DECORATOR.FLOW_CLASSIFICATION_RULE_ID)
+                .from(LOGICAL_FLOW_DECORATOR)
+                .where(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID.in(flowIds))
+                .fetchMap(
+                        r -> r.get(LOGICAL_FLOW_DECORATOR.ID),
+                        r -> tuple(
+                                r.get(LOGICAL_FLOW_DECORATOR.RATING),
+                                r.get(LOGICAL_FLOW_DECORATOR.FLOW_CLASSIFICATION_RULE_ID)));
+    }
+
+}
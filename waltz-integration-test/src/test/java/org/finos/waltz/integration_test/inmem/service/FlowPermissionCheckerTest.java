@@ -17,8 +17,10 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Map;
 import java.util.Set;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.emptySet;
 import static org.finos.waltz.common.SetUtilities.asSet;
 import static org.finos.waltz.model.EntityReference.mkRef;
@@ -124,6 +126,72 @@ public class FlowPermissionCheckerTest extends BaseInMemoryIntegrationTest {
                 "users should not be able to edit read only flows");
     }
 
+    @Test
+    public void batchAndSingleFlowPermissionsAgree() {
+
+        String u1 = mkName(stem, "user1");
+        Long u1Id = personHelper.createPerson(u1);
+        String unknownUser = mkName(stem, "unknown");
+
+        EntityReference appA = appHelper.createNewApp(mkName(stem, "appA"), ouIds.a);
+        EntityReference appB = appHelper.createNewApp(mkName(stem, "appB"), ouIds.b);
+        EntityReference appC = appHelper.createNewApp(mkName(stem, "appC"), ouIds.a1);
+
+        LogicalFlow flowAB = flowHelper.createLogicalFlow(appA, appB);
+        LogicalFlow flowBC = flowHelper.createLogicalFlow(appB, appC);
+        LogicalFlow flowCA = flowHelper.createLogicalFlow(appC, appA);
+        flowHelper.makeReadOnly(flowCA.id().get());
+
+        long privKind = involvementHelper.mkInvolvementKind(mkName(stem, "privileged"));
+        InvolvementGroupRecord ig = permissionHelper.setupInvolvementGroup(privKind, stem);
+
+        // app A is in two override groups, app B in one and app C takes the defaults
+        PermissionGroupRecord pg = permissionHelper.createGroup(stem);
+        permissionHelper.setupPermissionGroupEntry(appA, pg.getId());
+        permissionHelper.setupPermissionGroupEntry(appB, pg.getId());
+        permissionHelper.setupPermissionGroupInvolvement(ig.getId(), pg.getId(), EntityKind.LOGICAL_DATA_FLOW, EntityKind.APPLICATION, Operation.ADD, null);
+
+        PermissionGroupRecord pg2 = permissionHelper.createGroup(stem);
+        permissionHelper.setupPermissionGroupEntry(appA, pg2.getId());
+        permissionHelper.setupPermissionGroupInvolvement(null, pg2.getId(), EntityKind.LOGICAL_DATA_FLOW, EntityKind.APPLICATION, Operation.REMOVE, null);
+
+        involvementHelper.createInvolvement(u1Id, privKind, appA);
+
+        Set<Long> flowIds = asSet(flowAB.id().get(), flowBC.id().get(), flowCA.id().get());
+        Set<EntityReference> apps = asSet(appA, appB, appC);
+
+        Map<Long, Set<Operation>> batchForFlows = flowPermissionChecker.findPermissionsForFlows(flowIds, u1);
+        assertEquals(asSet(Operation.ADD, Operation.REMOVE), batchForFlows.get(flowAB.id().get()));
+        assertEquals(asSet(Operation.ATTEST), batchForFlows.get(flowBC.id().get()));
+        assertEquals(emptySet(), batchForFlows.get(flowCA.id().get()), "read only flows have no permissions");
+
+        for (String user : asList(u1, unknownUser)) {
+            Map<Long, Set<Operation>> byFlow = flowPermissionChecker.findPermissionsForFlows(flowIds, user);
+            Map<EntityReference, Set<Operation>> byApp = flowPermissionChecker.findFlowPermissionsForParentEntities(apps, user);
+
+            assertEquals(flowIds, byFlow.keySet());
+            flowIds.forEach(id -> assertEquals(
+                    flowPermissionChecker.findPermissionsForFlow(id, user),
+                    byFlow.get(id),
+                    "batch and single flow permissions should match"));
+
+            assertEquals(apps.size(), byApp.size());
+            apps.forEach(app -> assertEquals(
+                    flowPermissionChecker.findFlowPermissionsForParentEntity(app, user),
+                    byApp.get(mkRef(app.kind(), app.id())),
+                    "batch and single parent entity permissions should match"));
+        }
+
+        userHelper.createUserWithSystemRoles(u1, asSet(SystemRole.LOGICAL_DATA_FLOW_EDITOR));
+
+        Map<Long, Set<Operation>> asEditor = flowPermissionChecker.findPermissionsForFlows(flowIds, u1);
+        flowIds.forEach(id -> assertEquals(
+                flowPermissionChecker.findPermissionsForFlow(id, u1),
+                asEditor.get(id)));
+        assertEquals(asSet(Operation.ADD, Operation.UPDATE, Operation.REMOVE, Operation.ATTEST), asEditor.get(flowBC.id().get()));
+    }
+
+
     @Test
     public void findPermissionsForFlowDecorator() {
 
@@ -0,0 +1,237 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.integration_test.inmem.service;
+
+import org.finos.waltz.integration_test.inmem.BaseInMemoryIntegrationTest;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.command.CommandOutcome;
+import org.finos.waltz.model.datatype.DataTypeDecorator;
+import org.finos.waltz.model.enum_value.EnumValueKind;
+import org.finos.waltz.model.physical_flow.ImmutablePhysicalFlowUploadCommand;
+import org.finos.waltz.model.physical_flow.PhysicalFlow;
+import org.finos.waltz.model.physical_flow.PhysicalFlowUploadCommand;
+import org.finos.waltz.model.physical_flow.PhysicalFlowUploadCommandResponse;
+import org.finos.waltz.service.physical_flow.PhysicalFlowService;
+import org.finos.waltz.service.physical_flow.PhysicalFlowUploadService;
+import org.finos.waltz.service.physical_specification.PhysicalSpecificationService;
+import org.finos.waltz.test_common.helpers.AppHelper;
+import org.finos.waltz.test_common.helpers.DataTypeHelper;
+import org.finos.waltz.test_common.helpers.LogicalFlowHelper;
+import org.finos.waltz.test_common.helpers.PhysicalSpecHelper;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+import java.util.Set;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.common.SetUtilities.map;
+import static org.finos.waltz.schema.Tables.DATA_TYPE;
+import static org.finos.waltz.schema.Tables.ENUM_VALUE;
+import static org.finos.waltz.test_common.helpers.NameHelper.mkName;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+public class PhysicalFlowUploadServiceTest extends BaseInMemoryIntegrationTest {
+
+    private static final String USER = "uploadUser";
+
+    @Autowired
+    private DSLContext dsl;
+
+    @Autowired
+    private PhysicalFlowUploadService uploadService;
+
+    @Autowired
+    private PhysicalFlowService physicalFlowService;
+
+    @Autowired
+    private PhysicalSpecificationService physicalSpecificationService;
+
+    @Autowired
+    private AppHelper appHelper;
+
+    @Autowired
+    private DataTypeHelper dataTypeHelper;
+
+    @Autowired
+    private LogicalFlowHelper logicalFlowHelper;
+
+    @Autowired
+    private PhysicalSpecHelper physicalSpecHelper;
+
+    private EntityReference source;
+    private EntityReference targetA;
+    private EntityReference targetB;
+    private long dt1;
+    private long dt2;
+
+
+    @BeforeEach
+    public void setup() {
+        ensureEnumValue(EnumValueKind.DATA_FORMAT_KIND, "UNKNOWN");
+        ensureEnumValue(EnumValueKind.FREQUENCY, "DAILY");
+        ensureEnumValue(EnumValueKind.PHYSICAL_FLOW_CRITICALITY, "MEDIUM");
+        ensureEnumValue(EnumValueKind.TRANSPORT_KIND, "UNKNOWN");
+
+        source = appHelper.createNewApp(mkName("uploadSource"), ouIds.a);
+        targetA = appHelper.createNewApp(mkName("uploadTargetA"), ouIds.a);
+        targetB = appHelper.createNewApp(mkName("uploadTargetB"), ouIds.b);
+        dt1 = dataTypeHelper.createDataType("uploadDt1");
+        dt2 = dataTypeHelper.createDataType("uploadDt2");
+    }
+
+
+    @Test
+    public void newSpecificationsAreCreatedOnceAndSharedDataTypesArePropagated() throws Exception {
+        String specName = mkName("uploadNewSpec");
+
+        List<PhysicalFlowUploadCommandResponse> created = uploadService.upload(USER, asList(
+                mkCommand(source, targetA, specName, dt1, "0"),
+                mkCommand(source, targetB, specName, dt1, "0"),
+                mkCommand(source, targetA, specName, dt2, "1")));
+
+        assertEquals(3, created.size());
+
+        PhysicalFlow toA = getPhysicalFlow(created.get(0));
+        PhysicalFlow toB = getPhysicalFlow(created.get(1));
+        PhysicalFlow toAWithDt2 = getPhysicalFlow(created.get(2));
+
+        assertEquals(toA.specificationId(), toB.specificationId(), "rows with the same owner, format and name share a spec");
+        assertEquals(toA.specificationId(), toAWithDt2.specificationId());
+        assertEquals(toA.logicalFlowId(), toAWithDt2.logicalFlowId(), "rows with the same source and target share a logical flow");
+        assertNotEquals(toA.logicalFlowId(), toB.logicalFlowId());
+
+        assertEquals(asSet(dt1, dt2), findLogicalFlowDataTypes(toA.logicalFlowId()));
+        assertEquals(
+                asSet(dt1, dt2),
+                findLogicalFlowDataTypes(toB.logicalFlowId()),
+                "data types added to a spec created in the same upload are propagated to its other logical flows");
+    }
+
+
+    @Test
+    public void existingSpecificationsAreReusedAndGainDataTypes() throws Exception {
+        Long specId = physicalSpecHelper.createPhysicalSpec(source, "uploadExistingSpec");
+        String specName = physicalSpecificationService.getById(specId).name();
+
+        PhysicalFlow existing = getPhysicalFlow(uploadService.upload(USER, singletonList(mkCommand(source, targetA, specName, dt1, "0"))).get(0));
+        assertEquals(specId.longValue(), existing.specificationId(), "should match the existing spec by owner, format and name");
+
+        PhysicalFlow toB = getPhysicalFlow(uploadService.upload(USER, singletonList(mkCommand(source, targetB, specName, dt2, "0"))).get(0));
+        assertEquals(specId.longValue(), toB.specificationId());
+
+        assertEquals(
+                asSet(dt1, dt2),
+                findLogicalFlowDataTypes(existing.logicalFlowId()),
+                "data types added to an existing shared spec are propagated to its other logical flows");
+        assertEquals(asSet(dt1, dt2), findLogicalFlowDataTypes(toB.logicalFlowId()));
+    }
+
+
+    @Test
+    public void existingFlowsAreMatchedRatherThanRecreated() throws Exception {
+        String specName = mkName("uploadMatchedSpec");
+        List<PhysicalFlowUploadCommand> cmds = asList(
+                mkCommand(source, targetA, specName, dt1, "0"),
+                mkCommand(source, targetB, specName, dt1, "0"));
+
+        List<PhysicalFlowUploadCommandResponse> created = uploadService.upload(USER, cmds);
+        assertEquals(2, created.size());
+
+        List<PhysicalFlowUploadCommandResponse> validated = uploadService.validate(cmds);
+        assertEquals(
+                map(created, PhysicalFlowUploadCommandResponse::entityReference),
+                map(validated, PhysicalFlowUploadCommandResponse::entityReference),
+                "validation should find the flows created by the first upload");
+        assertTrue(validated.stream().allMatch(v -> v.outcome() == CommandOutcome.SUCCESS));
+
+        assertTrue(uploadService.upload(USER, cmds).isEmpty(), "re-uploading should not create any flows");
+
+        PhysicalFlow flow = getPhysicalFlow(created.get(0));
+        assertEquals(2, physicalFlowService.findBySpecificationId(flow.specificationId()).size());
+    }
+
+
+    // -- HELPERS ---
+
+    private PhysicalFlowUploadCommand mkCommand(EntityReference source,
+                                                EntityReference target,
+                                                String specName,
+                                                long dataTypeId,
+                                                String basisOffset) {
+        return ImmutablePhysicalFlowUploadCommand.builder()
+                .source(source.name().get())
+                .target(target.name().get())
+                .owner(source.name().get())
+                .name(specName)
+                .format("UNKNOWN")
+                .basisOffset(basisOffset)
+                .criticality("MEDIUM")
+                .frequency("DAILY")
+                .transport("UNKNOWN")
+                .description("uploaded")
+                .dataType(findDataTypeCode(dataTypeId))
+                .build();
+    }
+
+
+    private PhysicalFlow getPhysicalFlow(PhysicalFlowUploadCommandResponse response) {
+        assertNotNull(response.entityReference(), "upload response should refer to the physical flow");
+        return physicalFlowService.getById(response.entityReference().id());
+    }
+
+
+    private Set<Long> findLogicalFlowDataTypes(long logicalFlowId) {
+        return map(logicalFlowHelper.fetchDecoratorsForFlow(logicalFlowId), DataTypeDecorator::dataTypeId);
+    }
+
+
+    private String findDataTypeCode(long dataTypeId) {
+        return dsl
+                .select(DATA_TYPE.CODE)
+                .from(DATA_TYPE)
+                .where(DATA_TYPE.ID.eq(dataTypeId))
+                .fetchOne(DATA_TYPE.CODE);
+    }
+
+
+    private void ensureEnumValue(EnumValueKind kind, String key) {
+        boolean exists = dsl.fetchExists(
+                ENUM_VALUE,
+                ENUM_VALUE.TYPE.eq(kind.dbValue()).and(ENUM_VALUE.KEY.eq(key)));
+
+        if (! exists) {
+            dsl.insertInto(ENUM_VALUE)
+                    .set(ENUM_VALUE.TYPE, kind.dbValue())
+                    .set(ENUM_VALUE.KEY, key)
+                    .set(ENUM_VALUE.DISPLAY_NAME, key)
+                    .set(ENUM_VALUE.DESCRIPTION, key)
+                    .execute();
+        }
+    }
+
+}
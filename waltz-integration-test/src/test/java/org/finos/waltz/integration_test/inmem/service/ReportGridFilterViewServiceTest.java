@@ -0,0 +1,320 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.integration_test.inmem.service;
+
+import org.finos.waltz.common.SetUtilities;
+import org.finos.waltz.common.exception.InsufficientPrivelegeException;
+import org.finos.waltz.integration_test.inmem.BaseInMemoryIntegrationTest;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.IdSelectionOptions;
+import org.finos.waltz.model.app_group.AppGroupEntry;
+import org.finos.waltz.model.report_grid.ImmutableReportGridColumnDefinitionsUpdateCommand;
+import org.finos.waltz.model.report_grid.ImmutableReportGridCreateCommand;
+import org.finos.waltz.model.report_grid.ImmutableReportGridDerivedColumnDefinition;
+import org.finos.waltz.model.report_grid.ImmutableReportGridFixedColumnDefinition;
+import org.finos.waltz.model.report_grid.ReportGridCell;
+import org.finos.waltz.model.report_grid.ReportGridColumnDefinitionsUpdateCommand;
+import org.finos.waltz.model.report_grid.ReportGridDefinition;
+import org.finos.waltz.model.report_grid.ReportGridFixedColumnDefinition;
+import org.finos.waltz.model.report_grid.ReportGridInfo;
+import org.finos.waltz.model.report_grid.ReportGridInstance;
+import org.finos.waltz.schema.tables.records.EntityNamedNoteTypeRecord;
+import org.finos.waltz.service.app_group.AppGroupService;
+import org.finos.waltz.service.entity_named_note.EntityNamedNoteService;
+import org.finos.waltz.service.report_grid.ReportGridFilterViewService;
+import org.finos.waltz.service.report_grid.ReportGridInstanceCache;
+import org.finos.waltz.service.report_grid.ReportGridService;
+import org.finos.waltz.test_common.helpers.AppGroupHelper;
+import org.finos.waltz.test_common.helpers.AppHelper;
+import org.finos.waltz.test_common.helpers.InvolvementHelper;
+import org.finos.waltz.test_common.helpers.PersonHelper;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
+
+import static java.lang.String.format;
+import static java.util.Arrays.asList;
+import static org.finos.waltz.common.CollectionUtilities.find;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.common.SetUtilities.minus;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.finos.waltz.model.IdSelectionOptions.mkOpts;
+import static org.finos.waltz.schema.Tables.ENTITY_NAMED_NOTE_TYPE;
+import static org.finos.waltz.test_common.helpers.NameHelper.mkName;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+public class ReportGridFilterViewServiceTest extends BaseInMemoryIntegrationTest {
+
+    private static final String FILTER_NOTE_TYPE_EXT_ID = "WALTZ_REPORT_GRID_FILTER_PRESET";
+
+    @Autowired
+    private DSLContext dsl;
+
+    @Autowired
+    private ReportGridFilterViewService reportGridFilterViewService;
+
+    @Autowired
+    private ReportGridService reportGridService;
+
+    @Autowired
+    private ReportGridInstanceCache reportGridInstanceCache;
+
+    @Autowired
+    private EntityNamedNoteService entityNamedNoteService;
+
+    @Autowired
+    private AppGroupService appGroupService;
+
+    @Autowired
+    private AppHelper appHelper;
+
+    @Autowired
+    private AppGroupHelper appGroupHelper;
+
+    @Autowired
+    private PersonHelper personHelper;
+
+    @Autowired
+    private InvolvementHelper involvementHelper;
+
+
+    @Test
+    public void fixedColumnFiltersMatchTheFullGrid() throws InsufficientPrivelegeException {
+        String admin = mkName("filterAdmin");
+        personHelper.createPerson(admin);
+
+        EntityReference a1 = appHelper.createNewApp(mkName("filterFixedA1"), ouIds.a);
+        EntityReference a2 = appHelper.createNewApp(mkName("filterFixedA2"), ouIds.a);
+        EntityReference a3 = appHelper.createNewApp(mkName("filterFixedA3"), ouIds.b);
+
+        String ownerName = mkName("filterOwner");
+        Long owner = personHelper.createPerson(ownerName);
+        Long other = personHelper.createPerson(mkName("filterOther"));
+
+        long ownerKind = involvementHelper.mkInvolvementKind(mkName("filterOwnerKind"));
+        long vetoKind = involvementHelper.mkInvolvementKind(mkName("filterVetoKind"));
+        long unusedKind = involvementHelper.mkInvolvementKind(mkName("filterUnusedKind"));
+
+        involvementHelper.createInvolvement(owner, ownerKind, a1);
+        involvementHelper.createInvolvement(owner, ownerKind, a2);
+        involvementHelper.createInvolvement(other, vetoKind, a2);
+        involvementHelper.createInvolvement(other, unusedKind, a3);
+
+        ReportGridDefinition grid = mkGrid(
+                admin,
+                ImmutableReportGridColumnDefinitionsUpdateCommand.builder()
+                        .addFixedColumnDefinitions(mkInvolvementColumn(ownerKind, "owner", 10))
+                        .addFixedColumnDefinitions(mkInvolvementColumn(vetoKind, "veto", 20))
+                        .addFixedColumnDefinitions(mkInvolvementColumn(unusedKind, "unused", 30))
+                        .build());
+
+        long ownerCol = findColumnId(grid, "owner");
+        long vetoCol = findColumnId(grid, "veto");
+        long unusedCol = findColumnId(grid, "unused");
+
+        Long scopeGroup = appGroupHelper.createAppGroupWithAppRefs(mkName("filterScope"), asList(a1, a2, a3));
+        Long filterGroup = appGroupHelper.createAppGroupWithAppRefs(mkName("filterTarget"), Collections.emptySet());
+        IdSelectionOptions opts = mkOpts(mkRef(EntityKind.APP_GROUP, scopeGroup));
+
+        saveFilterNote(filterGroup, grid, scopeGroup,
+                format("| owner | CONTAINS_ANY_STRING | %s |", ownerName),
+                "| veto | CONTAINS_ANY_OPTION | NOT_PROVIDED |");
+
+        // evaluated before the full grid is computed (and cached), so only the filtered columns are fetched
+        ReportGridInstance partial = reportGridService.mkInstanceForColumns(grid, opts, asSet(ownerCol, vetoCol));
+        assertEquals(1, reportGridFilterViewService.recalculateAppGroupFromNoteText(filterGroup));
+        Set<Long> members = findGroupMembers(filterGroup);
+
+        ReportGridInstance full = reportGridService
+                .getByIdAndSelectionOptions(grid.id().get(), opts, admin)
+                .get()
+                .instance();
+
+        assertEquals(full.subjects(), partial.subjects());
+        assertEquals(findCells(full, ownerCol), findCells(partial, ownerCol));
+        assertEquals(findCells(full, vetoCol), findCells(partial, vetoCol));
+        assertTrue(findCells(partial, unusedCol).isEmpty(), "unfiltered columns should not be fetched");
+        assertFalse(findCells(full, unusedCol).isEmpty());
+
+        Set<Long> expectedMembers = minus(
+                SetUtilities.map(
+                        SetUtilities.filter(findCells(full, ownerCol), c -> c.textValue().contains(ownerName)),
+                        ReportGridCell::subjectId),
+                SetUtilities.map(findCells(full, vetoCol), ReportGridCell::subjectId));
+
+        assertEquals(expectedMembers, members, "group membership should match the filters applied to the full grid");
+        assertEquals(asSet(a1.id()), members);
+    }
+
+
+    @Test
+    public void derivedColumnFiltersUseTheFullGrid() throws InsufficientPrivelegeException {
+        String admin = mkName("filterDerivedAdmin");
+        personHelper.createPerson(admin);
+
+        EntityReference a1 = appHelper.createNewApp(mkName("filterDerivedA1"), ouIds.a);
+        String a2Name = mkName("filterDerivedA2");
+        EntityReference a2 = appHelper.createNewApp(a2Name, ouIds.a);
+
+        long ownerKind = involvementHelper.mkInvolvementKind(mkName("filterDerivedKind"));
+        involvementHelper.createInvolvement(personHelper.createPerson(mkName("filterDerivedOwner")), ownerKind, a1);
+
+        ReportGridDefinition grid = mkGrid(
+                admin,
+                ImmutableReportGridColumnDefinitionsUpdateCommand.builder()
+                        .addFixedColumnDefinitions(mkInvolvementColumn(ownerKind, "owner", 10))
+                        .addDerivedColumnDefinitions(ImmutableReportGridDerivedColumnDefinition.builder()
+                                .displayName("Subject Name")
+                                .externalId("subject_name")
+                                .derivationScript("subjectName")
+                                .position(20)
+                                .build())
+                        .build());
+
+        long ownerCol = findColumnId(grid, "owner");
+        long derivedCol = find(grid.derivedColumnDefinitions(), d -> d.externalId().equals(Optional.of("subject_name")))
+                .get()
+                .gridColumnId();
+
+        Long scopeGroup = appGroupHelper.createAppGroupWithAppRefs(mkName("filterDerivedScope"), asList(a1, a2));
+        Long filterGroup = appGroupHelper.createAppGroupWithAppRefs(mkName("filterDerivedTarget"), Collections.emptySet());
+        IdSelectionOptions opts = mkOpts(mkRef(EntityKind.APP_GROUP, scopeGroup));
+
+        saveFilterNote(filterGroup, grid, scopeGroup, format("| subject_name | CONTAINS_ANY_STRING | %s |", a2Name));
+
+        assertFalse(reportGridInstanceCache.find(grid, opts).isPresent());
+
+        ReportGridInstance instance = reportGridService.mkInstanceForColumns(grid, opts, asSet(derivedCol));
+
+        assertEquals(
+                asSet(a1.id(), a2.id()),
+                SetUtilities.map(findCells(instance, derivedCol), ReportGridCell::subjectId),
+                "derived columns should be calculated for every subject");
+        assertFalse(findCells(instance, ownerCol).isEmpty(), "derived columns may refer to any column, so the full grid is used");
+        assertTrue(reportGridInstanceCache.find(grid, opts).isPresent(), "the full grid should be cached for later use");
+
+        assertEquals(1, reportGridFilterViewService.recalculateAppGroupFromNoteText(filterGroup));
+        assertEquals(asSet(a2.id()), findGroupMembers(filterGroup));
+    }
+
+
+    // -- HELPERS ---
+
+    private ReportGridDefinition mkGrid(String admin,
+                                        ReportGridColumnDefinitionsUpdateCommand columns) throws InsufficientPrivelegeException {
+        ReportGridInfo info = reportGridService.create(
+                ImmutableReportGridCreateCommand.builder()
+                        .name(mkName("filterGrid"))
+                        .subjectKind(EntityKind.APPLICATION)
+                        .build(),
+                admin);
+
+        return reportGridService.updateColumnDefinitions(info.gridId(), columns, admin);
+    }
+
+
+    private static ReportGridFixedColumnDefinition mkInvolvementColumn(long involvementKindId,
+                                                                       String externalId,
+                                                                       int position) {
+        return ImmutableReportGridFixedColumnDefinition.builder()
+                .columnEntityKind(EntityKind.INVOLVEMENT_KIND)
+                .columnEntityId(involvementKindId)
+                .externalId(externalId)
+                .position(position)
+                .build();
+    }
+
+
+    private static long findColumnId(ReportGridDefinition grid, String externalId) {
+        return find(grid.fixedColumnDefinitions(), d -> d.externalId().equals(Optional.of(externalId)))
+                .get()
+                .gridColumnId();
+    }
+
+
+    private static Set<ReportGridCell> findCells(ReportGridInstance instance, long columnId) {
+        return SetUtilities.filter(instance.cellData(), c -> c.columnDefinitionId() == columnId);
+    }
+
+
+    private Set<Long> findGroupMembers(Long groupId) {
+        return SetUtilities.map(
+                appGroupService.getGroupDetailById(groupId).applications(),
+                AppGroupEntry::id);
+    }
+
+
+    private void saveFilterNote(Long groupId,
+                                ReportGridDefinition grid,
+                                Long scopeGroupId,
+                                String... filterRows) {
+        String noteText = format(
+                "| Grid Name | Grid Identifier | Vantage Point Kind | Vantage Point Id |\n" +
+                        "| --- | --- | --- | --- |\n" +
+                        "| %s | %s | %s | %d |\n" +
+                        "\n" +
+                        "| Filter Column | Filter Operator | Value/s |\n" +
+                        "| --- | --- | --- |\n" +
+                        "%s\n",
+                grid.name(),
+                grid.externalId().get(),
+                EntityKind.APP_GROUP.name(),
+                scopeGroupId,
+                String.join("\n", filterRows));
+
+        entityNamedNoteService.save(
+                mkRef(EntityKind.APP_GROUP, groupId),
+                ensureFilterNoteType(),
+                noteText,
+                LAST_UPDATE_USER);
+    }
+
+
+    private long ensureFilterNoteType() {
+        Long existingId = dsl
+                .select(ENTITY_NAMED_NOTE_TYPE.ID)
+                .from(ENTITY_NAMED_NOTE_TYPE)
+                .where(ENTITY_NAMED_NOTE_TYPE.EXTERNAL_ID.eq(FILTER_NOTE_TYPE_EXT_ID))
+                .fetchOne(ENTITY_NAMED_NOTE_TYPE.ID);
+
+        if (existingId != null) {
+            return existingId;
+        }
+
+        EntityNamedNoteTypeRecord record = dsl.newRecord(ENTITY_NAMED_NOTE_TYPE);
+        record.setName("Report Grid Filter Preset");
+        record.setExternalId(FILTER_NOTE_TYPE_EXT_ID);
+        record.setDescription("Filters used to populate application groups");
+        record.setApplicableEntityKinds(EntityKind.APP_GROUP.name());
+        record.setIsReadonly(false);
+        record.setPosition(0);
+        record.store();
+
+        return record.getId();
+    }
+
+}
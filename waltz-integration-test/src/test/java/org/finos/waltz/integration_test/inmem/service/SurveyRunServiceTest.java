@@ -142,6 +142,134 @@ public class SurveyRunServiceTest extends BaseInMemoryIntegrationTest {
     }
 
 
+    @Test
+    public void individualSurveysAreIssuedPerRecipientAndReissuingReplacesThem() throws InsufficientPrivelegeException {
+        String stem = "srt_individualSurveysAreIssuedPerRecipientAndReissuingReplacesThem";
+
+        String admin = mkName(stem, "admin");
+        personHelper.createPerson(admin);
+
+        String u1 = mkName(stem, "user1");
+        Long u1Id = personHelper.createPerson(u1);
+        String u2 = mkName(stem, "user2");
+        Long u2Id = personHelper.createPerson(u2);
+
+        EntityReference appA = appHelper.createNewApp(mkName(stem, "appA"), ouIds.a);
+
+        long invKind = involvementHelper.mkInvolvementKind(mkName(stem, "invKind"));
+        involvementHelper.createInvolvement(u1Id, invKind, appA);
+        involvementHelper.createInvolvement(u2Id, invKind, appA);
+
+        Long grpId = groupHelper.createAppGroupWithAppRefs(mkName(stem, "group"), asSet(appA));
+
+        long tId = templateHelper.createTemplate(admin, mkName("test"));
+        templateHelper.updateStatus(admin, tId, ReleaseLifecycleStatus.ACTIVE);
+
+        SurveyRunCreateCommand cmd = ImmutableSurveyRunCreateCommand.builder()
+                .issuanceKind(SurveyIssuanceKind.INDIVIDUAL)
+                .name("test")
+                .description("run desc")
+                .selectionOptions(IdSelectionOptions.mkOpts(EntityReference.mkRef(EntityKind.APP_GROUP, grpId)))
+                .surveyTemplateId(tId)
+                .addInvolvementKindIds(invKind)
+                .dueDate(DateTimeUtilities.today().plusMonths(1))
+                .approvalDueDate(DateTimeUtilities.today().plusMonths(1))
+                .contactEmail("someone@somewhere.com")
+                .build();
+
+        IdCommandResponse runResp = runService.createSurveyRun(admin, cmd);
+        Long surveyRunId = runResp.id().orElseThrow(() -> new AssertionFailedError("Failed to create run"));
+
+        ImmutableInstancesAndRecipientsCreateCommand createCmd = ImmutableInstancesAndRecipientsCreateCommand.builder()
+                .surveyRunId(surveyRunId)
+                .dueDate(toLocalDate(nowUtcTimestamp()))
+                .approvalDueDate(toLocalDate(nowUtcTimestamp()))
+                .excludedRecipients(emptySet())
+                .build();
+
+        runService.createSurveyInstancesAndRecipients(createCmd);
+        runService.createSurveyInstancesAndRecipients(createCmd);
+
+        Set<SurveyInstance> instances = instanceService.findForSurveyRun(surveyRunId);
+        assertEquals(2, instances.size(), "should be one instance per recipient, reissuing should replace the originals");
+
+        Set<SurveyInstance> instancesForU1 = instanceService.findForRecipient(u1Id);
+        Set<SurveyInstance> instancesForU2 = instanceService.findForRecipient(u2Id);
+        assertEquals(1, instancesForU1.size(), "user 1 should have a single instance");
+        assertEquals(1, instancesForU2.size(), "user 2 should have a single instance");
+        assertNotEquals(instancesForU1, instancesForU2, "each recipient should have their own instance");
+
+        instances.forEach(instance -> {
+            Long instanceId = instance.id().orElseThrow(() -> new AssertionFailedError("Instance should have an id"));
+            assertEquals(1, instanceService.findRecipients(instanceId).size(), "each instance has a single recipient");
+            assertNotNull(instanceService.checkPersonIsOwnerOrAdmin(admin, instanceId), "admin is owner of each instance");
+        });
+    }
+
+
+    @Test
+    public void instancesAreOnlyOwnedByTheOwnersOfTheirOwnSubject() throws InsufficientPrivelegeException {
+        String stem = "srt_instancesAreOnlyOwnedByTheOwnersOfTheirOwnSubject";
+
+        String admin = mkName(stem, "admin");
+        personHelper.createPerson(admin);
+
+        String recipient = mkName(stem, "recipient");
+        Long recipientId = personHelper.createPerson(recipient);
+        String ownerA = mkName(stem, "ownerA");
+        Long ownerAId = personHelper.createPerson(ownerA);
+        String ownerB = mkName(stem, "ownerB");
+        Long ownerBId = personHelper.createPerson(ownerB);
+
+        EntityReference appA = appHelper.createNewApp(mkName(stem, "appA"), ouIds.a);
+        EntityReference appB = appHelper.createNewApp(mkName(stem, "appB"), ouIds.b);
+
+        long recipientKind = involvementHelper.mkInvolvementKind(mkName(stem, "recipientKind"));
+        long ownerKind = involvementHelper.mkInvolvementKind(mkName(stem, "ownerKind"));
+        involvementHelper.createInvolvement(recipientId, recipientKind, appA);
+        involvementHelper.createInvolvement(recipientId, recipientKind, appB);
+        involvementHelper.createInvolvement(ownerAId, ownerKind, appA);
+        involvementHelper.createInvolvement(ownerBId, ownerKind, appB);
+
+        Long grpId = groupHelper.createAppGroupWithAppRefs(mkName(stem, "group"), asSet(appA, appB));
+
+        long tId = templateHelper.createTemplate(admin, mkName("test"));
+        templateHelper.updateStatus(admin, tId, ReleaseLifecycleStatus.ACTIVE);
+
+        SurveyRunCreateCommand cmd = ImmutableSurveyRunCreateCommand.builder()
+                .issuanceKind(SurveyIssuanceKind.GROUP)
+                .name("test")
+                .description("run desc")
+                .selectionOptions(IdSelectionOptions.mkOpts(EntityReference.mkRef(EntityKind.APP_GROUP, grpId)))
+                .surveyTemplateId(tId)
+                .addInvolvementKindIds(recipientKind)
+                .addOwnerInvKindIds(ownerKind)
+                .dueDate(DateTimeUtilities.today().plusMonths(1))
+                .approvalDueDate(DateTimeUtilities.today().plusMonths(1))
+                .contactEmail("someone@somewhere.com")
+                .build();
+
+        IdCommandResponse runResp = runService.createSurveyRun(admin, cmd);
+        Long surveyRunId = runResp.id().orElseThrow(() -> new AssertionFailedError("Failed to create run"));
+
+        runService.createSurveyInstancesAndRecipients(ImmutableInstancesAndRecipientsCreateCommand.builder()
+                .surveyRunId(surveyRunId)
+                .dueDate(toLocalDate(nowUtcTimestamp()))
+                .approvalDueDate(toLocalDate(nowUtcTimestamp()))
+                .excludedRecipients(emptySet())
+                .build());
+
+        Set<SurveyInstance> instances = instanceService.findForSurveyRun(surveyRunId);
+        assertEquals(2, instances.size(), "should be 2 instances");
+
+        Long instanceAId = findInstanceForApp(instances, appA).id().orElseThrow(() -> new AssertionFailedError("Failed to find instance for app A"));
+        Long instanceBId = findInstanceForApp(instances, appB).id().orElseThrow(() -> new AssertionFailedError("Failed to find instance for app B"));
+
+        assertEquals(asSet(admin, ownerA), recipsToUserIds(instanceService.findOwners(instanceAId)), "app A instance is owned by the run owner and app A's owner");
+        assertEquals(asSet(admin, ownerB), recipsToUserIds(instanceService.findOwners(instanceBId)), "app B instance is owned by the run owner and app B's owner");
+    }
+
+
     private Set<String> recipsToUserIds(List<Person> aRecips) {
         return map(aRecips, Person::userId);
     }
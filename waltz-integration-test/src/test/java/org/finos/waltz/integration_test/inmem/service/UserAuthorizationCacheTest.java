@@ -0,0 +1,247 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.integration_test.inmem.service;
+
+import org.finos.waltz.data.EntityReferenceNameResolver;
+import org.finos.waltz.data.involvement.InvolvementDao;
+import org.finos.waltz.data.logical_flow.LogicalFlowDao;
+import org.finos.waltz.data.permission.PermissionGroupDao;
+import org.finos.waltz.data.person.PersonDao;
+import org.finos.waltz.data.physical_specification.PhysicalSpecificationDao;
+import org.finos.waltz.data.role.RoleDao;
+import org.finos.waltz.data.user.UserDao;
+import org.finos.waltz.data.user.UserRoleDao;
+import org.finos.waltz.integration_test.inmem.BaseInMemoryIntegrationTest;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.Operation;
+import org.finos.waltz.model.involvement.EntityInvolvementChangeCommand;
+import org.finos.waltz.model.involvement.ImmutableEntityInvolvementChangeCommand;
+import org.finos.waltz.model.user.ImmutableUpdateRolesCommand;
+import org.finos.waltz.model.user.SystemRole;
+import org.finos.waltz.schema.tables.records.InvolvementGroupRecord;
+import org.finos.waltz.schema.tables.records.PermissionGroupRecord;
+import org.finos.waltz.service.changelog.ChangeLogService;
+import org.finos.waltz.service.involvement.InvolvementService;
+import org.finos.waltz.service.involvement_kind.InvolvementKindService;
+import org.finos.waltz.service.permission.PermissionGroupService;
+import org.finos.waltz.service.permission.UserAuthorizationCache;
+import org.finos.waltz.service.permission.permission_checker.FlowPermissionChecker;
+import org.finos.waltz.service.person.PersonService;
+import org.finos.waltz.service.user.UserRoleService;
+import org.finos.waltz.test_common.helpers.AppHelper;
+import org.finos.waltz.test_common.helpers.InvolvementHelper;
+import org.finos.waltz.test_common.helpers.PermissionGroupHelper;
+import org.finos.waltz.test_common.helpers.PersonHelper;
+import org.finos.waltz.test_common.helpers.UserHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import static java.util.Collections.emptySet;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.finos.waltz.test_common.helpers.NameHelper.mkName;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+public class UserAuthorizationCacheTest extends BaseInMemoryIntegrationTest {
+
+    private static final String STEM = "uac";
+
+    @Autowired
+    private UserRoleDao userRoleDao;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private RoleDao roleDao;
+
+    @Autowired
+    private PersonDao personDao;
+
+    @Autowired
+    private InvolvementDao involvementDao;
+
+    @Autowired
+    private PermissionGroupDao permissionGroupDao;
+
+    @Autowired
+    private LogicalFlowDao logicalFlowDao;
+
+    @Autowired
+    private PhysicalSpecificationDao physicalSpecificationDao;
+
+    @Autowired
+    private EntityReferenceNameResolver entityReferenceNameResolver;
+
+    @Autowired
+    private ChangeLogService changeLogService;
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private InvolvementKindService involvementKindService;
+
+    @Autowired
+    private AppHelper appHelper;
+
+    @Autowired
+    private PersonHelper personHelper;
+
+    @Autowired
+    private UserHelper userHelper;
+
+    @Autowired
+    private InvolvementHelper involvementHelper;
+
+    @Autowired
+    private PermissionGroupHelper permissionHelper;
+
+    private UserAuthorizationCache cache;
+    private UserRoleService userRoleService;
+    private InvolvementService involvementService;
+    private FlowPermissionChecker flowPermissionChecker;
+
+
+    @BeforeEach
+    public void setupCachedServices() {
+        // the application context uses the default (disabled) cache, so wire up services sharing an enabled one
+        cache = new UserAuthorizationCache(userRoleDao, personDao, involvementDao, permissionGroupDao, true, 1000, 5);
+
+        userRoleService = new UserRoleService(userRoleDao, userDao, roleDao, changeLogService, personService, cache);
+
+        involvementService = new InvolvementService(
+                changeLogService,
+                involvementDao,
+                entityReferenceNameResolver,
+                involvementKindService,
+                personDao,
+                userRoleService,
+                cache);
+
+        flowPermissionChecker = new FlowPermissionChecker(
+                logicalFlowDao,
+                physicalSpecificationDao,
+                involvementService,
+                new PermissionGroupService(cache, permissionGroupDao, involvementService),
+                userRoleService);
+    }
+
+
+    @Test
+    public void updatingRolesInvalidatesCachedRoles() {
+        String user = mkName(STEM, "roleUser");
+        userHelper.createUser(user);
+        personHelper.createPerson(user);
+        EntityReference app = appHelper.createNewApp(mkName(STEM, "roleApp"), ouIds.a);
+
+        assertEquals(emptySet(), userRoleService.getUserRoles(user));
+
+        // bypassing the service leaves the cached roles in place
+        userRoleDao.updateRoles(user, asSet(SystemRole.ADMIN.name()));
+        assertEquals(emptySet(), userRoleService.getUserRoles(user), "roles should be served from the cache");
+
+        userRoleService.updateRoles(
+                LAST_UPDATE_USER,
+                user,
+                ImmutableUpdateRolesCommand.builder()
+                        .addRoles(SystemRole.LOGICAL_DATA_FLOW_EDITOR.name())
+                        .build());
+
+        assertEquals(asSet(SystemRole.LOGICAL_DATA_FLOW_EDITOR.name()), userRoleService.getUserRoles(user));
+        assertTrue(
+                flowPermissionChecker
+                        .findFlowPermissionsForParentEntity(app, user)
+                        .containsAll(asSet(Operation.ADD, Operation.UPDATE, Operation.REMOVE)),
+                "editors may edit flows of any app once their roles are updated");
+    }
+
+
+    @Test
+    public void involvementChangesInvalidateCachedInvolvements() {
+        String user = mkName(STEM, "invUser");
+        Long personId = personHelper.createPerson(user);
+        EntityReference app = appHelper.createNewApp(mkName(STEM, "invApp"), ouIds.a);
+        long privKind = setupAddPermissionRequiring(app);
+
+        assertEquals(emptySet(), flowPermissionChecker.findFlowPermissionsForParentEntity(app, user));
+
+        involvementService.addEntityInvolvement(LAST_UPDATE_USER, app, mkInvolvementCommand(personId, privKind, Operation.ADD));
+        assertEquals(asSet(Operation.ADD), flowPermissionChecker.findFlowPermissionsForParentEntity(app, user));
+
+        involvementService.removeEntityInvolvement(LAST_UPDATE_USER, app, mkInvolvementCommand(personId, privKind, Operation.REMOVE));
+        assertEquals(emptySet(), flowPermissionChecker.findFlowPermissionsForParentEntity(app, user));
+    }
+
+
+    @Test
+    public void involvementChangesOnlyInvalidateTheChangedEntity() {
+        String user = mkName(STEM, "scopedUser");
+        Long personId = personHelper.createPerson(user);
+        EntityReference appA = appHelper.createNewApp(mkName(STEM, "scopedA"), ouIds.a);
+        EntityReference appB = appHelper.createNewApp(mkName(STEM, "scopedB"), ouIds.b);
+        long privKind = setupAddPermissionRequiring(appA, appB);
+
+        flowPermissionChecker.findFlowPermissionsForParentEntities(asSet(appA, appB), user);
+        long missesBefore = cache.getMissCount();
+
+        involvementService.addEntityInvolvement(LAST_UPDATE_USER, appA, mkInvolvementCommand(personId, privKind, Operation.ADD));
+
+        assertEquals(asSet(Operation.ADD), flowPermissionChecker.findFlowPermissionsForParentEntity(appA, user));
+        assertEquals(emptySet(), flowPermissionChecker.findFlowPermissionsForParentEntity(appB, user));
+        assertEquals(missesBefore + 1, cache.getMissCount(), "only the involvements for app A should be reloaded");
+    }
+
+
+    // -- HELPERS ---
+
+    private long setupAddPermissionRequiring(EntityReference... apps) {
+        long privKind = involvementHelper.mkInvolvementKind(mkName(STEM, "privileged"));
+        InvolvementGroupRecord ig = permissionHelper.setupInvolvementGroup(privKind, STEM);
+        PermissionGroupRecord pg = permissionHelper.createGroup(STEM);
+
+        for (EntityReference app : apps) {
+            permissionHelper.setupPermissionGroupEntry(app, pg.getId());
+        }
+
+        permissionHelper.setupPermissionGroupInvolvement(
+                ig.getId(),
+                pg.getId(),
+                EntityKind.LOGICAL_DATA_FLOW,
+                EntityKind.APPLICATION,
+                Operation.ADD,
+                null);
+
+        return privKind;
+    }
+
+
+    private static EntityInvolvementChangeCommand mkInvolvementCommand(Long personId, long kindId, Operation op) {
+        return ImmutableEntityInvolvementChangeCommand.builder()
+                .involvementKindId((int) kindId)
+                .personEntityRef(mkRef(EntityKind.PERSON, personId))
+                .operation(op)
+                .build();
+    }
+
+}
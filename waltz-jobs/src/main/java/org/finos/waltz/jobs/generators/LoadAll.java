@@ -20,6 +20,7 @@ package org.finos.waltz.jobs.generators;
 
 import org.finos.waltz.common.LoggingUtilities;
 import org.finos.waltz.service.DIConfiguration;
+import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 
 import java.util.Arrays;
@@ -76,6 +77,15 @@ public class LoadAll {
 
         LoggingUtilities.configureLogging();
 
+        loadAll(ctx);
+    }
+
+
+    /**
+     * Runs every sample data generator against the given context, removing
+     * any previously generated data first.
+     */
+    public static void loadAll(ApplicationContext ctx) {
         Arrays.stream(loaders)
                 .filter(Objects::nonNull)
                 .forEach(loader -> {
@@ -30,6 +30,7 @@ import org.finos.waltz.schema.tables.records.LogicalFlowRecord;
 import org.finos.waltz.service.DIConfiguration;
 import org.jooq.DSLContext;
 import org.jooq.lambda.tuple.Tuple2;
+import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 
 import java.util.List;
@@ -60,20 +61,27 @@ public class LogicalFlowStressGenerator {
     private static final int HOW_MANY_FLOWS = 100;
     private static final int MAX_DATA_TYPES_PER_FLOW = 4;
 
-    private final AnnotationConfigApplicationContext ctx = new AnnotationConfigApplicationContext(DIConfiguration.class);
-    private final DSLContext dsl = ctx.getBean(DSLContext.class);
-    private final DataTypeDao dtDao = ctx.getBean(DataTypeDao.class);
-    private final LogicalFlowDao lfDao = ctx.getBean(LogicalFlowDao.class);
+    private final DSLContext dsl;
+    private final DataTypeDao dtDao;
+    private final LogicalFlowDao lfDao;
+    private final long appId;
 
 
-    private final long appId = 655L;
+    public LogicalFlowStressGenerator(ApplicationContext ctx, long appId) {
+        this.dsl = ctx.getBean(DSLContext.class);
+        this.dtDao = ctx.getBean(DataTypeDao.class);
+        this.lfDao = ctx.getBean(LogicalFlowDao.class);
+        this.appId = appId;
+    }
+
 
     public static void main(String[] args) {
-        new LogicalFlowStressGenerator().go();
+        AnnotationConfigApplicationContext ctx = new AnnotationConfigApplicationContext(DIConfiguration.class);
+        new LogicalFlowStressGenerator(ctx, 655L).go();
     }
 
 
-    private void go() {
+    public void go() {
         cleanup();
         generateFlows();
         generateDataTypeMappings();
@@ -21,9 +21,11 @@ package org.finos.waltz.jobs.generators.stress;
 import org.finos.waltz.common.DateTimeUtilities;
 import org.finos.waltz.common.RandomUtilities;
 import org.finos.waltz.jobs.WaltzUtilities;
+import org.finos.waltz.schema.tables.Measurable;
 import org.finos.waltz.schema.tables.records.MeasurableRecord;
 import org.finos.waltz.service.DIConfiguration;
 import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
 import org.jooq.lambda.tuple.Tuple2;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,6 +49,17 @@ public class MeasurableStressGenerator {
 
         DSLContext dsl = ctx.getBean(DSLContext.class);
 
+        generate(dsl);
+    }
+
+
+    /**
+     * (Re)creates the STRESS measurable category with a deep, randomly sized tree of measurables.
+     *
+     * @param dsl  database to populate
+     * @return  the id of the STRESS category
+     */
+    public static long generate(DSLContext dsl) {
         LOG.info("Ensuring category exists");
         Long categoryId = WaltzUtilities.getOrCreateMeasurableCategory(dsl, "STRESS", "Stress Test");
 
@@ -77,8 +90,26 @@ public class MeasurableStressGenerator {
         dsl.batchInsert(records)
                 .execute();
 
+        LOG.info("Linking {} records to their parents", records.size());
+        updateParentIdsUsingExtIds(dsl, categoryId);
+
         LOG.info("Done");
+        return categoryId;
+    }
+
 
+    private static int updateParentIdsUsingExtIds(DSLContext dsl, long categoryId) {
+        Measurable c = MEASURABLE.as("c");
+        Measurable p = MEASURABLE.as("p");
+        return dsl
+                .update(c)
+                .set(c.PARENT_ID, DSL
+                        .select(p.ID)
+                        .from(p)
+                        .where(p.EXTERNAL_ID.eq(c.EXTERNAL_PARENT_ID))
+                        .and(p.MEASURABLE_CATEGORY_ID.eq(categoryId)))
+                .where(c.MEASURABLE_CATEGORY_ID.eq(categoryId))
+                .execute();
     }
 
 
@@ -0,0 +1,63 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.model.endpoint_metrics;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.immutables.value.Value;
+
+import java.util.Map;
+
+/**
+ * Request statistics for a single route (http method and path template) since the
+ * server started, or since the statistics were last reset.
+ * <p>
+ * Percentiles are estimated from the latency histogram, so are reported as the upper
+ * bound of the bucket they fall into.  Response sizes are in characters and only
+ * include responses whose size is known (i.e. not streamed).
+ */
+@Value.Immutable
+@JsonSerialize(as = ImmutableEndpointStatistics.class)
+public abstract class EndpointStatistics {
+
+    public abstract String method();
+    public abstract String path();
+
+    public abstract long requestCount();
+    public abstract long errorCount();
+    public abstract long inFlightCount();
+
+    public abstract double meanMillis();
+    public abstract long maxMillis();
+    public abstract long p50Millis();
+    public abstract long p95Millis();
+    public abstract long p99Millis();
+    public abstract long totalMillis();
+
+    /**
+     * Request counts keyed by the bucket upper bound, e.g. <code>&lt;=250ms</code>.
+     */
+    public abstract Map<String, Long> latencyHistogram();
+
+    public abstract double meanResponseSize();
+    public abstract long maxResponseSize();
+
+    public abstract double meanDatabaseMillis();
+    public abstract double meanQueryCount();
+    public abstract long maxQueryCount();
+}
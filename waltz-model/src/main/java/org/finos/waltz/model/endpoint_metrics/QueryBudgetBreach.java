@@ -0,0 +1,40 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.model.endpoint_metrics;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.finos.waltz.model.Nullable;
+import org.immutables.value.Value;
+
+/**
+ * Describes a unit of work (typically a web request) which exceeded the
+ * per request query budget.
+ */
+@Value.Immutable
+@JsonSerialize(as = ImmutableQueryBudgetBreach.class)
+public abstract class QueryBudgetBreach {
+
+    public abstract String description();
+    public abstract long queryCount();
+    public abstract long databaseMillis();
+
+    @Nullable
+    public abstract String mostRepeatedSql();
+    public abstract long mostRepeatedCount();
+}
@@ -0,0 +1,43 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+
+package org.finos.waltz.model.entity_search;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.finos.waltz.model.EntityReference;
+import org.immutables.value.Value;
+
+import java.util.Set;
+
+/**
+ * An entity as held by the in-memory search index.  The search keys are
+ * the additional values (e.g. asset codes, aliases, external identifiers)
+ * which should match the entity in addition to its name.
+ */
+@Value.Immutable
+@JsonSerialize(as = ImmutableSearchableEntity.class)
+@JsonDeserialize(as = ImmutableSearchableEntity.class)
+public abstract class SearchableEntity {
+
+    public abstract EntityReference entityReference();
+
+    public abstract Set<String> searchKeys();
+
+}
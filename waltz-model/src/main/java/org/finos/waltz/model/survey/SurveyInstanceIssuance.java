@@ -0,0 +1,41 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.model.survey;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.immutables.value.Value;
+
+import java.util.Set;
+
+/**
+ * A survey instance which is yet to be created along with the people it should be
+ * issued to and owned by.  Used when issuing all the instances for a survey run in bulk.
+ */
+@Value.Immutable
+@JsonSerialize(as = ImmutableSurveyInstanceIssuance.class)
+@JsonDeserialize(as = ImmutableSurveyInstanceIssuance.class)
+public abstract class SurveyInstanceIssuance {
+
+    public abstract SurveyInstanceCreateCommand instance();
+
+    public abstract Set<Long> recipientPersonIds();
+
+    public abstract Set<Long> ownerPersonIds();
+}
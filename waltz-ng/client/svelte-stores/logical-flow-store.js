@@ -48,6 +48,16 @@ export function mkLogicalFlowStore() {
     }
 
 
+    const findPermissionsForFlows = (flowIds, force = false) => {
+        return remote.fetchViewData(
+            "POST",
+            "api/logical-flow/ids/permissions",
+            flowIds,
+            {},
+            {force});
+    }
+
+
     const getFlowGraphSummary = (ref, dtId, force = false) => {
         checkIsEntityRef(ref);
         return remote
@@ -75,7 +85,8 @@ export function mkLogicalFlowStore() {
         getFlowGraphSummary,
         getById,
         addFlow,
-        findEditableFlowIdsForParentReference
+        findEditableFlowIdsForParentReference,
+        findPermissionsForFlows
     };
 }
 
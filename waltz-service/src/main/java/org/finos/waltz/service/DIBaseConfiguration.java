@@ -74,6 +74,12 @@ public class DIBaseConfiguration {
     @Value("${database.performance.query.slow.threshold:10}")
     private int databasePerformanceQuerySlowThreshold;
 
+    @Value("${database.performance.query.budget.max_queries:250}")
+    private int databasePerformanceQueryBudgetMaxQueries;
+
+    @Value("${database.performance.query.budget.max_repeats:50}")
+    private int databasePerformanceQueryBudgetMaxRepeats;
+
     @Bean
     public DataSource dataSource() {
 
@@ -94,9 +100,18 @@ public class DIBaseConfiguration {
     }
 
 
+    @Bean
+    public QueryStatsListener queryStatsListener() {
+        return new QueryStatsListener(
+                databasePerformanceQueryBudgetMaxQueries,
+                databasePerformanceQueryBudgetMaxRepeats);
+    }
+
+
     @Bean
     @Autowired
-    public DSLContext dsl(DataSource dataSource) {
+    public DSLContext dsl(DataSource dataSource,
+                          QueryStatsListener queryStatsListener) {
         try {
             SQLDialect.valueOf(dialect);
         } catch (IllegalArgumentException iae) {
@@ -121,6 +136,7 @@ public class DIBaseConfiguration {
                 .set(
                     //new SlowDatabaseConnectionSimulator(2000),
                     new SlowQueryListener(databasePerformanceQuerySlowThreshold),
+                    queryStatsListener,
                     new SpringExceptionTranslationExecuteListener(new SQLStateSQLExceptionTranslator()));
 
         return DSL.using(configuration);
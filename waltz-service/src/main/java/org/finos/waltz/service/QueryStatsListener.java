@@ -0,0 +1,226 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service;
+
+
+import org.finos.waltz.data.QueryStats;
+import org.finos.waltz.model.endpoint_metrics.ImmutableQueryBudgetBreach;
+import org.finos.waltz.model.endpoint_metrics.QueryBudgetBreach;
+import org.jooq.ExecuteContext;
+import org.jooq.impl.DefaultExecuteListener;
+import org.jooq.lambda.tuple.Tuple2;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.String.format;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Records each query (including fetching results) against the {@link QueryStats} bound
+ * to the executing thread, if there is one.
+ * <p>
+ * Units of work are checked against a query budget as they run.  If a unit of work
+ * issues more than the maximum number of queries, or repeats the same statement more
+ * than the maximum number of times (typically an N+1 access pattern), a warning is logged
+ * and it is retained as one of the worst offenders (the worst per description) which can
+ * be reviewed via JMX or the metrics endpoint.
+ */
+@ManagedResource(description = "Per request database query accounting")
+public class QueryStatsListener extends DefaultExecuteListener {
+
+    private static final String PERFORMANCE_APPENDER = "WALTZ.PERFORMANCE";
+    private static final Logger LOG = LoggerFactory.getLogger(PERFORMANCE_APPENDER);
+
+    private static final String STARTED_AT_KEY = QueryStatsListener.class.getName() + ".startedAt";
+    private static final int MAX_OFFENDERS = 100;
+
+    private final int maxQueries;
+    private final int maxRepeats;
+    private final AtomicLong breachCount = new AtomicLong();
+    private final Map<String, QueryStats> worstOffendersByDescription = new ConcurrentHashMap<>();
+
+
+    /**
+     * @param maxQueries  number of queries a unit of work may issue before being reported
+     * @param maxRepeats  number of times a unit of work may issue the same statement before being reported
+     */
+    public QueryStatsListener(int maxQueries, int maxRepeats) {
+        LOG.info("Initialising with query budget of {} queries, {} repeats", maxQueries, maxRepeats);
+        this.maxQueries = maxQueries;
+        this.maxRepeats = maxRepeats;
+    }
+
+
+    @Override
+    public void start(ExecuteContext ctx) {
+        super.start(ctx);
+        if (QueryStats.current().isPresent()) {
+            ctx.data(STARTED_AT_KEY, System.nanoTime());
+        }
+    }
+
+
+    @Override
+    public void end(ExecuteContext ctx) {
+        super.end(ctx);
+        Object startedAt = ctx.data(STARTED_AT_KEY);
+        if (startedAt == null) {
+            return;
+        }
+
+        long elapsed = System.nanoTime() - (Long) startedAt;
+        QueryStats.current().ifPresent(stats -> {
+            String sql = determineSql(ctx);
+            long repeats = stats.record(sql, elapsed);
+
+            boolean overQueryBudget = stats.getQueryCount() > maxQueries;
+            boolean overRepeatBudget = repeats > maxRepeats;
+
+            if ((overQueryBudget || overRepeatBudget) && stats.flag()) {
+                reportBreach(stats, overRepeatBudget ? sql : null);
+            }
+        });
+    }
+
+
+    @ManagedAttribute
+    public int getMaxQueries() {
+        return maxQueries;
+    }
+
+
+    @ManagedAttribute
+    public int getMaxRepeats() {
+        return maxRepeats;
+    }
+
+
+    @ManagedAttribute(description = "Number of units of work which have exceeded the query budget")
+    public long getBreachCount() {
+        return breachCount.get();
+    }
+
+
+    @ManagedAttribute(description = "Worst offending units of work, by query count")
+    public String[] getWorstOffenders() {
+        return findWorstOffenders()
+                .stream()
+                .map(b -> format(
+                        "%s: queries=%d, db=%dms, mostRepeated=%dx %s",
+                        b.description(),
+                        b.queryCount(),
+                        b.databaseMillis(),
+                        b.mostRepeatedCount(),
+                        b.mostRepeatedSql()))
+                .toArray(String[]::new);
+    }
+
+
+    @ManagedOperation(description = "Clear the breach count and worst offenders")
+    public void reset() {
+        breachCount.set(0);
+        worstOffendersByDescription.clear();
+    }
+
+
+    /**
+     * Note: offenders which are still running will continue to accumulate queries.
+     *
+     * @return worst offending units of work, highest query count first
+     */
+    public List<QueryBudgetBreach> findWorstOffenders() {
+        return worstOffendersByDescription
+                .values()
+                .stream()
+                .map(QueryStatsListener::mkBreach)
+                .sorted(Comparator.comparingLong(QueryBudgetBreach::queryCount).reversed())
+                .collect(toList());
+    }
+
+
+    // -- HELPERS ---
+
+    private void reportBreach(QueryStats stats, String repeatedSql) {
+        breachCount.incrementAndGet();
+
+        if (repeatedSql != null) {
+            LOG.warn(
+                    "{} has executed the same statement more than {} times, possible N+1 query: {}",
+                    stats.getDescription(),
+                    maxRepeats,
+                    repeatedSql);
+        } else {
+            LOG.warn(
+                    "{} has executed more than {} queries",
+                    stats.getDescription(),
+                    maxQueries);
+        }
+
+        String key = Optional
+                .ofNullable(stats.getDescription())
+                .orElse("unknown");
+
+        if (worstOffendersByDescription.size() < MAX_OFFENDERS || worstOffendersByDescription.containsKey(key)) {
+            worstOffendersByDescription.merge(
+                    key,
+                    stats,
+                    (existing, candidate) -> existing.getQueryCount() >= candidate.getQueryCount()
+                            ? existing
+                            : candidate);
+        }
+    }
+
+
+    private static QueryBudgetBreach mkBreach(QueryStats stats) {
+        Optional<Tuple2<String, Long>> mostRepeated = stats
+                .findMostRepeated(1)
+                .stream()
+                .findFirst();
+
+        return ImmutableQueryBudgetBreach
+                .builder()
+                .description(Optional.ofNullable(stats.getDescription()).orElse("unknown"))
+                .queryCount(stats.getQueryCount())
+                .databaseMillis(stats.getTotalMillis())
+                .mostRepeatedSql(mostRepeated.map(t -> t.v1).orElse(null))
+                .mostRepeatedCount(mostRepeated.map(t -> t.v2).orElse(0L))
+                .build();
+    }
+
+
+    private static String determineSql(ExecuteContext ctx) {
+        if (ctx.sql() != null) {
+            return ctx.sql();
+        }
+        String[] batchSql = ctx.batchSQL();
+        return batchSql.length > 0
+                ? batchSql[0]
+                : null;
+    }
+}
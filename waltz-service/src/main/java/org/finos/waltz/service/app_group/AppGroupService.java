@@ -458,6 +458,23 @@ public class AppGroupService {
     }
 
 
+    /*
+    Updates entries so each group contains exactly the given list of appGroupEntries,
+    only removing and adding those entries which have changed.  Returns the number of changes made.
+     */
+    public int updateGroupEntries(Set<Tuple3<EntityKind, Long, Set<AppGroupEntry>>> entriesForGroups) {
+
+        Map<EntityKind, Set<Tuple2<Long, Set<AppGroupEntry>>>> entriesByKind = entriesForGroups
+                .stream()
+                .collect(Collectors.groupingBy(
+                        Tuple3::v1,
+                        Collectors.mapping(Tuple3::skip1, Collectors.toSet())));
+
+        return appGroupEntryDao.updateGroupApplicationEntries(entriesByKind.getOrDefault(EntityKind.APPLICATION, Collections.emptySet()))
+                + appGroupEntryDao.updateGroupChangeInitiativeEntries(entriesByKind.getOrDefault(EntityKind.CHANGE_INITIATIVE, Collections.emptySet()));
+    }
+
+
     public void verifyUserCanUpdateGroup(String userId, long groupId) throws InsufficientPrivelegeException {
         if (!appGroupMemberDao.canUpdate(groupId, userId)) {
             throw new InsufficientPrivelegeException(userId + " cannot update group: " + groupId);
@@ -0,0 +1,370 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+
+package org.finos.waltz.service.application;
+
+import org.finos.waltz.common.BoundedCache;
+import org.finos.waltz.data.IdSelectorFactory;
+import org.finos.waltz.data.application.ApplicationIdSelectorFactory;
+import org.finos.waltz.data.changelog.ChangeLogDao;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.IdSelectionOptions;
+import org.finos.waltz.model.ImmutableIdSelectionOptions;
+import org.finos.waltz.model.changelog.ChangeLog;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record1;
+import org.jooq.Select;
+import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toCollection;
+import static java.util.stream.Collectors.toList;
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.schema.Tables.APPLICATION;
+
+/**
+ * Resolves application id selectors to the set of application ids they represent.
+ * <p>
+ * Selectors produced by the {@link ApplicationIdSelectorFactory} are subqueries which are
+ * re-evaluated by the database every time they are embedded in another query.  Pages such
+ * as the org unit view issue many queries using the same selector, so this resolver runs
+ * the selector once, caches the (sorted) ids keyed by the selection options and hands back a
+ * selector which inlines those ids.  Very large id sets fall back to the original subquery
+ * as long inlined lists perform poorly.
+ * <p>
+ * Cached ids expire after a short ttl.  When a change log entry is written only the selectors
+ * which may be affected by it are removed, based on the kind of selector and the kinds (and for
+ * some selectors the id) of entity the change was logged against.
+ */
+@Service
+@ManagedResource(description = "Cache of resolved application id selectors")
+public class ApplicationIdSelectorResolver implements IdSelectorFactory {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ApplicationIdSelectorResolver.class);
+
+    /**
+     * For each kind of selector, the kinds of change (parent or child kind of a change log entry)
+     * which may alter the applications it selects.
+     */
+    private static final Map<EntityKind, Set<EntityKind>> DEPENDENCIES_BY_SELECTOR_KIND = mkDependenciesBySelectorKind();
+
+    private static final Set<EntityKind> ALL_DEPENDENCIES = DEPENDENCIES_BY_SELECTOR_KIND
+            .values()
+            .stream()
+            .flatMap(Collection::stream)
+            .collect(toCollection(() -> EnumSet.noneOf(EntityKind.class)));
+
+    /**
+     * Selector kinds whose results are derived from attributes of the applications themselves
+     * (e.g. org unit), so any change to an application may add or remove it from the selection.
+     */
+    private static final Set<EntityKind> APPLICATION_ATTRIBUTE_SELECTOR_KINDS = EnumSet.of(
+            EntityKind.APP_GROUP,
+            EntityKind.ORG_UNIT);
+
+    /**
+     * Non-hierarchical selector kinds where a change logged against one entity (e.g. app group 12)
+     * only affects the selector for that entity and not other selectors of the same kind.
+     */
+    private static final Set<EntityKind> ID_SCOPED_SELECTOR_KINDS = EnumSet.of(
+            EntityKind.APP_GROUP,
+            EntityKind.DATABASE,
+            EntityKind.FLOW_DIAGRAM,
+            EntityKind.LEGAL_ENTITY,
+            EntityKind.LICENCE,
+            EntityKind.PROCESS_DIAGRAM,
+            EntityKind.SCENARIO,
+            EntityKind.SERVER,
+            EntityKind.TAG);
+
+    private final ApplicationIdSelectorFactory applicationIdSelectorFactory = new ApplicationIdSelectorFactory();
+    private final DSLContext dsl;
+    private final BoundedCache<IdSelectionOptions, long[]> cache;
+    private final int maxInlinedIds;
+
+
+    @Autowired
+    public ApplicationIdSelectorResolver(DSLContext dsl,
+                                         ChangeLogDao changeLogDao,
+                                         @Value("${application.selector.cache.max_ids:5000000}") long maxCachedIds,
+                                         @Value("${application.selector.cache.ttl_minutes:5}") long ttlMinutes,
+                                         @Value("${application.selector.max_inlined_ids:5000}") int maxInlinedIds) {
+        checkNotNull(dsl, "dsl cannot be null");
+        checkNotNull(changeLogDao, "changeLogDao cannot be null");
+
+        this.dsl = dsl;
+        this.maxInlinedIds = maxInlinedIds;
+        this.cache = new BoundedCache<>(
+                maxCachedIds,
+                TimeUnit.MINUTES.toMillis(ttlMinutes),
+                ids -> Math.max(ids.length, 1));
+
+        changeLogDao.addWriteListener(this::onChangeLogWritten);
+    }
+
+
+    /**
+     * Returns a selector for the applications described by the given options.  Where possible
+     * this will be a selector over the (cached) resolved ids rather than the original subquery.
+     *
+     * @param options  describes the applications to select
+     * @return selector returning application ids
+     */
+    @Override
+    public Select<Record1<Long>> apply(IdSelectionOptions options) {
+        checkNotNull(options, "options cannot be null");
+
+        Select<Record1<Long>> selector = applicationIdSelectorFactory.apply(options);
+
+        if (! isWorthResolving(options)) {
+            return selector;
+        }
+
+        long[] ids = resolveIds(options, selector);
+
+        return ids.length > maxInlinedIds
+                ? selector
+                : mkInlinedSelector(ids);
+    }
+
+
+    /**
+     * @param options  describes the applications to select
+     * @return sorted array of the selected application ids, a copy of the cached array which callers may modify
+     */
+    public long[] resolveIds(IdSelectionOptions options) {
+        checkNotNull(options, "options cannot be null");
+        return resolveIds(options, applicationIdSelectorFactory.apply(options)).clone();
+    }
+
+
+    @ManagedOperation(description = "Remove all resolved selectors from the cache")
+    public void clear() {
+        LOG.info("Clearing application id selector cache");
+        cache.clear();
+    }
+
+
+    @ManagedAttribute
+    public int getSize() {
+        return cache.size();
+    }
+
+
+    @ManagedAttribute
+    public long getIdCount() {
+        return cache.totalWeight();
+    }
+
+
+    @ManagedAttribute
+    public long getHitCount() {
+        return cache.hitCount();
+    }
+
+
+    @ManagedAttribute
+    public long getMissCount() {
+        return cache.missCount();
+    }
+
+
+    @ManagedAttribute
+    public long getInvalidationCount() {
+        return cache.invalidationCount();
+    }
+
+
+    // -- HELPERS ---
+
+    private long[] resolveIds(IdSelectionOptions options,
+                              Select<Record1<Long>> selector) {
+        return cache.getOrCompute(
+                mkCacheKey(options),
+                k -> dsl
+                        .fetch(selector)
+                        .stream()
+                        .map(Record1::value1)
+                        .filter(Objects::nonNull)
+                        .mapToLong(Long::longValue)
+                        .distinct()
+                        .sorted()
+                        .toArray());
+    }
+
+
+    /**
+     * Selecting a single application is already a trivial query, there is nothing to gain by caching it
+     */
+    private static boolean isWorthResolving(IdSelectionOptions options) {
+        return options.entityReference().kind() != EntityKind.APPLICATION;
+    }
+
+
+    /**
+     * Names and descriptions of the selection entity do not affect the result, so they are
+     * stripped to maximise cache hits
+     */
+    private static IdSelectionOptions mkCacheKey(IdSelectionOptions options) {
+        EntityReference ref = options.entityReference();
+        return ImmutableIdSelectionOptions
+                .copyOf(options)
+                .withEntityReference(EntityReference.mkRef(ref.kind(), ref.id()));
+    }
+
+
+    private static Select<Record1<Long>> mkInlinedSelector(long[] ids) {
+        List<Field<Long>> inlinedIds = Arrays
+                .stream(ids)
+                .<Field<Long>>mapToObj(id -> DSL.inline(id))
+                .collect(toList());
+
+        return DSL
+                .select(APPLICATION.ID)
+                .from(APPLICATION)
+                .where(inlinedIds.isEmpty()
+                        ? DSL.falseCondition()
+                        : APPLICATION.ID.in(inlinedIds));
+    }
+
+
+    private void onChangeLogWritten(Collection<ChangeLog> changeLogs) {
+        List<ChangeLog> relevantChanges = changeLogs
+                .stream()
+                .filter(ApplicationIdSelectorResolver::mayAffectSelectors)
+                .collect(toList());
+
+        if (relevantChanges.isEmpty()) {
+            return;
+        }
+
+        int removed = cache.invalidateIf((options, ids) -> relevantChanges
+                .stream()
+                .anyMatch(cl -> isAffectedBy(options.entityReference(), ids, cl)));
+
+        LOG.debug("Removed {} resolved selectors following {} change log entries", removed, relevantChanges.size());
+    }
+
+
+    private static boolean mayAffectSelectors(ChangeLog changeLog) {
+        EntityKind parentKind = changeLog.parentReference().kind();
+        Optional<EntityKind> childKind = changeLog.childKind();
+
+        boolean isChangeToApp = parentKind == EntityKind.APPLICATION
+                && childKind.map(k -> k == EntityKind.APPLICATION).orElse(true);
+
+        return isChangeToApp
+                || ALL_DEPENDENCIES.contains(parentKind)
+                || childKind.map(ALL_DEPENDENCIES::contains).orElse(false);
+    }
+
+
+    /**
+     * Determines if a change may alter the results of a cached selector.
+     * <p>
+     * Changes logged against an application with no (or an application) child kind are treated as
+     * changes to the application itself, these only affect selectors which already include the app
+     * or which select apps by their attributes.  Note: an application being reinstated (e.g. from
+     * <code>REMOVED</code>) may therefore take up to the cache ttl to reappear in other selectors.
+     * Otherwise a change affects selectors whose kind depends upon the change's parent or child kind,
+     * restricted to the changed entity for id scoped selector kinds.
+     *
+     * @param selectorRef  the entity the cached selector was built for
+     * @param ids  sorted application ids resolved for the selector
+     * @param changeLog  the change
+     * @return true if the cached ids may now be incorrect
+     */
+    private static boolean isAffectedBy(EntityReference selectorRef,
+                                        long[] ids,
+                                        ChangeLog changeLog) {
+        EntityReference parentRef = changeLog.parentReference();
+        Optional<EntityKind> childKind = changeLog.childKind();
+        Set<EntityKind> dependencies = DEPENDENCIES_BY_SELECTOR_KIND.getOrDefault(selectorRef.kind(), Collections.emptySet());
+
+        if (parentRef.kind() == EntityKind.APPLICATION) {
+            boolean isChangeToApp = childKind
+                    .map(k -> k == EntityKind.APPLICATION)
+                    .orElse(true);
+
+            return isChangeToApp
+                    ? Arrays.binarySearch(ids, parentRef.id()) >= 0 || APPLICATION_ATTRIBUTE_SELECTOR_KINDS.contains(selectorRef.kind())
+                    : dependencies.contains(childKind.get());
+        }
+
+        boolean dependsOnChange = dependencies.contains(parentRef.kind())
+                || childKind.map(dependencies::contains).orElse(false);
+
+        if (! dependsOnChange) {
+            return false;
+        }
+
+        boolean isScopedToChangedEntity = parentRef.kind() == selectorRef.kind()
+                && ID_SCOPED_SELECTOR_KINDS.contains(selectorRef.kind());
+
+        return ! isScopedToChangedEntity || parentRef.id() == selectorRef.id();
+    }
+
+
+    private static Map<EntityKind, Set<EntityKind>> mkDependenciesBySelectorKind() {
+        Map<EntityKind, Set<EntityKind>> deps = new EnumMap<>(EntityKind.class);
+        deps.put(EntityKind.ACTOR, EnumSet.of(EntityKind.ACTOR, EntityKind.LOGICAL_DATA_FLOW));
+        deps.put(EntityKind.APP_GROUP, EnumSet.of(EntityKind.APP_GROUP, EntityKind.ORG_UNIT));
+        deps.put(EntityKind.CHANGE_INITIATIVE, EnumSet.of(EntityKind.CHANGE_INITIATIVE, EntityKind.ENTITY_RELATIONSHIP));
+        deps.put(EntityKind.DATA_TYPE, EnumSet.of(EntityKind.DATA_TYPE, EntityKind.LOGICAL_DATA_FLOW));
+        deps.put(EntityKind.DATABASE, EnumSet.of(EntityKind.DATABASE, EntityKind.DATABASE_USAGE));
+        deps.put(EntityKind.FLOW_DIAGRAM, EnumSet.of(EntityKind.FLOW_DIAGRAM, EntityKind.LOGICAL_DATA_FLOW));
+        deps.put(EntityKind.LEGAL_ENTITY, EnumSet.of(EntityKind.LEGAL_ENTITY, EntityKind.LEGAL_ENTITY_RELATIONSHIP));
+        deps.put(EntityKind.LEGAL_ENTITY_RELATIONSHIP_KIND, EnumSet.of(EntityKind.LEGAL_ENTITY_RELATIONSHIP_KIND, EntityKind.LEGAL_ENTITY_RELATIONSHIP));
+        deps.put(EntityKind.LICENCE, EnumSet.of(EntityKind.LICENCE, EntityKind.SOFTWARE, EntityKind.SOFTWARE_VERSION));
+        deps.put(EntityKind.LOGICAL_DATA_FLOW, EnumSet.of(EntityKind.LOGICAL_DATA_FLOW));
+        deps.put(EntityKind.MEASURABLE, EnumSet.of(EntityKind.MEASURABLE, EntityKind.MEASURABLE_RATING));
+        deps.put(EntityKind.ORG_UNIT, EnumSet.of(EntityKind.ORG_UNIT));
+        deps.put(EntityKind.PERSON, EnumSet.of(EntityKind.PERSON, EntityKind.INVOLVEMENT));
+        deps.put(EntityKind.PHYSICAL_FLOW, EnumSet.of(EntityKind.PHYSICAL_FLOW, EntityKind.LOGICAL_DATA_FLOW));
+        deps.put(EntityKind.PHYSICAL_SPECIFICATION, EnumSet.of(EntityKind.PHYSICAL_SPECIFICATION, EntityKind.PHYSICAL_FLOW, EntityKind.LOGICAL_DATA_FLOW));
+        deps.put(EntityKind.PROCESS_DIAGRAM, EnumSet.of(EntityKind.PROCESS_DIAGRAM, EntityKind.MEASURABLE, EntityKind.MEASURABLE_RATING));
+        deps.put(EntityKind.SCENARIO, EnumSet.of(EntityKind.SCENARIO));
+        deps.put(EntityKind.SERVER, EnumSet.of(EntityKind.SERVER, EntityKind.SERVER_USAGE));
+        deps.put(EntityKind.SOFTWARE, EnumSet.of(EntityKind.SOFTWARE, EntityKind.SOFTWARE_VERSION));
+        deps.put(EntityKind.SOFTWARE_VERSION, EnumSet.of(EntityKind.SOFTWARE_VERSION));
+        deps.put(EntityKind.TAG, EnumSet.of(EntityKind.TAG));
+        return deps;
+    }
+}
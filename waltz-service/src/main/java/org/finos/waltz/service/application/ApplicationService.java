@@ -19,8 +19,8 @@
 package org.finos.waltz.service.application;
 
 import org.finos.waltz.service.tag.TagService;
+import org.finos.waltz.data.EntityNameDictionary;
 import org.finos.waltz.data.application.ApplicationDao;
-import org.finos.waltz.data.application.ApplicationIdSelectorFactory;
 import org.finos.waltz.data.application.search.ApplicationSearchDao;
 import org.finos.waltz.data.entity_alias.EntityAliasDao;
 import org.finos.waltz.model.EntityKind;
@@ -61,23 +61,30 @@ public class ApplicationService {
     private final TagService tagService;
     private final EntityAliasDao entityAliasDao;
     private final ApplicationSearchDao appSearchDao;
-    private final ApplicationIdSelectorFactory appIdSelectorFactory = new ApplicationIdSelectorFactory();
+    private final ApplicationIdSelectorResolver applicationIdSelectorResolver;
+    private final EntityNameDictionary entityNameDictionary;
 
 
     @Autowired
     public ApplicationService(ApplicationDao appDao,
                               TagService tagService,
                               EntityAliasDao entityAliasDao,
-                              ApplicationSearchDao appSearchDao) {
+                              ApplicationSearchDao appSearchDao,
+                              ApplicationIdSelectorResolver applicationIdSelectorResolver,
+                              EntityNameDictionary entityNameDictionary) {
         checkNotNull(appDao, "appDao must not be null");
         checkNotNull(tagService, "tagService must not be null");
         checkNotNull(entityAliasDao, "entityAliasDao must not be null");
         checkNotNull(appSearchDao, "appSearchDao must not be null");
+        checkNotNull(applicationIdSelectorResolver, "applicationIdSelectorResolver cannot be null");
+        checkNotNull(entityNameDictionary, "entityNameDictionary cannot be null");
 
         this.applicationDao = appDao;
         this.tagService = tagService;
         this.entityAliasDao = entityAliasDao;
         this.appSearchDao = appSearchDao;
+        this.applicationIdSelectorResolver = applicationIdSelectorResolver;
+        this.entityNameDictionary = entityNameDictionary;
     }
 
 
@@ -113,7 +120,7 @@ public class ApplicationService {
 
 
     public List<Application> findByAppIdSelector(IdSelectionOptions options) {
-        Select<Record1<Long>> selector = appIdSelectorFactory.apply(options);
+        Select<Record1<Long>> selector = applicationIdSelectorResolver.apply(options);
         return applicationDao.findByAppIdSelector(selector);
     }
 
@@ -139,7 +146,9 @@ public class ApplicationService {
 
 
     public Integer update(Application application) {
-        return applicationDao.update(application);
+        Integer rc = applicationDao.update(application);
+        application.id().ifPresent(id -> entityNameDictionary.invalidate(EntityReference.mkRef(EntityKind.APPLICATION, id)));
+        return rc;
     }
 
 
@@ -27,15 +27,19 @@ import org.finos.waltz.service.email.EmailService;
 import org.finos.waltz.data.GenericSelector;
 import org.finos.waltz.data.GenericSelectorFactory;
 import org.finos.waltz.data.attestation.AttestationInstanceDao;
-import org.finos.waltz.data.attestation.AttestationInstanceRecipientDao;
 import org.finos.waltz.data.attestation.AttestationRunDao;
 import org.finos.waltz.data.involvement.InvolvementDao;
 import org.finos.waltz.model.*;
 import org.finos.waltz.model.attestation.*;
 import org.finos.waltz.model.person.Person;
 import org.finos.waltz.service.involvement_group.InvolvementGroupService;
+import org.jooq.Field;
 import org.jooq.Record1;
 import org.jooq.Select;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -44,10 +48,10 @@ import java.util.*;
 
 import static java.lang.String.format;
 import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
 import static java.util.stream.Collectors.toList;
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.ListUtilities.asList;
-import static org.finos.waltz.common.ListUtilities.isEmpty;
 import static org.finos.waltz.common.SetUtilities.asSet;
 import static org.finos.waltz.model.EntityReference.mkRef;
 import static org.finos.waltz.model.IdSelectionOptions.mkOpts;
@@ -58,8 +62,11 @@ import static org.finos.waltz.model.utils.IdUtilities.toIds;
 @Service
 public class AttestationRunService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(AttestationRunService.class);
+
+    private static final int ISSUANCE_CHUNK_SIZE = 1000;
+
     private final AttestationInstanceDao attestationInstanceDao;
-    private final AttestationInstanceRecipientDao attestationInstanceRecipientDao;
     private final AttestationRunDao attestationRunDao;
     private final EmailService emailService;
     private final GenericSelectorFactory genericSelectorFactory = new GenericSelectorFactory();
@@ -68,11 +75,9 @@ public class AttestationRunService {
 
     @Autowired
     public AttestationRunService(AttestationInstanceDao attestationInstanceDao,
-                                 AttestationInstanceRecipientDao attestationInstanceRecipientDao,
                                  AttestationRunDao attestationRunDao,
                                  EmailService emailService,
                                  InvolvementDao involvementDao, InvolvementGroupService involvementGroupService) {
-        checkNotNull(attestationInstanceRecipientDao, "attestationInstanceRecipientDao cannot be null");
         checkNotNull(attestationInstanceDao, "attestationInstanceDao cannot be null");
         checkNotNull(attestationRunDao, "attestationRunDao cannot be null");
         checkNotNull(emailService, "emailService cannot be null");
@@ -80,7 +85,6 @@ public class AttestationRunService {
         checkNotNull(involvementGroupService, "involvementGroupService cannot be null");
 
         this.attestationInstanceDao = attestationInstanceDao;
-        this.attestationInstanceRecipientDao = attestationInstanceRecipientDao;
         this.attestationRunDao = attestationRunDao;
         this.emailService = emailService;
         this.involvementDao = involvementDao;
@@ -235,26 +239,17 @@ public class AttestationRunService {
     }
 
 
-    private void createAttestationInstancesAndRecipients(List<AttestationInstanceRecipient> instanceRecipients) {
+    private int createAttestationInstancesAndRecipients(List<AttestationInstanceRecipient> instanceRecipients) {
 
-        Map<AttestationInstance, List<AttestationInstanceRecipient>> instancesAndRecipientsToSave = instanceRecipients
+        Map<AttestationInstance, List<String>> instancesAndRecipientsToSave = instanceRecipients
                 .stream()
                 .collect(groupingBy(
                         AttestationInstanceRecipient::attestationInstance,
-                        toList()
+                        mapping(AttestationInstanceRecipient::userId, toList())
                 ));
 
-
         // insert new instances and recipients
-        instancesAndRecipientsToSave.forEach(
-                (k, v) -> {
-                    // create instance
-                    long instanceId = attestationInstanceDao.create(k);
-
-                    // create recipients for the instance
-                    v.forEach(r -> attestationInstanceRecipientDao.create(instanceId, r.userId()));
-                }
-        );
+        return attestationInstanceDao.createInstancesAndRecipients(instancesAndRecipientsToSave);
     }
 
 
@@ -284,27 +279,103 @@ public class AttestationRunService {
     }
 
 
+    /**
+     * Issues instances for all pending runs.
+     * <p>
+     * Each run is moved to ISSUING, and then its target entities are processed in ascending
+     * id order, {@link #ISSUANCE_CHUNK_SIZE} at a time.  Each chunk is written in its own
+     * transaction.  If issuing fails the run stays in ISSUING, and the next call resumes
+     * it after the last chunk which was written (see
+     * {@link AttestationInstanceDao#findIssuanceCheckpoint(long)}).
+     *
+     * @return  number of runs issued
+     */
     public int issueInstancesForPendingRuns() {
 
         Set<AttestationRun> pendingRuns = attestationRunDao.findPendingRuns();
+        attestationRunDao.updateStatusForRunIds(toIds(pendingRuns), ISSUING);
+
+        // includes any runs left part issued by an earlier failure
+        Set<AttestationRun> runsToIssue = attestationRunDao.findIssuingRuns();
+
+        int issuedRunCount = 0;
+        for (AttestationRun run : runsToIssue) {
+            long start = System.currentTimeMillis();
+            long runId = run.id().get();
+
+            int instanceCount = issueInstancesForRun(run);
+            issuedRunCount += attestationRunDao.updateStatusForRunIds(asSet(runId), ISSUED);
+
+            LOG.info(format(
+                    "Issued [%d] instances for attestation run: %d in %dms",
+                    instanceCount,
+                    runId,
+                    System.currentTimeMillis() - start));
+        }
+
+        return issuedRunCount;
+    }
+
+
+    private int issueInstancesForRun(AttestationRun run) {
+        long runId = run.id().get();
+        Optional<Long> checkpoint = attestationInstanceDao.findIssuanceCheckpoint(runId);
+
+        if (run.involvementKindIds().isEmpty()) {
+            return checkpoint.isPresent()
+                    ? 0
+                    : createAttestationInstancesAndRecipients(
+                            generateAttestationInstanceRecipients(runId, run.attestedEntityKind(), "admin"));
+        }
+
+        checkpoint.ifPresent(id -> LOG.info(format("Resuming issuance of attestation run: %d after entity: %d", runId, id)));
 
-        List<AttestationInstanceRecipient> instanceRecipients = pendingRuns
+        Select<Record1<Long>> idSelector = mkIdSelector(run.targetEntityKind(), run.selectionOptions());
+        List<Long> entityIds = attestationRunDao
+                .findEntityIds(idSelector)
                 .stream()
-                .flatMap(run -> generateAttestationInstanceRecipients(
-                            run.id().get(),
-                            run.attestedEntityKind(),
-                            "admin")
-                        .stream())
+                .filter(id -> id > checkpoint.orElse(Long.MIN_VALUE))
                 .collect(toList());
 
-        Set<Long> runsBeingIssued = toIds(pendingRuns);
-        attestationRunDao.updateStatusForRunIds(runsBeingIssued, ISSUING);
+        int instanceCount = 0;
+        for (int offset = 0; offset < entityIds.size(); offset += ISSUANCE_CHUNK_SIZE) {
+            List<Long> chunk = entityIds.subList(offset, Math.min(offset + ISSUANCE_CHUNK_SIZE, entityIds.size()));
 
-        if (!isEmpty(instanceRecipients)) {
-            createAttestationInstancesAndRecipients(instanceRecipients);
+            Map<EntityReference, List<Person>> entityRefToPeople = involvementDao.findPeopleByEntitySelectorAndInvolvement(
+                    run.targetEntityKind(),
+                    mkRangeSelector(idSelector, chunk.get(0), chunk.get(chunk.size() - 1)),
+                    run.involvementKindIds());
+
+            List<AttestationInstanceRecipient> instanceRecipients = entityRefToPeople.entrySet()
+                    .stream()
+                    .flatMap(e -> e.getValue().stream()
+                            .map(p -> mkInstanceRecipient(runId, e.getKey(), p.email(), run.attestedEntityKind())))
+                    .distinct()
+                    .collect(toList());
+
+            instanceCount += createAttestationInstancesAndRecipients(instanceRecipients);
+
+            LOG.debug(format(
+                    "Attestation run: %d, issued instances for [%d/%d] entities",
+                    runId,
+                    offset + chunk.size(),
+                    entityIds.size()));
         }
 
-        return attestationRunDao.updateStatusForRunIds(runsBeingIssued, ISSUED);
+        return instanceCount;
+    }
+
+
+    private static Select<Record1<Long>> mkRangeSelector(Select<Record1<Long>> idSelector,
+                                                         long fromId,
+                                                         long toId) {
+        Table<Record1<Long>> ids = idSelector.asTable("issuance_ids");
+        Field<Long> id = ids.field(0, Long.class);
+
+        return DSL
+                .select(id)
+                .from(ids)
+                .where(id.between(fromId, toId));
     }
 
 
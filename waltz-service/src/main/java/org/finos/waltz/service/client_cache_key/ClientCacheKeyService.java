@@ -21,6 +21,7 @@ package org.finos.waltz.service.client_cache_key;
 
 import org.finos.waltz.data.client_cache_key.ClientCacheKeyDao;
 import org.finos.waltz.model.client_cache_key.ClientCacheKey;
+import org.finos.waltz.service.reference_data.ReferenceDataCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -35,12 +36,16 @@ import static org.finos.waltz.common.Checks.checkNotNull;
 public class ClientCacheKeyService {
 
     private final ClientCacheKeyDao clientCacheKeyDao;
+    private final ReferenceDataCache referenceDataCache;
 
 
     @Autowired
-    public ClientCacheKeyService(ClientCacheKeyDao clientCacheKeyDao) {
+    public ClientCacheKeyService(ClientCacheKeyDao clientCacheKeyDao,
+                                 ReferenceDataCache referenceDataCache) {
         checkNotNull(clientCacheKeyDao, "clientCacheKeyDao cannot be null");
+        checkNotNull(referenceDataCache, "referenceDataCache cannot be null");
         this.clientCacheKeyDao = clientCacheKeyDao;
+        this.referenceDataCache = referenceDataCache;
     }
 
 
@@ -54,9 +59,14 @@ public class ClientCacheKeyService {
     }
 
 
+    /**
+     * Bumps the given client cache key, forcing clients to reload their cached data.
+     * Server side reference data is also discarded so clients do not reload stale values.
+     */
     public ClientCacheKey createOrUpdate(String key) {
         UUID guid = randomUUID();
         clientCacheKeyDao.createOrUpdate(key, guid.toString());
+        referenceDataCache.invalidateAll();
         return clientCacheKeyDao.getByKey(key);
     }
 
@@ -20,20 +20,16 @@ package org.finos.waltz.service.data_flow_decorator;
 
 import org.finos.waltz.service.application.ApplicationService;
 import org.finos.waltz.service.flow_classification_rule.FlowClassificationRuleResolver;
-import org.finos.waltz.data.data_type.DataTypeDao;
-import org.finos.waltz.data.flow_classification_rule.FlowClassificationDao;
+import org.finos.waltz.service.flow_classification_rule.FlowClassificationRuleResolver.Resolution;
 import org.finos.waltz.data.flow_classification_rule.FlowClassificationRuleDao;
 import org.finos.waltz.data.logical_flow.LogicalFlowDao;
 import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.application.Application;
-import org.finos.waltz.model.datatype.DataType;
 import org.finos.waltz.model.datatype.DataTypeDecorator;
 import org.finos.waltz.model.datatype.ImmutableDataTypeDecorator;
-import org.finos.waltz.model.flow_classification.FlowClassification;
 import org.finos.waltz.model.flow_classification_rule.FlowClassificationRuleVantagePoint;
 import org.finos.waltz.model.logical_flow.LogicalFlow;
-import org.finos.waltz.model.rating.AuthoritativenessRatingValue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -41,13 +37,13 @@ import org.springframework.stereotype.Service;
 
 import java.util.*;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
 
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.ListUtilities.filter;
 import static org.finos.waltz.common.ListUtilities.isEmpty;
 import static org.finos.waltz.common.SetUtilities.map;
 import static org.finos.waltz.model.utils.IdUtilities.indexById;
+import static org.finos.waltz.service.flow_classification_rule.FlowClassificationRuleResolver.mkKey;
 
 @Service
 public class LogicalFlowDecoratorRatingsCalculator {
@@ -58,81 +54,96 @@ public class LogicalFlowDecoratorRatingsCalculator {
                 f.source().kind() == EntityKind.APPLICATION;
 
     private final ApplicationService applicationService;
-    private final FlowClassificationDao flowClassificationDao;
     private final FlowClassificationRuleDao flowClassificationRuleDao;
     private final LogicalFlowDao logicalFlowDao;
-    private final DataTypeDao dataTypeDao;
 
 
     @Autowired
     public LogicalFlowDecoratorRatingsCalculator(ApplicationService applicationService,
-                                                 FlowClassificationDao flowClassificationDao,
                                                  FlowClassificationRuleDao flowClassificationRuleDao,
-                                                 LogicalFlowDao logicalFlowDao,
-                                                 DataTypeDao dataTypeDao) {
+                                                 LogicalFlowDao logicalFlowDao) {
         checkNotNull(applicationService, "applicationService cannot be null");
-        checkNotNull(flowClassificationDao, "flowClassificationDao cannot be null");
         checkNotNull(flowClassificationRuleDao, "flowClassificationRuleDao cannot be null");
         checkNotNull(logicalFlowDao, "logicalFlowDao cannot be null");
-        checkNotNull(dataTypeDao, "dataTypeDao cannot be null");
 
         this.applicationService = applicationService;
-        this.flowClassificationDao = flowClassificationDao;
         this.flowClassificationRuleDao = flowClassificationRuleDao;
         this.logicalFlowDao = logicalFlowDao;
-        this.dataTypeDao = dataTypeDao;
     }
 
 
     public Collection<DataTypeDecorator>  calculate(Collection<DataTypeDecorator> decorators) {
+        return calculate(decorators, loadFlows(decorators));
+    }
+
+
+    /**
+     * As {@link #calculate(Collection)} but uses the given flows rather than loading them.  This
+     * allows ratings to be calculated for flows which have not yet been committed (e.g. when flows
+     * are being created in bulk within a transaction).
+     *
+     * @param decorators  decorators to rate
+     * @param flows  the logical flows referred to by the decorators
+     * @return  rated decorators for app to app flows
+     */
+    public Collection<DataTypeDecorator> calculate(Collection<DataTypeDecorator> decorators,
+                                                   Collection<LogicalFlow> flows) {
 
         List<LogicalFlow> appToAppFlows = filter(
                 IS_APP_TO_APP_FLOW,
-                loadFlows(decorators));
+                new ArrayList<>(flows));
 
         if (isEmpty(appToAppFlows)) return Collections.emptyList();
 
         List<Application> targetApps = loadTargetApplications(appToAppFlows);
-        List<DataType> dataTypes = dataTypeDao.findAll();
-        Set<FlowClassification> flowClassifications = flowClassificationDao.findAll();
 
-        Map<Long, DataType> typesById = indexById(dataTypes);
         Map<Long, LogicalFlow> flowsById = indexById(appToAppFlows);
         Map<Long, Application> targetAppsById = indexById(targetApps);
 
         FlowClassificationRuleResolver resolver = createResolver(targetApps);
 
-        return decorators
+        Set<DataTypeDecorator> result = new HashSet<>();
+        List<DataTypeDecorator> dataTypeDecorators = new ArrayList<>();
+
+        decorators
                 .stream()
                 .filter(d -> flowsById.containsKey(d.dataFlowId()))
-                .map(decorator -> {
-                    try {
-                        if (decorator.decoratorEntity().kind() != EntityKind.DATA_TYPE) {
-                            return decorator;
-                        } else {
-                            AuthoritativenessRatingValue rating = lookupRating(
-                                    flowsById,
-                                    targetAppsById,
-                                    resolver,
-                                    decorator);
-                            Optional<Long> ruleId = lookupFlowClassificationRule(
-                                    typesById,
-                                    flowsById,
-                                    targetAppsById,
-                                    resolver,
-                                    decorator);
-                            return ImmutableDataTypeDecorator
-                                    .copyOf(decorator)
-                                    .withRating(rating)
-                                    .withFlowClassificationRuleId(ruleId);
-                        }
-                    } catch (Exception e) {
-                        LOG.warn("Failed to calculate rating for decorator: {}, reason: {}", decorator, e.getMessage());
-                        return null;
+                .forEach(decorator -> {
+                    if (decorator.decoratorEntity().kind() != EntityKind.DATA_TYPE) {
+                        result.add(decorator);
+                    } else if (! targetAppsById.containsKey(flowsById.get(decorator.dataFlowId()).target().id())) {
+                        LOG.warn("Failed to calculate rating for decorator: {}, reason: cannot find target application", decorator);
+                    } else {
+                        dataTypeDecorators.add(decorator);
                     }
-                })
-                .filter(Objects::nonNull)
-                .collect(Collectors.toSet());
+                });
+
+        // resolve all ratings in one pass using packed (primitive) lookup keys
+        int count = dataTypeDecorators.size();
+        long[] vantagePointKeys = new long[count];
+        long[] sourceKeys = new long[count];
+        long[] dataTypeIds = new long[count];
+
+        for (int i = 0; i < count; i++) {
+            DataTypeDecorator decorator = dataTypeDecorators.get(i);
+            LogicalFlow flow = flowsById.get(decorator.dataFlowId());
+            vantagePointKeys[i] = mkKey(lookupVantagePoint(targetAppsById, flow));
+            sourceKeys[i] = mkKey(flow.source());
+            dataTypeIds[i] = decorator.dataTypeId();
+        }
+
+        Resolution[] resolutions = resolver.resolveAll(vantagePointKeys, sourceKeys, dataTypeIds);
+
+        for (int i = 0; i < count; i++) {
+            result.add(ImmutableDataTypeDecorator
+                    .copyOf(dataTypeDecorators.get(i))
+                    .withRating(resolutions[i].rating())
+                    .withFlowClassificationRuleId(resolutions[i]
+                            .rule()
+                            .map(FlowClassificationRuleVantagePoint::ruleId)));
+        }
+
+        return result;
     }
 
 
@@ -164,37 +175,6 @@ public class LogicalFlowDecoratorRatingsCalculator {
     }
 
 
-    private AuthoritativenessRatingValue lookupRating(Map<Long, LogicalFlow> flowsById,
-                                                      Map<Long, Application> targetAppsById,
-                                                      FlowClassificationRuleResolver resolver,
-                                                      DataTypeDecorator decorator) {
-
-        LogicalFlow flow = flowsById.get(decorator.dataFlowId());
-        EntityReference vantagePoint = lookupVantagePoint(targetAppsById, flow);
-        EntityReference source = flow.source();
-
-        return resolver.resolve(vantagePoint, source, decorator.decoratorEntity().id());
-    }
-
-
-    private Optional<Long> lookupFlowClassificationRule(Map<Long, DataType> typesById,
-                                                        Map<Long, LogicalFlow> flowsById,
-                                                        Map<Long, Application> targetAppsById,
-                                                        FlowClassificationRuleResolver resolver,
-                                                        DataTypeDecorator decorator) {
-        LogicalFlow flow = flowsById.get(decorator.dataFlowId());
-
-        EntityReference vantagePoint = lookupVantagePoint(targetAppsById, flow);
-        EntityReference source = flow.source();
-
-        Optional<FlowClassificationRuleVantagePoint> flowClassificationRuleVantagePoint = resolver
-                .resolveAuthSource(vantagePoint, source, decorator.dataTypeId());
-
-        return flowClassificationRuleVantagePoint
-                .map(FlowClassificationRuleVantagePoint::ruleId);
-    }
-
-
     private EntityReference lookupVantagePoint(Map<Long, Application> targetAppsById, LogicalFlow flow) {
         Application targetApp = targetAppsById.get(flow.target().id());
         long targetOrgUnitId = targetApp.organisationalUnitId();
@@ -204,11 +184,4 @@ public class LogicalFlowDecoratorRatingsCalculator {
                 targetOrgUnitId);
     }
 
-
-    private String lookupDataTypeCode(Map<Long, DataType> typesById, DataTypeDecorator decorator) {
-        long dataTypeId = decorator.decoratorEntity().id();
-        return typesById.get(dataTypeId).code();
-    }
-
-
 }
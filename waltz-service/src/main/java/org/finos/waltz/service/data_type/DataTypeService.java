@@ -26,6 +26,7 @@ import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.datatype.DataType;
 import org.finos.waltz.model.entity_search.EntitySearchOptions;
+import org.finos.waltz.service.reference_data.ReferenceDataCache;
 import org.jooq.Record1;
 import org.jooq.Select;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -51,24 +52,28 @@ public class DataTypeService {
     private final DataTypeDao dataTypeDao;
     private final DataTypeSearchDao searchDao;
     private final LogicalFlowDao logicalFlowDao;
+    private final ReferenceDataCache referenceDataCache;
 
 
     @Autowired
     public DataTypeService(DataTypeDao dataTypeDao,
                            DataTypeSearchDao searchDao,
-                           LogicalFlowDao logicalFlowDao) {
+                           LogicalFlowDao logicalFlowDao,
+                           ReferenceDataCache referenceDataCache) {
         checkNotNull(dataTypeDao, "dataTypeDao must not be null");
         checkNotNull(searchDao, "searchDao cannot be null");
         checkNotNull(logicalFlowDao, "logicalFlowService cannot be null");
+        checkNotNull(referenceDataCache, "referenceDataCache cannot be null");
 
         this.dataTypeDao = dataTypeDao;
         this.searchDao = searchDao;
         this.logicalFlowDao = logicalFlowDao;
+        this.referenceDataCache = referenceDataCache;
     }
 
 
     public List<DataType> findAll() {
-        return dataTypeDao.findAll();
+        return referenceDataCache.findAllDataTypes();
     }
 
 
@@ -95,8 +100,8 @@ public class DataTypeService {
      * @return `Optional.of(unknownDataType)` if an unknown datatype has been defined otherwise `Optional.empty()`.
      */
     public Optional<DataType> getUnknownDataType() {
-        return dataTypeDao
-                .findAll()
+        return referenceDataCache
+                .findAllDataTypes()
                 .stream()
                 .filter(DataType::unknown)
                 .findFirst();
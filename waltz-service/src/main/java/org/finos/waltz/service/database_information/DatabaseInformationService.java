@@ -19,7 +19,7 @@
 package org.finos.waltz.service.database_information;
 
 import org.finos.waltz.common.Checks;
-import org.finos.waltz.data.application.ApplicationIdSelectorFactory;
+import org.finos.waltz.service.application.ApplicationIdSelectorResolver;
 import org.finos.waltz.data.database_information.DatabaseInformationDao;
 import org.finos.waltz.model.IdSelectionOptions;
 import org.finos.waltz.model.database_information.DatabaseInformation;
@@ -37,12 +37,15 @@ import static org.finos.waltz.common.Checks.checkNotNull;
 public class DatabaseInformationService {
 
     private final DatabaseInformationDao databaseInformationDao;
-    private final ApplicationIdSelectorFactory factory = new ApplicationIdSelectorFactory();
+    private final ApplicationIdSelectorResolver applicationIdSelectorResolver;
 
     @Autowired
-    public DatabaseInformationService(DatabaseInformationDao databaseInformationDao) {
+    public DatabaseInformationService(DatabaseInformationDao databaseInformationDao,
+                                      ApplicationIdSelectorResolver applicationIdSelectorResolver) {
         Checks.checkNotNull(databaseInformationDao, "databaseInformationDao cannot be null");
+        checkNotNull(applicationIdSelectorResolver, "applicationIdSelectorResolver cannot be null");
         this.databaseInformationDao = databaseInformationDao;
+        this.applicationIdSelectorResolver = applicationIdSelectorResolver;
     }
 
     public List<DatabaseInformation> findByApplicationId(Long id) {
@@ -52,12 +55,12 @@ public class DatabaseInformationService {
 
     public Map<Long, List<DatabaseInformation>> findByApplicationSelector(IdSelectionOptions options) {
         checkNotNull(options, "options cannot be null");
-        return databaseInformationDao.findByAppSelector(factory.apply(options));
+        return databaseInformationDao.findByAppSelector(applicationIdSelectorResolver.apply(options));
     }
 
     public DatabaseSummaryStatistics calculateStatsForAppIdSelector(IdSelectionOptions options) {
         Checks.checkNotNull(options, "options cannot be null");
-        return databaseInformationDao.calculateStatsForAppSelector(factory.apply(options));
+        return databaseInformationDao.calculateStatsForAppSelector(applicationIdSelectorResolver.apply(options));
     }
 
     public DatabaseInformation getById(long id) {
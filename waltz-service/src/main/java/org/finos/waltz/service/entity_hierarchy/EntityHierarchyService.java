@@ -40,6 +40,9 @@ import org.finos.waltz.model.tally.ImmutableTally;
 import org.finos.waltz.model.tally.Tally;
 import org.jooq.*;
 import org.jooq.impl.DSL;
+import org.jooq.lambda.tuple.Tuple2;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -53,10 +56,19 @@ import static org.finos.waltz.schema.Tables.MEASURABLE;
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.model.EntityKind.PERSON;
 import static org.jooq.impl.DSL.select;
+import static org.jooq.lambda.tuple.Tuple.tuple;
 
 @Service
 public class EntityHierarchyService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(EntityHierarchyService.class);
+
+    /**
+     * If an incremental update affects more than this proportion of the nodes
+     * in a hierarchy we fall back to a full rebuild.
+     */
+    private static final double FULL_REBUILD_THRESHOLD = 0.5;
+
     private final DSLContext dsl;
     private final ChangeInitiativeDao changeInitiativeDao;
     private final DataTypeDao dataTypeDao;
@@ -150,6 +162,74 @@ public class EntityHierarchyService {
     }
 
 
+    /**
+     * Incrementally updates the hierarchy following the insertion, move or removal of a node.
+     * <p>
+     * Only the closure rows for the node's subtree (as it was before and after the change) are
+     * recomputed, these are compared to the stored rows and just the differences are written.
+     * The person hierarchy is maintained separately and is always fully rebuilt.
+     *
+     * @param ref  the node which has been added, moved or removed (or the root of a subtree containing all the changes)
+     * @return number of hierarchy records removed and added
+     */
+    public int updateSubtree(EntityReference ref) {
+        checkNotNull(ref, "ref cannot be null");
+        EntityKind kind = ref.kind();
+
+        if (kind == PERSON) {
+            return buildFor(kind);
+        }
+
+        Map<Long, Long> parentsById = fetchParentsById(determineTableToRebuild(kind));
+        HierarchyClosureCalculator calculator = new HierarchyClosureCalculator(kind, parentsById);
+
+        Set<Long> affectedIds = new HashSet<>(calculator.findSubtreeIds(ref.id()));
+        affectedIds.add(ref.id());
+        affectedIds.addAll(entityHierarchyDao.findDescendantIds(kind, ref.id()));
+
+        if (affectedIds.size() > parentsById.size() * FULL_REBUILD_THRESHOLD) {
+            LOG.info("Change to {} affects {} of {} nodes, rebuilding entire hierarchy", ref, affectedIds.size(), parentsById.size());
+            return buildFor(kind);
+        }
+
+        return applyDifferences(
+                kind,
+                entityHierarchyDao.findByKindAndIds(kind, affectedIds),
+                calculator.mkItems(affectedIds));
+    }
+
+
+    /**
+     * Verifies the stored hierarchy against the source table, correcting any differences.
+     * This gives the same end result as {@link #buildFor(EntityKind)} but, as only the differing
+     * rows are written, it avoids churning the hierarchy table when (as is usual) little has changed.
+     *
+     * @param kind  hierarchy to verify
+     * @return number of hierarchy records removed and added
+     */
+    public int reconcileFor(EntityKind kind) {
+        checkNotNull(kind, "kind cannot be null");
+
+        if (kind == PERSON) {
+            return buildFor(kind);
+        }
+
+        Map<Long, Long> parentsById = fetchParentsById(determineTableToRebuild(kind));
+        HierarchyClosureCalculator calculator = new HierarchyClosureCalculator(kind, parentsById);
+
+        int changeCount = applyDifferences(
+                kind,
+                entityHierarchyDao.findByKind(kind),
+                calculator.mkItems(parentsById.keySet()));
+
+        if (changeCount > 0) {
+            LOG.warn("Hierarchy for {} was out of date, {} records have been corrected", kind, changeCount);
+        }
+
+        return changeCount;
+    }
+
+
     public int buildForMeasurableByCategory(long categoryId) {
         return buildFor(MEASURABLE,
                         EntityKind.MEASURABLE,
@@ -171,6 +251,37 @@ public class EntityHierarchyService {
     }
 
 
+    private int applyDifferences(EntityKind kind,
+                                 Collection<EntityHierarchyItem> existingItems,
+                                 Set<EntityHierarchyItem> requiredItems) {
+        Set<EntityHierarchyItem> existing = new HashSet<>(existingItems);
+
+        Set<EntityHierarchyItem> removals = new HashSet<>(existing);
+        removals.removeAll(requiredItems);
+
+        // removals match on (id, ancestor id) so any required row sharing that pair must be (re)inserted
+        Set<Tuple2<Optional<Long>, Optional<Long>>> removedPairs = removals
+                .stream()
+                .map(item -> tuple(item.id(), item.parentId()))
+                .collect(Collectors.toSet());
+
+        Set<EntityHierarchyItem> additions = requiredItems
+                .stream()
+                .filter(item -> ! existing.contains(item) || removedPairs.contains(tuple(item.id(), item.parentId())))
+                .collect(Collectors.toSet());
+
+        return entityHierarchyDao.applyDelta(kind, removals, additions);
+    }
+
+
+    private Map<Long, Long> fetchParentsById(Table<?> table) {
+        Map<Long, Long> parentsById = new HashMap<>();
+        fetchFlatNodes(table, DSL.trueCondition())
+                .forEach(n -> parentsById.put(n.getId(), n.getParentId().orElse(null)));
+        return parentsById;
+    }
+
+
     private List<FlatNode<Long, Long>> fetchFlatNodes(Table<?> table,
                                                       Condition selectFilter) {
         Field<Long> idField = table.field("id", Long.class);
@@ -0,0 +1,202 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.entity_hierarchy;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.entity_hierarchy.EntityHierarchyItem;
+import org.finos.waltz.model.entity_hierarchy.ImmutableEntityHierarchyItem;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+
+/**
+ * Computes entity hierarchy (closure table) rows for a subset of the nodes in a tree.
+ * <p>
+ * The tree is given as a map of node id to parent id (<code>null</code> for roots).  Rows
+ * mirror those produced by a full rebuild: a self row for every node plus one row per ancestor,
+ * levels start at 1 for roots.  Nodes which cannot be connected to a root (their parent does not
+ * exist or they are part of a cycle) are given a level of -1.
+ */
+public class HierarchyClosureCalculator {
+
+    private static final int UNKNOWN_LEVEL = -1;
+
+    private final EntityKind kind;
+    private final Map<Long, Long> parentsById;
+    private final Map<Long, Integer> levelsById = new HashMap<>();
+    private Map<Long, List<Long>> childrenById;
+
+
+    /**
+     * @param kind  kind of the hierarchy
+     * @param parentsById  every node in the hierarchy mapped to its parent id (or null)
+     */
+    public HierarchyClosureCalculator(EntityKind kind, Map<Long, Long> parentsById) {
+        checkNotNull(kind, "kind cannot be null");
+        checkNotNull(parentsById, "parentsById cannot be null");
+
+        this.kind = kind;
+        this.parentsById = parentsById;
+    }
+
+
+    /**
+     * @return ids of the given node and all its descendants, empty if the node does not exist
+     */
+    public Set<Long> findSubtreeIds(long rootId) {
+        Set<Long> result = new LinkedHashSet<>();
+        if (! parentsById.containsKey(rootId)) {
+            return result;
+        }
+
+        Deque<Long> toVisit = new ArrayDeque<>();
+        toVisit.add(rootId);
+        while (! toVisit.isEmpty()) {
+            Long id = toVisit.removeFirst();
+            if (result.add(id)) {
+                toVisit.addAll(getChildrenById().getOrDefault(id, new ArrayList<>()));
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * @return hierarchy rows for the given nodes, ids which are not in the tree are ignored
+     */
+    public Set<EntityHierarchyItem> mkItems(Collection<Long> ids) {
+        Set<EntityHierarchyItem> items = new HashSet<>();
+        for (Long id : ids) {
+            if (! parentsById.containsKey(id)) {
+                continue;
+            }
+
+            int level = determineLevel(id);
+            items.add(mkItem(id, id, level, level));
+
+            for (Long ancestorId : findAncestorIds(id)) {
+                items.add(mkItem(id, ancestorId, determineLevel(ancestorId), level));
+            }
+        }
+        return items;
+    }
+
+
+    // -- HELPERS ---
+
+    private List<Long> findAncestorIds(long id) {
+        List<Long> ancestors = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        seen.add(id);
+
+        Long parentId = parentOf(id);
+        while (parentId != null && parentsById.containsKey(parentId) && seen.add(parentId)) {
+            ancestors.add(parentId);
+            parentId = parentOf(parentId);
+        }
+        return ancestors;
+    }
+
+
+    private int determineLevel(long id) {
+        Integer cached = levelsById.get(id);
+        if (cached != null) {
+            return cached;
+        }
+
+        // walk up until we reach a root (or a node with a known level)
+        List<Long> chain = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        Long current = id;
+        int baseLevel;
+        while (true) {
+            if (! seen.add(current) || ! parentsById.containsKey(current)) {
+                baseLevel = UNKNOWN_LEVEL; // cycle or missing parent
+                break;
+            }
+            Integer known = levelsById.get(current);
+            if (known != null) {
+                baseLevel = known;
+                break;
+            }
+            chain.add(current);
+            Long parentId = parentOf(current);
+            if (parentId == null) {
+                baseLevel = 0;
+                break;
+            }
+            current = parentId;
+        }
+
+        // chain is ordered from the requested node upwards
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            int level = baseLevel == UNKNOWN_LEVEL
+                    ? UNKNOWN_LEVEL
+                    : baseLevel + (chain.size() - i);
+            levelsById.put(chain.get(i), level);
+        }
+
+        return levelsById.get(id);
+    }
+
+
+    private Long parentOf(long id) {
+        Long parentId = parentsById.get(id);
+        // nodes which are their own parent are treated as roots
+        return parentId != null && parentId == id
+                ? null
+                : parentId;
+    }
+
+
+    private Map<Long, List<Long>> getChildrenById() {
+        if (childrenById == null) {
+            childrenById = new HashMap<>();
+            parentsById.keySet().forEach(id -> {
+                Long parentId = parentOf(id);
+                if (parentId != null) {
+                    childrenById.computeIfAbsent(parentId, k -> new ArrayList<>()).add(id);
+                }
+            });
+        }
+        return childrenById;
+    }
+
+
+    private EntityHierarchyItem mkItem(long id, long ancestorId, int ancestorLevel, int descendantLevel) {
+        return ImmutableEntityHierarchyItem.builder()
+                .id(id)
+                .parentId(ancestorId)
+                .ancestorLevel(ancestorLevel)
+                .descendantLevel(descendantLevel)
+                .kind(kind)
+                .build();
+    }
+
+}
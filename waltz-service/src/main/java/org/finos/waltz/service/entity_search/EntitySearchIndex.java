@@ -0,0 +1,429 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+
+package org.finos.waltz.service.entity_search;
+
+import org.finos.waltz.data.SearchUtilities;
+import org.finos.waltz.data.changelog.ChangeLogDao;
+import org.finos.waltz.data.entity_search.EntitySearchIndexDao;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.changelog.ChangeLog;
+import org.finos.waltz.model.entity_search.EntitySearchOptions;
+import org.finos.waltz.model.entity_search.SearchableEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static org.finos.waltz.common.Checks.checkNotNull;
+
+/**
+ * Optional, in-memory, index used to answer type-ahead entity searches without
+ * querying the database.
+ * <p>
+ * For each supported entity kind the index holds the entity names and search keys
+ * (asset codes, external ids, aliases etc.) along with a trigram index over them.
+ * An entity matches a query if every search term appears in its name or one of its
+ * keys, results are ordered using the same relevancy comparator as the database backed
+ * searches.
+ * <p>
+ * The index is built in the background at startup and rebuilt periodically.  Between
+ * rebuilds, entities mentioned in change log entries are reloaded and held in an
+ * overlay which takes precedence over the base index.  Until the first build completes
+ * (or if the index is disabled via <code>entity_search.index.enabled</code>) the
+ * entity search falls back to the database searchers.
+ */
+@Service
+@ManagedResource(description = "In-memory index used by the entity search")
+public class EntitySearchIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EntitySearchIndex.class);
+
+    private static final int NGRAM_SIZE = 3;
+    private static final int MAX_OVERLAY_SIZE = 1000;
+
+    private final EntitySearchIndexDao entitySearchIndexDao;
+    private final boolean enabled;
+    private final ScheduledExecutorService indexer;
+
+    private volatile Map<EntityKind, KindIndex> indexesByKind = Collections.emptyMap();
+    private volatile long lastBuildDurationMillis = -1;
+
+    /**
+     * Entities which have changed since the index was built, keyed by kind then id.
+     * An empty optional marks an entity which has been removed.
+     */
+    private final Map<EntityKind, Map<Long, Optional<IndexEntry>>> overlay = new ConcurrentHashMap<>();
+
+
+    @Autowired
+    public EntitySearchIndex(EntitySearchIndexDao entitySearchIndexDao,
+                             ChangeLogDao changeLogDao,
+                             @Value("${entity_search.index.enabled:false}") boolean enabled,
+                             @Value("${entity_search.index.refresh_minutes:60}") long refreshMinutes) {
+        checkNotNull(entitySearchIndexDao, "entitySearchIndexDao cannot be null");
+        checkNotNull(changeLogDao, "changeLogDao cannot be null");
+
+        this.entitySearchIndexDao = entitySearchIndexDao;
+        this.enabled = enabled;
+
+        // all index mutations happen on this single thread, so rebuilds and updates cannot interleave
+        this.indexer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread t = new Thread(runnable, "Entity Search Indexer");
+            t.setDaemon(true);
+            return t;
+        });
+
+        if (enabled) {
+            indexer.scheduleWithFixedDelay(
+                    this::rebuildQuietly,
+                    0,
+                    Math.max(refreshMinutes, 1),
+                    TimeUnit.MINUTES);
+            changeLogDao.addWriteListener(this::onChangeLogWritten);
+        }
+    }
+
+
+    /**
+     * @param kind  entity kind to be searched
+     * @return true if the index is enabled, built and able to search entities of the given kind
+     */
+    public boolean canSearch(EntityKind kind) {
+        return enabled && indexesByKind.containsKey(kind);
+    }
+
+
+    public List<EntityReference> search(EntityKind kind,
+                                        EntitySearchOptions options) {
+        checkNotNull(kind, "kind cannot be null");
+        checkNotNull(options, "options cannot be null");
+
+        List<String> terms = SearchUtilities.mkTerms(options.searchQuery().toLowerCase());
+        KindIndex index = indexesByKind.get(kind);
+
+        if (terms.isEmpty() || index == null) {
+            return Collections.emptyList();
+        }
+
+        Map<Long, Optional<IndexEntry>> changes = overlay.getOrDefault(kind, Collections.emptyMap());
+        List<IndexEntry> matches = new ArrayList<>();
+
+        index.forEachCandidate(terms, entry -> {
+            if (! changes.containsKey(entry.ref.id()) && entry.matches(terms, options)) {
+                matches.add(entry);
+            }
+        });
+
+        changes.values().forEach(maybeEntry -> maybeEntry
+                .filter(entry -> entry.matches(terms, options))
+                .ifPresent(matches::add));
+
+        return matches
+                .stream()
+                .sorted(SearchUtilities.mkRelevancyComparator(e -> e.lowerName, terms.get(0)))
+                .limit(options.limit())
+                .map(e -> e.ref)
+                .collect(toList());
+    }
+
+
+    @ManagedOperation(description = "Rebuild the entity search index")
+    public void rebuild() {
+        checkEnabled();
+        indexer.execute(this::rebuildQuietly);
+    }
+
+
+    @ManagedAttribute
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+
+    @ManagedAttribute
+    public boolean isReady() {
+        return ! indexesByKind.isEmpty();
+    }
+
+
+    @ManagedAttribute
+    public long getEntityCount() {
+        return indexesByKind
+                .values()
+                .stream()
+                .mapToLong(idx -> idx.entries.length)
+                .sum();
+    }
+
+
+    @ManagedAttribute(description = "Number of entities changed since the index was last built")
+    public long getOverlaySize() {
+        return overlay
+                .values()
+                .stream()
+                .mapToLong(Map::size)
+                .sum();
+    }
+
+
+    @ManagedAttribute
+    public long getLastBuildDurationMillis() {
+        return lastBuildDurationMillis;
+    }
+
+
+    // -- HELPERS ---
+
+    private void checkEnabled() {
+        if (! enabled) {
+            throw new IllegalStateException("Entity search index is not enabled (entity_search.index.enabled)");
+        }
+    }
+
+
+    private void rebuildQuietly() {
+        try {
+            long st = System.currentTimeMillis();
+            Map<EntityKind, KindIndex> newIndexes = new EnumMap<>(EntityKind.class);
+
+            for (EntityKind kind : entitySearchIndexDao.getSupportedEntityKinds()) {
+                List<IndexEntry> entries = entitySearchIndexDao
+                        .findAll(kind)
+                        .stream()
+                        .map(IndexEntry::new)
+                        .collect(toList());
+                newIndexes.put(kind, new KindIndex(entries));
+            }
+
+            indexesByKind = newIndexes;
+            overlay.clear();
+            lastBuildDurationMillis = System.currentTimeMillis() - st;
+
+            LOG.info("Built entity search index of {} entities in {}ms", getEntityCount(), lastBuildDurationMillis);
+        } catch (Exception e) {
+            LOG.error("Failed to build entity search index, searches will use the database until the next rebuild", e);
+        }
+    }
+
+
+    private void onChangeLogWritten(Collection<ChangeLog> changeLogs) {
+        Set<EntityKind> supportedKinds = entitySearchIndexDao.getSupportedEntityKinds();
+
+        Map<EntityKind, Set<Long>> changedIdsByKind = changeLogs
+                .stream()
+                .map(ChangeLog::parentReference)
+                .filter(ref -> supportedKinds.contains(ref.kind()))
+                .collect(groupingBy(
+                        EntityReference::kind,
+                        mapping(EntityReference::id, toSet())));
+
+        if (! changedIdsByKind.isEmpty()) {
+            indexer.execute(() -> applyChanges(changedIdsByKind));
+        }
+    }
+
+
+    private void applyChanges(Map<EntityKind, Set<Long>> changedIdsByKind) {
+        try {
+            changedIdsByKind.forEach((kind, ids) -> {
+                Map<Long, Optional<IndexEntry>> changes = overlay.computeIfAbsent(kind, k -> new ConcurrentHashMap<>());
+                Map<Long, IndexEntry> reloaded = new HashMap<>();
+                entitySearchIndexDao
+                        .findByIds(kind, ids)
+                        .forEach(e -> reloaded.put(e.entityReference().id(), new IndexEntry(e)));
+
+                ids.forEach(id -> changes.put(id, Optional.ofNullable(reloaded.get(id))));
+            });
+
+            if (getOverlaySize() > MAX_OVERLAY_SIZE) {
+                rebuildQuietly();
+            }
+        } catch (Exception e) {
+            LOG.warn("Failed to update entity search index, changes will be picked up on the next rebuild", e);
+        }
+    }
+
+
+    private static Set<String> mkNgrams(String str) {
+        Set<String> ngrams = new HashSet<>();
+        for (int i = 0; i + NGRAM_SIZE <= str.length(); i++) {
+            ngrams.add(str.substring(i, i + NGRAM_SIZE));
+        }
+        return ngrams;
+    }
+
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, k = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                result[k++] = a[i];
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, k);
+    }
+
+
+    private static class IndexEntry {
+
+        private final EntityReference ref;
+        private final String lowerName;
+        private final List<String> lowerValues;
+
+
+        private IndexEntry(SearchableEntity entity) {
+            this.ref = entity.entityReference();
+            this.lowerName = ref.name().orElse("").toLowerCase();
+
+            List<String> values = new ArrayList<>();
+            values.add(lowerName);
+            entity.searchKeys().forEach(k -> values.add(k.toLowerCase()));
+            this.lowerValues = values;
+        }
+
+
+        private boolean matches(List<String> terms,
+                                EntitySearchOptions options) {
+            if (! options.entityLifecycleStatuses().contains(ref.entityLifecycleStatus())) {
+                return false;
+            }
+
+            for (String term : terms) {
+                boolean found = false;
+                for (String value : lowerValues) {
+                    if (value.contains(term)) {
+                        found = true;
+                        break;
+                    }
+                }
+                if (! found) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+
+    private static class KindIndex {
+
+        private final IndexEntry[] entries;
+
+        /**
+         * Maps each trigram to the (ascending) positions of the entries containing it
+         */
+        private final Map<String, int[]> postings;
+
+
+        private KindIndex(List<IndexEntry> entryList) {
+            this.entries = entryList.toArray(new IndexEntry[0]);
+
+            Map<String, List<Integer>> positionsByNgram = new HashMap<>();
+            for (int pos = 0; pos < entries.length; pos++) {
+                Set<String> ngrams = new HashSet<>();
+                entries[pos].lowerValues.forEach(v -> ngrams.addAll(mkNgrams(v)));
+                for (String ngram : ngrams) {
+                    positionsByNgram
+                            .computeIfAbsent(ngram, k -> new ArrayList<>())
+                            .add(pos);
+                }
+            }
+
+            Map<String, int[]> compacted = new HashMap<>(positionsByNgram.size());
+            positionsByNgram.forEach((ngram, positions) -> compacted.put(
+                    ngram,
+                    positions.stream().mapToInt(Integer::intValue).toArray()));
+
+            this.postings = compacted;
+        }
+
+
+        /**
+         * Narrows the entries using the trigrams of the longest term, falling back to every
+         * entry if all terms are too short.  Candidates still need checking against all terms.
+         */
+        private void forEachCandidate(List<String> terms,
+                                      Consumer<IndexEntry> consumer) {
+            String longestTerm = terms
+                    .stream()
+                    .max(Comparator.comparingInt(String::length))
+                    .orElse("");
+
+            if (longestTerm.length() < NGRAM_SIZE) {
+                for (IndexEntry entry : entries) {
+                    consumer.accept(entry);
+                }
+                return;
+            }
+
+            int[] candidates = null;
+            for (String ngram : mkNgrams(longestTerm)) {
+                int[] positions = postings.get(ngram);
+                if (positions == null) {
+                    return;
+                }
+                candidates = candidates == null
+                        ? positions
+                        : intersect(candidates, positions);
+                if (candidates.length == 0) {
+                    return;
+                }
+            }
+
+            for (int pos : candidates) {
+                consumer.accept(entries[pos]);
+            }
+        }
+    }
+}
@@ -48,6 +48,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
 
 import static java.util.stream.Collectors.toList;
@@ -58,6 +59,7 @@ import static org.jooq.lambda.Unchecked.supplier;
 public class EntitySearchService {
 
     private final DBExecutorPoolInterface dbExecutorPool;
+    private final EntitySearchIndex entitySearchIndex;
     private final ActorService actorService;
     private final ApplicationService applicationService;
     private final AppGroupService appGroupService;
@@ -78,6 +80,7 @@ public class EntitySearchService {
 
     @Autowired
     public EntitySearchService(DBExecutorPoolInterface dbExecutorPool,
+                               EntitySearchIndex entitySearchIndex,
                                ActorService actorService,
                                ApplicationService applicationService,
                                AppGroupService appGroupService,
@@ -96,6 +99,7 @@ public class EntitySearchService {
                                DatabaseInformationService databaseInformationService) {
 
         checkNotNull(dbExecutorPool, "dbExecutorPool cannot be null");
+        checkNotNull(entitySearchIndex, "entitySearchIndex cannot be null");
         checkNotNull(actorService, "actorService cannot be null");
         checkNotNull(applicationService, "applicationService cannot be null");
         checkNotNull(appGroupService, "appGroupService cannot be null");
@@ -115,6 +119,7 @@ public class EntitySearchService {
 
         this.actorService = actorService;
         this.dbExecutorPool = dbExecutorPool;
+        this.entitySearchIndex = entitySearchIndex;
         this.applicationService = applicationService;
         this.appGroupService = appGroupService;
         this.changeInitiativeService = changeInitiativeService;
@@ -141,15 +146,27 @@ public class EntitySearchService {
             return Collections.emptyList();
         }
 
-        List<Future<Collection<? extends WaltzEntity>>> futures = options
+        List<Future<List<EntityReference>>> futures = options
                 .entityKinds()
                 .stream()
-                .map(ek -> dbExecutorPool.submit(mkCallable(ek, options)))
+                .map(ek -> entitySearchIndex.canSearch(ek)
+                        ? CompletableFuture.completedFuture(entitySearchIndex.search(ek, options))
+                        : dbExecutorPool.submit(mkDatabaseSearch(ek, options)))
                 .collect(toList());
 
         return futures
                 .stream()
                 .flatMap(f -> supplier(f::get).get().stream())
+                .collect(toList());
+    }
+
+
+    private Callable<List<EntityReference>> mkDatabaseSearch(EntityKind entityKind,
+                                                             EntitySearchOptions options) {
+        Callable<Collection<? extends WaltzEntity>> search = mkCallable(entityKind, options);
+        return () -> search
+                .call()
+                .stream()
                 .map(WaltzEntity::entityReference)
                 .collect(toList());
     }
@@ -19,7 +19,7 @@
 package org.finos.waltz.service.entity_statistic;
 
 import org.finos.waltz.common.Checks;
-import org.finos.waltz.data.application.ApplicationIdSelectorFactory;
+import org.finos.waltz.service.application.ApplicationIdSelectorResolver;
 import org.finos.waltz.data.entity_statistic.EntityStatisticDao;
 import org.finos.waltz.data.entity_statistic.EntityStatisticDefinitionDao;
 import org.finos.waltz.data.entity_statistic.EntityStatisticSummaryDao;
@@ -52,7 +52,7 @@ import static org.finos.waltz.common.MapUtilities.groupBy;
 @Service
 public class EntityStatisticService {
 
-    private final ApplicationIdSelectorFactory factory = new ApplicationIdSelectorFactory();
+    private final ApplicationIdSelectorResolver applicationIdSelectorResolver;
     private final EntityStatisticValueDao valueDao;
     private final EntityStatisticDefinitionDao definitionDao;
     private final EntityStatisticSummaryDao summaryDao;
@@ -63,18 +63,21 @@ public class EntityStatisticService {
     public EntityStatisticService(EntityStatisticValueDao valueDao,
                                   EntityStatisticDefinitionDao definitionDao,
                                   EntityStatisticSummaryDao summaryDao,
-                                  EntityStatisticDao statisticDao)
+                                  EntityStatisticDao statisticDao,
+                                  ApplicationIdSelectorResolver applicationIdSelectorResolver)
     {
         checkNotNull(valueDao, "valueDao cannot be null");
         checkNotNull(definitionDao, "definitionDao cannot be null");
         checkNotNull(summaryDao, "summaryDao cannot be null");
         checkNotNull(statisticDao, "statisticDao cannot be null");
+        checkNotNull(applicationIdSelectorResolver, "applicationIdSelectorResolver cannot be null");
 
         this.valueDao = valueDao;
         this.definitionDao = definitionDao;
         this.summaryDao = summaryDao;
         this.statisticDao = statisticDao;
 
+        this.applicationIdSelectorResolver = applicationIdSelectorResolver;
     }
 
 
@@ -91,14 +94,14 @@ public class EntityStatisticService {
 
 
     public List<EntityStatisticValue> getStatisticValuesForAppIdSelector(long statisticId, IdSelectionOptions options) {
-        Select<Record1<Long>> appIdSelector = factory.apply(options);
+        Select<Record1<Long>> appIdSelector = applicationIdSelectorResolver.apply(options);
 
         return valueDao.getStatisticValuesForAppIdSelector(statisticId, appIdSelector);
     }
 
 
     public List<Application> getStatisticAppsForAppIdSelector(long statisticId, IdSelectionOptions options) {
-        Select<Record1<Long>> appIdSelector = factory.apply(options);
+        Select<Record1<Long>> appIdSelector = applicationIdSelectorResolver.apply(options);
 
         return valueDao.getStatisticAppsForAppIdSelector(statisticId, appIdSelector);
     }
@@ -108,7 +111,7 @@ public class EntityStatisticService {
         Checks.checkNotNull(statisticIds, "statisticIds cannot be null");
         Checks.checkNotNull(options, "options cannot be null");
 
-        Select<Record1<Long>> appIdSelector = factory.apply(options);
+        Select<Record1<Long>> appIdSelector = applicationIdSelectorResolver.apply(options);
 
         Map<RollupKind, Collection<Long>> definitionIdsByRollupKind = groupBy(
                 EntityStatisticDefinition::rollupKind,
@@ -139,7 +142,7 @@ public class EntityStatisticService {
         Checks.checkNotNull(options, "options cannot be null");
         Checks.checkNotNull(rollupKind, "rollupKind cannot be null");
 
-        Select<Record1<Long>> appIdSelector = factory.apply(options);
+        Select<Record1<Long>> appIdSelector = applicationIdSelectorResolver.apply(options);
 
         switch(rollupKind) {
             case COUNT_BY_ENTITY:
@@ -165,7 +168,7 @@ public class EntityStatisticService {
         Checks.checkNotNull(options, "options cannot be null");
         Checks.checkNotNull(duration, "duration cannot be null");
 
-        Select<Record1<Long>> appIdSelector = factory.apply(options);
+        Select<Record1<Long>> appIdSelector = applicationIdSelectorResolver.apply(options);
 
         switch(rollupKind) {
             case COUNT_BY_ENTITY:
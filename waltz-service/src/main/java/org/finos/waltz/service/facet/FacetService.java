@@ -20,7 +20,7 @@ package org.finos.waltz.service.facet;
 
 
 import org.finos.waltz.data.application.ApplicationDao;
-import org.finos.waltz.data.application.ApplicationIdSelectorFactory;
+import org.finos.waltz.service.application.ApplicationIdSelectorResolver;
 import org.finos.waltz.model.IdSelectionOptions;
 import org.finos.waltz.model.tally.Tally;
 import org.jooq.Record1;
@@ -39,20 +39,23 @@ public class FacetService {
 
     private final ApplicationDao applicationDao;
 
-    private final ApplicationIdSelectorFactory applicationIdSelectorFactory = new ApplicationIdSelectorFactory();
+    private final ApplicationIdSelectorResolver applicationIdSelectorResolver;
 
 
     @Autowired
-    public FacetService(ApplicationDao applicationDao) {
+    public FacetService(ApplicationDao applicationDao,
+                        ApplicationIdSelectorResolver applicationIdSelectorResolver) {
         checkNotNull(applicationDao, "applicationDao cannot be null");
+        checkNotNull(applicationIdSelectorResolver, "applicationIdSelectorResolver cannot be null");
         this.applicationDao = applicationDao;
+        this.applicationIdSelectorResolver = applicationIdSelectorResolver;
     }
 
 
     public List<Tally<String>> getApplicationKindTallies(IdSelectionOptions options) {
         // we don't want the facets to apply and filter out non selected kinds, so we default to all kinds
         IdSelectionOptions appOptions = mkOpts(options.entityReference(), options.scope());
-        Select<Record1<Long>> appSelector = applicationIdSelectorFactory.apply(appOptions);
+        Select<Record1<Long>> appSelector = applicationIdSelectorResolver.apply(appOptions);
         return applicationDao.countByApplicationKind(appSelector);
     }
 }
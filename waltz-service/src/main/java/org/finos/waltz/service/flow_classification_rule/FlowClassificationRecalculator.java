@@ -0,0 +1,216 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.flow_classification_rule;
+
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.data_flow_decorator.ImmutableLogicalFlowDecoratorRating;
+import org.finos.waltz.model.data_flow_decorator.LogicalFlowDecoratorRating;
+import org.finos.waltz.model.entity_hierarchy.EntityHierarchyItem;
+import org.finos.waltz.model.flow_classification_rule.FlowClassificationRuleVantagePoint;
+import org.finos.waltz.model.rating.AuthoritativenessRatingValue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+import static java.util.stream.Collectors.toList;
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.finos.waltz.service.flow_classification_rule.FlowClassificationRuleResolver.getMostSpecificRanked;
+
+/**
+ * Recalculates the ratings of logical flow decorators in memory.
+ * <p>
+ * A rule declared against an org unit applies to decorators on flows whose target application
+ * sits in that org unit (or beneath it) and whose data type is the rule's data type (or beneath it).
+ * The most specific applicable rule (see {@link FlowClassificationRuleResolver#getMostSpecificRanked})
+ * naming the flow source gives the rating, if no applicable rule names the source the flow is
+ * discouraged.  Rules declared directly against an application or actor (point-to-point rules)
+ * take precedence for flows from the rule subject to that entity.
+ * <p>
+ * The recalculator is not modified after construction and may be used from multiple threads.
+ */
+public class FlowClassificationRecalculator {
+
+    private final Map<Long, Map<Long, List<FlowClassificationRuleVantagePoint>>> orgUnitRulesByOrgUnitThenDataType;
+    private final Map<EntityReference, List<FlowClassificationRuleVantagePoint>> pointToPointRulesByTarget;
+    private final Map<Long, List<Long>> orgUnitAncestorIdsById;
+    private final Map<Long, List<Long>> dataTypeAncestorIdsById;
+
+
+    /**
+     * @param orgUnitRules  vantage points for rules declared against org units
+     * @param pointToPointRules  vantage points for rules declared against applications or actors
+     * @param orgUnitHierarchy  entity hierarchy items for org units
+     * @param dataTypeHierarchy  entity hierarchy items for data types
+     */
+    public FlowClassificationRecalculator(Collection<FlowClassificationRuleVantagePoint> orgUnitRules,
+                                          Collection<FlowClassificationRuleVantagePoint> pointToPointRules,
+                                          Collection<EntityHierarchyItem> orgUnitHierarchy,
+                                          Collection<EntityHierarchyItem> dataTypeHierarchy) {
+        checkNotNull(orgUnitRules, "orgUnitRules cannot be null");
+        checkNotNull(pointToPointRules, "pointToPointRules cannot be null");
+        checkNotNull(orgUnitHierarchy, "orgUnitHierarchy cannot be null");
+        checkNotNull(dataTypeHierarchy, "dataTypeHierarchy cannot be null");
+
+        orgUnitRulesByOrgUnitThenDataType = new HashMap<>();
+        orgUnitRules.forEach(r -> orgUnitRulesByOrgUnitThenDataType
+                .computeIfAbsent(r.vantagePoint().id(), k -> new HashMap<>())
+                .computeIfAbsent(r.dataType().id(), k -> new ArrayList<>())
+                .add(r));
+
+        pointToPointRulesByTarget = new HashMap<>();
+        pointToPointRules.forEach(r -> pointToPointRulesByTarget
+                .computeIfAbsent(normalise(r.vantagePoint()), k -> new ArrayList<>())
+                .add(r));
+
+        orgUnitAncestorIdsById = indexAncestorIds(orgUnitHierarchy);
+        dataTypeAncestorIdsById = indexAncestorIds(dataTypeHierarchy);
+    }
+
+
+    /**
+     * Recalculates the given decorators (in parallel) returning only those whose
+     * rating or flow classification rule has changed.
+     *
+     * @param decorators  decorators with their current ratings
+     * @return  decorators which need updating, with their new rating and rule
+     */
+    public List<LogicalFlowDecoratorRating> findChangedRatings(Collection<LogicalFlowDecoratorRating> decorators) {
+        checkNotNull(decorators, "decorators cannot be null");
+
+        return decorators
+                .parallelStream()
+                .map(current -> {
+                    LogicalFlowDecoratorRating recalculated = calculate(current);
+                    boolean unchanged = recalculated.rating().equals(current.rating())
+                            && recalculated.flowClassificationRuleId().equals(current.flowClassificationRuleId());
+                    return unchanged
+                            ? null
+                            : recalculated;
+                })
+                .filter(Objects::nonNull)
+                .collect(toList());
+    }
+
+
+    public LogicalFlowDecoratorRating calculate(LogicalFlowDecoratorRating decorator) {
+        checkNotNull(decorator, "decorator cannot be null");
+
+        List<Long> dataTypeIds = dataTypeAncestorIdsById.getOrDefault(
+                decorator.dataTypeId(),
+                Collections.singletonList(decorator.dataTypeId()));
+
+        Optional<FlowClassificationRuleVantagePoint> pointToPointRule = getMostSpecificRanked(
+                pointToPointRulesByTarget
+                        .getOrDefault(normalise(decorator.target()), Collections.emptyList())
+                        .stream()
+                        .filter(r -> isSameEntity(r.subjectReference(), decorator.source()))
+                        .filter(r -> dataTypeIds.contains(r.dataType().id()))
+                        .collect(toList()));
+
+        if (pointToPointRule.isPresent()) {
+            return withRule(decorator, pointToPointRule.get());
+        }
+
+        List<FlowClassificationRuleVantagePoint> applicableRules = decorator
+                .targetOrgUnitId()
+                .map(ouId -> findApplicableOrgUnitRules(ouId, dataTypeIds))
+                .orElse(Collections.emptyList());
+
+        if (applicableRules.isEmpty()) {
+            return withRating(decorator, AuthoritativenessRatingValue.NO_OPINION);
+        }
+
+        return getMostSpecificRanked(applicableRules
+                    .stream()
+                    .filter(r -> isSameEntity(r.subjectReference(), decorator.source()))
+                    .collect(toList()))
+                .map(r -> withRule(decorator, r))
+                .orElseGet(() -> withRating(decorator, AuthoritativenessRatingValue.DISCOURAGED));
+    }
+
+
+    // -- HELPERS ---
+
+    private List<FlowClassificationRuleVantagePoint> findApplicableOrgUnitRules(long orgUnitId,
+                                                                               List<Long> dataTypeIds) {
+        List<FlowClassificationRuleVantagePoint> applicableRules = new ArrayList<>();
+
+        List<Long> orgUnitIds = orgUnitAncestorIdsById.getOrDefault(orgUnitId, Collections.singletonList(orgUnitId));
+        for (Long ouId : orgUnitIds) {
+            Map<Long, List<FlowClassificationRuleVantagePoint>> rulesByDataType = orgUnitRulesByOrgUnitThenDataType.get(ouId);
+            if (rulesByDataType == null) {
+                continue;
+            }
+            for (Long dtId : dataTypeIds) {
+                applicableRules.addAll(rulesByDataType.getOrDefault(dtId, Collections.emptyList()));
+            }
+        }
+
+        return applicableRules;
+    }
+
+
+    private static Map<Long, List<Long>> indexAncestorIds(Collection<EntityHierarchyItem> hierarchy) {
+        Map<Long, List<Long>> ancestorIdsById = new HashMap<>();
+        hierarchy.forEach(item -> item
+                .id()
+                .ifPresent(id -> item
+                        .parentId()
+                        .ifPresent(ancestorId -> ancestorIdsById
+                                .computeIfAbsent(id, k -> new ArrayList<>())
+                                .add(ancestorId))));
+        return ancestorIdsById;
+    }
+
+
+    private static LogicalFlowDecoratorRating withRule(LogicalFlowDecoratorRating decorator,
+                                                       FlowClassificationRuleVantagePoint rule) {
+        return ImmutableLogicalFlowDecoratorRating
+                .copyOf(decorator)
+                .withRating(AuthoritativenessRatingValue.of(rule.classificationCode()))
+                .withFlowClassificationRuleId(rule.ruleId());
+    }
+
+
+    private static LogicalFlowDecoratorRating withRating(LogicalFlowDecoratorRating decorator,
+                                                         AuthoritativenessRatingValue rating) {
+        return ImmutableLogicalFlowDecoratorRating
+                .copyOf(decorator)
+                .withRating(rating)
+                .withFlowClassificationRuleId(Optional.empty());
+    }
+
+
+    private static boolean isSameEntity(EntityReference a, EntityReference b) {
+        return a.kind() == b.kind() && a.id() == b.id();
+    }
+
+
+    private static EntityReference normalise(EntityReference ref) {
+        return mkRef(ref.kind(), ref.id());
+    }
+
+}
@@ -18,43 +18,68 @@
 
 package org.finos.waltz.service.flow_classification_rule;
 
+import org.finos.waltz.common.LongHashMap;
 import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.flow_classification_rule.FlowClassificationRuleVantagePoint;
 import org.finos.waltz.model.rating.AuthoritativenessRatingValue;
 
-import javax.swing.text.html.parser.Entity;
-import java.util.*;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
 
 import static org.finos.waltz.common.Checks.checkNotNull;
-import static org.finos.waltz.common.CollectionUtilities.head;
-import static org.finos.waltz.common.CollectionUtilities.sort;
-import static org.finos.waltz.common.MapUtilities.groupAndThen;
-import static org.finos.waltz.common.MapUtilities.isEmpty;
+import static org.finos.waltz.common.Checks.checkTrue;
 
 
 public class FlowClassificationRuleResolver {
 
-    private final Map<EntityReference, Map<Long, Map<EntityReference, Optional<FlowClassificationRuleVantagePoint>>>> byOuThenDataTypeThenSubject;
+    /**
+     * Entity references are packed into a single long, the kind ordinal occupies the top byte
+     */
+    private static final int ID_BITS = 56;
+    private static final long MAX_ID = (1L << ID_BITS) - 1;
+
+    private static final Comparator<FlowClassificationRuleVantagePoint> RANKING = Comparator
+            .comparingInt(FlowClassificationRuleVantagePoint::vantagePointRank)
+            .thenComparingInt(FlowClassificationRuleVantagePoint::dataTypeRank);
+
+    private static final Resolution NO_OPINION = new Resolution(AuthoritativenessRatingValue.NO_OPINION, null);
+    private static final Resolution DISCOURAGED = new Resolution(AuthoritativenessRatingValue.DISCOURAGED, null);
+
+    private final LongHashMap<LongHashMap<LongHashMap<Resolution>>> byOuThenDataTypeThenSubject;
+
 
     /**
      * Construct the Resolver with an internal structure as follows:
-     * OrgUnit -> [DataTypeId -> [AppId -> Rating] ]
-     * @param flowClassificationVantagePoints
+     * OrgUnit -> [DataTypeId -> [Subject -> Resolution] ]
+     * <p>
+     * Entity references are packed into primitive longs (see {@link #mkKey(EntityReference)})
+     * and the most specific ranked vantage point for each combination is determined up front,
+     * so resolving is a handful of primitive hash lookups.
+     *
+     * @param flowClassificationVantagePoints  vantage points (expanded to include descendant org units and data types)
      */
     public FlowClassificationRuleResolver(List<FlowClassificationRuleVantagePoint> flowClassificationVantagePoints) {
         checkNotNull(flowClassificationVantagePoints, "flowClassificationVantagePoints cannot be null");
 
-        byOuThenDataTypeThenSubject =
-                groupAndThen(
-                        flowClassificationVantagePoints,
-                        FlowClassificationRuleVantagePoint::vantagePoint,
-                        byOus -> groupAndThen(
-                                byOus,
-                                byOu -> byOu.dataType().id(),
-                                byDts -> groupAndThen(
-                                        byDts,
-                                        FlowClassificationRuleVantagePoint::subjectReference,
-                                        FlowClassificationRuleResolver::getMostSpecificRanked)));
+        byOuThenDataTypeThenSubject = new LongHashMap<>();
+
+        for (FlowClassificationRuleVantagePoint vantagePoint : flowClassificationVantagePoints) {
+            LongHashMap<Resolution> bySubject = byOuThenDataTypeThenSubject
+                    .computeIfAbsent(mkKey(vantagePoint.vantagePoint()), k -> new LongHashMap<>())
+                    .computeIfAbsent(vantagePoint.dataType().id(), k -> new LongHashMap<>());
+
+            long subjectKey = mkKey(vantagePoint.subjectReference());
+            Resolution existing = bySubject.get(subjectKey);
+
+            // only replace on a strictly better rank, ties go to the first seen (as per getMostSpecificRanked)
+            if (existing == null || RANKING.compare(vantagePoint, existing.rule) > 0) {
+                bySubject.put(
+                        subjectKey,
+                        new Resolution(AuthoritativenessRatingValue.of(vantagePoint.classificationCode()), vantagePoint));
+            }
+        }
     }
 
 
@@ -70,43 +95,54 @@ public class FlowClassificationRuleResolver {
     public AuthoritativenessRatingValue resolve(EntityReference vantagePoint,
                                                 EntityReference source,
                                                 Long dataTypeId) {
+        return dataTypeId == null
+                ? AuthoritativenessRatingValue.NO_OPINION
+                : lookup(mkKey(vantagePoint), mkKey(source), dataTypeId).rating;
+    }
 
-        Map<Long, Map<EntityReference, Optional<FlowClassificationRuleVantagePoint>>> ouGroup = byOuThenDataTypeThenSubject.get(vantagePoint);
-
-        // if a match cannot be found for the ou and the dt then no opinion, if a match can be found for these but the source application
-        // doesn't match then the rating should be discouraged
 
-        if(isEmpty(ouGroup)) {
-            return AuthoritativenessRatingValue.NO_OPINION;
-        }
+    public Optional<FlowClassificationRuleVantagePoint> resolveAuthSource(EntityReference vantagePoint, EntityReference source, Long dataTypeId) {
+        return dataTypeId == null
+                ? Optional.empty()
+                : lookup(mkKey(vantagePoint), mkKey(source), dataTypeId).rule();
+    }
 
-        Map<EntityReference, Optional<FlowClassificationRuleVantagePoint>> dataTypeGroup = ouGroup.get(dataTypeId);
 
-        if(isEmpty(dataTypeGroup)) {
-            return AuthoritativenessRatingValue.NO_OPINION;
+    /**
+     * Bulk version of {@link #resolve(EntityReference, EntityReference, Long)} and
+     * {@link #resolveAuthSource(EntityReference, EntityReference, Long)}.  The i'th
+     * lookup is made up of the i'th element of each of the input arrays.
+     *
+     * @param vantagePointKeys  packed vantage point references (see {@link #mkKey(EntityReference)})
+     * @param sourceKeys  packed source references (see {@link #mkKey(EntityReference)})
+     * @param dataTypeIds  data type ids
+     * @return  resolutions in the same order as the lookups
+     */
+    public Resolution[] resolveAll(long[] vantagePointKeys,
+                                   long[] sourceKeys,
+                                   long[] dataTypeIds) {
+        checkNotNull(vantagePointKeys, "vantagePointKeys cannot be null");
+        checkNotNull(sourceKeys, "sourceKeys cannot be null");
+        checkNotNull(dataTypeIds, "dataTypeIds cannot be null");
+        checkTrue(
+                vantagePointKeys.length == sourceKeys.length && sourceKeys.length == dataTypeIds.length,
+                "lookup arrays must be the same length");
+
+        Resolution[] resolutions = new Resolution[vantagePointKeys.length];
+        for (int i = 0; i < resolutions.length; i++) {
+            resolutions[i] = lookup(vantagePointKeys[i], sourceKeys[i], dataTypeIds[i]);
         }
-
-        Optional<FlowClassificationRuleVantagePoint> maybeRating = dataTypeGroup.getOrDefault(
-                source,
-                Optional.empty());
-
-        return maybeRating
-                .map(r -> AuthoritativenessRatingValue.of(r.classificationCode()))
-                .orElse(AuthoritativenessRatingValue.DISCOURAGED);
+        return resolutions;
     }
 
 
-    public Optional<FlowClassificationRuleVantagePoint> resolveAuthSource(EntityReference vantagePoint, EntityReference source, Long dataTypeId) {
-
-        Map<Long, Map<EntityReference, Optional<FlowClassificationRuleVantagePoint>>> ouGroup = byOuThenDataTypeThenSubject.get(vantagePoint);
-        if(isEmpty(ouGroup)) return Optional.empty();
-
-        Map<EntityReference, Optional<FlowClassificationRuleVantagePoint>> dataTypeGroup = ouGroup.get(dataTypeId);
-        if(isEmpty(dataTypeGroup)) return Optional.empty();
-
-        return  dataTypeGroup.getOrDefault(
-                source,
-                Optional.empty());
+    /**
+     * Packs an entity reference into a single long suitable for use with {@link #resolveAll(long[], long[], long[])}.
+     */
+    public static long mkKey(EntityReference ref) {
+        checkNotNull(ref, "ref cannot be null");
+        checkTrue(ref.id() >= 0 && ref.id() <= MAX_ID, "Cannot pack reference with id: %d", ref.id());
+        return ((long) ref.kind().ordinal() << ID_BITS) | ref.id();
     }
 
 
@@ -118,13 +154,61 @@ public class FlowClassificationRuleResolver {
      * @return
      */
     public static Optional<FlowClassificationRuleVantagePoint> getMostSpecificRanked(Collection<FlowClassificationRuleVantagePoint> vantagePoints) {
-        Comparator<FlowClassificationRuleVantagePoint> comparator = Comparator
-                .comparingInt(FlowClassificationRuleVantagePoint::vantagePointRank)
-                .thenComparingInt(FlowClassificationRuleVantagePoint::dataTypeRank);
-        return head(
-                sort(
-                    vantagePoints,
-                    (x, y) -> comparator.compare(y, x))); //note the reversal of parameters because we want descending order
+        FlowClassificationRuleVantagePoint best = null;
+        for (FlowClassificationRuleVantagePoint vantagePoint : vantagePoints) {
+            if (best == null || RANKING.compare(vantagePoint, best) > 0) {
+                best = vantagePoint;
+            }
+        }
+        return Optional.ofNullable(best);
+    }
+
+
+    // if a match cannot be found for the ou and the dt then no opinion, if a match can be found for these but the source
+    // doesn't match then the rating should be discouraged
+    private Resolution lookup(long vantagePointKey, long sourceKey, long dataTypeId) {
+        LongHashMap<LongHashMap<Resolution>> ouGroup = byOuThenDataTypeThenSubject.get(vantagePointKey);
+        if (ouGroup == null) {
+            return NO_OPINION;
+        }
+
+        LongHashMap<Resolution> dataTypeGroup = ouGroup.get(dataTypeId);
+        if (dataTypeGroup == null) {
+            return NO_OPINION;
+        }
+
+        return dataTypeGroup.getOrDefault(sourceKey, DISCOURAGED);
+    }
+
+
+    /**
+     * Outcome of resolving a single (vantage point, source, data type) lookup
+     */
+    public static final class Resolution {
+
+        private final AuthoritativenessRatingValue rating;
+        private final FlowClassificationRuleVantagePoint rule;
+
+
+        private Resolution(AuthoritativenessRatingValue rating,
+                           FlowClassificationRuleVantagePoint rule) {
+            this.rating = rating;
+            this.rule = rule;
+        }
+
+
+        public AuthoritativenessRatingValue rating() {
+            return rating;
+        }
+
+
+        /**
+         * @return  the winning rule, empty if the rating is no opinion or discouraged
+         */
+        public Optional<FlowClassificationRuleVantagePoint> rule() {
+            return Optional.ofNullable(rule);
+        }
+
     }
 
 }
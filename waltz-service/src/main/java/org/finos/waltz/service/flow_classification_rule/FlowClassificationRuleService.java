@@ -29,17 +29,21 @@ import org.finos.waltz.data.application.ApplicationIdSelectorFactory;
 import org.finos.waltz.data.data_type.DataTypeDao;
 import org.finos.waltz.data.data_type.DataTypeIdSelectorFactory;
 import org.finos.waltz.data.datatype_decorator.LogicalFlowDecoratorDao;
+import org.finos.waltz.data.entity_hierarchy.EntityHierarchyDao;
 import org.finos.waltz.data.flow_classification_rule.FlowClassificationDao;
 import org.finos.waltz.data.flow_classification_rule.FlowClassificationRuleDao;
 import org.finos.waltz.data.orgunit.OrganisationalUnitDao;
 import org.finos.waltz.model.*;
 import org.finos.waltz.model.changelog.ChangeLog;
 import org.finos.waltz.model.changelog.ImmutableChangeLog;
+import org.finos.waltz.model.data_flow_decorator.LogicalFlowDecoratorRating;
 import org.finos.waltz.model.datatype.DataType;
+import org.finos.waltz.model.entity_hierarchy.EntityHierarchyItem;
 import org.finos.waltz.model.flow_classification.FlowClassification;
 import org.finos.waltz.model.flow_classification_rule.*;
 import org.finos.waltz.model.rating.AuthoritativenessRatingValue;
 import org.jooq.Condition;
+import org.jooq.Field;
 import org.jooq.Record1;
 import org.jooq.Select;
 import org.jooq.impl.DSL;
@@ -51,12 +55,17 @@ import org.springframework.stereotype.Service;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
 
+import static org.finos.waltz.schema.tables.Application.APPLICATION;
+import static org.finos.waltz.schema.tables.EntityHierarchy.ENTITY_HIERARCHY;
+import static org.finos.waltz.schema.tables.FlowClassificationRule.FLOW_CLASSIFICATION_RULE;
 import static org.finos.waltz.schema.tables.LogicalFlowDecorator.LOGICAL_FLOW_DECORATOR;
 import static java.lang.String.format;
 import static org.finos.waltz.common.Checks.checkNotNull;
-import static org.finos.waltz.model.EntityKind.ACTOR;
+import static org.finos.waltz.common.SetUtilities.map;
 import static org.finos.waltz.model.EntityKind.ORG_UNIT;
 import static org.finos.waltz.model.EntityReference.mkRef;
 
@@ -75,6 +84,7 @@ public class FlowClassificationRuleService {
     private final FlowClassificationCalculator ratingCalculator;
     private final ChangeLogService changeLogService;
     private final LogicalFlowDecoratorDao logicalFlowDecoratorDao;
+    private final EntityHierarchyDao entityHierarchyDao;
     private final DataTypeIdSelectorFactory dataTypeIdSelectorFactory = new DataTypeIdSelectorFactory();
     private final ApplicationIdSelectorFactory applicationIdSelectorFactory = new ApplicationIdSelectorFactory();
     private final GenericSelectorFactory genericSelectorFactory = new GenericSelectorFactory();
@@ -89,7 +99,8 @@ public class FlowClassificationRuleService {
                                          ActorDao actorDao,
                                          FlowClassificationCalculator ratingCalculator,
                                          ChangeLogService changeLogService,
-                                         LogicalFlowDecoratorDao logicalFlowDecoratorDao) {
+                                         LogicalFlowDecoratorDao logicalFlowDecoratorDao,
+                                         EntityHierarchyDao entityHierarchyDao) {
         checkNotNull(flowClassificationRuleDao, "flowClassificationRuleDao must not be null");
         checkNotNull(flowClassificationDao, "flowClassificationDao must not be null");
         checkNotNull(actorDao, "actorDao must not be null");
@@ -99,6 +110,7 @@ public class FlowClassificationRuleService {
         checkNotNull(ratingCalculator, "ratingCalculator cannot be null");
         checkNotNull(changeLogService, "changeLogService cannot be null");
         checkNotNull(logicalFlowDecoratorDao, "logicalFlowDecoratorDao cannot be null");
+        checkNotNull(entityHierarchyDao, "entityHierarchyDao cannot be null");
 
         this.flowClassificationRuleDao = flowClassificationRuleDao;
         this.flowClassificationDao = flowClassificationDao;
@@ -109,6 +121,7 @@ public class FlowClassificationRuleService {
         this.ratingCalculator = ratingCalculator;
         this.changeLogService = changeLogService;
         this.logicalFlowDecoratorDao = logicalFlowDecoratorDao;
+        this.entityHierarchyDao = entityHierarchyDao;
     }
 
 
@@ -137,8 +150,7 @@ public class FlowClassificationRuleService {
         long ruleId = command
                 .id()
                 .orElseThrow(() -> new IllegalArgumentException("cannot update an flow classification rule without an id"));
-        FlowClassificationRule updatedClassificationRule = getById(ruleId);
-        ratingCalculator.update(updatedClassificationRule.dataTypeId(), updatedClassificationRule.vantagePointReference());
+        recalculateFlowRatingsForRule(getById(ruleId));
         logUpdate(command, username);
         return updateCount;
     }
@@ -146,13 +158,8 @@ public class FlowClassificationRuleService {
 
     public long insert(FlowClassificationRuleCreateCommand command, String username) {
         long classificationRuleId = flowClassificationRuleDao.insert(command, username);
-
-        if (command.parentReference().kind() == ORG_UNIT) {
-            ratingCalculator.update(command.dataTypeId(), command.parentReference());
-        }
-
+        recalculateFlowRatingsForRule(getById(classificationRuleId));
         logInsert(classificationRuleId, command, username);
-        flowClassificationRuleDao.updatePointToPointFlowClassificationRules();
 
         return classificationRuleId;
     }
@@ -169,16 +176,7 @@ public class FlowClassificationRuleService {
         logRemoval(id, username);
 
         int deletedCount = flowClassificationRuleDao.remove(id);
-
-        //set any point-to-point overrides as no opinion first then recalculate for all rules
-        LOG.debug("Updating point-point ratings");
-        flowClassificationRuleDao.clearRatingsForPointToPointFlows(classificationRuleToDelete);
-
-        LOG.debug("Updated point-point");
-        if (classificationRuleToDelete.vantagePointReference().kind() != ACTOR) {
-            LOG.debug("Updating org unit /app flow ratings");
-            ratingCalculator.update(classificationRuleToDelete.dataTypeId(), classificationRuleToDelete.vantagePointReference());
-        }
+        recalculateFlowRatingsForRule(classificationRuleToDelete);
 
         return deletedCount;
     }
@@ -200,27 +198,170 @@ public class FlowClassificationRuleService {
     }
 
 
+    /**
+     * Recalculates the rating of every logical flow decorator in memory and writes
+     * back only those which have changed, in a single transaction.
+     *
+     * @return number of decorators whose rating (or rule) changed
+     */
     public int fastRecalculateAllFlowRatings() {
-        logicalFlowDecoratorDao.updateRatingsByCondition(AuthoritativenessRatingValue.NO_OPINION, DSL.trueCondition());
+        long start = System.currentTimeMillis();
 
-        //finds all the vantage points to apply using parent as selector
-        List<FlowClassificationRuleVantagePoint> flowClassificationRuleVantagePoints = flowClassificationRuleDao
-                .findFlowClassificationRuleVantagePoints();
+        FlowClassificationRecalculator recalculator = mkRecalculator(
+                entityHierarchyDao.findByKind(ORG_UNIT),
+                entityHierarchyDao.findByKind(EntityKind.DATA_TYPE));
 
-        int updatedRuleDecorators = flowClassificationRuleVantagePoints
-                .stream()
-                .mapToInt(logicalFlowDecoratorDao::updateDecoratorsForFlowClassificationRule)
-                .sum();
+        List<LogicalFlowDecoratorRating> currentRatings = logicalFlowDecoratorDao.findAllRatings();
+        List<LogicalFlowDecoratorRating> changedRatings = recalculator.findChangedRatings(currentRatings);
 
-        //overrides rating for point to point flows (must run after the above)
-        int updatedPointToPointDecorators = flowClassificationRuleDao.updatePointToPointFlowClassificationRules();
+        int updatedDecorators = logicalFlowDecoratorDao.updateRatings(changedRatings);
 
         LOG.info(
-                "Updated decorators for: {} for general rules and {} point-to-point flows",
-                updatedRuleDecorators,
-                updatedPointToPointDecorators);
+                "Recalculated ratings for {} decorators, updated {}, in {}ms",
+                currentRatings.size(),
+                updatedDecorators,
+                System.currentTimeMillis() - start);
+
+        return updatedDecorators;
+    }
+
+
+    /**
+     * Recalculates the ratings of decorators which fall within the scope of the given rule,
+     * i.e. decorators with a data type beneath the rule's data type on flows into the rule's
+     * vantage point.  For org unit rules these are flows into applications beneath the org unit,
+     * for point-to-point rules they are flows from the rule subject to the vantage point entity.
+     * Only rules which overlap the changed rule (by org unit / vantage point and data type) are
+     * loaded, these are the only rules which can apply to the decorators being recalculated.
+     * <p>
+     * Should be called after the rule has been inserted, updated or removed.
+     *
+     * @param rule  the rule which has changed
+     * @return number of decorators whose rating (or rule) changed
+     */
+    private int recalculateFlowRatingsForRule(FlowClassificationRule rule) {
+        EntityReference vantagePoint = rule.vantagePointReference();
+
+        List<LogicalFlowDecoratorRating> currentRatings = vantagePoint.kind() == ORG_UNIT
+                ? logicalFlowDecoratorDao.findRatingsByTargetOrgUnitAndDataType(vantagePoint.id(), rule.dataTypeId())
+                : logicalFlowDecoratorDao.findRatingsByFlowEndpointsAndDataType(rule.subjectReference(), vantagePoint, rule.dataTypeId());
+
+        if (currentRatings.isEmpty()) {
+            return 0;
+        }
+
+        Set<Long> orgUnitIds = currentRatings
+                .stream()
+                .map(LogicalFlowDecoratorRating::targetOrgUnitId)
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .collect(Collectors.toSet());
+
+        Set<Long> dataTypeIds = map(currentRatings, LogicalFlowDecoratorRating::dataTypeId);
+
+        List<EntityHierarchyItem> orgUnitHierarchy = entityHierarchyDao.findByKindAndIds(ORG_UNIT, orgUnitIds);
+
+        FlowClassificationRecalculator recalculator = new FlowClassificationRecalculator(
+                flowClassificationRuleDao.findFlowClassificationRuleVantagePoints(mkOverlappingOrgUnitRulesCondition(rule, orgUnitHierarchy)),
+                flowClassificationRuleDao.findPointToPointFlowClassificationRuleVantagePoints(mkOverlappingPointToPointRulesCondition(rule)),
+                orgUnitHierarchy,
+                entityHierarchyDao.findByKindAndIds(EntityKind.DATA_TYPE, dataTypeIds));
+
+        int updatedDecorators = logicalFlowDecoratorDao.updateRatings(recalculator.findChangedRatings(currentRatings));
+
+        LOG.debug(
+                "Recalculated ratings for {} decorators affected by rule: {}, updated {}",
+                currentRatings.size(),
+                rule.id().orElse(null),
+                updatedDecorators);
+
+        return updatedDecorators;
+    }
+
+
+    /**
+     * Org unit rules which may apply to decorators in scope of the given rule.  These are rules
+     * for a data type above or below the rule's data type, declared against an org unit which
+     * is an ancestor of one of the decorator target org units.  For org unit rules the candidate
+     * org units are found via the hierarchy (the subtree may be large), for point-to-point rules
+     * the (few) ancestors of the targets are used directly.
+     */
+    private static Condition mkOverlappingOrgUnitRulesCondition(FlowClassificationRule rule,
+                                                                Collection<EntityHierarchyItem> targetOrgUnitHierarchy) {
+        EntityReference vantagePoint = rule.vantagePointReference();
+
+        Condition orgUnitCondition;
+        if (vantagePoint.kind() == ORG_UNIT) {
+            orgUnitCondition = mkOverlappingHierarchyCondition(FLOW_CLASSIFICATION_RULE.PARENT_ID, ORG_UNIT, vantagePoint.id());
+        } else {
+            Set<Long> ancestorOrgUnitIds = targetOrgUnitHierarchy
+                    .stream()
+                    .map(EntityHierarchyItem::parentId)
+                    .filter(Optional::isPresent)
+                    .map(Optional::get)
+                    .collect(Collectors.toSet());
+            orgUnitCondition = FLOW_CLASSIFICATION_RULE.PARENT_ID.in(ancestorOrgUnitIds);
+        }
+
+        return orgUnitCondition.and(mkOverlappingDataTypeCondition(rule));
+    }
+
+
+    /**
+     * Point-to-point rules which may apply to decorators in scope of the given rule.  For org unit
+     * rules these are rules declared against applications in the org unit subtree, for point-to-point
+     * rules only rules declared against the same vantage point can apply.
+     */
+    private static Condition mkOverlappingPointToPointRulesCondition(FlowClassificationRule rule) {
+        EntityReference vantagePoint = rule.vantagePointReference();
+
+        Condition vantagePointCondition = vantagePoint.kind() == ORG_UNIT
+                ? FLOW_CLASSIFICATION_RULE.PARENT_KIND.eq(EntityKind.APPLICATION.name())
+                    .and(FLOW_CLASSIFICATION_RULE.PARENT_ID.in(DSL
+                            .select(APPLICATION.ID)
+                            .from(APPLICATION)
+                            .where(APPLICATION.ORGANISATIONAL_UNIT_ID.in(mkDescendantIdsSelector(ORG_UNIT, vantagePoint.id())))))
+                : FLOW_CLASSIFICATION_RULE.PARENT_KIND.eq(vantagePoint.kind().name())
+                    .and(FLOW_CLASSIFICATION_RULE.PARENT_ID.eq(vantagePoint.id()));
+
+        return vantagePointCondition.and(mkOverlappingDataTypeCondition(rule));
+    }
+
+
+    private static Condition mkOverlappingDataTypeCondition(FlowClassificationRule rule) {
+        return mkOverlappingHierarchyCondition(FLOW_CLASSIFICATION_RULE.DATA_TYPE_ID, EntityKind.DATA_TYPE, rule.dataTypeId());
+    }
+
+
+    /**
+     * Matches ids which are either an ancestor of (or equal to) the given entity or a descendant of it.
+     */
+    private static Condition mkOverlappingHierarchyCondition(Field<Long> field, EntityKind kind, long id) {
+        return field.in(DSL
+                        .select(ENTITY_HIERARCHY.ANCESTOR_ID)
+                        .from(ENTITY_HIERARCHY)
+                        .where(ENTITY_HIERARCHY.KIND.eq(kind.name()))
+                        .and(ENTITY_HIERARCHY.ID.eq(id)))
+                .or(field.in(mkDescendantIdsSelector(kind, id)));
+    }
+
+
+    private static Select<Record1<Long>> mkDescendantIdsSelector(EntityKind kind, long id) {
+        return DSL
+                .select(ENTITY_HIERARCHY.ID)
+                .from(ENTITY_HIERARCHY)
+                .where(ENTITY_HIERARCHY.KIND.eq(kind.name()))
+                .and(ENTITY_HIERARCHY.ANCESTOR_ID.eq(id));
+    }
+
 
-        return updatedRuleDecorators + updatedPointToPointDecorators;
+    private FlowClassificationRecalculator mkRecalculator(Collection<EntityHierarchyItem> orgUnitHierarchy,
+                                                          Collection<EntityHierarchyItem> dataTypeHierarchy) {
+        return new FlowClassificationRecalculator(
+                flowClassificationRuleDao.findFlowClassificationRuleVantagePoints(),
+                flowClassificationRuleDao.findPointToPointFlowClassificationRuleVantagePoints(),
+                orgUnitHierarchy,
+                dataTypeHierarchy);
     }
 
 
@@ -20,6 +20,7 @@ package org.finos.waltz.service.flow_classification_rule;
 
 import org.finos.waltz.data.flow_classification_rule.FlowClassificationDao;
 import org.finos.waltz.model.flow_classification.FlowClassification;
+import org.finos.waltz.service.reference_data.ReferenceDataCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -36,18 +37,22 @@ public class FlowClassificationService {
     private static final Logger LOG = LoggerFactory.getLogger(FlowClassificationService.class);
 
     private final FlowClassificationDao flowClassificationDao;
+    private final ReferenceDataCache referenceDataCache;
 
     @Autowired
-    public FlowClassificationService(FlowClassificationDao flowClassificationDao) {
+    public FlowClassificationService(FlowClassificationDao flowClassificationDao,
+                                     ReferenceDataCache referenceDataCache) {
         checkNotNull(flowClassificationDao, "flowClassificationDao must not be null");
+        checkNotNull(referenceDataCache, "referenceDataCache must not be null");
 
         this.flowClassificationDao = flowClassificationDao;
+        this.referenceDataCache = referenceDataCache;
     }
 
     public FlowClassification getById(long id) {
         return flowClassificationDao.getById(id);
     }
 
-    public Set<FlowClassification> findAll() { return flowClassificationDao.findAll(); }
+    public Set<FlowClassification> findAll() { return referenceDataCache.findAllFlowClassifications(); }
 
 }
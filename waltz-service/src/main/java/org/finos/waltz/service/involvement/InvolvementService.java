@@ -35,6 +35,7 @@ import org.finos.waltz.model.person.Person;
 import org.finos.waltz.model.user.SystemRole;
 import org.finos.waltz.service.changelog.ChangeLogService;
 import org.finos.waltz.service.involvement_kind.InvolvementKindService;
+import org.finos.waltz.service.permission.UserAuthorizationCache;
 import org.finos.waltz.service.user.UserRoleService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -64,6 +65,7 @@ public class InvolvementService {
     private final InvolvementKindService involvementKindService;
     private final PersonDao personDao;
     private final UserRoleService userRoleService;
+    private final UserAuthorizationCache userAuthorizationCache;
     private final GenericSelectorFactory genericSelectorFactory = new GenericSelectorFactory();
 
     private Map<Long, String> involvementKindIdToNameMap;
@@ -75,13 +77,15 @@ public class InvolvementService {
                               EntityReferenceNameResolver entityReferenceNameResolver,
                               InvolvementKindService involvementKindService,
                               PersonDao personDao,
-                              UserRoleService userRoleService) {
+                              UserRoleService userRoleService,
+                              UserAuthorizationCache userAuthorizationCache) {
         checkNotNull(changeLogService, "changeLogService cannot be null");
         checkNotNull(dao, "involvementDao must not be null");
         checkNotNull(entityReferenceNameResolver, "entityReferenceNameResolver cannot be null");
         checkNotNull(involvementKindService, "involvementKindService cannot be null");
         checkNotNull(userRoleService, "userRoleService cannot be null");
         checkNotNull(personDao, "personDao cannot be null");
+        checkNotNull(userAuthorizationCache, "userAuthorizationCache cannot be null");
 
         this.changeLogService = changeLogService;
         this.involvementDao = dao;
@@ -89,6 +93,7 @@ public class InvolvementService {
         this.involvementKindService = involvementKindService;
         this.userRoleService = userRoleService;
         this.personDao = personDao;
+        this.userAuthorizationCache = userAuthorizationCache;
     }
 
 
@@ -107,7 +112,21 @@ public class InvolvementService {
     public Set<Long> findExistingInvolvementKindIdsForUser(EntityReference entityReference, String username) {
         checkNotNull(entityReference, "entityReference cannot be empty");
         checkNotEmpty(username, "username cannot be empty");
-        return involvementDao.findExistingInvolvementKindIdsForUser(entityReference, username);
+        return userAuthorizationCache.findInvolvementKindIds(entityReference, username);
+    }
+
+
+    /**
+     * Batch form of {@link #findExistingInvolvementKindIdsForUser(EntityReference, String)}
+     * @param entityReferences  entities to check
+     * @param username  user to find involvement kinds for
+     * @return  involvement kind ids keyed by (kind, id) only entity references
+     */
+    public Map<EntityReference, Set<Long>> findExistingInvolvementKindIdsForUser(Collection<EntityReference> entityReferences,
+                                                                               String username) {
+        checkNotNull(entityReferences, "entityReferences cannot be null");
+        checkNotEmpty(username, "username cannot be empty");
+        return userAuthorizationCache.findInvolvementKindIds(entityReferences, username);
     }
 
 
@@ -144,6 +163,7 @@ public class InvolvementService {
         Involvement involvement = mkInvolvement(entityReference, command);
         boolean result = involvementDao.save(involvement) == 1;
         if (result) {
+            userAuthorizationCache.invalidateInvolvements(entityReference);
             logChange(entityReference, userId, command);
         }
         return result;
@@ -159,6 +179,7 @@ public class InvolvementService {
 
         boolean result = involvementDao.remove(involvement) > 0;
         if (result) {
+            userAuthorizationCache.invalidateInvolvements(entityReference);
             logChange(entityReference, userId, command);
         }
         return result;
@@ -174,8 +195,10 @@ public class InvolvementService {
     public int deleteByGenericEntitySelector(IdSelectionOptions selectionOptions) {
         GenericSelector genericSelector = genericSelectorFactory
                 .apply(selectionOptions);
-        return involvementDao
+        int rc = involvementDao
                 .deleteByGenericEntitySelector(genericSelector);
+        userAuthorizationCache.invalidateAllInvolvements();
+        return rc;
     }
 
 
@@ -187,12 +210,15 @@ public class InvolvementService {
     public int cleanupInvolvementsForKind(String userName, EntityKind entityKind) {
         boolean isAdmin = userRoleService.hasRole(userName, SystemRole.ADMIN);
         Checks.checkTrue(isAdmin, "Must be an admin to bulk remove involvements");
-        return involvementDao.cleanupInvolvementsForKind(entityKind);
+        int rc = involvementDao.cleanupInvolvementsForKind(entityKind);
+        userAuthorizationCache.invalidateAllInvolvements();
+        return rc;
     }
 
     public int bulkStoreInvolvements(Set<Involvement> involvements, String username) {
 
         int insertedRecords = involvementDao.bulkStoreInvolvements(involvements);
+        userAuthorizationCache.invalidateInvolvements(map(involvements, Involvement::entityReference));
 
         Map<Long, String> involvementKindNameByIdMap = loadInvolvementKindIdToNameMap();
 
@@ -212,6 +238,7 @@ public class InvolvementService {
     public int bulkDeleteInvolvements(Set<Involvement> involvements, String username) {
 
         int removedRecords = involvementDao.bulkDeleteInvolvements(involvements);
+        userAuthorizationCache.invalidateInvolvements(map(involvements, Involvement::entityReference));
 
         Map<Long, String> involvementKindNameByIdMap = loadInvolvementKindIdToNameMap();
 
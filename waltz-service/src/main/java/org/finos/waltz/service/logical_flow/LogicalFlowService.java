@@ -53,15 +53,18 @@ import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.Future;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static java.lang.String.format;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.emptySet;
 import static java.util.stream.Collectors.toSet;
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.CollectionUtilities.isEmpty;
@@ -372,19 +375,27 @@ public class LogicalFlowService {
     public Set<Long> findEditableFlowIdsForParentReference(EntityReference parentRef, String username) {
         List<LogicalFlow> logicalFlows = findByEntityReference(parentRef);
 
-        Set<Operation> flowPermissionsForParentEntity = flowPermissionChecker.findFlowPermissionsForParentEntity(parentRef, username);
+        Set<EntityReference> parentAndCounterpartRefs = Stream
+                .concat(
+                        Stream.of(parentRef),
+                        logicalFlows.stream().flatMap(f -> Stream.of(f.source(), f.target())))
+                .collect(toSet());
+
+        Map<EntityReference, Set<Operation>> permissionsByRef = flowPermissionChecker.findFlowPermissionsForParentEntities(
+                parentAndCounterpartRefs,
+                username);
 
-        if (hasIntersection(flowPermissionsForParentEntity, asSet(Operation.ADD, Operation.UPDATE, Operation.REMOVE))) {
+        Set<Operation> editOperations = asSet(Operation.ADD, Operation.UPDATE, Operation.REMOVE);
+        Predicate<EntityReference> canEdit = ref -> hasIntersection(
+                permissionsByRef.getOrDefault(mkRef(ref.kind(), ref.id()), emptySet()),
+                editOperations);
+
+        if (canEdit.test(parentRef)) {
             return map(logicalFlows, f -> f.id().get());
         } else {
-
             return logicalFlows.stream()
-                    .flatMap(f -> asSet(tuple(f.id().get(), f.source()), tuple(f.id().get(), f.target())).stream())
-                    .filter(t -> {
-                        Set<Operation> entity = flowPermissionChecker.findFlowPermissionsForParentEntity(t.v2, username);
-                        return hasIntersection(entity, asSet(Operation.ADD, Operation.UPDATE, Operation.REMOVE));
-                    })
-                    .map(t -> t.v1)
+                    .filter(f -> canEdit.test(f.source()) || canEdit.test(f.target()))
+                    .map(f -> f.id().get())
                     .collect(toSet());
         }
     }
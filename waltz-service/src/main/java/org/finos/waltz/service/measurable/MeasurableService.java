@@ -21,6 +21,7 @@ package org.finos.waltz.service.measurable;
 import org.finos.waltz.service.changelog.ChangeLogService;
 import org.finos.waltz.common.DateTimeUtilities;
 import org.finos.waltz.common.StringUtilities;
+import org.finos.waltz.data.EntityNameDictionary;
 import org.finos.waltz.data.EntityReferenceNameResolver;
 import org.finos.waltz.data.measurable.MeasurableDao;
 import org.finos.waltz.data.measurable.MeasurableIdSelectorFactory;
@@ -52,22 +53,26 @@ public class MeasurableService {
     private final MeasurableSearchDao measurableSearchDao;
     private final ChangeLogService changeLogService;
     private final EntityReferenceNameResolver nameResolver;
+    private final EntityNameDictionary entityNameDictionary;
 
 
     @Autowired
     public MeasurableService(MeasurableDao measurableDao,
                              MeasurableSearchDao measurableSearchDao,
                              EntityReferenceNameResolver nameResolver,
-                             ChangeLogService changeLogService) {
+                             ChangeLogService changeLogService,
+                             EntityNameDictionary entityNameDictionary) {
         checkNotNull(measurableDao, "measurableDao cannot be null");
         checkNotNull(measurableSearchDao, "measurableSearchDao cannot be null");
         checkNotNull(nameResolver, "nameResolver cannot be null");
         checkNotNull(changeLogService, "changeLogService cannot be null");
+        checkNotNull(entityNameDictionary, "entityNameDictionary cannot be null");
 
         this.measurableDao = measurableDao;
         this.measurableSearchDao = measurableSearchDao;
         this.nameResolver = nameResolver;
         this.changeLogService = changeLogService;
+        this.entityNameDictionary = entityNameDictionary;
     }
 
 
@@ -132,7 +137,9 @@ public class MeasurableService {
 
     public boolean updateName(long id, String newValue, String userId) {
         logUpdate(id, "name", newValue, m -> ofNullable(m.name()), userId);
-        return measurableDao.updateName(id, newValue, userId);
+        boolean result = measurableDao.updateName(id, newValue, userId);
+        entityNameDictionary.invalidate(mkRef(EntityKind.MEASURABLE, id));
+        return result;
     }
 
 
@@ -144,7 +151,9 @@ public class MeasurableService {
 
     public boolean updateExternalId(long id, String newValue, String userId) {
         logUpdate(id, "externalId", newValue, ExternalIdProvider::externalId, userId);
-        return measurableDao.updateExternalId(id, newValue, userId);
+        boolean result = measurableDao.updateExternalId(id, newValue, userId);
+        entityNameDictionary.invalidate(mkRef(EntityKind.MEASURABLE, id));
+        return result;
     }
 
 
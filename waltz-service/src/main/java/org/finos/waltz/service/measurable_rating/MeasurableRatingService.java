@@ -20,7 +20,7 @@ package org.finos.waltz.service.measurable_rating;
 
 import org.finos.waltz.common.DateTimeUtilities;
 import org.finos.waltz.data.EntityReferenceNameResolver;
-import org.finos.waltz.data.application.ApplicationIdSelectorFactory;
+import org.finos.waltz.service.application.ApplicationIdSelectorResolver;
 import org.finos.waltz.data.measurable.MeasurableDao;
 import org.finos.waltz.data.measurable.MeasurableIdSelectorFactory;
 import org.finos.waltz.data.measurable_category.MeasurableCategoryDao;
@@ -68,7 +68,7 @@ public class MeasurableRatingService {
     private final EntityReferenceNameResolver entityReferenceNameResolver;
 
     private final MeasurableIdSelectorFactory measurableIdSelectorFactory = new MeasurableIdSelectorFactory();
-    private final ApplicationIdSelectorFactory applicationIdSelectorFactory = new ApplicationIdSelectorFactory();
+    private final ApplicationIdSelectorResolver applicationIdSelectorResolver;
 
 
     @Autowired
@@ -77,12 +77,14 @@ public class MeasurableRatingService {
                                    MeasurableCategoryDao measurableCategoryDao,
                                    ChangeLogService changeLogService,
                                    RatingSchemeService ratingSchemeService,
-                                   EntityReferenceNameResolver entityReferenceNameResolver) {
+                                   EntityReferenceNameResolver entityReferenceNameResolver,
+                                   ApplicationIdSelectorResolver applicationIdSelectorResolver) {
         checkNotNull(measurableRatingDao, "measurableRatingDao cannot be null");
         checkNotNull(measurableDao, "measurableDao cannot be null");
         checkNotNull(measurableCategoryDao, "measurableCategoryDao cannot be null");
         checkNotNull(changeLogService, "changeLogService cannot be null");
         checkNotNull(ratingSchemeService, "ratingSchemeService cannot be null");
+        checkNotNull(applicationIdSelectorResolver, "applicationIdSelectorResolver cannot be null");
 
         this.measurableRatingDao = measurableRatingDao;
         this.measurableDao = measurableDao;
@@ -90,6 +92,7 @@ public class MeasurableRatingService {
         this.changeLogService = changeLogService;
         this.ratingSchemeService = ratingSchemeService;
         this.entityReferenceNameResolver = entityReferenceNameResolver;
+        this.applicationIdSelectorResolver = applicationIdSelectorResolver;
     }
 
     // -- READ
@@ -109,7 +112,7 @@ public class MeasurableRatingService {
 
     public Collection<MeasurableRating> findByAppIdSelector(IdSelectionOptions options) {
         checkNotNull(options, "options cannot be null");
-        Select<Record1<Long>> selector = applicationIdSelectorFactory.apply(options);
+        Select<Record1<Long>> selector = applicationIdSelectorResolver.apply(options);
         return measurableRatingDao.findByApplicationIdSelector(selector);
     }
 
@@ -299,7 +302,7 @@ public class MeasurableRatingService {
 
     public List<MeasurableRatingTally> statsByAppSelector(MeasurableRatingStatParams params) {
         checkNotNull(params, "params cannot be null");
-        Select<Record1<Long>> selector = applicationIdSelectorFactory.apply(params.options());
+        Select<Record1<Long>> selector = applicationIdSelectorResolver.apply(params.options());
         return measurableRatingDao.statsByAppSelector(
                 selector,
                 params.showPrimaryOnly());
@@ -307,7 +310,7 @@ public class MeasurableRatingService {
 
 
     public boolean hasImplicitlyRelatedMeasurables(long measurableId, IdSelectionOptions options) {
-        Select<Record1<Long>> selector = applicationIdSelectorFactory.apply(options);
+        Select<Record1<Long>> selector = applicationIdSelectorResolver.apply(options);
         return measurableRatingDao.hasImplicitlyRelatedMeasurables(measurableId, selector);
     }
 
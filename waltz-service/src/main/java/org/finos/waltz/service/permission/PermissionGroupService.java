@@ -6,35 +6,36 @@ import org.finos.waltz.model.attestation.UserAttestationPermission;
 import org.finos.waltz.model.permission_group.CheckPermissionCommand;
 import org.finos.waltz.model.permission_group.Permission;
 import org.finos.waltz.model.permission_group.RequiredInvolvementsResult;
-import org.finos.waltz.model.person.Person;
 import org.finos.waltz.service.involvement.InvolvementService;
-import org.finos.waltz.service.person.PersonService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
 
-import static java.util.Objects.isNull;
+import static java.util.stream.Collectors.toMap;
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.SetUtilities.filter;
+import static org.finos.waltz.model.EntityReference.mkRef;
 
 @Service
 public class PermissionGroupService {
     private static final Logger LOG = LoggerFactory.getLogger(PermissionGroupService.class);
 
-    private final PersonService personService;
+    private final UserAuthorizationCache userAuthorizationCache;
     private final PermissionGroupDao permissionGroupDao;
     private final InvolvementService involvementService;
 
 
     @Autowired
-    public PermissionGroupService(PersonService personService,
+    public PermissionGroupService(UserAuthorizationCache userAuthorizationCache,
                                   PermissionGroupDao permissionGroupDao,
                                   InvolvementService involvementService) {
-        this.personService = personService;
+        this.userAuthorizationCache = userAuthorizationCache;
         this.permissionGroupDao = permissionGroupDao;
         this.involvementService = involvementService;
     }
@@ -43,13 +44,35 @@ public class PermissionGroupService {
     public Set<Permission> findPermissionsForParentReference(EntityReference parentEntityRef,
                                                              String username) {
 
-        Person person = personService.getPersonByUserId(username);
-
-        if (isNull(person)) {
+        if (! userAuthorizationCache.isKnownPerson(username)) {
             return Collections.emptySet();
         }
 
-        return permissionGroupDao.findPermissionsForParentEntityReference(parentEntityRef);
+        return userAuthorizationCache.findPermissionsForParentEntity(parentEntityRef);
+    }
+
+
+    /**
+     * Batch form of {@link #findPermissionsForParentReference(EntityReference, String)}, the
+     * user is only resolved once and the permission group rules for all the entities are
+     * fetched together.
+     *
+     * @param parentEntityRefs  entities to find permissions for
+     * @param username  user the permissions are being checked for
+     * @return  permissions keyed by (kind, id) only entity references, every given entity is present
+     */
+    public Map<EntityReference, Set<Permission>> findPermissionsForParentReferences(Collection<EntityReference> parentEntityRefs,
+                                                                                    String username) {
+
+        if (! userAuthorizationCache.isKnownPerson(username)) {
+            return parentEntityRefs
+                    .stream()
+                    .map(ref -> mkRef(ref.kind(), ref.id()))
+                    .distinct()
+                    .collect(toMap(ref -> ref, ref -> Collections.<Permission>emptySet()));
+        }
+
+        return userAuthorizationCache.findPermissionsForParentEntities(parentEntityRefs);
     }
 
 
@@ -0,0 +1,339 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.permission;
+
+import org.finos.waltz.common.BoundedCache;
+import org.finos.waltz.data.involvement.InvolvementDao;
+import org.finos.waltz.data.permission.PermissionGroupDao;
+import org.finos.waltz.data.person.PersonDao;
+import org.finos.waltz.data.user.UserRoleDao;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.permission_group.Permission;
+import org.jooq.lambda.tuple.Tuple2;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+
+/**
+ * Optional, server side, cache of the inputs to authorization decisions:
+ * <ul>
+ *     <li>the roles held by each user</li>
+ *     <li>whether a user is a known person</li>
+ *     <li>the involvement kinds a user has with an entity</li>
+ *     <li>the permission group rules which apply to an entity</li>
+ * </ul>
+ * Entries are invalidated when roles or involvements are changed via the services, and
+ * expire after a fixed ttl as involvements, people and permission groups are also maintained
+ * by external jobs.  Only positive person lookups are cached, so new users are recognised
+ * immediately.
+ * <p>
+ * As stale entries may briefly grant (or deny) access the cache is disabled by default, enable
+ * it via <code>authorization.cache.enabled</code>.  When disabled every lookup goes to the database.
+ */
+@Service
+@ManagedResource(description = "Cache of user roles, involvements and permission group rules used when checking permissions")
+public class UserAuthorizationCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UserAuthorizationCache.class);
+
+    private final UserRoleDao userRoleDao;
+    private final PersonDao personDao;
+    private final InvolvementDao involvementDao;
+    private final PermissionGroupDao permissionGroupDao;
+    private final boolean enabled;
+
+    private final BoundedCache<String, Set<String>> rolesByUser;
+    private final BoundedCache<String, Boolean> knownPeople;
+    private final BoundedCache<Tuple2<String, EntityReference>, Set<Long>> involvementKindIdsByUserAndEntity;
+    private final BoundedCache<EntityReference, Set<Permission>> permissionsByParentEntity;
+
+
+    @Autowired
+    public UserAuthorizationCache(UserRoleDao userRoleDao,
+                                  PersonDao personDao,
+                                  InvolvementDao involvementDao,
+                                  PermissionGroupDao permissionGroupDao,
+                                  @Value("${authorization.cache.enabled:false}") boolean enabled,
+                                  @Value("${authorization.cache.max_entries:50000}") long maxEntries,
+                                  @Value("${authorization.cache.ttl_minutes:5}") long ttlMinutes) {
+        checkNotNull(userRoleDao, "userRoleDao cannot be null");
+        checkNotNull(personDao, "personDao cannot be null");
+        checkNotNull(involvementDao, "involvementDao cannot be null");
+        checkNotNull(permissionGroupDao, "permissionGroupDao cannot be null");
+
+        this.userRoleDao = userRoleDao;
+        this.personDao = personDao;
+        this.involvementDao = involvementDao;
+        this.permissionGroupDao = permissionGroupDao;
+        this.enabled = enabled;
+
+        long ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+        this.rolesByUser = BoundedCache.mkCountBoundedCache(maxEntries, ttlMillis);
+        this.knownPeople = BoundedCache.mkCountBoundedCache(maxEntries, ttlMillis);
+        this.involvementKindIdsByUserAndEntity = BoundedCache.mkCountBoundedCache(maxEntries, ttlMillis);
+        this.permissionsByParentEntity = BoundedCache.mkCountBoundedCache(maxEntries, ttlMillis);
+    }
+
+
+    public Set<String> getUserRoles(String userName) {
+        if (! enabled || userName == null) {
+            return userRoleDao.getUserRoles(userName);
+        }
+        return rolesByUser.getOrCompute(
+                userName,
+                u -> Collections.unmodifiableSet(new HashSet<>(userRoleDao.getUserRoles(u))));
+    }
+
+
+    /**
+     * @param userName  user id (email) to check
+     * @return true if the user corresponds to a person
+     */
+    public boolean isKnownPerson(String userName) {
+        if (! enabled || userName == null) {
+            return personDao.getByUserEmail(userName) != null;
+        }
+        return knownPeople.getOrCompute(
+                userName,
+                u -> personDao.getByUserEmail(u) == null ? null : Boolean.TRUE) != null;
+    }
+
+
+    public Set<Long> findInvolvementKindIds(EntityReference parentEntityRef,
+                                            String userName) {
+        if (! enabled) {
+            return involvementDao.findExistingInvolvementKindIdsForUser(parentEntityRef, userName);
+        }
+        return involvementKindIdsByUserAndEntity.getOrCompute(
+                tuple(userName, normalise(parentEntityRef)),
+                k -> Collections.unmodifiableSet(involvementDao.findExistingInvolvementKindIdsForUser(k.v2, k.v1)));
+    }
+
+
+    /**
+     * Batch form of {@link #findInvolvementKindIds(EntityReference, String)}, any entities not
+     * already cached are looked up with a single query.
+     *
+     * @param parentEntityRefs  entities to check
+     * @param userName  user to find involvement kinds for
+     * @return  involvement kind ids keyed by (kind, id) only entity references, every given entity is present
+     */
+    public Map<EntityReference, Set<Long>> findInvolvementKindIds(Collection<EntityReference> parentEntityRefs,
+                                                                  String userName) {
+        Map<EntityReference, Set<Long>> result = new HashMap<>();
+        Set<EntityReference> toLoad = new HashSet<>();
+
+        // captured before loading so results racing with an invalidation are not cached
+        long generation = involvementKindIdsByUserAndEntity.generation();
+
+        for (EntityReference ref : parentEntityRefs) {
+            EntityReference key = normalise(ref);
+            if (enabled) {
+                involvementKindIdsByUserAndEntity
+                        .get(tuple(userName, key))
+                        .ifPresent(kindIds -> result.put(key, kindIds));
+            }
+            if (! result.containsKey(key)) {
+                toLoad.add(key);
+            }
+        }
+
+        Map<EntityReference, Set<Long>> loaded = involvementDao.findExistingInvolvementKindIdsForUser(toLoad, userName);
+
+        toLoad.forEach(key -> {
+            Set<Long> kindIds = Collections.unmodifiableSet(loaded.getOrDefault(key, Collections.emptySet()));
+            result.put(key, kindIds);
+            if (enabled) {
+                involvementKindIdsByUserAndEntity.putIfCurrent(tuple(userName, key), kindIds, generation);
+            }
+        });
+
+        return result;
+    }
+
+
+    public Set<Permission> findPermissionsForParentEntity(EntityReference parentEntityRef) {
+        if (! enabled) {
+            return permissionGroupDao.findPermissionsForParentEntityReference(parentEntityRef);
+        }
+        return permissionsByParentEntity.getOrCompute(
+                normalise(parentEntityRef),
+                k -> Collections.unmodifiableSet(permissionGroupDao.findPermissionsForParentEntityReference(k)));
+    }
+
+
+    /**
+     * Batch form of {@link #findPermissionsForParentEntity(EntityReference)}, any entities not
+     * already cached are looked up together.
+     *
+     * @param parentEntityRefs  entities to find permission group rules for
+     * @return  permissions keyed by (kind, id) only entity references, every given entity is present
+     */
+    public Map<EntityReference, Set<Permission>> findPermissionsForParentEntities(Collection<EntityReference> parentEntityRefs) {
+        Map<EntityReference, Set<Permission>> result = new HashMap<>();
+        Set<EntityReference> toLoad = new HashSet<>();
+
+        long generation = permissionsByParentEntity.generation();
+
+        for (EntityReference ref : parentEntityRefs) {
+            EntityReference key = normalise(ref);
+            if (enabled) {
+                permissionsByParentEntity
+                        .get(key)
+                        .ifPresent(perms -> result.put(key, perms));
+            }
+            if (! result.containsKey(key)) {
+                toLoad.add(key);
+            }
+        }
+
+        Map<EntityReference, Set<Permission>> loaded = toLoad.isEmpty()
+                ? Collections.emptyMap()
+                : permissionGroupDao.findPermissionsForParentEntityReferences(toLoad);
+
+        toLoad.forEach(key -> {
+            Set<Permission> perms = Collections.unmodifiableSet(loaded.getOrDefault(key, Collections.emptySet()));
+            result.put(key, perms);
+            if (enabled) {
+                permissionsByParentEntity.putIfCurrent(key, perms, generation);
+            }
+        });
+
+        return result;
+    }
+
+
+    public void invalidateUser(String userName) {
+        rolesByUser.invalidate(userName);
+        knownPeople.invalidate(userName);
+        involvementKindIdsByUserAndEntity.invalidateIf((k, v) -> Objects.equals(k.v1, userName));
+    }
+
+
+    public void invalidateInvolvements(EntityReference parentEntityRef) {
+        invalidateInvolvements(Collections.singleton(parentEntityRef));
+    }
+
+
+    public void invalidateInvolvements(Collection<EntityReference> parentEntityRefs) {
+        Set<EntityReference> refs = new HashSet<>();
+        parentEntityRefs.forEach(ref -> refs.add(normalise(ref)));
+        involvementKindIdsByUserAndEntity.invalidateIf((k, v) -> refs.contains(k.v2));
+    }
+
+
+    @ManagedOperation(description = "Discard all cached involvements")
+    public void invalidateAllInvolvements() {
+        involvementKindIdsByUserAndEntity.clear();
+    }
+
+
+    @ManagedOperation(description = "Discard all cached permission group rules, e.g. after editing permission groups")
+    public void invalidatePermissionGroups() {
+        LOG.info("Clearing cached permission group rules");
+        permissionsByParentEntity.clear();
+    }
+
+
+    @ManagedOperation(description = "Discard all cached authorization data")
+    public void clear() {
+        LOG.info("Clearing user authorization cache");
+        allCaches().forEach(BoundedCache::clear);
+    }
+
+
+    @ManagedAttribute
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+
+    @ManagedAttribute
+    public long getSize() {
+        return sum(BoundedCache::size);
+    }
+
+
+    @ManagedAttribute
+    public long getHitCount() {
+        return sum(BoundedCache::hitCount);
+    }
+
+
+    @ManagedAttribute
+    public long getMissCount() {
+        return sum(BoundedCache::missCount);
+    }
+
+
+    @ManagedAttribute
+    public long getEvictionCount() {
+        return sum(BoundedCache::evictionCount);
+    }
+
+
+    @ManagedAttribute
+    public long getInvalidationCount() {
+        return sum(BoundedCache::invalidationCount);
+    }
+
+
+    // -- HELPERS ---
+
+    /**
+     * Entity references include names etc. in their equality checks, so
+     * cache keys only use the kind and id.
+     */
+    private static EntityReference normalise(EntityReference ref) {
+        return mkRef(ref.kind(), ref.id());
+    }
+
+
+    private Stream<BoundedCache<?, ?>> allCaches() {
+        return Stream.of(rolesByUser, knownPeople, involvementKindIdsByUserAndEntity, permissionsByParentEntity);
+    }
+
+
+    private long sum(ToLongFunction<BoundedCache<?, ?>> metric) {
+        return allCaches()
+                .mapToLong(metric)
+                .sum();
+    }
+
+}
@@ -27,6 +27,7 @@ import org.finos.waltz.model.Operation;
 import org.finos.waltz.model.logical_flow.LogicalFlow;
 import org.finos.waltz.model.permission_group.Permission;
 import org.finos.waltz.model.physical_specification.PhysicalSpecification;
+import org.finos.waltz.model.user.SystemRole;
 import org.finos.waltz.service.involvement.InvolvementService;
 import org.finos.waltz.service.permission.PermissionGroupService;
 import org.finos.waltz.service.user.UserRoleService;
@@ -35,19 +36,30 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static java.lang.String.format;
+import static java.util.Collections.emptyMap;
 import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
 import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.SetUtilities.asSet;
 import static org.finos.waltz.common.SetUtilities.union;
+import static org.finos.waltz.model.EntityReference.mkRef;
 
 
 @Service
 public class FlowPermissionChecker implements PermissionChecker {
 
     private static final Logger LOG = LoggerFactory.getLogger(FlowPermissionChecker.class);
+    private static final Set<Operation> EDIT_OPERATIONS = asSet(Operation.ADD, Operation.UPDATE, Operation.REMOVE);
 
     private final LogicalFlowDao logicalFlowDao;
 
@@ -103,21 +115,51 @@ public class FlowPermissionChecker implements PermissionChecker {
 
     public Set<Operation> findFlowPermissionsForParentEntity(EntityReference entityReference,
                                                              String username) {
+        checkNotNull(entityReference, "entityReference cannot be null");
 
-        Set<Long> invsForUser = involvementService.findExistingInvolvementKindIdsForUser(entityReference, username);
+        return findFlowPermissionsForParentEntities(singleton(entityReference), username)
+                .getOrDefault(mkRef(entityReference.kind(), entityReference.id()), emptySet());
+    }
 
-        Set<Operation> operationsForEntityAssessment = permissionGroupService
-                .findPermissionsForParentReference(entityReference, username)
-                .stream()
-                .filter(p -> p.subjectKind().equals(EntityKind.LOGICAL_DATA_FLOW)
-                        && p.parentKind().equals(entityReference.kind()))
-                .filter(p -> p.requiredInvolvementsResult().isAllowed(invsForUser))
-                .map(Permission::operation)
-                .collect(Collectors.toSet());
 
-        return logicalFlowDao.calculateAmendedFlowOperations(
-                operationsForEntityAssessment,
+    /**
+     * Batch form of {@link #findFlowPermissionsForParentEntity(EntityReference, String)}.  The
+     * user's involvements with all the entities, and the permission group rules for them, are
+     * fetched together and the user's editor role is only checked once.
+     *
+     * @param entityReferences  parent entities (e.g. applications) to check
+     * @param username  user to check permissions for
+     * @return  operations keyed by (kind, id) only entity references
+     */
+    public Map<EntityReference, Set<Operation>> findFlowPermissionsForParentEntities(Collection<EntityReference> entityReferences,
+                                                                                     String username) {
+        checkNotNull(entityReferences, "entityReferences cannot be null");
+        checkNotNull(username, "username cannot be null");
+
+        if (entityReferences.isEmpty()) {
+            return emptyMap();
+        }
+
+        Map<EntityReference, Set<Long>> invsForUserByRef = involvementService.findExistingInvolvementKindIdsForUser(
+                entityReferences,
                 username);
+
+        Map<EntityReference, Set<Permission>> permsByRef = permissionGroupService.findPermissionsForParentReferences(
+                entityReferences,
+                username);
+
+        boolean isEditor = userRoleService.hasRole(username, SystemRole.LOGICAL_DATA_FLOW_EDITOR);
+
+        return invsForUserByRef
+                .entrySet()
+                .stream()
+                .collect(toMap(
+                        Map.Entry::getKey,
+                        e -> calculateFlowPermissionsForParentEntity(
+                                e.getKey(),
+                                e.getValue(),
+                                permsByRef.getOrDefault(e.getKey(), emptySet()),
+                                isEditor)));
     }
 
 
@@ -136,8 +178,9 @@ public class FlowPermissionChecker implements PermissionChecker {
                 .map(Permission::operation)
                 .collect(Collectors.toSet());
 
-        return physicalSpecificationDao.calculateAmendedSpecOperations(
+        return amendForEditorRole(
                 operationsForEntityAssessment,
+                SystemRole.PHYSICAL_SPECIFICATION_EDITOR,
                 username);
     }
 
@@ -157,12 +200,92 @@ public class FlowPermissionChecker implements PermissionChecker {
     }
 
 
+    /**
+     * Batch form of {@link #findPermissionsForFlow(Long, String)}.  Flows are loaded together
+     * and each distinct source/target entity is only evaluated once.
+     *
+     * @param flowIds  ids of the logical flows to check
+     * @param username  user to check permissions for
+     * @return  operations keyed by flow id, unknown flows are omitted
+     */
+    public Map<Long, Set<Operation>> findPermissionsForFlows(Collection<Long> flowIds,
+                                                             String username) {
+        checkNotNull(flowIds, "flowIds cannot be null");
+        checkNotNull(username, "username cannot be null");
+
+        List<LogicalFlow> flows = logicalFlowDao.findAllByFlowIds(flowIds);
+
+        Set<EntityReference> parentRefs = flows
+                .stream()
+                .filter(f -> ! f.isReadOnly())
+                .flatMap(f -> Stream.of(f.source(), f.target()))
+                .collect(toSet());
+
+        Map<EntityReference, Set<Operation>> permissionsByParentRef = findFlowPermissionsForParentEntities(parentRefs, username);
+
+        return flows
+                .stream()
+                .collect(toMap(
+                        f -> f.id().get(),
+                        f -> combineSourceAndTargetPermissions(f, permissionsByParentRef)));
+    }
+
+
     public Set<Operation> findPermissionsForSourceAndTarget(EntityReference source,
                                                             EntityReference target,
                                                             String username) {
-        Set<Operation> sourcePermissions = findFlowPermissionsForParentEntity(source, username);
-        Set<Operation> targetPermissions = findFlowPermissionsForParentEntity(target, username);
-        return union(sourcePermissions, targetPermissions);
+        Map<EntityReference, Set<Operation>> permissionsByParentRef = findFlowPermissionsForParentEntities(
+                asSet(source, target),
+                username);
+
+        return union(
+                permissionsByParentRef.getOrDefault(mkRef(source.kind(), source.id()), emptySet()),
+                permissionsByParentRef.getOrDefault(mkRef(target.kind(), target.id()), emptySet()));
+    }
+
+
+    // -- HELPERS ---
+
+    private static Set<Operation> calculateFlowPermissionsForParentEntity(EntityReference entityReference,
+                                                                          Set<Long> invsForUser,
+                                                                          Set<Permission> perms,
+                                                                          boolean isEditor) {
+        Set<Operation> operationsForEntityAssessment = perms
+                .stream()
+                .filter(p -> p.subjectKind().equals(EntityKind.LOGICAL_DATA_FLOW)
+                        && p.parentKind().equals(entityReference.kind()))
+                .filter(p -> p.requiredInvolvementsResult().isAllowed(invsForUser))
+                .map(Permission::operation)
+                .collect(Collectors.toSet());
+
+        return isEditor
+                ? union(operationsForEntityAssessment, EDIT_OPERATIONS)
+                : operationsForEntityAssessment;
+    }
+
+
+    private static Set<Operation> combineSourceAndTargetPermissions(LogicalFlow flow,
+                                                                    Map<EntityReference, Set<Operation>> permissionsByParentRef) {
+        if (flow.isReadOnly()) {
+            return emptySet();
+        } else {
+            return union(
+                    permissionsByParentRef.getOrDefault(mkRef(flow.source().kind(), flow.source().id()), emptySet()),
+                    permissionsByParentRef.getOrDefault(mkRef(flow.target().kind(), flow.target().id()), emptySet()));
+        }
+    }
+
+
+    /**
+     * Users holding the editor role for a kind may add, update and remove regardless of
+     * their involvements.  Roles are checked via the (cached) user role service.
+     */
+    private Set<Operation> amendForEditorRole(Set<Operation> operations,
+                                              SystemRole editorRole,
+                                              String username) {
+        return userRoleService.hasRole(username, editorRole)
+                ? union(operations, EDIT_OPERATIONS)
+                : operations;
     }
 
 }
@@ -19,22 +19,30 @@
 package org.finos.waltz.service.physical_flow;
 
 import org.finos.waltz.common.Aliases;
+import org.finos.waltz.common.ListUtilities;
 import org.finos.waltz.common.MapUtilities;
 import org.finos.waltz.common.StringUtilities;
 import org.finos.waltz.data.actor.ActorDao;
 import org.finos.waltz.data.application.ApplicationDao;
 import org.finos.waltz.data.data_type.DataTypeDao;
+import org.finos.waltz.data.datatype_decorator.LogicalFlowDecoratorDao;
+import org.finos.waltz.data.datatype_decorator.PhysicalSpecDecoratorDao;
 import org.finos.waltz.data.logical_flow.LogicalFlowDao;
 import org.finos.waltz.data.physical_flow.PhysicalFlowDao;
 import org.finos.waltz.data.physical_specification.PhysicalSpecificationDao;
 import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.Operation;
+import org.finos.waltz.model.Severity;
 import org.finos.waltz.model.UserTimestamp;
 import org.finos.waltz.model.actor.Actor;
 import org.finos.waltz.model.application.Application;
+import org.finos.waltz.model.changelog.ChangeLog;
+import org.finos.waltz.model.changelog.ImmutableChangeLog;
 import org.finos.waltz.model.command.CommandOutcome;
 import org.finos.waltz.model.datatype.DataType;
 import org.finos.waltz.model.datatype.DataTypeDecorator;
+import org.finos.waltz.model.datatype.ImmutableDataTypeDecorator;
 import org.finos.waltz.model.enum_value.EnumValueKind;
 import org.finos.waltz.model.external_identifier.ExternalIdValue;
 import org.finos.waltz.model.logical_flow.ImmutableLogicalFlow;
@@ -43,38 +51,82 @@ import org.finos.waltz.model.physical_flow.*;
 import org.finos.waltz.model.physical_specification.DataFormatKindValue;
 import org.finos.waltz.model.physical_specification.ImmutablePhysicalSpecification;
 import org.finos.waltz.model.physical_specification.PhysicalSpecification;
-import org.finos.waltz.service.data_type.DataTypeDecoratorService;
+import org.finos.waltz.model.rating.AuthoritativenessRatingValue;
+import org.finos.waltz.schema.tables.records.LogicalFlowDecoratorRecord;
+import org.finos.waltz.schema.tables.records.LogicalFlowRecord;
+import org.finos.waltz.schema.tables.records.PhysicalFlowRecord;
+import org.finos.waltz.schema.tables.records.PhysicalSpecDataTypeRecord;
+import org.finos.waltz.schema.tables.records.PhysicalSpecificationRecord;
+import org.finos.waltz.service.changelog.ChangeLogService;
+import org.finos.waltz.service.data_flow_decorator.LogicalFlowDecoratorRatingsCalculator;
 import org.finos.waltz.service.enum_value.EnumValueAliasService;
+import org.finos.waltz.service.physical_specification.PhysicalSpecificationService;
+import org.finos.waltz.service.usage_info.DataTypeUsageService;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.InsertSetMoreStep;
+import org.jooq.InsertSetStep;
+import org.jooq.Record;
+import org.jooq.Table;
+import org.jooq.lambda.tuple.Tuple2;
+import org.jooq.lambda.tuple.Tuple3;
+import org.jooq.lambda.tuple.Tuple4;
+import org.jooq.lambda.tuple.Tuple6;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import static java.lang.String.format;
 import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.DateTimeUtilities.nowUtc;
-import static org.finos.waltz.common.SetUtilities.fromArray;
 import static org.finos.waltz.common.StringUtilities.isEmpty;
 import static org.finos.waltz.common.StringUtilities.lower;
+import static org.finos.waltz.model.EntityLifecycleStatus.ACTIVE;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.finos.waltz.schema.Tables.LOGICAL_FLOW;
+import static org.finos.waltz.schema.Tables.PHYSICAL_FLOW;
+import static org.finos.waltz.schema.Tables.PHYSICAL_SPECIFICATION;
+import static org.finos.waltz.service.physical_flow.PhysicalFlowUploadState.logicalFlowKey;
+import static org.finos.waltz.service.physical_flow.PhysicalFlowUploadState.physicalFlowKey;
+import static org.finos.waltz.service.physical_flow.PhysicalFlowUploadState.specificationKey;
+import static org.jooq.lambda.tuple.Tuple.tuple;
 
 
 @Service
 public class PhysicalFlowUploadService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(PhysicalFlowUploadService.class);
+
+    private static final int INSERT_BATCH_SIZE = 1000;
+
     private final ActorDao actorDao;
     private final ApplicationDao applicationDao;
     private final DataTypeDao dataTypeDao;
-    private final LogicalFlowDao logicalFlowDao;
-    private final DataTypeDecoratorService dataTypeDecoratorService;
-    private final PhysicalFlowDao physicalFlowDao;
-    private final PhysicalSpecificationDao physicalSpecificationDao;
     private final EnumValueAliasService enumValueAliasService;
+    private final LogicalFlowDecoratorRatingsCalculator ratingsCalculator;
+    private final DataTypeUsageService dataTypeUsageService;
+    private final PhysicalSpecificationService physicalSpecificationService;
+    private final ChangeLogService changeLogService;
+    private final DSLContext dsl;
 
     private final Pattern basisOffsetRegex = Pattern.compile("T?(?<offset>[\\+\\-]?\\d+)");
 
@@ -82,27 +134,30 @@ public class PhysicalFlowUploadService {
     public PhysicalFlowUploadService(ActorDao actorDao,
                                      ApplicationDao applicationDao,
                                      DataTypeDao dataTypeDao,
-                                     LogicalFlowDao logicalFlowDao,
-                                     DataTypeDecoratorService dataTypeDecoratorService,
-                                     PhysicalFlowDao physicalFlowDao,
-                                     PhysicalSpecificationDao physicalSpecificationDao,
-                                     EnumValueAliasService enumValueAliasService) {
+                                     EnumValueAliasService enumValueAliasService,
+                                     LogicalFlowDecoratorRatingsCalculator ratingsCalculator,
+                                     DataTypeUsageService dataTypeUsageService,
+                                     PhysicalSpecificationService physicalSpecificationService,
+                                     ChangeLogService changeLogService,
+                                     DSLContext dsl) {
         checkNotNull(actorDao, "actorDao cannot be null");
         checkNotNull(applicationDao, "applicationDao cannot be null");
         checkNotNull(dataTypeDao, "dataTypeDao cannot be null");
-        checkNotNull(dataTypeDecoratorService, "dataTypeDecoratorService cannot be null");
-        checkNotNull(logicalFlowDao, "logicalFlowDao cannot be null");
-        checkNotNull(physicalFlowDao, "physicalFlowDao cannot be null");
-        checkNotNull(physicalSpecificationDao, "physicalSpecificationDao cannot be null");
         checkNotNull(enumValueAliasService, "enumValueAliasService cannot be null");
+        checkNotNull(ratingsCalculator, "ratingsCalculator cannot be null");
+        checkNotNull(dataTypeUsageService, "dataTypeUsageService cannot be null");
+        checkNotNull(physicalSpecificationService, "physicalSpecificationService cannot be null");
+        checkNotNull(changeLogService, "changeLogService cannot be null");
+        checkNotNull(dsl, "dsl cannot be null");
         this.actorDao = actorDao;
         this.applicationDao = applicationDao;
         this.dataTypeDao = dataTypeDao;
-        this.logicalFlowDao = logicalFlowDao;
-        this.physicalFlowDao = physicalFlowDao;
-        this.physicalSpecificationDao = physicalSpecificationDao;
         this.enumValueAliasService = enumValueAliasService;
-        this.dataTypeDecoratorService = dataTypeDecoratorService;
+        this.ratingsCalculator = ratingsCalculator;
+        this.dataTypeUsageService = dataTypeUsageService;
+        this.physicalSpecificationService = physicalSpecificationService;
+        this.changeLogService = changeLogService;
+        this.dsl = dsl;
     }
 
 
@@ -145,11 +200,16 @@ public class PhysicalFlowUploadService {
         }
 
         // no parse errors - check for duplicates
+        PhysicalFlowUploadState existing = PhysicalFlowUploadState.load(
+                dsl,
+                ListUtilities.map(parsedFlows, PhysicalFlowUploadCommandResponse::parsedFlow));
+
         List<PhysicalFlowUploadCommandResponse> responses = parsedFlows.stream()
-                .map(f -> Optional.ofNullable(physicalFlowDao.getByParsedFlow(f.parsedFlow()))
-                    .map(m -> (PhysicalFlowUploadCommandResponse) ImmutablePhysicalFlowUploadCommandResponse
+                .map(f -> existing
+                    .findExistingPhysicalFlowId(f.parsedFlow())
+                    .map(id -> (PhysicalFlowUploadCommandResponse) ImmutablePhysicalFlowUploadCommandResponse
                             .copyOf(f)
-                            .withEntityReference(m.entityReference()))
+                            .withEntityReference(mkRef(EntityKind.PHYSICAL_FLOW, id)))
                     .orElse(f))
                 .collect(toList());
 
@@ -157,6 +217,19 @@ public class PhysicalFlowUploadService {
     }
 
     
+    /**
+     * Creates the flows described by the commands.  Any required logical flows, specifications and
+     * data type decorations are created (or restored) along the way.
+     * <p>
+     * Existing entities are matched in bulk and all inserts (including the rated logical flow
+     * decorators) are batched and applied in a single transaction.  Spec data type propagation,
+     * data type usages and change log entries are then updated once for the whole upload, after
+     * that transaction has committed.
+     *
+     * @param username  user performing the upload
+     * @param cmds  commands, one per physical flow
+     * @return  responses for flows which did not already exist, each with a reference to the physical flow
+     */
     public List<PhysicalFlowUploadCommandResponse> upload(String username,
                                                           List<PhysicalFlowUploadCommand> cmds) throws Exception {
         checkNotNull(cmds, "cmds cannot be empty");
@@ -172,38 +245,72 @@ public class PhysicalFlowUploadService {
                 .filter(v -> v.outcome() == CommandOutcome.SUCCESS && v.entityReference() == null)
                 .collect(toList());
 
-        // create physical flow with ids from the above two
-        List<PhysicalFlowUploadCommandResponse> created = newFlowCmds.stream()
-                .map(v -> {
-                    if (!(v.outcome() == CommandOutcome.SUCCESS && v.entityReference() == null)) {
-                        return v;
-                    }
-
-                    PhysicalFlowParsed flow = v.parsedFlow();
-                    LogicalFlow logicalFlow = getOrCreateLogicalFlow(flow.source(), flow.target(), flow.dataType(), username);
-                    PhysicalSpecification specification = getOrCreatePhysicalSpec(flow, username);
-
-                    PhysicalFlow newFlow = ImmutablePhysicalFlow.builder()
-                            .logicalFlowId(logicalFlow.id().get())
-                            .specificationId(specification.id().get())
-                            .basisOffset(flow.basisOffset())
-                            .frequency(flow.frequency())
-                            .transport(flow.transport())
-                            .criticality(flow.criticality())
-                            .description(flow.description())
-                            .externalId(Optional.ofNullable(flow.externalId()))
-                            .lastUpdatedBy(username)
-                            .lastUpdatedAt(nowUtc())
-                            .build();
+        if (newFlowCmds.isEmpty()) {
+            return newFlowCmds;
+        }
 
-                    long id = getOrCreatePhysicalFlow(newFlow);
+        long start = System.currentTimeMillis();
 
-                    return ImmutablePhysicalFlowUploadCommandResponse.copyOf(v)
-                            .withEntityReference(EntityReference.mkRef(EntityKind.PHYSICAL_FLOW, id));
-                })
-                .collect(toList());
+        Tuple4<List<PhysicalFlowUploadCommandResponse>, Collection<DataTypeDecorator>, Collection<DataTypeDecorator>, Set<Long>> result = dsl
+                .transactionResult(ctx -> {
+                    DSLContext tx = ctx.dsl();
+                    LocalDateTime now = nowUtc();
+
+                    List<PhysicalFlowParsed> flows = ListUtilities.map(newFlowCmds, PhysicalFlowUploadCommandResponse::parsedFlow);
+                    PhysicalFlowUploadState state = PhysicalFlowUploadState.load(tx, flows);
+
+                    createLogicalFlows(tx, state, flows, username, now);
+                    createSpecifications(tx, state, flows, username, now);
+
+                    Collection<DataTypeDecorator> logicalFlowDecorators = addLogicalFlowDataTypes(tx, state, flows, username, now);
+                    Collection<DataTypeDecorator> specDecorators = addSpecificationDataTypes(tx, state, flows, username, now);
+
+                    createPhysicalFlows(tx, state, flows, username, now);
+
+                    List<PhysicalFlowUploadCommandResponse> created = newFlowCmds
+                            .stream()
+                            .map(v -> {
+                                PhysicalFlowParsed flow = v.parsedFlow();
+                                long id = state.findPhysicalFlowId(
+                                        state.findLogicalFlowId(flow),
+                                        state.findSpecificationId(flow),
+                                        flow);
+
+                                return (PhysicalFlowUploadCommandResponse) ImmutablePhysicalFlowUploadCommandResponse
+                                        .copyOf(v)
+                                        .withEntityReference(mkRef(EntityKind.PHYSICAL_FLOW, id));
+                            })
+                            .collect(toList());
 
-        return created;
+                    Set<Long> specIdsToPropagate = PhysicalFlowUploadState.findSpecificationsSharedByLogicalFlows(
+                            tx,
+                            ListUtilities.map(specDecorators, d -> d.entityReference().id()));
+
+                    return tuple(created, logicalFlowDecorators, specDecorators, specIdsToPropagate);
+                });
+
+        // The steps below run after the upload has committed, each in its own transaction, as the
+        // services involved use their own connections rather than the upload transaction.  A failure
+        // here leaves the uploaded flows in place but without the propagated data types, usages or
+        // change log entries; propagation and usages can be recalculated for the affected specs / apps.
+
+        // data types added to specs shared by several logical flows are propagated to the other flows
+        result.v4.forEach(specId -> physicalSpecificationService.propagateDataTypesToLogicalFlows(username, specId));
+
+        dataTypeUsageService.recalculateForApplications(findFlowNodes(result.v1));
+
+        List<ChangeLog> changeLogs = new ArrayList<>(mkDataTypeChangeLogs(username, result.v2));
+        changeLogs.addAll(mkDataTypeChangeLogs(username, result.v3));
+        if (! changeLogs.isEmpty()) {
+            changeLogService.write(changeLogs);
+        }
+
+        LOG.info(format(
+                "Uploaded [%d] physical flows in [%d]ms",
+                result.v1.size(),
+                System.currentTimeMillis() - start));
+
+        return result.v1;
     }
 
 
@@ -383,91 +490,322 @@ public class PhysicalFlowUploadService {
     }
 
 
-    private LogicalFlow getOrCreateLogicalFlow(EntityReference source,
-                                               EntityReference target,
-                                               EntityReference dataType,
-                                               String username) {
+    private void createLogicalFlows(DSLContext tx,
+                                    PhysicalFlowUploadState state,
+                                    List<PhysicalFlowParsed> flows,
+                                    String username,
+                                    LocalDateTime now) {
+
+        Map<Tuple2<EntityReference, EntityReference>, Long> flowIdsToRestore = new HashMap<>();
+        Map<Tuple2<EntityReference, EntityReference>, LogicalFlow> flowsToCreate = new LinkedHashMap<>();
+
+        for (PhysicalFlowParsed flow : flows) {
+            if (state.findLogicalFlowId(flow) != null) {
+                continue;
+            }
+
+            Long removedFlowId = state.findRemovedLogicalFlowId(flow);
+            if (removedFlowId != null) {
+                flowIdsToRestore.put(logicalFlowKey(flow), removedFlowId);
+            } else {
+                flowsToCreate.computeIfAbsent(logicalFlowKey(flow), k -> ImmutableLogicalFlow.builder()
+                        .source(k.v1)
+                        .target(k.v2)
+                        .lastUpdatedBy(username)
+                        .lastUpdatedAt(now)
+                        .provenance("waltz")
+                        .created(UserTimestamp.mkForUser(username, now))
+                        .build());
+            }
+        }
 
-        LogicalFlow flow = logicalFlowDao.getBySourceAndTarget(source, target);
+        if (! flowIdsToRestore.isEmpty()) {
+            tx.update(LOGICAL_FLOW)
+                    .set(LOGICAL_FLOW.ENTITY_LIFECYCLE_STATUS, ACTIVE.name())
+                    .set(LOGICAL_FLOW.IS_REMOVED, false)
+                    .set(LOGICAL_FLOW.LAST_UPDATED_BY, username)
+                    .set(LOGICAL_FLOW.LAST_UPDATED_AT, Timestamp.valueOf(now))
+                    .where(LOGICAL_FLOW.ID.in(flowIdsToRestore.values()))
+                    .execute();
+            flowIdsToRestore.keySet().forEach(state::restoreLogicalFlow);
+        }
 
-        if (flow == null) {
-            LocalDateTime now = nowUtc();
+        List<LogicalFlowRecord> records = ListUtilities.map(
+                flowsToCreate.values(),
+                f -> LogicalFlowDao.TO_RECORD_MAPPER.apply(f, tx));
+
+        insertReturning(
+                tx,
+                LOGICAL_FLOW,
+                records,
+                LOGICAL_FLOW.ID,
+                LOGICAL_FLOW.SOURCE_ENTITY_KIND,
+                LOGICAL_FLOW.SOURCE_ENTITY_ID,
+                LOGICAL_FLOW.TARGET_ENTITY_KIND,
+                LOGICAL_FLOW.TARGET_ENTITY_ID)
+                .forEach(r -> state.addLogicalFlow(
+                        tuple(mkRef(EntityKind.valueOf(r.getSourceEntityKind()), r.getSourceEntityId()),
+                                mkRef(EntityKind.valueOf(r.getTargetEntityKind()), r.getTargetEntityId())),
+                        r.getId(),
+                        false));
+    }
 
-            LogicalFlow flowToAdd = ImmutableLogicalFlow.builder()
-                    .source(source)
-                    .target(target)
-                    .lastUpdatedBy(username)
-                    .lastUpdatedAt(now)
-                    .provenance("waltz")
-                    .created(UserTimestamp.mkForUser(username, now))
-                    .build();
 
-            flow = logicalFlowDao.addFlow(flowToAdd);
+    private void createSpecifications(DSLContext tx,
+                                      PhysicalFlowUploadState state,
+                                      List<PhysicalFlowParsed> flows,
+                                      String username,
+                                      LocalDateTime now) {
+
+        // the first row for a specification determines its external id and description
+        Map<Tuple3<EntityReference, String, String>, PhysicalSpecification> specsToCreate = new LinkedHashMap<>();
+
+        for (PhysicalFlowParsed flow : flows) {
+            if (state.findSpecificationId(flow) == null) {
+                specsToCreate.computeIfAbsent(specificationKey(flow), k -> ImmutablePhysicalSpecification.builder()
+                        .owningEntity(k.v1)
+                        .format(flow.format())
+                        .name(flow.name())
+                        .externalId(Optional.ofNullable(flow.specExternalId()).orElse(""))
+                        .description(Optional.ofNullable(flow.specDescription()).orElse(""))
+                        .lastUpdatedBy(username)
+                        .lastUpdatedAt(now)
+                        .provenance("waltz")
+                        .created(UserTimestamp.mkForUser(username, now))
+                        .build());
+            }
         }
 
+        List<PhysicalSpecificationRecord> records = ListUtilities.map(
+                specsToCreate.values(),
+                s -> PhysicalSpecificationDao.TO_RECORD_MAPPER.apply(s, tx));
+
+        insertReturning(
+                tx,
+                PHYSICAL_SPECIFICATION,
+                records,
+                PHYSICAL_SPECIFICATION.ID,
+                PHYSICAL_SPECIFICATION.OWNING_ENTITY_KIND,
+                PHYSICAL_SPECIFICATION.OWNING_ENTITY_ID,
+                PHYSICAL_SPECIFICATION.FORMAT,
+                PHYSICAL_SPECIFICATION.NAME)
+                .forEach(r -> state.addSpecification(
+                        tuple(mkRef(EntityKind.valueOf(r.getOwningEntityKind()), r.getOwningEntityId()),
+                                r.getFormat(),
+                                r.getName()),
+                        r.getId()));
+    }
 
-        EntityReference logicalFlowEntityRef = EntityReference.mkRef(EntityKind.LOGICAL_DATA_FLOW, flow.id().get());
-        DataTypeDecorator existingDecorator = dataTypeDecoratorService.getByEntityRefAndDataTypeId(
-                logicalFlowEntityRef,
-                dataType.id());
 
-        if(existingDecorator == null) {
-            dataTypeDecoratorService
-                    .addDecorators(username, logicalFlowEntityRef, fromArray(dataType.id()));
+    private Collection<DataTypeDecorator> addLogicalFlowDataTypes(DSLContext tx,
+                                                                  PhysicalFlowUploadState state,
+                                                                  List<PhysicalFlowParsed> flows,
+                                                                  String username,
+                                                                  LocalDateTime now) {
+
+        List<DataTypeDecorator> unratedDecorators = new ArrayList<>();
+        List<DataTypeDecorator> decoratorsToRate = new ArrayList<>();
+        Map<Long, LogicalFlow> flowsById = new HashMap<>();
+
+        for (PhysicalFlowParsed flow : flows) {
+            long logicalFlowId = state.findLogicalFlowId(flow);
+            long dataTypeId = flow.dataType().id();
+
+            if (state.addLogicalFlowDataType(logicalFlowId, dataTypeId)) {
+                DataTypeDecorator decorator = mkDecorator(
+                        username,
+                        mkRef(EntityKind.LOGICAL_DATA_FLOW, logicalFlowId),
+                        dataTypeId,
+                        Optional.of(AuthoritativenessRatingValue.NO_OPINION),
+                        now);
+
+                boolean requiresRating = flow.source().kind() == EntityKind.APPLICATION
+                        && flow.target().kind() == EntityKind.APPLICATION;
+
+                if (requiresRating) {
+                    decoratorsToRate.add(decorator);
+                    flowsById.computeIfAbsent(logicalFlowId, id -> ImmutableLogicalFlow.builder()
+                            .id(id)
+                            .source(flow.source())
+                            .target(flow.target())
+                            .lastUpdatedBy(username)
+                            .build());
+                } else {
+                    unratedDecorators.add(decorator);
+                }
+            }
         }
-        return flow;
+
+        // new flows are not yet visible outside this transaction, so pass them to the calculator
+        List<DataTypeDecorator> decorators = new ArrayList<>(unratedDecorators);
+        if (! decoratorsToRate.isEmpty()) {
+            decorators.addAll(ratingsCalculator.calculate(decoratorsToRate, flowsById.values()));
+        }
+
+        if (! decorators.isEmpty()) {
+            List<LogicalFlowDecoratorRecord> records = ListUtilities.map(decorators, LogicalFlowDecoratorDao.TO_RECORD);
+            tx.batchInsert(records).execute();
+        }
+
+        return decorators;
     }
 
 
-    private PhysicalSpecification getOrCreatePhysicalSpec(PhysicalFlowParsed flow,
-                                                          String username) {
-        EntityReference owner = flow.owner();
-        DataFormatKindValue format = flow.format();
-        String name = flow.name();
-
-
-        // check database
-        PhysicalSpecification spec = physicalSpecificationDao.getByParsedFlow(flow);
-        if (spec == null) {
-
-            // create
-            LocalDateTime now = nowUtc();
-            PhysicalSpecification specToAdd = ImmutablePhysicalSpecification.builder()
-                    .owningEntity(owner)
-                    .format(format)
-                    .name(name)
-                    .externalId(Optional.ofNullable(flow.specExternalId()).orElse(""))
-                    .description(Optional.ofNullable(flow.specDescription()).orElse(""))
-                    .lastUpdatedBy(username)
-                    .lastUpdatedAt(now)
-                    .provenance("waltz")
-                    .created(UserTimestamp.mkForUser(username, now))
-                    .build();
-
-            Long id = physicalSpecificationDao.create(specToAdd);
-            spec = ImmutablePhysicalSpecification
-                    .copyOf(specToAdd)
-                    .withId(id);
+    private Collection<DataTypeDecorator> addSpecificationDataTypes(DSLContext tx,
+                                                                    PhysicalFlowUploadState state,
+                                                                    List<PhysicalFlowParsed> flows,
+                                                                    String username,
+                                                                    LocalDateTime now) {
+
+        List<DataTypeDecorator> decorators = new ArrayList<>();
+
+        for (PhysicalFlowParsed flow : flows) {
+            long specificationId = state.findSpecificationId(flow);
+            long dataTypeId = flow.dataType().id();
+
+            if (state.addSpecificationDataType(specificationId, dataTypeId)) {
+                decorators.add(mkDecorator(
+                        username,
+                        mkRef(EntityKind.PHYSICAL_SPECIFICATION, specificationId),
+                        dataTypeId,
+                        Optional.empty(),
+                        now));
+            }
+        }
+
+        if (! decorators.isEmpty()) {
+            List<PhysicalSpecDataTypeRecord> records = ListUtilities.map(decorators, PhysicalSpecDecoratorDao.TO_RECORD_MAPPER);
+            tx.batchInsert(records).execute();
         }
 
-        long dataTypeId = flow.dataType().id();
-        EntityReference specificationEntityRef = EntityReference.mkRef(EntityKind.PHYSICAL_SPECIFICATION, spec.id().get());
+        return decorators;
+    }
 
-        DataTypeDecorator existingDataType = dataTypeDecoratorService.getByEntityRefAndDataTypeId(specificationEntityRef, dataTypeId);
-        if(existingDataType == null) {
-            dataTypeDecoratorService.addDecorators(username, specificationEntityRef, fromArray(dataTypeId));
+
+    private void createPhysicalFlows(DSLContext tx,
+                                     PhysicalFlowUploadState state,
+                                     List<PhysicalFlowParsed> flows,
+                                     String username,
+                                     LocalDateTime now) {
+
+        Map<Tuple6<Long, Long, Integer, String, String, String>, PhysicalFlow> flowsToCreate = new LinkedHashMap<>();
+
+        for (PhysicalFlowParsed flow : flows) {
+            long logicalFlowId = state.findLogicalFlowId(flow);
+            long specificationId = state.findSpecificationId(flow);
+
+            if (state.findPhysicalFlowId(logicalFlowId, specificationId, flow) == null) {
+                flowsToCreate.computeIfAbsent(physicalFlowKey(logicalFlowId, specificationId, flow), k -> ImmutablePhysicalFlow.builder()
+                        .logicalFlowId(logicalFlowId)
+                        .specificationId(specificationId)
+                        .basisOffset(flow.basisOffset())
+                        .frequency(flow.frequency())
+                        .transport(flow.transport())
+                        .criticality(flow.criticality())
+                        .description(flow.description())
+                        .externalId(Optional.ofNullable(flow.externalId()))
+                        .lastUpdatedBy(username)
+                        .lastUpdatedAt(now)
+                        .build());
+            }
         }
-        return spec;
+
+        List<PhysicalFlowRecord> records = ListUtilities.map(
+                flowsToCreate.values(),
+                f -> PhysicalFlowDao.TO_RECORD_MAPPER.apply(f, tx));
+
+        insertReturning(
+                tx,
+                PHYSICAL_FLOW,
+                records,
+                PHYSICAL_FLOW.ID,
+                PHYSICAL_FLOW.LOGICAL_FLOW_ID,
+                PHYSICAL_FLOW.SPECIFICATION_ID,
+                PHYSICAL_FLOW.BASIS_OFFSET,
+                PHYSICAL_FLOW.FREQUENCY,
+                PHYSICAL_FLOW.TRANSPORT,
+                PHYSICAL_FLOW.CRITICALITY)
+                .forEach(r -> state.addPhysicalFlow(
+                        tuple(r.getLogicalFlowId(),
+                                r.getSpecificationId(),
+                                r.getBasisOffset(),
+                                r.getFrequency(),
+                                r.getTransport(),
+                                r.getCriticality()),
+                        r.getId()));
     }
 
 
-    private long getOrCreatePhysicalFlow(PhysicalFlow newFlow) {
-        PhysicalFlow existing = physicalFlowDao.matchPhysicalFlow(newFlow);
-        if (existing != null) {
-            return existing.id().get();
-        } else {
-            return physicalFlowDao.create(newFlow);
+    /**
+     * Inserts the records using multi-row inserts, returning the given fields of the inserted rows.
+     * The returned rows are not guaranteed to be in the same order as the given records.
+     */
+    private static <R extends Record> List<R> insertReturning(DSLContext tx,
+                                                              Table<R> table,
+                                                              List<R> records,
+                                                              Field<?>... fields) {
+        List<R> inserted = new ArrayList<>();
+        for (int offset = 0; offset < records.size(); offset += INSERT_BATCH_SIZE) {
+            InsertSetStep<R> insert = tx.insertInto(table);
+            InsertSetMoreStep<R> insertWithValues = null;
+            for (R record : records.subList(offset, Math.min(offset + INSERT_BATCH_SIZE, records.size()))) {
+                insertWithValues = insertWithValues == null
+                        ? insert.set(record)
+                        : insertWithValues.newRecord().set(record);
+            }
+            inserted.addAll(insertWithValues
+                    .returning(fields)
+                    .fetch());
         }
+        return inserted;
+    }
+
+
+    private static DataTypeDecorator mkDecorator(String username,
+                                                 EntityReference entityReference,
+                                                 long dataTypeId,
+                                                 Optional<AuthoritativenessRatingValue> rating,
+                                                 LocalDateTime now) {
+        return ImmutableDataTypeDecorator.builder()
+                .rating(rating)
+                .entityReference(entityReference)
+                .decoratorEntity(mkRef(EntityKind.DATA_TYPE, dataTypeId))
+                .provenance("waltz")
+                .lastUpdatedAt(now)
+                .lastUpdatedBy(username)
+                .build();
+    }
+
+
+    private static List<ChangeLog> mkDataTypeChangeLogs(String username, Collection<DataTypeDecorator> decorators) {
+        Map<EntityReference, Set<Long>> dataTypeIdsByEntity = decorators
+                .stream()
+                .collect(groupingBy(
+                        DataTypeDecorator::entityReference,
+                        mapping(DataTypeDecorator::dataTypeId, toSet())));
+
+        return dataTypeIdsByEntity
+                .entrySet()
+                .stream()
+                .map(e -> (ChangeLog) ImmutableChangeLog.builder()
+                        .parentReference(e.getKey())
+                        .userId(username)
+                        .severity(Severity.INFORMATION)
+                        .message(format("Added data types: %s", e.getValue().toString()))
+                        .childKind(EntityKind.DATA_TYPE)
+                        .operation(Operation.UPDATE)
+                        .build())
+                .collect(toList());
+    }
+
+
+    private static Set<EntityReference> findFlowNodes(List<PhysicalFlowUploadCommandResponse> responses) {
+        Set<EntityReference> nodes = new HashSet<>();
+        responses.forEach(r -> {
+            nodes.add(r.parsedFlow().source());
+            nodes.add(r.parsedFlow().target());
+        });
+        return nodes;
     }
 
 
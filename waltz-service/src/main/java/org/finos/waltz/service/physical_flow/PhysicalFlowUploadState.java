@@ -0,0 +1,347 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.physical_flow;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityLifecycleStatus;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.physical_flow.PhysicalFlowParsed;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+import org.jooq.lambda.tuple.Tuple2;
+import org.jooq.lambda.tuple.Tuple3;
+import org.jooq.lambda.tuple.Tuple6;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
+import static java.util.stream.Collectors.toList;
+import static org.finos.waltz.common.SetUtilities.map;
+import static org.finos.waltz.data.physical_flow.PhysicalFlowDao.PHYSICAL_FLOW_NOT_REMOVED;
+import static org.finos.waltz.data.physical_specification.PhysicalSpecificationDao.PHYSICAL_SPEC_NOT_REMOVED;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.finos.waltz.schema.Tables.LOGICAL_FLOW;
+import static org.finos.waltz.schema.Tables.LOGICAL_FLOW_DECORATOR;
+import static org.finos.waltz.schema.Tables.PHYSICAL_FLOW;
+import static org.finos.waltz.schema.Tables.PHYSICAL_SPECIFICATION;
+import static org.finos.waltz.schema.Tables.PHYSICAL_SPEC_DATA_TYPE;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+
+/**
+ * The existing logical flows, specifications, data type decorations and physical flows which
+ * a set of uploaded physical flows may match against.
+ * <p>
+ * State is loaded with a handful of set based queries (see {@link #load(DSLContext, Collection)})
+ * and then kept up to date as flows are created, so each uploaded row can be matched in memory.
+ * Logical flows are matched by source and target, specifications by owner, format and name and
+ * physical flows by logical flow, specification and their attributes.
+ */
+class PhysicalFlowUploadState {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final Map<Tuple2<EntityReference, EntityReference>, Long> activeLogicalFlowIds = new HashMap<>();
+    private final Map<Tuple2<EntityReference, EntityReference>, Long> removedLogicalFlowIds = new HashMap<>();
+    private final Map<Tuple3<EntityReference, String, String>, Long> specificationIds = new HashMap<>();
+    private final Set<Tuple2<Long, Long>> logicalFlowDataTypes = new HashSet<>();
+    private final Set<Tuple2<Long, Long>> specificationDataTypes = new HashSet<>();
+    private final Map<Tuple6<Long, Long, Integer, String, String, String>, Long> physicalFlowIds = new HashMap<>();
+
+
+    static PhysicalFlowUploadState load(DSLContext dsl, Collection<PhysicalFlowParsed> flows) {
+        PhysicalFlowUploadState state = new PhysicalFlowUploadState();
+
+        Set<Tuple2<EntityReference, EntityReference>> logicalFlowKeys = map(flows, PhysicalFlowUploadState::logicalFlowKey);
+        Set<Tuple3<EntityReference, String, String>> specificationKeys = map(flows, PhysicalFlowUploadState::specificationKey);
+
+        forEachBatchByKind(map(logicalFlowKeys, k -> k.v1), (kind, sourceIds) -> dsl
+                .select(LOGICAL_FLOW.ID,
+                        LOGICAL_FLOW.SOURCE_ENTITY_KIND,
+                        LOGICAL_FLOW.SOURCE_ENTITY_ID,
+                        LOGICAL_FLOW.TARGET_ENTITY_KIND,
+                        LOGICAL_FLOW.TARGET_ENTITY_ID,
+                        LOGICAL_FLOW.IS_REMOVED,
+                        LOGICAL_FLOW.ENTITY_LIFECYCLE_STATUS)
+                .from(LOGICAL_FLOW)
+                .where(LOGICAL_FLOW.SOURCE_ENTITY_KIND.eq(kind.name()))
+                .and(LOGICAL_FLOW.SOURCE_ENTITY_ID.in(sourceIds))
+                .fetch()
+                .forEach(r -> {
+                    Tuple2<EntityReference, EntityReference> key = tuple(
+                            mkRef(EntityKind.valueOf(r.get(LOGICAL_FLOW.SOURCE_ENTITY_KIND)), r.get(LOGICAL_FLOW.SOURCE_ENTITY_ID)),
+                            mkRef(EntityKind.valueOf(r.get(LOGICAL_FLOW.TARGET_ENTITY_KIND)), r.get(LOGICAL_FLOW.TARGET_ENTITY_ID)));
+                    if (logicalFlowKeys.contains(key)) {
+                        boolean isRemoved = r.get(LOGICAL_FLOW.IS_REMOVED)
+                                || EntityLifecycleStatus.REMOVED.name().equals(r.get(LOGICAL_FLOW.ENTITY_LIFECYCLE_STATUS));
+                        state.addLogicalFlow(key, r.get(LOGICAL_FLOW.ID), isRemoved);
+                    }
+                }));
+
+        forEachBatchByKind(map(specificationKeys, k -> k.v1), (kind, ownerIds) -> dsl
+                .select(PHYSICAL_SPECIFICATION.ID,
+                        PHYSICAL_SPECIFICATION.OWNING_ENTITY_KIND,
+                        PHYSICAL_SPECIFICATION.OWNING_ENTITY_ID,
+                        PHYSICAL_SPECIFICATION.FORMAT,
+                        PHYSICAL_SPECIFICATION.NAME)
+                .from(PHYSICAL_SPECIFICATION)
+                .where(PHYSICAL_SPECIFICATION.OWNING_ENTITY_KIND.eq(kind.name()))
+                .and(PHYSICAL_SPECIFICATION.OWNING_ENTITY_ID.in(ownerIds))
+                .and(PHYSICAL_SPEC_NOT_REMOVED)
+                .fetch()
+                .forEach(r -> {
+                    Tuple3<EntityReference, String, String> key = tuple(
+                            mkRef(EntityKind.valueOf(r.get(PHYSICAL_SPECIFICATION.OWNING_ENTITY_KIND)), r.get(PHYSICAL_SPECIFICATION.OWNING_ENTITY_ID)),
+                            r.get(PHYSICAL_SPECIFICATION.FORMAT),
+                            r.get(PHYSICAL_SPECIFICATION.NAME));
+                    if (specificationKeys.contains(key)) {
+                        state.addSpecification(key, r.get(PHYSICAL_SPECIFICATION.ID));
+                    }
+                }));
+
+        List<Long> logicalFlowIds = new ArrayList<>(state.activeLogicalFlowIds.values());
+        logicalFlowIds.addAll(state.removedLogicalFlowIds.values());
+
+        forEachBatch(logicalFlowIds, batch -> dsl
+                .select(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID, LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_ID)
+                .from(LOGICAL_FLOW_DECORATOR)
+                .where(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_KIND.eq(EntityKind.DATA_TYPE.name()))
+                .and(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID.in(batch))
+                .fetch()
+                .forEach(r -> state.addLogicalFlowDataType(
+                        r.get(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID),
+                        r.get(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_ID))));
+
+        forEachBatch(state.specificationIds.values(), batch -> dsl
+                .select(PHYSICAL_SPEC_DATA_TYPE.SPECIFICATION_ID, PHYSICAL_SPEC_DATA_TYPE.DATA_TYPE_ID)
+                .from(PHYSICAL_SPEC_DATA_TYPE)
+                .where(PHYSICAL_SPEC_DATA_TYPE.SPECIFICATION_ID.in(batch))
+                .fetch()
+                .forEach(r -> state.addSpecificationDataType(
+                        r.get(PHYSICAL_SPEC_DATA_TYPE.SPECIFICATION_ID),
+                        r.get(PHYSICAL_SPEC_DATA_TYPE.DATA_TYPE_ID))));
+
+        forEachBatch(logicalFlowIds, batch -> dsl
+                .select(PHYSICAL_FLOW.ID,
+                        PHYSICAL_FLOW.LOGICAL_FLOW_ID,
+                        PHYSICAL_FLOW.SPECIFICATION_ID,
+                        PHYSICAL_FLOW.BASIS_OFFSET,
+                        PHYSICAL_FLOW.FREQUENCY,
+                        PHYSICAL_FLOW.TRANSPORT,
+                        PHYSICAL_FLOW.CRITICALITY)
+                .from(PHYSICAL_FLOW)
+                .where(PHYSICAL_FLOW.LOGICAL_FLOW_ID.in(batch))
+                .and(PHYSICAL_FLOW_NOT_REMOVED)
+                .fetch()
+                .forEach(r -> state.addPhysicalFlow(
+                        tuple(r.get(PHYSICAL_FLOW.LOGICAL_FLOW_ID),
+                                r.get(PHYSICAL_FLOW.SPECIFICATION_ID),
+                                r.get(PHYSICAL_FLOW.BASIS_OFFSET),
+                                r.get(PHYSICAL_FLOW.FREQUENCY),
+                                r.get(PHYSICAL_FLOW.TRANSPORT),
+                                r.get(PHYSICAL_FLOW.CRITICALITY)),
+                        r.get(PHYSICAL_FLOW.ID))));
+
+        return state;
+    }
+
+
+    /**
+     * Returns those of the given specifications which are used by (active) physical flows of more
+     * than one logical flow.  The upload only decorates the logical flow of each uploaded row, so
+     * data types added to these specifications need propagating to their other logical flows.
+     */
+    static Set<Long> findSpecificationsSharedByLogicalFlows(DSLContext dsl, Collection<Long> specificationIds) {
+        Set<Long> sharedSpecificationIds = new HashSet<>();
+
+        forEachBatch(specificationIds, batch -> sharedSpecificationIds.addAll(dsl
+                .select(PHYSICAL_FLOW.SPECIFICATION_ID)
+                .from(PHYSICAL_FLOW)
+                .where(PHYSICAL_FLOW.SPECIFICATION_ID.in(batch))
+                .and(PHYSICAL_FLOW_NOT_REMOVED)
+                .groupBy(PHYSICAL_FLOW.SPECIFICATION_ID)
+                .having(DSL.countDistinct(PHYSICAL_FLOW.LOGICAL_FLOW_ID).gt(1))
+                .fetchSet(PHYSICAL_FLOW.SPECIFICATION_ID)));
+
+        return sharedSpecificationIds;
+    }
+
+
+    // --- KEYS ---
+
+    static Tuple2<EntityReference, EntityReference> logicalFlowKey(PhysicalFlowParsed flow) {
+        return tuple(
+                mkRef(flow.source().kind(), flow.source().id()),
+                mkRef(flow.target().kind(), flow.target().id()));
+    }
+
+
+    static Tuple3<EntityReference, String, String> specificationKey(PhysicalFlowParsed flow) {
+        return tuple(
+                mkRef(flow.owner().kind(), flow.owner().id()),
+                flow.format().value(),
+                flow.name());
+    }
+
+
+    static Tuple6<Long, Long, Integer, String, String, String> physicalFlowKey(long logicalFlowId,
+                                                                              long specificationId,
+                                                                              PhysicalFlowParsed flow) {
+        return tuple(
+                logicalFlowId,
+                specificationId,
+                flow.basisOffset(),
+                flow.frequency().value(),
+                flow.transport().value(),
+                flow.criticality().value());
+    }
+
+
+    // --- LOOKUPS ---
+
+    /**
+     * @return id of the active logical flow between the source and target of the given flow, or null
+     */
+    Long findLogicalFlowId(PhysicalFlowParsed flow) {
+        return activeLogicalFlowIds.get(logicalFlowKey(flow));
+    }
+
+
+    /**
+     * @return id of a removed logical flow between the source and target of the given flow, or null
+     */
+    Long findRemovedLogicalFlowId(PhysicalFlowParsed flow) {
+        return removedLogicalFlowIds.get(logicalFlowKey(flow));
+    }
+
+
+    Long findSpecificationId(PhysicalFlowParsed flow) {
+        return specificationIds.get(specificationKey(flow));
+    }
+
+
+    Long findPhysicalFlowId(long logicalFlowId, long specificationId, PhysicalFlowParsed flow) {
+        return physicalFlowIds.get(physicalFlowKey(logicalFlowId, specificationId, flow));
+    }
+
+
+    boolean hasLogicalFlowDataType(long logicalFlowId, long dataTypeId) {
+        return logicalFlowDataTypes.contains(tuple(logicalFlowId, dataTypeId));
+    }
+
+
+    boolean hasSpecificationDataType(long specificationId, long dataTypeId) {
+        return specificationDataTypes.contains(tuple(specificationId, dataTypeId));
+    }
+
+
+    /**
+     * Finds an existing physical flow which fully matches the given flow, i.e. an active logical flow
+     * between the same nodes, a specification with the same owner, format and name which carries the
+     * data type and an active physical flow with the same attributes.
+     *
+     * @return  id of the matching physical flow
+     */
+    Optional<Long> findExistingPhysicalFlowId(PhysicalFlowParsed flow) {
+        Long logicalFlowId = findLogicalFlowId(flow);
+        Long specificationId = findSpecificationId(flow);
+
+        if (logicalFlowId == null
+                || specificationId == null
+                || ! hasSpecificationDataType(specificationId, flow.dataType().id())) {
+            return Optional.empty();
+        }
+
+        return Optional.ofNullable(findPhysicalFlowId(logicalFlowId, specificationId, flow));
+    }
+
+
+    // --- UPDATES ---
+
+    void addLogicalFlow(Tuple2<EntityReference, EntityReference> key, long id, boolean isRemoved) {
+        if (isRemoved) {
+            removedLogicalFlowIds.merge(key, id, Math::max);
+        } else {
+            activeLogicalFlowIds.merge(key, id, Math::min);
+        }
+    }
+
+
+    void restoreLogicalFlow(Tuple2<EntityReference, EntityReference> key) {
+        Long id = removedLogicalFlowIds.remove(key);
+        if (id != null) {
+            activeLogicalFlowIds.put(key, id);
+        }
+    }
+
+
+    void addSpecification(Tuple3<EntityReference, String, String> key, long id) {
+        specificationIds.merge(key, id, Math::min);
+    }
+
+
+    /**
+     * @return true if the data type was not already associated with the logical flow
+     */
+    boolean addLogicalFlowDataType(long logicalFlowId, long dataTypeId) {
+        return logicalFlowDataTypes.add(tuple(logicalFlowId, dataTypeId));
+    }
+
+
+    /**
+     * @return true if the data type was not already associated with the specification
+     */
+    boolean addSpecificationDataType(long specificationId, long dataTypeId) {
+        return specificationDataTypes.add(tuple(specificationId, dataTypeId));
+    }
+
+
+    void addPhysicalFlow(Tuple6<Long, Long, Integer, String, String, String> key, long id) {
+        physicalFlowIds.merge(key, id, Math::min);
+    }
+
+
+    // --- HELPERS ---
+
+    private static void forEachBatchByKind(Set<EntityReference> refs, BiConsumer<EntityKind, List<Long>> consumer) {
+        Map<EntityKind, List<Long>> idsByKind = refs
+                .stream()
+                .collect(groupingBy(EntityReference::kind, mapping(EntityReference::id, toList())));
+
+        idsByKind.forEach((kind, ids) -> forEachBatch(ids, batch -> consumer.accept(kind, batch)));
+    }
+
+
+    private static void forEachBatch(Collection<Long> ids, Consumer<List<Long>> consumer) {
+        List<Long> idList = new ArrayList<>(ids);
+        for (int offset = 0; offset < idList.size(); offset += BATCH_SIZE) {
+            consumer.accept(idList.subList(offset, Math.min(offset + BATCH_SIZE, idList.size())));
+        }
+    }
+
+}
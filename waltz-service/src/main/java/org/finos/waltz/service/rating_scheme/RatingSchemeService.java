@@ -23,22 +23,30 @@ import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.rating.RatingScheme;
 import org.finos.waltz.model.rating.RatingSchemeItem;
 import org.finos.waltz.model.rating.RatingSchemeItemUsageCount;
-import org.jooq.impl.DSL;
+import org.finos.waltz.service.reference_data.ReferenceDataCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
+import static org.finos.waltz.common.Checks.checkNotNull;
+
 @Service
 public class RatingSchemeService {
 
     private final RatingSchemeDAO ratingSchemeDAO;
+    private final ReferenceDataCache referenceDataCache;
 
     @Autowired
-    public RatingSchemeService(RatingSchemeDAO ratingSchemeDAO) {
+    public RatingSchemeService(RatingSchemeDAO ratingSchemeDAO,
+                               ReferenceDataCache referenceDataCache) {
+        checkNotNull(ratingSchemeDAO, "ratingSchemeDAO cannot be null");
+        checkNotNull(referenceDataCache, "referenceDataCache cannot be null");
         this.ratingSchemeDAO = ratingSchemeDAO;
+        this.referenceDataCache = referenceDataCache;
     }
 
     public Collection<RatingScheme> findAll() {
@@ -50,7 +58,7 @@ public class RatingSchemeService {
     }
 
     public List<RatingSchemeItem> findAllRatingSchemeItems() {
-        return ratingSchemeDAO.fetchItems(DSL.trueCondition());
+        return new ArrayList<>(referenceDataCache.findAllRatingSchemeItems());
     }
 
     public List<RatingSchemeItem> findRatingSchemeItemsByAssessmentDefinition(long assessmentDefinitionId) {
@@ -62,22 +70,28 @@ public class RatingSchemeService {
     }
 
     public Set<RatingSchemeItem> findRatingSchemeItemsByIds(Set<Long> ids) {
-        return ratingSchemeDAO.findRatingSchemeItemsByIds(ids);
+        return referenceDataCache.findRatingSchemeItemsByIds(ids);
     }
 
 
     public Boolean save(RatingScheme scheme) {
-        return ratingSchemeDAO.save(scheme);
+        Boolean result = ratingSchemeDAO.save(scheme);
+        referenceDataCache.invalidateRatingSchemes();
+        return result;
     }
 
 
     public Long saveRatingItem(long schemeId, RatingSchemeItem item) {
-        return ratingSchemeDAO.saveRatingItem(schemeId, item);
+        Long result = ratingSchemeDAO.saveRatingItem(schemeId, item);
+        referenceDataCache.invalidateRatingSchemes();
+        return result;
     }
 
 
     public Boolean removeRatingItem(long itemId) {
-        return ratingSchemeDAO.removeRatingItem(itemId);
+        Boolean result = ratingSchemeDAO.removeRatingItem(itemId);
+        referenceDataCache.invalidateRatingSchemes();
+        return result;
     }
 
 
@@ -86,6 +100,8 @@ public class RatingSchemeService {
     }
 
     public Boolean removeRatingScheme(long id) {
-        return ratingSchemeDAO.removeRatingScheme(id);
+        Boolean result = ratingSchemeDAO.removeRatingScheme(id);
+        referenceDataCache.invalidateRatingSchemes();
+        return result;
     }
 }
@@ -0,0 +1,242 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.reference_data;
+
+import org.finos.waltz.common.SnapshotCache;
+import org.finos.waltz.data.changelog.ChangeLogDao;
+import org.finos.waltz.data.data_type.DataTypeDao;
+import org.finos.waltz.data.flow_classification_rule.FlowClassificationDao;
+import org.finos.waltz.data.rating_scheme.RatingSchemeDAO;
+import org.finos.waltz.data.settings.SettingsDao;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.changelog.ChangeLog;
+import org.finos.waltz.model.datatype.DataType;
+import org.finos.waltz.model.flow_classification.FlowClassification;
+import org.finos.waltz.model.rating.RatingSchemeItem;
+import org.finos.waltz.model.settings.Setting;
+import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+
+/**
+ * Server side cache of small, frequently read, reference tables (data types, flow
+ * classifications, settings and rating scheme items).
+ * <p>
+ * Each table is held as an immutable snapshot which is shared by all readers and
+ * replaced wholesale when reloaded.  Snapshots are invalidated when the owning services
+ * update the table, when a change log entry is written against a data type or flow
+ * classification, or when a client cache key is bumped.  As these tables are also
+ * maintained by external jobs (and other servers), snapshots expire after a fixed ttl.
+ */
+@Service
+@ManagedResource(description = "Cache of reference data (data types, flow classifications, settings and rating schemes)")
+public class ReferenceDataCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReferenceDataCache.class);
+
+    private final SnapshotCache<List<DataType>> dataTypes;
+    private final SnapshotCache<Set<FlowClassification>> flowClassifications;
+    private final SnapshotCache<Map<String, Setting>> settingsByName;
+    private final SnapshotCache<Map<Long, RatingSchemeItem>> ratingSchemeItemsById;
+
+
+    @Autowired
+    public ReferenceDataCache(DataTypeDao dataTypeDao,
+                              FlowClassificationDao flowClassificationDao,
+                              SettingsDao settingsDao,
+                              RatingSchemeDAO ratingSchemeDAO,
+                              ChangeLogDao changeLogDao,
+                              @Value("${reference_data.cache.ttl_minutes:5}") long ttlMinutes) {
+        checkNotNull(dataTypeDao, "dataTypeDao cannot be null");
+        checkNotNull(flowClassificationDao, "flowClassificationDao cannot be null");
+        checkNotNull(settingsDao, "settingsDao cannot be null");
+        checkNotNull(ratingSchemeDAO, "ratingSchemeDAO cannot be null");
+        checkNotNull(changeLogDao, "changeLogDao cannot be null");
+
+        long ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+
+        this.dataTypes = new SnapshotCache<>(
+                () -> Collections.unmodifiableList(new ArrayList<>(dataTypeDao.findAll())),
+                ttlMillis);
+
+        this.flowClassifications = new SnapshotCache<>(
+                () -> Collections.unmodifiableSet(new HashSet<>(flowClassificationDao.findAll())),
+                ttlMillis);
+
+        this.settingsByName = new SnapshotCache<>(
+                () -> {
+                    Map<String, Setting> byName = new LinkedHashMap<>();
+                    settingsDao.findAll().forEach(s -> byName.put(s.name(), s));
+                    return Collections.unmodifiableMap(byName);
+                },
+                ttlMillis);
+
+        this.ratingSchemeItemsById = new SnapshotCache<>(
+                () -> {
+                    // items are fetched in position order, which the linked map preserves
+                    Map<Long, RatingSchemeItem> byId = new LinkedHashMap<>();
+                    ratingSchemeDAO
+                            .fetchItems(DSL.trueCondition())
+                            .forEach(item -> item.id().ifPresent(id -> byId.put(id, item)));
+                    return Collections.unmodifiableMap(byId);
+                },
+                ttlMillis);
+
+        changeLogDao.addWriteListener(this::onChangeLogWritten);
+    }
+
+
+    public List<DataType> findAllDataTypes() {
+        return dataTypes.get();
+    }
+
+
+    public Set<FlowClassification> findAllFlowClassifications() {
+        return flowClassifications.get();
+    }
+
+
+    public Collection<Setting> findAllSettings() {
+        return settingsByName.get().values();
+    }
+
+
+    public Optional<Setting> findSettingByName(String name) {
+        return Optional.ofNullable(settingsByName.get().get(name));
+    }
+
+
+    public Collection<RatingSchemeItem> findAllRatingSchemeItems() {
+        return ratingSchemeItemsById.get().values();
+    }
+
+
+    public Set<RatingSchemeItem> findRatingSchemeItemsByIds(Collection<Long> ids) {
+        checkNotNull(ids, "ids cannot be null");
+        Map<Long, RatingSchemeItem> itemsById = ratingSchemeItemsById.get();
+
+        Set<RatingSchemeItem> result = new HashSet<>();
+        for (Long id : ids) {
+            RatingSchemeItem item = itemsById.get(id);
+            if (item != null) {
+                result.add(item);
+            }
+        }
+        return result;
+    }
+
+
+    public void invalidateDataTypes() {
+        dataTypes.invalidate();
+    }
+
+
+    public void invalidateFlowClassifications() {
+        flowClassifications.invalidate();
+    }
+
+
+    public void invalidateSettings() {
+        settingsByName.invalidate();
+    }
+
+
+    public void invalidateRatingSchemes() {
+        ratingSchemeItemsById.invalidate();
+    }
+
+
+    @ManagedOperation(description = "Discard all cached reference data, it will be reloaded on next use")
+    public void invalidateAll() {
+        LOG.info("Invalidating all cached reference data");
+        allCaches().forEach(SnapshotCache::invalidate);
+    }
+
+
+    @ManagedAttribute
+    public long getHitCount() {
+        return sum(SnapshotCache::hitCount);
+    }
+
+
+    @ManagedAttribute
+    public long getMissCount() {
+        return sum(SnapshotCache::missCount);
+    }
+
+
+    @ManagedAttribute(description = "Number of times a reference table has been (re)loaded")
+    public long getRefreshCount() {
+        return sum(SnapshotCache::refreshCount);
+    }
+
+
+    @ManagedAttribute
+    public long getInvalidationCount() {
+        return sum(SnapshotCache::invalidationCount);
+    }
+
+
+    // -- HELPERS ---
+
+    private void onChangeLogWritten(Collection<ChangeLog> changeLogs) {
+        for (ChangeLog changeLog : changeLogs) {
+            EntityKind kind = changeLog.parentReference().kind();
+            if (kind == EntityKind.DATA_TYPE) {
+                invalidateDataTypes();
+            } else if (kind == EntityKind.FLOW_CLASSIFICATION) {
+                invalidateFlowClassifications();
+            }
+        }
+    }
+
+
+    private Stream<SnapshotCache<?>> allCaches() {
+        return Stream.of(dataTypes, flowClassifications, settingsByName, ratingSchemeItemsById);
+    }
+
+
+    private long sum(ToLongFunction<SnapshotCache<?>> metric) {
+        return allCaches()
+                .mapToLong(metric)
+                .sum();
+    }
+
+}
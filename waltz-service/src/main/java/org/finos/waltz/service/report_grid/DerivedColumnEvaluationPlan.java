@@ -0,0 +1,220 @@
+package org.finos.waltz.service.report_grid;
+
+import org.apache.commons.jexl3.JexlBuilder;
+import org.apache.commons.jexl3.JexlEngine;
+import org.apache.commons.jexl3.JexlException;
+import org.apache.commons.jexl3.JexlScript;
+import org.finos.waltz.model.either.Either;
+import org.finos.waltz.model.report_grid.ReportGridDefinition;
+import org.finos.waltz.model.report_grid.ReportGridDerivedColumnDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableSet;
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toSet;
+import static org.finos.waltz.common.MapUtilities.newHashMap;
+
+/**
+ * Compiled form of the derived columns of a grid definition.
+ * <p>
+ * The dependency graph is built from the variables of each compiled script
+ * (see {@link JexlScript#getVariables()}), a variable naming another derived
+ * column is a dependency upon it.  The columns are then ordered topologically
+ * so each one can be evaluated exactly once per row.
+ * <p>
+ * References made via namespace functions (e.g. <code>cell('CTB')</code> or
+ * <code>anyCellsProvided('A', 'B')</code>) are not visible as variables.  If a
+ * script mentions another derived column in any way other than as a variable
+ * its references cannot be resolved and the column keeps its declaration order.
+ * These columns, along with any which participate in (or depend upon) a cycle,
+ * are reported when the plan is built and are evaluated afterwards using the
+ * original iterate-until-stable approach.
+ */
+public class DerivedColumnEvaluationPlan {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DerivedColumnEvaluationPlan.class);
+
+    private final ReportGridEvaluatorNamespace namespace;
+    private final List<CompiledCalculatedColumn> orderedColumns;
+    private final Set<CompiledCalculatedColumn> unorderedColumns;
+
+
+    private DerivedColumnEvaluationPlan(ReportGridEvaluatorNamespace namespace,
+                                        List<CompiledCalculatedColumn> orderedColumns,
+                                        Set<CompiledCalculatedColumn> unorderedColumns) {
+        this.namespace = namespace;
+        this.orderedColumns = unmodifiableList(orderedColumns);
+        this.unorderedColumns = unmodifiableSet(unorderedColumns);
+    }
+
+
+    public static DerivedColumnEvaluationPlan mkPlan(ReportGridDefinition definition) {
+        ReportGridEvaluatorNamespace ns = new ReportGridEvaluatorNamespace(definition);
+        JexlEngine jexl = new JexlBuilder()
+                .namespaces(newHashMap(null, ns))
+                .cache(512)
+                .create();
+
+        List<CompiledCalculatedColumn> allColumns = new ArrayList<>();
+        Map<String, CompiledCalculatedColumn> columnsByExtId = new LinkedHashMap<>();
+
+        definition
+                .derivedColumnDefinitions()
+                .stream()
+                .sorted(Comparator.comparingInt(ReportGridDerivedColumnDefinition::position))
+                .forEach(d -> {
+                    CompiledCalculatedColumn col = ImmutableCompiledCalculatedColumn
+                            .builder()
+                            .column(d)
+                            .expression(compile(jexl, d.derivationScript()))
+                            .build();
+                    allColumns.add(col);
+                    // columns sharing an external id are ambiguous, only the first can be ordered
+                    columnsByExtId.putIfAbsent(ReportGridColumnCalculator.colToExtId(d), col);
+                });
+
+        Map<String, Set<String>> dependenciesByExtId = new LinkedHashMap<>();
+        columnsByExtId.forEach((extId, col) -> findDerivedColumnReferences(
+                        col.expression(),
+                        col.column().derivationScript(),
+                        extId,
+                        columnsByExtId.keySet())
+                .ifPresent(refs -> dependenciesByExtId.put(extId, refs)));
+
+        // columns with unresolved references are left out, as are any columns which depend upon them
+        List<String> orderedExtIds = topologicalSort(dependenciesByExtId, dependenciesByExtId.keySet());
+
+        List<CompiledCalculatedColumn> ordered = new ArrayList<>();
+        orderedExtIds.forEach(extId -> ordered.add(columnsByExtId.get(extId)));
+
+        Set<CompiledCalculatedColumn> unordered = new LinkedHashSet<>(allColumns);
+        unordered.removeAll(ordered);
+
+        if (! unordered.isEmpty()) {
+            LOG.info(
+                    "Grid [{}] has derived columns with cyclic, ambiguous or unresolved dependencies, these will be evaluated iteratively: {}",
+                    definition.name(),
+                    unordered
+                            .stream()
+                            .map(c -> ReportGridColumnCalculator.colToExtId(c.column()))
+                            .collect(joining(", ")));
+        }
+
+        return new DerivedColumnEvaluationPlan(ns, ordered, unordered);
+    }
+
+
+    public ReportGridEvaluatorNamespace namespace() {
+        return namespace;
+    }
+
+
+    /**
+     * @return columns in dependency order, a column appears after all the columns it references
+     */
+    public List<CompiledCalculatedColumn> orderedColumns() {
+        return orderedColumns;
+    }
+
+
+    /**
+     * @return columns which could not be ordered due to cyclic or unresolved dependencies, in declaration order
+     */
+    public Set<CompiledCalculatedColumn> unorderedColumns() {
+        return unorderedColumns;
+    }
+
+
+    // -- HELPERS ---
+
+    /**
+     * Derived columns referenced as variables by the given script, ignoring self references.
+     * Returns empty if the script mentions another derived column other than as a variable (e.g.
+     * <code>cell('A')</code>) as those references cannot be resolved from the compiled script.
+     */
+    static Optional<Set<String>> findDerivedColumnReferences(Either<String, JexlScript> expression,
+                                                             String script,
+                                                             String ownExtId,
+                                                             Set<String> derivedExtIds) {
+        if (script == null || expression.isLeft()) {
+            // nothing to evaluate, the column will be reported as a compilation error
+            return Optional.of(Collections.emptySet());
+        }
+
+        Set<String> refs = expression
+                .right()
+                .getVariables()
+                .stream()
+                .filter(path -> ! path.isEmpty())
+                .map(path -> path.get(0))
+                .filter(derivedExtIds::contains)
+                .filter(name -> ! name.equals(ownExtId))
+                .collect(toSet());
+
+        boolean hasUnresolvedReferences = derivedExtIds
+                .stream()
+                .filter(extId -> ! extId.equals(ownExtId))
+                .filter(extId -> ! refs.contains(extId))
+                .anyMatch(script::contains);
+
+        return hasUnresolvedReferences
+                ? Optional.empty()
+                : Optional.of(refs);
+    }
+
+
+    /**
+     * Kahn's algorithm, ties are broken by the iteration order of `allExtIds` (i.e. column position).
+     * Any ids which cannot be placed (due to cycles) are omitted from the result.
+     */
+    static List<String> topologicalSort(Map<String, Set<String>> dependenciesByExtId,
+                                        Collection<String> allExtIds) {
+        Map<String, Integer> outstandingDependencyCounts = new HashMap<>();
+        Map<String, List<String>> dependentsByExtId = new HashMap<>();
+
+        allExtIds.forEach(extId -> {
+            Set<String> deps = dependenciesByExtId.getOrDefault(extId, Collections.emptySet());
+            outstandingDependencyCounts.put(extId, deps.size());
+            deps.forEach(dep -> dependentsByExtId
+                    .computeIfAbsent(dep, k -> new ArrayList<>())
+                    .add(extId));
+        });
+
+        Deque<String> ready = new ArrayDeque<>();
+        allExtIds
+                .stream()
+                .filter(extId -> outstandingDependencyCounts.get(extId) == 0)
+                .forEach(ready::add);
+
+        List<String> result = new ArrayList<>();
+        while (! ready.isEmpty()) {
+            String extId = ready.removeFirst();
+            result.add(extId);
+            dependentsByExtId
+                    .getOrDefault(extId, Collections.emptyList())
+                    .forEach(dependent -> {
+                        int remaining = outstandingDependencyCounts.merge(dependent, -1, Integer::sum);
+                        if (remaining == 0) {
+                            ready.add(dependent);
+                        }
+                    });
+        }
+
+        return result;
+    }
+
+
+    private static Either<String, JexlScript> compile(JexlEngine jexl, String expression) {
+        try {
+            JexlScript expr = jexl.createScript(expression);
+            return Either.right(expr);
+        } catch (JexlException e) {
+            return Either.left(e.getMessage());
+        }
+    }
+
+}
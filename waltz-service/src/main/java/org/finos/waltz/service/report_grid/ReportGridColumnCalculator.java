@@ -1,13 +1,14 @@
 package org.finos.waltz.service.report_grid;
 
-import org.apache.commons.jexl3.*;
+import org.apache.commons.jexl3.MapContext;
+import org.finos.waltz.common.BoundedCache;
 import org.finos.waltz.common.SetUtilities;
-import org.finos.waltz.model.either.Either;
 import org.finos.waltz.model.rating.RatingSchemeItem;
 import org.finos.waltz.model.report_grid.*;
 
 import java.util.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 
 import static java.util.Optional.ofNullable;
 import static java.util.stream.Collectors.toSet;
@@ -20,12 +21,19 @@ import static org.jooq.lambda.tuple.Tuple.tuple;
 
 public class ReportGridColumnCalculator {
 
+    /**
+     * Grids with fewer subjects than this are evaluated on the calling thread,
+     * larger grids are spread over the common fork-join pool.
+     */
+    private static final int PARALLEL_EVALUATION_THRESHOLD = 500;
+
+    private static final BoundedCache<ReportGridDefinition, DerivedColumnEvaluationPlan> PLANS = BoundedCache.mkCountBoundedCache(128, 0);
+
 
     public static Set<ReportGridCell> calculate(ReportGridInstance instance,
                                                 ReportGridDefinition definition) {
-        ReportGridEvaluatorNamespace ns = new ReportGridEvaluatorNamespace(definition);
-        JexlBuilder builder = new JexlBuilder();
-        JexlEngine jexl = builder.namespaces(newHashMap(null, ns)).cache(512).create();
+
+        DerivedColumnEvaluationPlan plan = PLANS.getOrCompute(definition, DerivedColumnEvaluationPlan::mkPlan);
 
         Map<Long, Collection<ReportGridCell>> rowBySubject = groupBy(
                 instance.cellData(),
@@ -33,41 +41,56 @@ public class ReportGridColumnCalculator {
 
         Map<Long, RatingSchemeItem> ratingSchemeItemsById = indexById(instance.ratingSchemeItems());
 
-        Set<CompiledCalculatedColumn> derivedColumns = map(
-                definition.derivedColumnDefinitions(),
-                d -> {
-                    Either<String, JexlScript> expr = compile(
-                            jexl,
-                            d.derivationScript());
-
-                    return ImmutableCompiledCalculatedColumn
-                            .builder()
-                            .column(d)
-                            .expression(expr)
-                            .build();
-                });
+        Stream<ReportSubject> subjects = instance.subjects().size() < PARALLEL_EVALUATION_THRESHOLD
+                ? instance.subjects().stream()
+                : instance.subjects().parallelStream();
 
-        return instance
-                .subjects()
-                .stream()
+        return subjects
                 .map(s -> {
-                    long subjectId = s.entityReference().id();
-                    Map<String, Object> ctx = initialiseContext(
-                            definition.fixedColumnDefinitions(),
-                            ratingSchemeItemsById,
-                            s,
-                            lookupRow(rowBySubject, subjectId));
-                    ns.setContext(ctx);
-                    return s;
+                    ReportGridEvaluatorNamespace ns = plan.namespace();
+                    try {
+                        ns.setContext(initialiseContext(
+                                definition.fixedColumnDefinitions(),
+                                ratingSchemeItemsById,
+                                s,
+                                lookupRow(rowBySubject, s.entityReference().id())));
+
+                        return evaluateRow(plan, s);
+                    } finally {
+                        ns.clearContext();
+                    }
                 })
-                .flatMap(subject ->
-                        calcDerivedCols(
-                                ns,
-                                subject,
-                                derivedColumns)
-                        .stream())
+                .flatMap(Collection::stream)
                 .collect(toSet());
+    }
+
+
+    private static Set<ReportGridCell> evaluateRow(DerivedColumnEvaluationPlan plan,
+                                                   ReportSubject subject) {
+        ReportGridEvaluatorNamespace ns = plan.namespace();
+        Set<ReportGridCell> results = new HashSet<>();
+
+        // columns are ordered so that any columns they reference have already been evaluated
+        plan.orderedColumns()
+                .forEach(ccc -> {
+                    try {
+                        ofNullable(evaluateCalcCol(ccc, subject))
+                                .ifPresent(result -> {
+                                    results.add(result);
+                                    ns.addContext(colToExtId(ccc.column()), result);
+                                });
+                    } catch (Exception e) {
+                        results.add(mkExecutionErrorCell(subject, ccc.column(), toMessage(e)));
+                    }
+                });
 
+        if (plan.unorderedColumns().isEmpty()) {
+            return results;
+        } else {
+            return union(
+                    results,
+                    calcDerivedCols(ns, subject, plan.unorderedColumns()));
+        }
     }
 
 
@@ -140,18 +163,25 @@ public class ReportGridColumnCalculator {
                         ccc.column(),
                         lastErrors.get(ccc.column())))
                 .filter(d -> notEmpty(d.v2))
-                .map(t -> ImmutableReportGridCell
-                        .builder()
-                        .subjectId(subject.entityReference().id())
-                        .errorValue(t.v2)
-                        .options(asSet(mkCellOption("EXECUTION_ERROR", "Execution Error")))
-                        .columnDefinitionId(t.v1.gridColumnId())
-                        .build())
+                .map(t -> mkExecutionErrorCell(subject, t.v1, t.v2))
                 .collect(toSet());
 
         return union(results.values(), errorResults);
     }
 
+
+    private static ReportGridCell mkExecutionErrorCell(ReportSubject subject,
+                                                       ReportGridDerivedColumnDefinition column,
+                                                       String msg) {
+        return ImmutableReportGridCell
+                .builder()
+                .subjectId(subject.entityReference().id())
+                .errorValue(msg)
+                .options(asSet(mkCellOption("EXECUTION_ERROR", "Execution Error")))
+                .columnDefinitionId(column.gridColumnId())
+                .build();
+    }
+
     private static String toMessage(Exception e) {
         if (e.getCause() != null) {
             return e.getCause().getMessage();
@@ -161,16 +191,6 @@ public class ReportGridColumnCalculator {
     }
 
 
-    private static Either<String, JexlScript> compile(JexlEngine jexl, String expression) {
-        try {
-            JexlScript expr = jexl.createScript(expression);
-            return Either.right(expr);
-        } catch (JexlException e) {
-            return Either.left(e.getMessage());
-        }
-    }
-
-
     private static Map<String, Object> initialiseContext(List<ReportGridFixedColumnDefinition> columnDefinitions,
                                                          Map<Long, RatingSchemeItem> ratingSchemeItemsById,
                                                          ReportSubject subject,
@@ -25,25 +25,36 @@ public class ReportGridEvaluatorNamespace {
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
     private final ReportGridDefinition definition;
-    private Map<String, Object> ctx = new HashMap<>();
+    private final Set<String> availableCellExtIds;
+
+    // each thread evaluates one row at a time, therefore the row context is held per thread
+    private final ThreadLocal<Map<String, Object>> threadCtx = ThreadLocal.withInitial(HashMap::new);
 
     public ReportGridEvaluatorNamespace(ReportGridDefinition definition) {
         this.definition = definition;
+        this.availableCellExtIds = union(
+                map(definition.fixedColumnDefinitions(), ReportGridColumnCalculator::colToExtId),
+                map(definition.derivedColumnDefinitions(), ReportGridColumnCalculator::colToExtId));
     }
 
 
     public void setContext(Map<String, Object> ctx) {
-        this.ctx = ctx;
+        threadCtx.set(ctx);
+    }
+
+
+    public void clearContext() {
+        threadCtx.remove();
     }
 
 
     public void addContext(String key, Object value) {
-        ctx.put(key, value);
+        ctx().put(key, value);
     }
 
 
     public Object cell(String cellExtId) {
-        return ctx.get(cellExtId);
+        return ctx().get(cellExtId);
     }
 
 
@@ -51,7 +62,7 @@ public class ReportGridEvaluatorNamespace {
         checkAllCellsExist(cellExtIds);
         return Stream
                 .of(cellExtIds)
-                .map(ctx::get)
+                .map(ctx()::get)
                 .filter(Objects::nonNull)
                 .map(this::cellToStr) //  e.g. coalesce('ONBOARD', 'SCOPE', 'PAAS')
                 .findFirst()
@@ -60,7 +71,7 @@ public class ReportGridEvaluatorNamespace {
 
 
     public Map<String, Object> getContext() {
-        return ctx;
+        return ctx();
     }
 
 
@@ -69,7 +80,7 @@ public class ReportGridEvaluatorNamespace {
 
         return Stream
                 .of(cellExtIds)
-                .map(ctx::get)
+                .map(ctx()::get)
                 .filter(Objects::nonNull)
                 .map(d -> (ReportGridCell) d)
                 .filter(d -> StringUtilities.isEmpty(d.errorValue())) // any cells remove cells with error!
@@ -81,30 +92,30 @@ public class ReportGridEvaluatorNamespace {
 
         return Stream
                 .of(cellExtIds)
-                .map(ctx::get)
+                .map(ctx()::get)
                 .allMatch(c -> Objects.nonNull(c) && !hasErrors(c));
     }
 
     public boolean hasLifecyclePhase(String... lifecyclePhases) {
-        String lifecyclePhase = (String) ctx.get("subjectLifecyclePhase");
+        String lifecyclePhase = (String) ctx().get("subjectLifecyclePhase");
         return Stream.of(lifecyclePhases)
                 .anyMatch(s -> Objects.nonNull(s) && s.equalsIgnoreCase(lower(lifecyclePhase)));
     }
 
     public boolean hasExternalId(String... externalIds) {
-        String extId = (String) ctx.get("subjectExternalId");
+        String extId = (String) ctx().get("subjectExternalId");
         return Stream.of(externalIds)
                 .anyMatch(s -> Objects.nonNull(s) && s.equalsIgnoreCase(lower(extId)));
     }
 
     public boolean hasName(String... names) {
-        String name = (String) ctx.get("subjectName");
+        String name = (String) ctx().get("subjectName");
         return Stream.of(names)
                 .anyMatch(s -> Objects.nonNull(s) && s.equalsIgnoreCase(lower(name)));
     }
 
     public boolean hasId(Long... ids) {
-        Long id = (Long) ctx.get("subjectId");
+        Long id = (Long) ctx().get("subjectId");
         return Stream.of(ids)
                 .anyMatch(s -> Objects.nonNull(s) && s.equals(id));
     }
@@ -179,6 +190,11 @@ public class ReportGridEvaluatorNamespace {
 
     // --- HELPERS ------------------
 
+    private Map<String, Object> ctx() {
+        return threadCtx.get();
+    }
+
+
     private BigDecimal calcRatio(String[] cellExtIds) {
 
         if (isEmpty(cellExtIds)) {
@@ -189,7 +205,7 @@ public class ReportGridEvaluatorNamespace {
 
         long foundColumns = Stream
                 .of(cellExtIds)
-                .map(ctx::get)
+                .map(ctx()::get)
                 .filter(c -> Objects.nonNull(c) && !hasErrors(c))
                 .count();
 
@@ -221,10 +237,6 @@ public class ReportGridEvaluatorNamespace {
 
 
     private void checkAllCellsExist(Set<String> requiredCellExtIds) {
-        Set<String> availableCellExtIds = union(
-                map(definition.fixedColumnDefinitions(), ReportGridColumnCalculator::colToExtId),
-                map(definition.derivedColumnDefinitions(), ReportGridColumnCalculator::colToExtId));
-
         Checks.checkTrue(availableCellExtIds.containsAll(
                         requiredCellExtIds),
                 "Not all cells external ids found in grid");
@@ -105,8 +105,8 @@ public class ReportGridFilterViewService {
         if (gridFilterInfo == null) {
             throw new IllegalArgumentException("Cannot parse filter grid info from note text");
         } else {
-            Tuple3<EntityKind, Long, Set<AppGroupEntry>> appGroupIdToEntries = determineApplicationsInGroup(gridFilterInfo);
-            appGroupService.replaceGroupEntries(asSet(appGroupIdToEntries));
+            Tuple3<EntityKind, Long, Set<AppGroupEntry>> appGroupIdToEntries = first(determineApplicationsInGroups(asSet(gridFilterInfo)));
+            appGroupService.updateGroupEntries(asSet(appGroupIdToEntries));
             return appGroupIdToEntries.v3.size();
         }
     }
@@ -134,73 +134,94 @@ public class ReportGridFilterViewService {
         LOG.info("Loading filter info from notes");
         Set<ReportGridFilterInfo> gridInfoWithFilters = findGridInfoWithFilters();
 
+        long start = System.currentTimeMillis();
         Set<Tuple3<EntityKind, Long, Set<AppGroupEntry>>> appGroupToEntries = determineAppGroupEntries(gridInfoWithFilters);
+        LOG.info("Evaluated filters for {} application groups in {}ms", appGroupToEntries.size(), System.currentTimeMillis() - start);
 
         LOG.info("Populating application groups from filters");
-        appGroupService.replaceGroupEntries(appGroupToEntries);
+        int changeCount = appGroupService.updateGroupEntries(appGroupToEntries);
 
-        LOG.info("Finished updating filter groups");
+        LOG.info("Finished updating filter groups, {} entries added or removed", changeCount);
     }
 
 
+    /**
+     * Filters on the same grid with the same selection options are evaluated together,
+     * against a single grid instance holding only the columns those filters refer to.
+     * Each grid / selection options combination is evaluated in parallel.
+     */
     private Set<Tuple3<EntityKind, Long, Set<AppGroupEntry>>> determineAppGroupEntries(Set<ReportGridFilterInfo> gridInfoWithFilters) {
-        return gridInfoWithFilters
-                .stream()
-                .map(this::determineApplicationsInGroup)
+        Map<Tuple2<Long, IdSelectionOptions>, Collection<ReportGridFilterInfo>> filterInfosByGridAndSelectionOptions = groupBy(
+                gridInfoWithFilters,
+                d -> tuple(d.gridDefinition().id().get(), d.idSelectionOptions()));
+
+        return filterInfosByGridAndSelectionOptions
+                .values()
+                .parallelStream()
+                .flatMap(filterInfos -> determineApplicationsInGroups(filterInfos).stream())
                 .collect(Collectors.toSet());
     }
 
-    private Tuple3<EntityKind, Long, Set<AppGroupEntry>> determineApplicationsInGroup(ReportGridFilterInfo reportGridFilterInfo) {
-        EntityKind subjectKind = reportGridFilterInfo.gridDefinition().subjectKind();
-
-        Optional<ReportGrid> maybeGrid = reportGridService.getByIdAndSelectionOptions(
-                reportGridFilterInfo.gridDefinition().id().get(),
-                reportGridFilterInfo.idSelectionOptions(),
-                "filter-note-user");
-
-        return maybeGrid
-                .map(grid -> {
-                    ReportGridInstance instance = grid.instance();
-                    Set<ReportGridCell> cellData = instance.cellData();
-
-                Set<Long> subjectIds = SetUtilities.map(
-                        instance.subjects(),
-                        s -> s.entityReference().id());
-
-                Set<Long> subjectsPassingFilters = applyFilters(
-                        cellData,
-                        reportGridFilterInfo.gridFilters(),
-                        subjectIds,
-                        instance.ratingSchemeItems());
-
-                Set<AppGroupEntry> appGroupEntries = SetUtilities.map(
-                        subjectsPassingFilters,
-                        id -> ImmutableAppGroupEntry
-                                .builder()
-                                .id(id)
-                                .kind(subjectKind)
-                                .isReadOnly(true)
-                                .build());
-
-                    return tuple(subjectKind, reportGridFilterInfo.appGroupId(), appGroupEntries);
-                })
-                .orElseThrow(() -> new IllegalStateException("Cannot create grid instance with params" + reportGridFilterInfo));
+
+    /**
+     * @param filterInfos  filter infos which all share the same grid and selection options
+     * @return  tuples of subject kind, app group id and the entries which pass that group's filters
+     */
+    private Set<Tuple3<EntityKind, Long, Set<AppGroupEntry>>> determineApplicationsInGroups(Collection<ReportGridFilterInfo> filterInfos) {
+        ReportGridFilterInfo exemplar = first(filterInfos);
+        ReportGridDefinition gridDefinition = exemplar.gridDefinition();
+        EntityKind subjectKind = gridDefinition.subjectKind();
+
+        Set<Long> requiredColumnIds = filterInfos
+                .stream()
+                .flatMap(d -> d.gridFilters().stream())
+                .map(GridFilter::columnDefinitionId)
+                .collect(Collectors.toSet());
+
+        ReportGridInstance instance = reportGridService.mkInstanceForColumns(
+                gridDefinition,
+                exemplar.idSelectionOptions(),
+                requiredColumnIds);
+
+        Set<Long> subjectIds = SetUtilities.map(
+                instance.subjects(),
+                s -> s.entityReference().id());
+
+        Map<Long, RatingSchemeItem> ratingSchemeItemByIdMap = indexBy(instance.ratingSchemeItems(), d -> d.id().get());
+        Map<Long, Collection<ReportGridCell>> dataByCol = groupBy(instance.cellData(), ReportGridCell::columnDefinitionId);
+
+        return SetUtilities.map(
+                filterInfos,
+                filterInfo -> {
+                    Set<Long> subjectsPassingFilters = applyFilters(
+                            dataByCol,
+                            filterInfo.gridFilters(),
+                            subjectIds,
+                            ratingSchemeItemByIdMap);
+
+                    Set<AppGroupEntry> appGroupEntries = SetUtilities.map(
+                            subjectsPassingFilters,
+                            id -> ImmutableAppGroupEntry
+                                    .builder()
+                                    .id(id)
+                                    .kind(subjectKind)
+                                    .isReadOnly(true)
+                                    .build());
+
+                    return tuple(subjectKind, filterInfo.appGroupId(), appGroupEntries);
+                });
     }
 
 
-    private Set<Long> applyFilters(Set<ReportGridCell> cellData,
+    private Set<Long> applyFilters(Map<Long, Collection<ReportGridCell>> dataByCol,
                                    Set<GridFilter> gridFilters,
                                    Set<Long> subjectIds,
-                                   Set<RatingSchemeItem> ratingSchemeItems) {
+                                   Map<Long, RatingSchemeItem> ratingSchemeItemByIdMap) {
 
         if (isEmpty(gridFilters)) {
             //If there are no filters all the apps should populate the group
             return subjectIds;
         } else {
-            Map<Long, RatingSchemeItem> ratingSchemeItemByIdMap = indexBy(ratingSchemeItems, d -> d.id().get());
-
-            Map<Long, Collection<ReportGridCell>> dataByCol = groupBy(cellData, ReportGridCell::columnDefinitionId);
-
             Set<Set<Long>> appIdsPassingFilters = gridFilters
                     .stream()
                     .map(filter -> {
@@ -0,0 +1,344 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.report_grid;
+
+import org.finos.waltz.common.BoundedCache;
+import org.finos.waltz.data.changelog.ChangeLogDao;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.IdSelectionOptions;
+import org.finos.waltz.model.changelog.ChangeLog;
+import org.finos.waltz.model.report_grid.ReportGridDefinition;
+import org.finos.waltz.model.report_grid.ReportGridFixedColumnDefinition;
+import org.finos.waltz.model.report_grid.ReportGridInstance;
+import org.jooq.lambda.tuple.Tuple2;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+
+/**
+ * Server side cache of computed report grid instances, keyed by grid id and selection options.
+ * <p>
+ * Each entry remembers the grid definition it was computed against, if the definition has
+ * since changed the entry is discarded.  Entries are also dropped when a change log entry is
+ * written which touches one of the entity kinds feeding the grid (e.g. a measurable rating change
+ * invalidates all grids with measurable columns).  As not every data change is recorded in the
+ * change log, and as other servers may be writing changes, entries also expire after a fixed ttl.
+ * <p>
+ * Grids which are being computed when a relevant change is written are not cached, as the
+ * computation may have read data from before the change.
+ * <p>
+ * The cache is bounded by the total number of cells (plus subjects) held, evicting the least
+ * recently used grids first.
+ */
+@Service
+@ManagedResource(description = "Cache of computed report grid instances")
+public class ReportGridInstanceCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReportGridInstanceCache.class);
+
+    /**
+     * Maps a grid column kind to the additional entity kinds which, when changed, may alter
+     * the values shown in that column.
+     */
+    private static final Map<EntityKind, Set<EntityKind>> COLUMN_KIND_TO_DEPENDENT_KINDS = mkColumnKindToDependentKinds();
+
+    private final BoundedCache<Tuple2<Long, IdSelectionOptions>, CachedInstance> cache;
+
+    /**
+     * Dependencies of the grids currently being computed, used to detect relevant changes
+     * made during a computation.
+     */
+    private final Set<GridDependencies> inFlight = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Advanced whenever a change may affect a grid being computed, guarded by the lock.
+     */
+    private long generation = 0;
+    private final Object lock = new Object();
+
+
+    @Autowired
+    public ReportGridInstanceCache(ChangeLogDao changeLogDao,
+                                   @Value("${report_grid.cache.max_cells:2000000}") long maxCells,
+                                   @Value("${report_grid.cache.ttl_minutes:30}") long ttlMinutes) {
+        checkNotNull(changeLogDao, "changeLogDao cannot be null");
+
+        this.cache = new BoundedCache<>(
+                maxCells,
+                TimeUnit.MINUTES.toMillis(ttlMinutes),
+                CachedInstance::weight);
+
+        changeLogDao.addWriteListener(this::onChangeLogWritten);
+    }
+
+
+    /**
+     * Returns the cached instance for the given grid and selection options, computing it
+     * if the instance is not cached (or was computed against a different grid definition).
+     *
+     * @param definition  current definition of the grid
+     * @param selectionOptions  selection options used to determine the subjects of the grid
+     * @param instanceSupplier  function to compute the instance on a cache miss
+     * @return  the (possibly cached) grid instance
+     */
+    public ReportGridInstance getOrCompute(ReportGridDefinition definition,
+                                           IdSelectionOptions selectionOptions,
+                                           Supplier<ReportGridInstance> instanceSupplier) {
+        checkNotNull(definition, "definition cannot be null");
+        checkNotNull(selectionOptions, "selectionOptions cannot be null");
+
+        return find(definition, selectionOptions)
+                .orElseGet(() -> {
+                    GridDependencies dependencies = new GridDependencies(definition);
+                    long computeGeneration = startComputation(dependencies);
+                    try {
+                        ReportGridInstance instance = instanceSupplier.get();
+                        synchronized (lock) {
+                            if (generation == computeGeneration) {
+                                cache.put(mkKey(definition, selectionOptions), new CachedInstance(dependencies, instance));
+                            } else {
+                                LOG.debug("Not caching grid: {} as it was changed whilst being computed", definition.id().orElse(null));
+                            }
+                        }
+                        return instance;
+                    } finally {
+                        inFlight.remove(dependencies);
+                    }
+                });
+    }
+
+
+    /**
+     * Returns the cached instance for the given grid and selection options without computing
+     * it on a miss.  Instances computed against a different grid definition are ignored.
+     *
+     * @param definition  current definition of the grid
+     * @param selectionOptions  selection options used to determine the subjects of the grid
+     * @return  the cached grid instance, if present
+     */
+    public Optional<ReportGridInstance> find(ReportGridDefinition definition,
+                                             IdSelectionOptions selectionOptions) {
+        checkNotNull(definition, "definition cannot be null");
+        checkNotNull(selectionOptions, "selectionOptions cannot be null");
+
+        return cache
+                .get(mkKey(definition, selectionOptions))
+                .filter(cached -> cached.dependencies.definition.equals(definition))
+                .map(cached -> cached.instance);
+    }
+
+
+    public void invalidateGrid(long gridId) {
+        int removed;
+        synchronized (lock) {
+            generation++;
+            removed = cache.invalidateIf((k, v) -> k.v1 != null && k.v1 == gridId);
+        }
+        LOG.debug("Invalidated {} cached instances of grid: {}", removed, gridId);
+    }
+
+
+    @ManagedOperation(description = "Remove all cached report grid instances")
+    public void clear() {
+        LOG.info("Clearing report grid instance cache");
+        synchronized (lock) {
+            generation++;
+            cache.clear();
+        }
+    }
+
+
+    @ManagedAttribute
+    public int getSize() {
+        return cache.size();
+    }
+
+
+    @ManagedAttribute
+    public long getCellCount() {
+        return cache.totalWeight();
+    }
+
+
+    @ManagedAttribute
+    public long getHitCount() {
+        return cache.hitCount();
+    }
+
+
+    @ManagedAttribute
+    public long getMissCount() {
+        return cache.missCount();
+    }
+
+
+    @ManagedAttribute
+    public long getEvictionCount() {
+        return cache.evictionCount();
+    }
+
+
+    @ManagedAttribute
+    public long getInvalidationCount() {
+        return cache.invalidationCount();
+    }
+
+
+    // -- HELPERS ---
+
+    private static Tuple2<Long, IdSelectionOptions> mkKey(ReportGridDefinition definition,
+                                                          IdSelectionOptions selectionOptions) {
+        return tuple(definition.id().orElse(null), selectionOptions);
+    }
+
+
+    private long startComputation(GridDependencies dependencies) {
+        synchronized (lock) {
+            inFlight.add(dependencies);
+            return generation;
+        }
+    }
+
+
+    private void onChangeLogWritten(Collection<ChangeLog> changeLogs) {
+        int removed;
+
+        synchronized (lock) {
+            if (inFlight.stream().anyMatch(d -> d.isAffectedByAny(changeLogs))) {
+                generation++;
+            }
+
+            removed = cache.size() == 0
+                    ? 0
+                    : cache.invalidateIf((k, v) -> v.dependencies.isAffectedByAny(changeLogs));
+        }
+
+        if (removed > 0) {
+            LOG.debug("Invalidated {} cached report grid instances following {} change log entries", removed, changeLogs.size());
+        }
+    }
+
+
+    private static Map<EntityKind, Set<EntityKind>> mkColumnKindToDependentKinds() {
+        Map<EntityKind, Set<EntityKind>> m = new HashMap<>();
+        m.put(EntityKind.ASSESSMENT_DEFINITION, EnumSet.of(EntityKind.ASSESSMENT_RATING));
+        m.put(EntityKind.ATTESTATION, EnumSet.of(EntityKind.ATTESTATION_RUN, EntityKind.LOGICAL_DATA_FLOW, EntityKind.MEASURABLE_RATING));
+        m.put(EntityKind.COMPLEXITY_KIND, EnumSet.of(EntityKind.COMPLEXITY));
+        m.put(EntityKind.COST_KIND, EnumSet.of(EntityKind.COST, EntityKind.ASSET_COST));
+        m.put(EntityKind.DATA_TYPE, EnumSet.of(EntityKind.LOGICAL_DATA_FLOW, EntityKind.PHYSICAL_FLOW, EntityKind.PHYSICAL_SPECIFICATION));
+        m.put(EntityKind.ENTITY_STATISTIC, EnumSet.noneOf(EntityKind.class));
+        m.put(EntityKind.INVOLVEMENT_KIND, EnumSet.of(EntityKind.INVOLVEMENT, EntityKind.PERSON));
+        m.put(EntityKind.MEASURABLE, EnumSet.of(EntityKind.MEASURABLE_RATING, EntityKind.ALLOCATION, EntityKind.MEASURABLE_RATING_PLANNED_DECOMMISSION, EntityKind.MEASURABLE_RATING_REPLACEMENT));
+        m.put(EntityKind.MEASURABLE_CATEGORY, EnumSet.of(EntityKind.MEASURABLE, EntityKind.MEASURABLE_RATING));
+        m.put(EntityKind.SURVEY_QUESTION, EnumSet.of(EntityKind.SURVEY_INSTANCE, EntityKind.SURVEY_RUN));
+        m.put(EntityKind.SURVEY_TEMPLATE, EnumSet.of(EntityKind.SURVEY_INSTANCE, EntityKind.SURVEY_RUN, EntityKind.SURVEY_INSTANCE_OWNER, EntityKind.SURVEY_INSTANCE_RECIPIENT));
+        return m;
+    }
+
+
+    private static class CachedInstance {
+
+        private final GridDependencies dependencies;
+        private final ReportGridInstance instance;
+
+
+        private CachedInstance(GridDependencies dependencies,
+                               ReportGridInstance instance) {
+            this.dependencies = dependencies;
+            this.instance = instance;
+        }
+
+
+        private long weight() {
+            return instance.cellData().size() + instance.subjects().size();
+        }
+    }
+
+
+    /**
+     * The entity kinds a grid definition depends upon, used to determine which changes are relevant to a grid.
+     */
+    private static class GridDependencies {
+
+        private final ReportGridDefinition definition;
+        private final EntityKind subjectKind;
+        private final Set<EntityKind> dependentKinds;
+
+
+        private GridDependencies(ReportGridDefinition definition) {
+            this.definition = definition;
+            this.subjectKind = definition.subjectKind();
+            this.dependentKinds = determineDependentKinds(definition);
+        }
+
+
+        private boolean isAffectedByAny(Collection<ChangeLog> changeLogs) {
+            return changeLogs
+                    .stream()
+                    .anyMatch(this::isAffectedBy);
+        }
+
+
+        /**
+         * A change is relevant if it is about a dependent kind (e.g. parent: APPLICATION, child: MEASURABLE_RATING)
+         * or if it is an alteration of an entity a column depends upon (e.g. parent: MEASURABLE).
+         * Changes to the subject entities themselves (e.g. renaming an app) are always relevant.
+         */
+        private boolean isAffectedBy(ChangeLog changeLog) {
+            EntityKind parentKind = changeLog.parentReference().kind();
+            EntityKind changedKind = changeLog.childKind().orElse(parentKind);
+
+            return dependentKinds.contains(changedKind)
+                    || (parentKind != subjectKind && dependentKinds.contains(parentKind));
+        }
+
+
+        private static Set<EntityKind> determineDependentKinds(ReportGridDefinition definition) {
+            Set<EntityKind> kinds = EnumSet.of(definition.subjectKind());
+
+            for (ReportGridFixedColumnDefinition col : definition.fixedColumnDefinitions()) {
+                kinds.add(col.columnEntityKind());
+                kinds.addAll(COLUMN_KIND_TO_DEPENDENT_KINDS.getOrDefault(col.columnEntityKind(), EnumSet.noneOf(EntityKind.class)));
+                if (col.entityFieldReference() != null) {
+                    kinds.add(col.entityFieldReference().entityKind());
+                }
+            }
+
+            return kinds;
+        }
+    }
+}
@@ -61,6 +61,7 @@ public class ReportGridService {
     private final ReportGridDao reportGridDao;
     private final ReportGridMemberService reportGridMemberService;
     private final UserRoleService userRoleService;
+    private final ReportGridInstanceCache reportGridInstanceCache;
 
     private final GenericSelectorFactory genericSelectorFactory = new GenericSelectorFactory();
 
@@ -70,12 +71,14 @@ public class ReportGridService {
                              RatingSchemeService ratingSchemeService,
                              ReportGridMemberService reportGridMemberService,
                              UserRoleService userRoleService,
-                             ChangeInitiativeDao changeInitiativeDao) {
+                             ChangeInitiativeDao changeInitiativeDao,
+                             ReportGridInstanceCache reportGridInstanceCache) {
         checkNotNull(reportGridDao, "reportGridDao cannot be null");
         checkNotNull(reportGridMemberService, "reportGridMemberService cannot be null");
         checkNotNull(applicationDao, "applicationDao cannot be null");
         checkNotNull(ratingSchemeService, "ratingSchemeService cannot be null");
         checkNotNull(userRoleService, "userRoleService cannot be null");
+        checkNotNull(reportGridInstanceCache, "reportGridInstanceCache cannot be null");
 
         this.reportGridDao = reportGridDao;
         this.reportGridMemberService = reportGridMemberService;
@@ -83,6 +86,7 @@ public class ReportGridService {
         this.ratingSchemeService = ratingSchemeService;
         this.changeInititativeDao = changeInitiativeDao;
         this.userRoleService = userRoleService;
+        this.reportGridInstanceCache = reportGridInstanceCache;
     }
 
 
@@ -120,9 +124,10 @@ public class ReportGridService {
             return Optional.empty();
         }
 
-        EntityKind targetKind = definition.subjectKind();
-
-        ReportGridInstance instance = mkInstance(id, opts, targetKind);
+        ReportGridInstance instance = reportGridInstanceCache.getOrCompute(
+                definition,
+                opts,
+                () -> mkInstanceWithDerivedColumns(id, opts, definition));
 
         Set<ReportGridMember> members = reportGridMemberService.findByGridId(id);
 
@@ -133,20 +138,6 @@ public class ReportGridService {
                 .map(ReportGridMember::role)
                 .orElse(ReportGridMemberRole.VIEWER);
 
-        if (!definition.derivedColumnDefinitions().isEmpty()) {
-            Set<ReportGridCell> calculatedCells = ReportGridColumnCalculator.calculate(instance, definition);
-
-            return Optional.of(ImmutableReportGrid
-                    .builder()
-                    .definition(definition)
-                    .instance(ImmutableReportGridInstance
-                            .copyOf(instance)
-                            .withCellData(SetUtilities.union(instance.cellData(), calculatedCells)))
-                    .members(members)
-                    .userRole(userRole)
-                    .build());
-        }
-
         return Optional.of(ImmutableReportGrid
                 .builder()
                 .definition(definition)
@@ -157,10 +148,89 @@ public class ReportGridService {
     }
 
 
+    private ReportGridInstance mkInstanceWithDerivedColumns(long id,
+                                                           IdSelectionOptions opts,
+                                                           ReportGridDefinition definition) {
+        ReportGridInstance instance = mkInstance(id, opts, definition.subjectKind());
+
+        if (definition.derivedColumnDefinitions().isEmpty()) {
+            return instance;
+        }
+
+        Set<ReportGridCell> calculatedCells = ReportGridColumnCalculator.calculate(instance, definition);
+
+        return ImmutableReportGridInstance
+                .copyOf(instance)
+                .withCellData(SetUtilities.union(instance.cellData(), calculatedCells));
+    }
+
+
     public ReportGridInstance mkInstance(long id, IdSelectionOptions idSelectionOptions, EntityKind targetKind) {
 
         GenericSelector genericSelector = genericSelectorFactory.applyForKind(targetKind, idSelectionOptions);
         Set<ReportGridCell> cellData = reportGridDao.findCellDataByGridId(id, genericSelector);
+
+        return mkInstance(genericSelector, cellData);
+    }
+
+
+    /**
+     * Builds a (possibly partial) grid instance containing the cells for the given columns.
+     * This is intended for evaluating grid filters, which typically only refer to a
+     * handful of the columns in a grid.
+     * <p>
+     * If the full instance is already cached it is returned as-is.  Otherwise, if only
+     * fixed columns are requested, just those columns are fetched.  Derived columns may
+     * refer to any other column in the grid so, if any are requested, the full instance
+     * is computed (and cached).
+     *
+     * @param definition  definition of the grid
+     * @param idSelectionOptions  selection options used to determine the subjects of the grid
+     * @param gridColumnIds  ids of the (fixed or derived) grid columns required
+     * @return  an instance containing all subjects and, at least, the cells for the requested columns
+     */
+    public ReportGridInstance mkInstanceForColumns(ReportGridDefinition definition,
+                                                   IdSelectionOptions idSelectionOptions,
+                                                   Set<Long> gridColumnIds) {
+        checkNotNull(definition, "definition cannot be null");
+        checkNotNull(gridColumnIds, "gridColumnIds cannot be null");
+
+        IdSelectionOptions opts = modifySelectionOptionsForGrid(idSelectionOptions);
+
+        Optional<ReportGridInstance> cachedInstance = reportGridInstanceCache.find(definition, opts);
+
+        if (cachedInstance.isPresent()) {
+            return cachedInstance.get();
+        }
+
+        boolean requiresDerivedColumns = definition
+                .derivedColumnDefinitions()
+                .stream()
+                .anyMatch(d -> gridColumnIds.contains(d.gridColumnId()));
+
+        if (requiresDerivedColumns) {
+            return reportGridInstanceCache.getOrCompute(
+                    definition,
+                    opts,
+                    () -> mkInstanceWithDerivedColumns(definition.id().get(), opts, definition));
+        }
+
+        List<ReportGridFixedColumnDefinition> columns = definition
+                .fixedColumnDefinitions()
+                .stream()
+                .filter(d -> gridColumnIds.contains(d.gridColumnId()))
+                .collect(Collectors.toList());
+
+        GenericSelector genericSelector = genericSelectorFactory.applyForKind(definition.subjectKind(), opts);
+        Set<ReportGridCell> cellData = reportGridDao.findCellDataForColumns(definition, columns, genericSelector);
+
+        return mkInstance(genericSelector, cellData);
+    }
+
+
+    private ReportGridInstance mkInstance(GenericSelector genericSelector,
+                                          Set<ReportGridCell> cellData) {
+
         Set<ReportSubject> subjects = getReportSubjects(genericSelector);
 
         Set<RatingSchemeItem> ratingSchemeItems = ratingSchemeService.findRatingSchemeItemsByIds(
@@ -215,6 +285,7 @@ public class ReportGridService {
                                                         String username) throws InsufficientPrivelegeException {
         checkIsOwner(reportGridId, username);
         reportGridDao.updateColumnDefinitions(reportGridId, updateCommand);
+        reportGridInstanceCache.invalidateGrid(reportGridId);
         return reportGridDao.getGridDefinitionById(reportGridId);
     }
 
@@ -282,6 +353,7 @@ public class ReportGridService {
                     format("Grid def: %d not found", gridId));
         }
         reportGridMemberService.checkIsOwner(gridId, username);
+        reportGridInstanceCache.invalidateGrid(gridId);
 
         return reportGridDao.remove(gridId);
     }
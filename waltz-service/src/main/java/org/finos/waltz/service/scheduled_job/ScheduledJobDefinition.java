@@ -0,0 +1,110 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.scheduled_job;
+
+import org.finos.waltz.model.scheduled_job.JobKey;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+
+/**
+ * Describes a scheduled job and how it relates to the other jobs.
+ * <ul>
+ *     <li><b>dependencies</b>: if a dependency is due to run at the same time as this job,
+ *     this job will wait until the dependency has finished</li>
+ *     <li><b>conflicts</b>: this job will never run at the same time as a conflicting job
+ *     (e.g. because both update the same tables and would deadlock)</li>
+ * </ul>
+ */
+public class ScheduledJobDefinition {
+
+    private final JobKey key;
+    private final Runnable job;
+    private final Set<JobKey> dependencies;
+    private final Set<JobKey> conflicts;
+
+
+    private ScheduledJobDefinition(JobKey key,
+                                   Runnable job,
+                                   Set<JobKey> dependencies,
+                                   Set<JobKey> conflicts) {
+        this.key = key;
+        this.job = job;
+        this.dependencies = Collections.unmodifiableSet(dependencies);
+        this.conflicts = Collections.unmodifiableSet(conflicts);
+    }
+
+
+    public static ScheduledJobDefinition mkJob(JobKey key, Runnable job) {
+        checkNotNull(key, "key cannot be null");
+        checkNotNull(job, "job cannot be null");
+        return new ScheduledJobDefinition(
+                key,
+                job,
+                EnumSet.noneOf(JobKey.class),
+                EnumSet.noneOf(JobKey.class));
+    }
+
+
+    public ScheduledJobDefinition dependsOn(JobKey first, JobKey... rest) {
+        Set<JobKey> deps = EnumSet.of(first, rest);
+        deps.addAll(dependencies);
+        return new ScheduledJobDefinition(key, job, deps, conflicts);
+    }
+
+
+    public ScheduledJobDefinition conflictsWith(JobKey first, JobKey... rest) {
+        Set<JobKey> cs = EnumSet.of(first, rest);
+        cs.addAll(conflicts);
+        return new ScheduledJobDefinition(key, job, dependencies, cs);
+    }
+
+
+    public JobKey key() {
+        return key;
+    }
+
+
+    public Runnable job() {
+        return job;
+    }
+
+
+    public Set<JobKey> dependencies() {
+        return dependencies;
+    }
+
+
+    public Set<JobKey> conflicts() {
+        return conflicts;
+    }
+
+
+    @Override
+    public String toString() {
+        return "ScheduledJobDefinition{" +
+                "key=" + key +
+                ", dependencies=" + dependencies +
+                ", conflicts=" + conflicts +
+                '}';
+    }
+}
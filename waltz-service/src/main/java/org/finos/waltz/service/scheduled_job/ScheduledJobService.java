@@ -35,32 +35,62 @@ import org.finos.waltz.service.usage_info.DataTypeUsageService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.Collections;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.function.Consumer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 
+import static java.lang.String.format;
 import static org.finos.waltz.common.Checks.checkNotNull;
-import static org.finos.waltz.common.SetUtilities.asSet;
-
+import static org.finos.waltz.common.Checks.checkTrue;
+import static org.finos.waltz.service.scheduled_job.ScheduledJobDefinition.mkJob;
+
+/**
+ * Runs the background jobs (hierarchy rebuilds, flow rating recalculations etc.) which have been
+ * marked as <code>RUNNABLE</code> in the settings table.
+ * <p>
+ * Each job is declared with its dependencies and conflicts (see {@link ScheduledJobDefinition}).
+ * Jobs are dispatched on a single thread whenever something may have made a job startable: a
+ * scheduled tick, a job being triggered via {@link #triggerJob(JobKey)} or a job finishing.  Each
+ * dispatch re-reads the runnable jobs and starts, on a bounded pool, those whose dependencies have
+ * finished and which do not conflict with a running job (either here or, via the job status, on
+ * another server).  Dispatching never waits for jobs to complete, jobs which cannot be started yet
+ * remain runnable and are reconsidered by the next dispatch.
+ * <p>
+ * The start time and duration of each run are persisted alongside the job status.
+ */
 @ExcludeFromIntegrationTesting
 @Service
+@ManagedResource(description = "Scheduler for background jobs")
 public class ScheduledJobService {
 
     private static final Logger LOG = LoggerFactory.getLogger(ScheduledJobService.class);
 
-    private final DataTypeUsageService dataTypeUsageService;
-    private final EntityHierarchyService entityHierarchyService;
-    private final FlowClassificationRuleService flowClassificationRuleService;
-    private final LogicalFlowService logicalFlowService;
-    private final PhysicalSpecDataTypeService physicalSpecDataTypeService;
     private final ScheduledJobDao scheduledJobDao;
-    private final AttestationRunService attestationRunService;
-    private final SurveyInstanceService surveyInstanceService;
+    private final Map<JobKey, ScheduledJobDefinition> jobDefinitions;
+    private final ExecutorService jobPool;
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(r -> mkDaemonThread(r, "Scheduled Job Dispatcher"));
 
-    private final ReportGridFilterViewService reportGridFilterViewService;
+    /**
+     * Jobs started by this server which have not yet finished, only accessed on the dispatcher thread
+     */
+    private final Set<JobKey> dispatchedJobs = EnumSet.noneOf(JobKey.class);
+    private final Map<JobKey, LocalDateTime> runningJobs = new ConcurrentHashMap<>();
+    private final Map<JobKey, String> lastRuns = new ConcurrentHashMap<>();
 
 
     @Autowired
@@ -72,9 +102,11 @@ public class ScheduledJobService {
                                ScheduledJobDao scheduledJobDao,
                                AttestationRunService attestationRunService,
                                SurveyInstanceService surveyInstanceService,
-                               ReportGridFilterViewService reportGridFilterViewService) {
+                               ReportGridFilterViewService reportGridFilterViewService,
+                               @Value("${scheduled_jobs.parallelism:3}") int parallelism) {
 
         checkNotNull(dataTypeUsageService, "dataTypeUsageService cannot be null");
+        checkNotNull(entityHierarchyService, "entityHierarchyService cannot be null");
         checkNotNull(flowClassificationRuleService, "flowClassificationRuleService cannot be null");
         checkNotNull(logicalFlowService, "logicalFlowService cannot be null");
         checkNotNull(physicalSpecDataTypeService, "physicalSpecDataTypeService cannot be null");
@@ -82,86 +114,294 @@ public class ScheduledJobService {
         checkNotNull(attestationRunService, "attestationRunService cannot be null");
         checkNotNull(reportGridFilterViewService, "reportGridFilterViewService cannot be null");
         checkNotNull(surveyInstanceService, "surveyInstanceService cannot be null");
+        checkTrue(parallelism > 0, "parallelism must be positive");
 
-        this.dataTypeUsageService = dataTypeUsageService;
-        this.entityHierarchyService = entityHierarchyService;
-        this.flowClassificationRuleService = flowClassificationRuleService;
-        this.logicalFlowService = logicalFlowService;
-        this.physicalSpecDataTypeService = physicalSpecDataTypeService;
         this.scheduledJobDao = scheduledJobDao;
-        this.attestationRunService = attestationRunService;
-        this.reportGridFilterViewService = reportGridFilterViewService;
-        this.surveyInstanceService = surveyInstanceService;
+        this.jobPool = Executors.newFixedThreadPool(parallelism, r -> mkDaemonThread(r, "Scheduled Job"));
+
+        this.jobDefinitions = indexDefinitions(
+                mkJob(JobKey.HIERARCHY_REBUILD_CHANGE_INITIATIVE,
+                        () -> entityHierarchyService.reconcileFor(EntityKind.CHANGE_INITIATIVE)),
+
+                mkJob(JobKey.HIERARCHY_REBUILD_DATA_TYPE,
+                        () -> entityHierarchyService.reconcileFor(EntityKind.DATA_TYPE)),
+
+                mkJob(JobKey.HIERARCHY_REBUILD_ENTITY_STATISTICS,
+                        () -> entityHierarchyService.reconcileFor(EntityKind.ENTITY_STATISTIC)),
+
+                mkJob(JobKey.HIERARCHY_REBUILD_MEASURABLE,
+                        () -> entityHierarchyService.reconcileFor(EntityKind.MEASURABLE)),
+
+                mkJob(JobKey.HIERARCHY_REBUILD_ORG_UNIT,
+                        () -> entityHierarchyService.reconcileFor(EntityKind.ORG_UNIT)),
+
+                mkJob(JobKey.HIERARCHY_REBUILD_PERSON,
+                        () -> entityHierarchyService.reconcileFor(EntityKind.PERSON)),
+
+                // both jobs rewrite logical flow decorators and will deadlock if run together
+                mkJob(JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL,
+                        physicalSpecDataTypeService::rippleDataTypesToLogicalFlows)
+                        .dependsOn(JobKey.HIERARCHY_REBUILD_DATA_TYPE)
+                        .conflictsWith(JobKey.DATA_TYPE_USAGE_RECALC_APPLICATION, JobKey.AUTH_SOURCE_RECALC_FLOW_RATINGS),
+
+                mkJob(JobKey.DATA_TYPE_USAGE_RECALC_APPLICATION,
+                        dataTypeUsageService::recalculateForAllApplications)
+                        .dependsOn(JobKey.HIERARCHY_REBUILD_DATA_TYPE, JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL)
+                        .conflictsWith(JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL),
+
+                // ratings are resolved via the data type and org unit hierarchies
+                mkJob(JobKey.AUTH_SOURCE_RECALC_FLOW_RATINGS,
+                        flowClassificationRuleService::fastRecalculateAllFlowRatings)
+                        .dependsOn(JobKey.HIERARCHY_REBUILD_DATA_TYPE, JobKey.HIERARCHY_REBUILD_ORG_UNIT, JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL)
+                        .conflictsWith(JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL, JobKey.LOGICAL_FLOW_CLEANUP_ORPHANS),
+
+                mkJob(JobKey.LOGICAL_FLOW_CLEANUP_ORPHANS,
+                        logicalFlowService::cleanupOrphans)
+                        .conflictsWith(JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL, JobKey.AUTH_SOURCE_RECALC_FLOW_RATINGS),
+
+                // attestation selectors and survey recipients are resolved via the hierarchies
+                mkJob(JobKey.ATTESTATION_ISSUE_INSTANCES,
+                        attestationRunService::issueInstancesForPendingRuns)
+                        .dependsOn(JobKey.HIERARCHY_REBUILD_ORG_UNIT, JobKey.HIERARCHY_REBUILD_MEASURABLE, JobKey.HIERARCHY_REBUILD_CHANGE_INITIATIVE),
+
+                mkJob(JobKey.SURVEY_INSTANCE_REASSIGN_RECIPIENTS,
+                        surveyInstanceService::reassignRecipients)
+                        .dependsOn(JobKey.HIERARCHY_REBUILD_PERSON, JobKey.HIERARCHY_REBUILD_ORG_UNIT),
+
+                mkJob(JobKey.SURVEY_INSTANCE_REASSIGN_OWNERS,
+                        surveyInstanceService::reassignOwners)
+                        .dependsOn(JobKey.HIERARCHY_REBUILD_PERSON, JobKey.HIERARCHY_REBUILD_ORG_UNIT),
+
+                mkJob(JobKey.REPORT_GRID_RECALCULATE_APP_GROUPS_FROM_FILTERS,
+                        reportGridFilterViewService::generateAppGroupsFromFilter)
+                        .dependsOn(JobKey.HIERARCHY_REBUILD_ORG_UNIT, JobKey.HIERARCHY_REBUILD_MEASURABLE, JobKey.HIERARCHY_REBUILD_DATA_TYPE));
     }
 
 
     @Scheduled(fixedRate = 300_000)
     public void run() {
-        Thread.currentThread().setName("WaltzScheduledJobService");
-        runIfNeeded(JobKey.HIERARCHY_REBUILD_CHANGE_INITIATIVE,
-                (jk) -> entityHierarchyService.buildFor(EntityKind.CHANGE_INITIATIVE));
+        requestDispatch();
+    }
 
-        runIfNeeded(JobKey.HIERARCHY_REBUILD_DATA_TYPE,
-                (jk) -> entityHierarchyService.buildFor(EntityKind.DATA_TYPE));
 
-        runIfNeeded(JobKey.HIERARCHY_REBUILD_ENTITY_STATISTICS,
-                (jk) -> entityHierarchyService.buildFor(EntityKind.ENTITY_STATISTIC));
+    /**
+     * Marks the job as runnable and starts it (subject to its dependencies and conflicts)
+     * without waiting for the next scheduled tick.
+     *
+     * @param jobKey  job to trigger
+     * @return true if the job was marked as runnable, false if it is already running or
+     *      has no status in the settings table
+     */
+    public boolean triggerJob(JobKey jobKey) {
+        checkNotNull(jobKey, "jobKey cannot be null");
+        checkTrue(jobDefinitions.containsKey(jobKey), "Job: %s is not scheduled", jobKey);
+
+        if (! scheduledJobDao.markJobAsRunnable(jobKey)) {
+            JobLifecycleStatus status = scheduledJobDao.findJobStatuses().get(jobKey);
+            if (status == null) {
+                LOG.warn("Cannot trigger job: {}, it has no (valid) status in the settings table", jobKey);
+            } else {
+                LOG.info("Not triggering job: {}, it is currently: {}", jobKey, status);
+            }
+            return false;
+        }
 
-        runIfNeeded(JobKey.HIERARCHY_REBUILD_MEASURABLE,
-                (jk) -> entityHierarchyService.buildFor(EntityKind.MEASURABLE));
+        LOG.info("Triggering job: {}", jobKey);
+        requestDispatch();
+        return true;
+    }
 
-        runIfNeeded(JobKey.HIERARCHY_REBUILD_ORG_UNIT,
-                (jk) -> entityHierarchyService.buildFor(EntityKind.ORG_UNIT));
 
-        runIfNeeded(JobKey.HIERARCHY_REBUILD_PERSON,
-                (jk) -> entityHierarchyService.buildFor(EntityKind.PERSON));
+    @ManagedOperation(description = "Run the given job now (if not already running)")
+    public boolean triggerJob(String jobKey) {
+        return triggerJob(JobKey.valueOf(jobKey));
+    }
 
-        runIfNeeded(JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL,
-                (jk) -> physicalSpecDataTypeService.rippleDataTypesToLogicalFlows(),
-                asSet(JobKey.DATA_TYPE_USAGE_RECALC_APPLICATION));
 
-        runIfNeeded(JobKey.DATA_TYPE_USAGE_RECALC_APPLICATION,
-                (jk) -> dataTypeUsageService.recalculateForAllApplications(),
-                asSet(JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL));
+    @ManagedAttribute(description = "Jobs currently running on this server, with their start times")
+    public Map<String, String> getRunningJobs() {
+        return runningJobs
+                .entrySet()
+                .stream()
+                .collect(Collectors.toMap(e -> e.getKey().name(), e -> e.getValue().toString()));
+    }
 
-        runIfNeeded(JobKey.AUTH_SOURCE_RECALC_FLOW_RATINGS,
-                (jk) -> flowClassificationRuleService.fastRecalculateAllFlowRatings());
 
-        runIfNeeded(JobKey.LOGICAL_FLOW_CLEANUP_ORPHANS,
-                (jk) -> logicalFlowService.cleanupOrphans());
+    @ManagedAttribute(description = "Start time, duration and outcome of the last run of each job on this server")
+    public Map<String, String> getLastRuns() {
+        return lastRuns
+                .entrySet()
+                .stream()
+                .collect(Collectors.toMap(e -> e.getKey().name(), Map.Entry::getValue));
+    }
 
-        runIfNeeded(JobKey.ATTESTATION_ISSUE_INSTANCES,
-                (jk) -> attestationRunService.issueInstancesForPendingRuns());
 
-        runIfNeeded(JobKey.SURVEY_INSTANCE_REASSIGN_RECIPIENTS,
-                (jk) -> surveyInstanceService.reassignRecipients());
+    // -- HELPERS ---
 
-        runIfNeeded(JobKey.SURVEY_INSTANCE_REASSIGN_OWNERS,
-                (jk) -> surveyInstanceService.reassignOwners());
+    private void requestDispatch() {
+        dispatcher.execute(this::dispatchQuietly);
+    }
 
-        runIfNeeded(JobKey.REPORT_GRID_RECALCULATE_APP_GROUPS_FROM_FILTERS,
-                (jk) -> reportGridFilterViewService.generateAppGroupsFromFilter());
+
+    private void dispatchQuietly() {
+        try {
+            dispatch();
+        } catch (Exception e) {
+            LOG.error("Failed to dispatch scheduled jobs", e);
+        }
     }
 
 
-    private void runIfNeeded(JobKey jobKey, Consumer<JobKey> jobExecutor) {
-        runIfNeeded(jobKey, jobExecutor, Collections.emptySet());
+    /**
+     * Starts whichever runnable jobs can be started now.  Must only be called on the dispatcher thread.
+     */
+    private void dispatch() {
+        Set<JobKey> waiting = EnumSet.noneOf(JobKey.class);
+        scheduledJobDao
+                .findJobStatuses()
+                .forEach((jk, status) -> {
+                    if (status == JobLifecycleStatus.RUNNABLE
+                            && jobDefinitions.containsKey(jk)
+                            && ! dispatchedJobs.contains(jk)) {
+                        waiting.add(jk);
+                    }
+                });
+
+        if (waiting.isEmpty()) {
+            return;
+        }
+
+        LOG.debug("Jobs waiting to run: {}", waiting);
+
+        List<ScheduledJobDefinition> startable = findStartableJobs(
+                jobDefinitions,
+                waiting,
+                EnumSet.noneOf(JobKey.class),
+                dispatchedJobs);
+
+        for (ScheduledJobDefinition job : startable) {
+            JobKey jk = job.key();
+            if (! job.conflicts().isEmpty() && scheduledJobDao.anyJobsRunning(job.conflicts())) {
+                // left as runnable, it will be reconsidered by the next dispatch
+                LOG.info("Deferring job: {} as a conflicting job is running elsewhere", jk);
+            } else if (scheduledJobDao.markJobAsRunning(jk)) {
+                dispatchedJobs.add(jk);
+                jobPool.execute(() -> runAndRedispatch(job));
+            }
+        }
     }
 
-    private void runIfNeeded(JobKey jobKey, Consumer<JobKey> jobExecutor, Set<JobKey> deadlockJobKeys) {
+
+    private void runAndRedispatch(ScheduledJobDefinition job) {
         try {
-            if (scheduledJobDao.isJobRunnable(jobKey)
-                    && !scheduledJobDao.anyJobsRunning(deadlockJobKeys)
-                    && scheduledJobDao.markJobAsRunning(jobKey)) {
-                jobExecutor
-                        .andThen((jk) -> scheduledJobDao.updateJobStatus(jk, JobLifecycleStatus.COMPLETED))
-                        .accept(jobKey);
+            execute(job);
+        } finally {
+            // the completed job may have been blocking others, so look again
+            dispatcher.execute(() -> {
+                dispatchedJobs.remove(job.key());
+                dispatchQuietly();
+            });
+        }
+    }
+
+
+    /**
+     * Determines which of the waiting jobs may be started now.  A job is startable if none of its
+     * dependencies are still waiting (or deferred, or running) and if it does not conflict with a
+     * running job (or another job started in the same batch).  Conflicts are treated symmetrically.
+     */
+    static List<ScheduledJobDefinition> findStartableJobs(Map<JobKey, ScheduledJobDefinition> definitions,
+                                                          Set<JobKey> waiting,
+                                                          Set<JobKey> deferred,
+                                                          Set<JobKey> running) {
+        Set<JobKey> active = EnumSet.noneOf(JobKey.class);
+        active.addAll(running);
+
+        List<ScheduledJobDefinition> startable = new ArrayList<>();
+        for (ScheduledJobDefinition job : definitions.values()) {
+            if (! waiting.contains(job.key())) {
+                continue;
             }
+
+            boolean hasOutstandingDependencies = job
+                    .dependencies()
+                    .stream()
+                    .anyMatch(d -> waiting.contains(d) || deferred.contains(d) || running.contains(d));
+
+            boolean hasActiveConflicts = active
+                    .stream()
+                    .anyMatch(a -> job.conflicts().contains(a) || definitions.get(a).conflicts().contains(job.key()));
+
+            if (! hasOutstandingDependencies && ! hasActiveConflicts) {
+                startable.add(job);
+                active.add(job.key());
+            }
+        }
+        return startable;
+    }
+
+
+    private void execute(ScheduledJobDefinition job) {
+        JobKey jk = job.key();
+        LocalDateTime startedAt = LocalDateTime.now();
+        long start = System.currentTimeMillis();
+        runningJobs.put(jk, startedAt);
+
+        Thread thread = Thread.currentThread();
+        String originalName = thread.getName();
+        thread.setName("Scheduled Job: " + jk);
+
+        JobLifecycleStatus outcome;
+        try {
+            LOG.info("Starting job: {}", jk);
+            job.job().run();
+            outcome = JobLifecycleStatus.COMPLETED;
+        } catch (Exception e) {
+            LOG.error("Failed to run job: " + jk, e);
+            outcome = JobLifecycleStatus.ERRORED;
+        } finally {
+            thread.setName(originalName);
+            runningJobs.remove(jk);
+        }
+
+        long duration = System.currentTimeMillis() - start;
+        LOG.info("Job: {} finished with status: {} in {}ms", jk, outcome, duration);
+        lastRuns.put(jk, format("%s, %dms, %s", startedAt, duration, outcome));
+
+        try {
+            scheduledJobDao.updateJobStatus(jk, outcome);
+            scheduledJobDao.recordJobRun(jk, startedAt, duration);
         } catch (Exception e) {
-            LOG.error("Failed to run job: " + jobKey, e);
-            scheduledJobDao.updateJobStatus(jobKey, JobLifecycleStatus.ERRORED);
+            LOG.error("Failed to record outcome of job: " + jk, e);
         }
     }
 
 
+    private static Map<JobKey, ScheduledJobDefinition> indexDefinitions(ScheduledJobDefinition... definitions) {
+        Map<JobKey, ScheduledJobDefinition> byKey = new LinkedHashMap<>();
+        for (ScheduledJobDefinition definition : definitions) {
+            checkTrue(
+                    byKey.put(definition.key(), definition) == null,
+                    "Job: %s is declared more than once",
+                    definition.key());
+        }
+
+        byKey.values().forEach(d -> {
+            Set<JobKey> unknown = EnumSet.noneOf(JobKey.class);
+            unknown.addAll(d.dependencies());
+            unknown.addAll(d.conflicts());
+            unknown.removeAll(byKey.keySet());
+            checkTrue(unknown.isEmpty(), "Job: %s refers to undeclared jobs: %s", d.key(), unknown);
+        });
+
+        return byKey;
+    }
+
+
+    private static Thread mkDaemonThread(Runnable runnable, String name) {
+        Thread t = new Thread(runnable, name);
+        t.setDaemon(true);
+        return t;
+    }
+
 }
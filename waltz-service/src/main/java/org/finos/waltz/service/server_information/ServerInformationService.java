@@ -18,7 +18,7 @@
 
 package org.finos.waltz.service.server_information;
 
-import org.finos.waltz.data.application.ApplicationIdSelectorFactory;
+import org.finos.waltz.service.application.ApplicationIdSelectorResolver;
 import org.finos.waltz.data.server_information.ServerInformationDao;
 import org.finos.waltz.data.server_information.search.ServerInformationSearchDao;
 import org.finos.waltz.model.EntityKind;
@@ -42,19 +42,22 @@ import static org.finos.waltz.common.StringUtilities.isEmpty;
 @Service
 public class ServerInformationService {
 
-    private final ApplicationIdSelectorFactory selectorFactory = new ApplicationIdSelectorFactory();
+    private final ApplicationIdSelectorResolver applicationIdSelectorResolver;
     private final ServerInformationDao serverInformationDao;
     private final ServerInformationSearchDao serverInformationSearchDao;
 
 
     @Autowired
     public ServerInformationService(ServerInformationDao serverInfoDao,
-                                    ServerInformationSearchDao serverInformationSearchDao) {
+                                    ServerInformationSearchDao serverInformationSearchDao,
+                                    ApplicationIdSelectorResolver applicationIdSelectorResolver) {
         checkNotNull(serverInfoDao, "serverInformationDao must not be null");
         checkNotNull(serverInformationSearchDao, "serverInformationSearchDao cannot be null");
+        checkNotNull(applicationIdSelectorResolver, "applicationIdSelectorResolver cannot be null");
 
         this.serverInformationDao = serverInfoDao;
         this.serverInformationSearchDao = serverInformationSearchDao;
+        this.applicationIdSelectorResolver = applicationIdSelectorResolver;
     }
 
     public List<ServerInformation> findByAssetCode(String assetCode) {
@@ -83,12 +86,12 @@ public class ServerInformationService {
 
 
     public ServerSummaryStatistics calculateStatsForAppSelector(IdSelectionOptions options) {
-        Select<Record1<Long>> selector = selectorFactory.apply(options);
+        Select<Record1<Long>> selector = applicationIdSelectorResolver.apply(options);
         return serverInformationDao.calculateStatsForAppSelector(selector);
     }
 
     public ServerSummaryBasicStatistics calculateBasicStatsForAppSelector(IdSelectionOptions options) {
-        Select<Record1<Long>> selector = selectorFactory.apply(options);
+        Select<Record1<Long>> selector = applicationIdSelectorResolver.apply(options);
         return serverInformationDao.calculateBasicStatsForAppSelector(selector);
     }
 
@@ -23,6 +23,7 @@ import org.finos.waltz.common.MapUtilities;
 import org.finos.waltz.data.settings.SettingsDao;
 import org.finos.waltz.model.settings.Setting;
 import org.finos.waltz.model.settings.UpdateSettingsCommand;
+import org.finos.waltz.service.reference_data.ReferenceDataCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -30,13 +31,17 @@ import java.util.Collection;
 import java.util.Map;
 import java.util.Optional;
 
+import static java.util.stream.Collectors.toMap;
+import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.ListUtilities.ensureNotNull;
+import static org.finos.waltz.common.StringUtilities.mkSafe;
 
 
 @Service
 public class SettingsService {
 
     private final SettingsDao settingsDao;
+    private final ReferenceDataCache referenceDataCache;
 
     public static final String DEFAULT_ROLES_KEY = "server.authentication.roles.default";
     public static final String ALLOW_COST_EXPORTS_KEY = "feature.data-extractor.entity-cost.enabled";
@@ -47,20 +52,29 @@ public class SettingsService {
     /**
      * Setting service allows the settings table to be interrogated.  For dev purposes then a
      * collection of overrides may be given, useful when debugging a shared database instance and
-     * you do not wish to change the values in the settings table
+     * you do not wish to change the values in the settings table.
+     * <p>
+     * Settings are read via the reference data cache, as they are consulted on every request.
      * @param settingsDao
+     * @param referenceDataCache
      * @param overrides
      */
     @Autowired
-    public SettingsService(SettingsDao settingsDao, Collection<Setting> overrides) {
+    public SettingsService(SettingsDao settingsDao,
+                           ReferenceDataCache referenceDataCache,
+                           Collection<Setting> overrides) {
+        checkNotNull(settingsDao, "settingsDao cannot be null");
+        checkNotNull(referenceDataCache, "referenceDataCache cannot be null");
+
         this.settingsDao = settingsDao;
+        this.referenceDataCache = referenceDataCache;
         this.overridesByName = MapUtilities.indexBy(s -> s.name(), ensureNotNull(overrides));
     }
 
 
     public Collection<Setting> findAll() {
         return CollectionUtilities.map(
-                settingsDao.findAll(),
+                referenceDataCache.findAllSettings(),
                 s -> Optional
                         .ofNullable(overridesByName.get(s.name()))
                         .orElse(s));
@@ -70,7 +84,9 @@ public class SettingsService {
     public Setting getByName(String name) {
         return Optional
                 .ofNullable(overridesByName.get(name))
-                .orElse(settingsDao.getByName(name));
+                .orElseGet(() -> referenceDataCache
+                        .findSettingByName(name)
+                        .orElse(null));
     }
 
     /**
@@ -87,11 +103,20 @@ public class SettingsService {
 
 
     public Map<String, String> indexByPrefix(String prefix) {
-        return settingsDao.indexByPrefix(prefix);
+        return referenceDataCache
+                .findAllSettings()
+                .stream()
+                .filter(s -> s.name().startsWith(prefix))
+                .filter(s -> ! s.restricted())
+                .collect(toMap(
+                        Setting::name,
+                        s -> mkSafe(s.value().orElse(null))));
     }
 
 
     public int update(UpdateSettingsCommand cmd) {
-        return settingsDao.update(cmd);
+        int rc = settingsDao.update(cmd);
+        referenceDataCache.invalidateSettings();
+        return rc;
     }
 }
@@ -19,7 +19,7 @@
 package org.finos.waltz.service.software_catalog;
 
 import org.finos.waltz.common.ListUtilities;
-import org.finos.waltz.data.application.ApplicationIdSelectorFactory;
+import org.finos.waltz.service.application.ApplicationIdSelectorResolver;
 import org.finos.waltz.data.software_catalog.SoftwarePackageDao;
 import org.finos.waltz.data.software_catalog.SoftwareUsageDao;
 import org.finos.waltz.data.software_catalog.SoftwareVersionDao;
@@ -42,7 +42,7 @@ import static org.finos.waltz.common.Checks.checkNotNull;
 @Service
 public class SoftwareCatalogService {
 
-    private final ApplicationIdSelectorFactory factory = new ApplicationIdSelectorFactory();
+    private final ApplicationIdSelectorResolver applicationIdSelectorResolver;
     private final SoftwarePackageDao softwarePackageDao;
     private final SoftwareUsageDao softwareUsageDao;
     private final SoftwareVersionDao softwareVersionDao;
@@ -51,14 +51,17 @@ public class SoftwareCatalogService {
     @Autowired
     public SoftwareCatalogService(SoftwarePackageDao softwarePackageDao,
                                   SoftwareUsageDao softwareUsageDao,
-                                  SoftwareVersionDao softwareVersionDao) {
+                                  SoftwareVersionDao softwareVersionDao,
+                                  ApplicationIdSelectorResolver applicationIdSelectorResolver) {
         checkNotNull(softwarePackageDao, "softwarePackageDao cannot be null");
         checkNotNull(softwareUsageDao, "softwareUsageDao cannot be null");
         checkNotNull(softwareVersionDao, "softwareVersionDao cannot be null");
+        checkNotNull(applicationIdSelectorResolver, "applicationIdSelectorResolver cannot be null");
 
         this.softwarePackageDao = softwarePackageDao;
         this.softwareUsageDao = softwareUsageDao;
         this.softwareVersionDao = softwareVersionDao;
+        this.applicationIdSelectorResolver = applicationIdSelectorResolver;
     }
 
 
@@ -84,7 +87,7 @@ public class SoftwareCatalogService {
 
     public SoftwareSummaryStatistics calculateStatisticsForAppIdSelector(IdSelectionOptions options) {
 
-        Select<Record1<Long>> appIdSelector = factory.apply(options);
+        Select<Record1<Long>> appIdSelector = applicationIdSelectorResolver.apply(options);
 
         List<Tally<String>> vendorCounts = softwarePackageDao.toTallies(appIdSelector, SOFTWARE_PACKAGE.VENDOR);
         List<Tally<String>> groupCounts = softwarePackageDao.toTallies(appIdSelector, SOFTWARE_PACKAGE.GROUP);
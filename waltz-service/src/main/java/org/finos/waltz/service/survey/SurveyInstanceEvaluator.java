@@ -10,6 +10,7 @@ import org.jooq.DSLContext;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -57,6 +58,53 @@ public class SurveyInstanceEvaluator {
     }
 
 
+    /**
+     * Evaluates the active questions for every (original) instance in a survey run.
+     * Subject facts required by the question predicates are loaded in bulk rather
+     * than per instance, making this suitable for completeness reporting.
+     *
+     * @param surveyRunId  run to evaluate
+     * @return  form details keyed by survey instance id
+     */
+    public Map<Long, SurveyInstanceFormDetails> evalForSurveyRun(long surveyRunId) {
+        List<SurveyQuestion> qs = questionDao.findForSurveyRun(surveyRunId);
+
+        Map<Long, EntityReference> subjectsByInstanceId = instanceDao
+                .findForSurveyRun(surveyRunId)
+                .stream()
+                .collect(Collectors.toMap(
+                        i -> i.id().get(),
+                        SurveyInstance::surveyEntity));
+
+        Map<Long, Map<Long, SurveyQuestionResponse>> responsesByInstanceId = responseDao
+                .findForSurveyRun(surveyRunId)
+                .stream()
+                .collect(Collectors.groupingBy(
+                        SurveyInstanceQuestionResponse::surveyInstanceId,
+                        Collectors.toMap(
+                                r -> r.questionResponse().questionId(),
+                                SurveyInstanceQuestionResponse::questionResponse)));
+
+        Map<Long, List<SurveyQuestion>> activeQsByInstanceId = QuestionPredicateEvaluator.evalAll(
+                dsl,
+                qs,
+                subjectsByInstanceId,
+                responsesByInstanceId);
+
+        return activeQsByInstanceId
+                .entrySet()
+                .stream()
+                .collect(Collectors.toMap(
+                        Map.Entry::getKey,
+                        e -> ImmutableSurveyInstanceFormDetails.builder()
+                                .activeQuestions(e.getValue())
+                                .missingMandatoryQuestionIds(determineMissingMandatoryQuestions(
+                                        e.getValue(),
+                                        responsesByInstanceId.getOrDefault(e.getKey(), Collections.emptyMap())))
+                                .build()));
+    }
+
+
     private static Set<Long> determineMissingMandatoryQuestions(List<SurveyQuestion> activeQs,
                                                                 Map<Long, SurveyQuestionResponse> responsesByQuestionId) {
         return activeQs
@@ -48,12 +48,13 @@ import static java.lang.String.format;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.emptySet;
 import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.Checks.checkTrue;
 import static org.finos.waltz.common.CollectionUtilities.isEmpty;
 import static org.finos.waltz.common.ListUtilities.map;
-import static org.finos.waltz.common.MapUtilities.groupBy;
 import static org.finos.waltz.common.MapUtilities.indexBy;
 import static org.finos.waltz.common.SetUtilities.*;
 import static org.finos.waltz.common.StringUtilities.capitalise;
@@ -66,7 +67,6 @@ public class SurveyRunService {
     private final PersonDao personDao;
     private final SurveyInstanceDao surveyInstanceDao;
     private final SurveyInstanceRecipientDao surveyInstanceRecipientDao;
-    private final SurveyInstanceOwnerDao surveyInstanceOwnerDao;
     private final SurveyRunDao surveyRunDao;
     private final SurveyTemplateDao surveyTemplateDao;
     private final SurveyQuestionResponseDao surveyQuestionResponseDao;
@@ -82,7 +82,6 @@ public class SurveyRunService {
                             PersonDao personDao,
                             SurveyInstanceDao surveyInstanceDao,
                             SurveyInstanceRecipientDao surveyInstanceRecipientDao,
-                            SurveyInstanceOwnerDao surveyInstanceOwnerDao,
                             SurveyRunDao surveyRunDao,
                             SurveyTemplateDao surveyTemplateDao,
                             SurveyQuestionResponseDao surveyQuestionResponseDao,
@@ -93,7 +92,6 @@ public class SurveyRunService {
         checkNotNull(personDao, "personDao cannot be null");
         checkNotNull(surveyInstanceDao, "surveyInstanceDao cannot be null");
         checkNotNull(surveyInstanceRecipientDao, "surveyInstanceRecipientDao cannot be null");
-        checkNotNull(surveyInstanceOwnerDao, "surveyInstanceOwnerDao cannot be null");
         checkNotNull(surveyRunDao, "surveyRunDao cannot be null");
         checkNotNull(surveyTemplateDao, "surveyTemplateDao cannot be null");
         checkNotNull(surveyQuestionResponseDao, "surveyQuestionResponseDao cannot be null");
@@ -104,7 +102,6 @@ public class SurveyRunService {
         this.personDao = personDao;
         this.surveyInstanceDao = surveyInstanceDao;
         this.surveyInstanceRecipientDao = surveyInstanceRecipientDao;
-        this.surveyInstanceOwnerDao = surveyInstanceOwnerDao;
         this.surveyRunDao = surveyRunDao;
         this.surveyTemplateDao = surveyTemplateDao;
         this.surveyQuestionResponseDao = surveyQuestionResponseDao;
@@ -433,7 +430,11 @@ public class SurveyRunService {
 
         List<SurveyInstanceOwner> surveyInstanceOwners = generateSurveyInstanceOwners(command);
 
-        Map<SurveyInstance, Collection<SurveyInstanceOwner>> surveyOwnersByInstance = groupBy(surveyInstanceOwners, SurveyInstanceOwner::surveyInstance);
+        Map<EntityReference, Set<Long>> ownerIdsBySubject = surveyInstanceOwners
+                .stream()
+                .collect(groupingBy(
+                        o -> o.surveyInstance().surveyEntity(),
+                        mapping(o -> o.person().id().get(), toSet())));
 
         Map<SurveyInstance, List<SurveyInstanceRecipient>> instancesAndRecipientsToSave = surveyInstanceRecipients
                 .stream()
@@ -442,45 +443,40 @@ public class SurveyRunService {
                         toList()
                 ));
 
-        // delete existing instances and recipients
-        deleteSurveyInstancesAndRecipients(command.surveyRunId());
-
-        // insert new instances and recipients
+        List<SurveyInstanceIssuance> issuances = new ArrayList<>();
         instancesAndRecipientsToSave.forEach(
-                (k,v) -> {
+                (k, v) -> {
+                    Set<Long> ownerIds = union(
+                            asSet(surveyRun.ownerId()),
+                            ownerIdsBySubject.getOrDefault(k.surveyEntity(), emptySet()));
+
+                    Set<Long> recipientIds = v
+                            .stream()
+                            .map(r -> r.person().id().get())
+                            .collect(toSet());
+
                     if (surveyRun.issuanceKind() == SurveyIssuanceKind.GROUP) {
                         // one instance per group
-                        long instanceId = createSurveyInstance(k);
-                        createSurveyInstanceOwner(instanceId, surveyRun.ownerId());
-                        Collection<SurveyInstanceOwner> owners = surveyOwnersByInstance.get(k);
-                        fromCollection(owners).forEach(o -> createSurveyInstanceOwner(instanceId, o.person().id().get()));
-                        v.forEach(r -> createSurveyInstanceRecipient(instanceId, r));
+                        issuances.add(mkIssuance(k, recipientIds, ownerIds));
                     } else {
                         // one instance for each individual
-                        v.forEach(r -> {
-                            long instanceId = createSurveyInstance(k);
-                            createSurveyInstanceOwner(instanceId, surveyRun.ownerId());
-                            Collection<SurveyInstanceOwner> owners = surveyOwnersByInstance.get(k);
-                            fromCollection(owners).forEach(o -> createSurveyInstanceOwner(instanceId, o.person().id().get()));
-                            createSurveyInstanceRecipient(instanceId, r);
-                        });
+                        recipientIds.forEach(r -> issuances.add(mkIssuance(k, asSet(r), ownerIds)));
                     }
                 }
         );
 
-        return true;
-    }
+        // replaces any existing instances and recipients in a single transaction
+        surveyInstanceDao.issueInstancesForSurveyRun(command.surveyRunId(), issuances);
 
-
-    private void deleteSurveyInstancesAndRecipients(long surveyRunId) {
-        surveyInstanceRecipientDao.deleteForSurveyRun(surveyRunId);
-        surveyInstanceDao.deleteForSurveyRun(surveyRunId);
+        return true;
     }
 
 
-    private long createSurveyInstance(SurveyInstance surveyInstance) {
-        return surveyInstanceDao
-                .create(ImmutableSurveyInstanceCreateCommand.builder()
+    private SurveyInstanceIssuance mkIssuance(SurveyInstance surveyInstance,
+                                              Set<Long> recipientIds,
+                                              Set<Long> ownerIds) {
+        return ImmutableSurveyInstanceIssuance.builder()
+                .instance(ImmutableSurveyInstanceCreateCommand.builder()
                         .surveyRunId(surveyInstance.surveyRunId())
                         .entityReference(surveyInstance.surveyEntity())
                         .status(surveyInstance.status())
@@ -488,22 +484,10 @@ public class SurveyRunService {
                         .approvalDueDate(surveyInstance.approvalDueDate())
                         .owningRole(surveyInstance.owningRole())
                         .name(surveyInstance.name())
-                        .build());
-    }
-
-
-    private long createSurveyInstanceRecipient(long surveyInstanceId, SurveyInstanceRecipient surveyInstanceRecipient) {
-        return surveyInstanceRecipientDao.create(ImmutableSurveyInstanceRecipientCreateCommand.builder()
-                .surveyInstanceId(surveyInstanceId)
-                .personId(surveyInstanceRecipient.person().id().get())
-                .build());
-    }
-
-    private long createSurveyInstanceOwner(long surveyInstanceId, Long ownerId) {
-        return surveyInstanceOwnerDao.create(ImmutableSurveyInstanceOwnerCreateCommand.builder()
-                .surveyInstanceId(surveyInstanceId)
-                .personId(ownerId)
-                .build());
+                        .build())
+                .recipientPersonIds(recipientIds)
+                .ownerPersonIds(ownerIds)
+                .build();
     }
 
 
@@ -18,25 +18,14 @@
 
 package org.finos.waltz.service.survey.inclusion_evaluator;
 
-import org.finos.waltz.schema.tables.Application;
-import org.finos.waltz.schema.tables.DataType;
-import org.finos.waltz.schema.tables.DataTypeUsage;
-import org.finos.waltz.schema.tables.EntityHierarchy;
-import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.survey.SurveyQuestion;
 import org.finos.waltz.model.survey.SurveyQuestionResponse;
-import org.jooq.Condition;
-import org.jooq.DSLContext;
-import org.jooq.impl.DSL;
 
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import static org.finos.waltz.schema.Tables.*;
-import static org.finos.waltz.schema.tables.Application.APPLICATION;
-
 /**
  *
  * NOTE: methods in this class may show as unused.  This is to be expected as they are referred to via
@@ -44,48 +33,21 @@ import static org.finos.waltz.schema.tables.Application.APPLICATION;
  */
 public class QuestionAppPredicateNamespace extends QuestionEntityPredicateNamespace {
 
-    public QuestionAppPredicateNamespace(DSLContext dsl,
-                                         EntityReference subjectRef,
+    public QuestionAppPredicateNamespace(EntityReference subjectRef,
+                                         SubjectFacts facts,
                                          List<SurveyQuestion> questions,
                                          Map<Long, SurveyQuestionResponse> responsesByQuestionId) {
-        super(dsl, subjectRef, questions, responsesByQuestionId);
+        super(subjectRef, facts, questions, responsesByQuestionId);
     }
 
 
     public boolean isRetiring() {
-        Condition isPlanned = APPLICATION.PLANNED_RETIREMENT_DATE.isNotNull();
-
-        Condition notRetiredYet = APPLICATION.ACTUAL_RETIREMENT_DATE.isNull()
-                .or(APPLICATION.ACTUAL_RETIREMENT_DATE.greaterOrEqual(DSL.now()));
-
-        return dsl
-                .select(APPLICATION.PLANNED_RETIREMENT_DATE)
-                .from(APPLICATION)
-                .where(APPLICATION.ID.eq(subjectRef.id()))
-                .and(isPlanned)
-                .and(notRetiredYet)
-                .fetch()
-                .isNotEmpty();
-    }
-
-
-    public boolean belongsToOrgUnit(String name) {
-        Application app = APPLICATION.as("app");
-        return belongsToOrgUnit(name, app, app.ID, app.ORGANISATIONAL_UNIT_ID);
+        return facts.isRetiring();
     }
 
 
     public boolean isAppKind(String name) {
-        return dsl.fetchExists(DSL
-                .select()
-                .from(APPLICATION)
-                .where(APPLICATION.ID.eq(subjectRef.id()))
-                .and(APPLICATION.KIND.eq(name)));
-    }
-
-
-    public boolean hasLifecyclePhase(String name) {
-        return hasLifecyclePhase(name, APPLICATION, APPLICATION.ID, APPLICATION.LIFECYCLE_PHASE);
+        return facts.isKind(name);
     }
 
 
@@ -95,27 +57,7 @@ public class QuestionAppPredicateNamespace extends QuestionEntityPredicateNamesp
 
 
     public Set<String> dataTypeUsages(String name) {
-
-        DataTypeUsage dtu = DATA_TYPE_USAGE.as("dtu");
-        DataType dt = DATA_TYPE.as("dt");
-        EntityHierarchy eh = ENTITY_HIERARCHY.as("eh");
-
-        Condition dtNameMatches = dt.CODE.eq(name)
-                .or(dt.NAME.eq(name));
-
-        Condition subjectMatches = dtu.ENTITY_ID.eq(subjectRef.id())
-                .and(dtu.ENTITY_KIND.eq(subjectRef.kind().name()));
-
-        return dsl
-                .select(dtu.USAGE_KIND)
-                .from(dt)
-                .innerJoin(eh)
-                .on(eh.ANCESTOR_ID.eq(dt.ID).and(eh.KIND.eq(EntityKind.DATA_TYPE.name())))
-                .innerJoin(dtu)
-                .on(dtu.DATA_TYPE_ID.eq(eh.ID))
-                .where(dtNameMatches)
-                .and(subjectMatches)
-                .fetchSet(dtu.USAGE_KIND);
+        return facts.dataTypeUsages(name);
     }
 
 }
@@ -19,54 +19,135 @@
 package org.finos.waltz.service.survey.inclusion_evaluator;
 
 import org.apache.commons.jexl3.*;
+import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.survey.SurveyQuestion;
 import org.finos.waltz.model.survey.SurveyQuestionResponse;
 import org.jooq.DSLContext;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
-import static org.finos.waltz.common.MapUtilities.newHashMap;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
+import static java.util.stream.Collectors.toSet;
 import static org.finos.waltz.common.StringUtilities.isEmpty;
 
 public class QuestionPredicateEvaluator {
 
+    private static final int EXPRESSION_CACHE_SIZE = 512;
+
+    /**
+     * Shared (thread-safe) engine, parsed predicates are cached so each distinct predicate
+     * is only compiled once.  The namespace is supplied per evaluation via the context.
+     */
+    private static final JexlEngine JEXL = new JexlBuilder()
+            .cache(EXPRESSION_CACHE_SIZE)
+            .create();
+
+
     public static List<SurveyQuestion> eval(DSLContext dsl,
                                      List<SurveyQuestion> qs,
                                      EntityReference subjectRef,
                                      Map<Long, SurveyQuestionResponse> responsesByQuestionId) {
 
-        QuestionBasePredicateNamespace namespace = mkPredicateNameSpace(dsl, qs, subjectRef, responsesByQuestionId);
+        Map<Long, SubjectFacts> factsById = SubjectFactsLoader.load(
+                dsl,
+                subjectRef.kind(),
+                Collections.singleton(subjectRef.id()),
+                SubjectFact.findRequiredFacts(qs));
+
+        QuestionBasePredicateNamespace namespace = mkPredicateNameSpace(
+                qs,
+                subjectRef,
+                factsById.get(subjectRef.id()),
+                responsesByQuestionId);
 
-        JexlBuilder builder = new JexlBuilder();
-        JexlEngine jexl = builder
-                .namespaces(newHashMap(null, namespace))
-                .create();
+        return determineActiveQs(qs, namespace);
+    }
+
+
+    /**
+     * Determines the active questions for many survey instances (sharing the same questions)
+     * at once.  Subject facts are loaded in bulk for all the instances.
+     *
+     * @param dsl  used to load facts about the subjects
+     * @param qs  questions of the survey template
+     * @param subjectsByInstanceId  subject of each instance
+     * @param responsesByInstanceId  responses (keyed by question id) for each instance
+     * @return  active questions for each instance
+     */
+    public static Map<Long, List<SurveyQuestion>> evalAll(DSLContext dsl,
+                                                          List<SurveyQuestion> qs,
+                                                          Map<Long, EntityReference> subjectsByInstanceId,
+                                                          Map<Long, Map<Long, SurveyQuestionResponse>> responsesByInstanceId) {
+
+        Set<SubjectFact> requiredFacts = SubjectFact.findRequiredFacts(qs);
+
+        Map<EntityKind, Set<Long>> subjectIdsByKind = subjectsByInstanceId
+                .values()
+                .stream()
+                .collect(groupingBy(EntityReference::kind, mapping(EntityReference::id, toSet())));
 
-        namespace.usingEvaluator(jexl);
+        Map<EntityKind, Map<Long, SubjectFacts>> factsByKind = new HashMap<>();
+        subjectIdsByKind.forEach((kind, ids) -> factsByKind.put(
+                kind,
+                SubjectFactsLoader.load(dsl, kind, ids, requiredFacts)));
 
-        List<SurveyQuestion> activeQs = determineActiveQs(qs, jexl);
+        Map<Long, List<SurveyQuestion>> activeQsByInstanceId = new HashMap<>();
+        subjectsByInstanceId.forEach((instanceId, subjectRef) -> {
+            QuestionBasePredicateNamespace namespace = mkPredicateNameSpace(
+                    qs,
+                    subjectRef,
+                    factsByKind.get(subjectRef.kind()).get(subjectRef.id()),
+                    responsesByInstanceId.getOrDefault(instanceId, Collections.emptyMap()));
 
-        return activeQs;
+            activeQsByInstanceId.put(instanceId, determineActiveQs(qs, namespace));
+        });
+
+        return activeQsByInstanceId;
+    }
+
+
+    /**
+     * Evaluates a single predicate, functions in the predicate are resolved against the given namespace
+     */
+    static boolean evaluate(String predicate, QuestionBasePredicateNamespace namespace) {
+        JexlExpression expr = JEXL.createExpression(predicate);
+        return Boolean.valueOf(expr.evaluate(new NamespaceContext(namespace)).toString());
     }
 
 
+    static List<SurveyQuestion> determineActiveQs(List<SurveyQuestion> qs, QuestionBasePredicateNamespace namespace) {
+        return qs
+                .stream()
+                .filter(q -> q
+                        .inclusionPredicate()
+                        .map(p -> isEmpty(p) || evaluate(p, namespace))
+                        .orElse(true))
+                .collect(Collectors.toList());
+    }
 
 
-    private static QuestionBasePredicateNamespace mkPredicateNameSpace(DSLContext dsl, List<SurveyQuestion> qs, EntityReference subjectRef, Map<Long, SurveyQuestionResponse> responsesByQuestionId) {
+    private static QuestionBasePredicateNamespace mkPredicateNameSpace(List<SurveyQuestion> qs,
+                                                                       EntityReference subjectRef,
+                                                                       SubjectFacts facts,
+                                                                       Map<Long, SurveyQuestionResponse> responsesByQuestionId) {
         switch (subjectRef.kind()) {
             case APPLICATION:
                 return new QuestionAppPredicateNamespace(
-                        dsl,
                         subjectRef,
+                        facts,
                         qs,
                         responsesByQuestionId);
             case CHANGE_INITIATIVE:
                 return new QuestionChangeInitiativePredicateNamespace(
-                        dsl,
                         subjectRef,
+                        facts,
                         qs,
                         responsesByQuestionId);
             default:
@@ -75,25 +156,25 @@ public class QuestionPredicateEvaluator {
     }
 
 
-    private static List<SurveyQuestion> determineActiveQs(List<SurveyQuestion> qs, JexlEngine jexl) {
-        List<SurveyQuestion> activeQs = qs
-                .stream()
-                .filter(q -> q
-                        .inclusionPredicate()
-                        .map(p -> {
-                            if (isEmpty(p)) {
-                                return true;
-                            } else {
-                                JexlExpression expr = jexl.createExpression(p);
-                                JexlContext jexlCtx = new MapContext();
-                                return Boolean.valueOf(expr.evaluate(jexlCtx).toString());
-                            }
-                        })
-                        .orElse(true))
-                .collect(Collectors.toList());
-        return activeQs;
-    }
+    /**
+     * Resolves functions without a namespace prefix (e.g. <code>isChecked('Q1')</code>) to the predicate namespace
+     */
+    private static class NamespaceContext extends MapContext implements JexlContext.NamespaceResolver {
+
+        private final QuestionBasePredicateNamespace namespace;
 
 
+        private NamespaceContext(QuestionBasePredicateNamespace namespace) {
+            this.namespace = namespace;
+        }
+
+
+        @Override
+        public Object resolveNamespace(String name) {
+            return name == null
+                    ? namespace
+                    : null;
+        }
+    }
 
 }
@@ -0,0 +1,73 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.survey.inclusion_evaluator;
+
+import org.finos.waltz.model.survey.SurveyQuestion;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Groups of facts about a survey subject which question predicates can refer to, each
+ * with the predicate functions which rely on them.  Only the groups referred to by a set
+ * of questions are loaded (see {@link SubjectFactsLoader}).
+ */
+public enum SubjectFact {
+
+    ATTRIBUTES("isAppKind", "hasLifecyclePhase", "isRetiring"),
+    ORG_UNITS("belongsToOrgUnit"),
+    DATA_TYPES("hasDataType", "dataTypeUsages"),
+    INVOLVEMENTS("hasInvolvement"),
+    ASSESSMENTS("assessmentRating");
+
+
+    private final String[] functionNames;
+
+
+    SubjectFact(String... functionNames) {
+        this.functionNames = functionNames;
+    }
+
+
+    private boolean isReferredToBy(String predicate) {
+        for (String functionName : functionNames) {
+            if (predicate.contains(functionName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    public static Set<SubjectFact> findRequiredFacts(Collection<SurveyQuestion> questions) {
+        Set<SubjectFact> required = EnumSet.noneOf(SubjectFact.class);
+        questions.forEach(q -> q
+                .inclusionPredicate()
+                .ifPresent(p -> {
+                    for (SubjectFact fact : values()) {
+                        if (fact.isReferredToBy(p)) {
+                            required.add(fact);
+                        }
+                    }
+                }));
+        return required;
+    }
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.survey.inclusion_evaluator;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.finos.waltz.common.StringUtilities.lower;
+
+/**
+ * Facts about a single survey subject, as used by the predicate namespaces.  Org units,
+ * data types and assessment definitions can be referred to by name or external id (code
+ * for data types), so both are recorded.
+ * <p>
+ * Identifiers are matched exactly, apart from involvement kind names which are matched
+ * case-insensitively (and so are stored in lower case).
+ */
+public class SubjectFacts {
+
+    private String kind;
+    private String lifecyclePhase;
+    private boolean retiring;
+    private final Set<String> orgUnitIdentifiers = new HashSet<>();
+    private final Map<String, Set<String>> usageKindsByDataTypeIdentifier = new HashMap<>();
+    private final Set<String> involvementKindNames = new HashSet<>();
+    private final Map<String, String> assessmentRatingCodesByDefinitionIdentifier = new HashMap<>();
+
+
+    public boolean isKind(String kind) {
+        return Objects.equals(this.kind, kind);
+    }
+
+
+    public boolean hasLifecyclePhase(String lifecyclePhase) {
+        return Objects.equals(this.lifecyclePhase, lifecyclePhase);
+    }
+
+
+    public boolean isRetiring() {
+        return retiring;
+    }
+
+
+    /**
+     * @param orgUnitIdentifier  name or external id of an org unit
+     * @return  true if the subject belongs to the org unit or one of its descendants
+     */
+    public boolean belongsToOrgUnit(String orgUnitIdentifier) {
+        return orgUnitIdentifiers.contains(orgUnitIdentifier);
+    }
+
+
+    /**
+     * @param dataTypeIdentifier  name or code of a data type
+     * @return  usage kinds of the data type (or its descendants) by the subject
+     */
+    public Set<String> dataTypeUsages(String dataTypeIdentifier) {
+        return usageKindsByDataTypeIdentifier.getOrDefault(dataTypeIdentifier, Collections.emptySet());
+    }
+
+
+    public boolean hasInvolvement(String involvementKindName) {
+        return involvementKindNames.contains(normalise(involvementKindName));
+    }
+
+
+    /**
+     * @param definitionIdentifier  name or external id of an assessment definition
+     * @return  code of the rating the subject has been given for the assessment
+     */
+    public Optional<String> assessmentRating(String definitionIdentifier) {
+        return Optional.ofNullable(assessmentRatingCodesByDefinitionIdentifier.get(definitionIdentifier));
+    }
+
+
+    // --- LOADING ---
+
+    void setAttributes(String kind, String lifecyclePhase, boolean retiring) {
+        this.kind = kind;
+        this.lifecyclePhase = lifecyclePhase;
+        this.retiring = retiring;
+    }
+
+
+    void addOrgUnit(String name, String externalId) {
+        addIfPresent(orgUnitIdentifiers, name);
+        addIfPresent(orgUnitIdentifiers, externalId);
+    }
+
+
+    void addDataTypeUsage(String name, String code, String usageKind) {
+        if (name != null) {
+            usageKindsByDataTypeIdentifier.computeIfAbsent(name, k -> new HashSet<>()).add(usageKind);
+        }
+        if (code != null) {
+            usageKindsByDataTypeIdentifier.computeIfAbsent(code, k -> new HashSet<>()).add(usageKind);
+        }
+    }
+
+
+    void addInvolvementKind(String name) {
+        if (name != null) {
+            involvementKindNames.add(normalise(name));
+        }
+    }
+
+
+    void addAssessmentRating(String definitionName, String definitionExternalId, String ratingCode) {
+        if (definitionName != null) {
+            assessmentRatingCodesByDefinitionIdentifier.putIfAbsent(definitionName, ratingCode);
+        }
+        if (definitionExternalId != null) {
+            assessmentRatingCodesByDefinitionIdentifier.putIfAbsent(definitionExternalId, ratingCode);
+        }
+    }
+
+
+    private static String normalise(String value) {
+        return value == null
+                ? null
+                : lower(value);
+    }
+
+
+    private static void addIfPresent(Set<String> values, String value) {
+        if (value != null) {
+            values.add(value);
+        }
+    }
+
+}
@@ -0,0 +1,251 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.survey.inclusion_evaluator;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.schema.tables.DataType;
+import org.finos.waltz.schema.tables.DataTypeUsage;
+import org.finos.waltz.schema.tables.EntityHierarchy;
+import org.finos.waltz.schema.tables.OrganisationalUnit;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.schema.Tables.*;
+
+/**
+ * Loads the facts needed to evaluate question predicates for a set of subjects (of the
+ * same kind).  Each required group of facts is fetched with a single query per batch of
+ * subjects, rather than a query per predicate function call.
+ */
+public class SubjectFactsLoader {
+
+    private static final int BATCH_SIZE = 1000;
+
+
+    /**
+     * @param dsl  used to query the facts
+     * @param subjectKind  kind of the subjects
+     * @param subjectIds  ids of the subjects
+     * @param requiredFacts  groups of facts to load, typically derived from the question predicates
+     * @return  facts for each of the subjects, keyed by subject id
+     */
+    public static Map<Long, SubjectFacts> load(DSLContext dsl,
+                                               EntityKind subjectKind,
+                                               Collection<Long> subjectIds,
+                                               Set<SubjectFact> requiredFacts) {
+        checkNotNull(dsl, "dsl cannot be null");
+        checkNotNull(subjectKind, "subjectKind cannot be null");
+        checkNotNull(subjectIds, "subjectIds cannot be null");
+        checkNotNull(requiredFacts, "requiredFacts cannot be null");
+
+        Map<Long, SubjectFacts> factsById = new HashMap<>();
+        subjectIds.forEach(id -> factsById.put(id, new SubjectFacts()));
+
+        List<Long> ids = new ArrayList<>(factsById.keySet());
+        for (int offset = 0; offset < ids.size(); offset += BATCH_SIZE) {
+            List<Long> batch = ids.subList(offset, Math.min(offset + BATCH_SIZE, ids.size()));
+            for (SubjectFact fact : requiredFacts) {
+                loadFact(dsl, subjectKind, batch, fact, factsById);
+            }
+        }
+
+        return factsById;
+    }
+
+
+    private static void loadFact(DSLContext dsl,
+                                 EntityKind subjectKind,
+                                 List<Long> ids,
+                                 SubjectFact fact,
+                                 Map<Long, SubjectFacts> factsById) {
+        switch (fact) {
+            case ATTRIBUTES:
+                loadAttributes(dsl, subjectKind, ids, factsById);
+                break;
+            case ORG_UNITS:
+                loadOrgUnits(dsl, subjectKind, ids, factsById);
+                break;
+            case DATA_TYPES:
+                loadDataTypes(dsl, subjectKind, ids, factsById);
+                break;
+            case INVOLVEMENTS:
+                loadInvolvements(dsl, subjectKind, ids, factsById);
+                break;
+            case ASSESSMENTS:
+                loadAssessments(dsl, subjectKind, ids, factsById);
+                break;
+            default:
+                throw new IllegalArgumentException("Cannot load subject facts: " + fact);
+        }
+    }
+
+
+    private static void loadAttributes(DSLContext dsl,
+                                       EntityKind subjectKind,
+                                       List<Long> ids,
+                                       Map<Long, SubjectFacts> factsById) {
+        switch (subjectKind) {
+            case APPLICATION:
+                Condition isRetiring = APPLICATION.PLANNED_RETIREMENT_DATE.isNotNull()
+                        .and(APPLICATION.ACTUAL_RETIREMENT_DATE.isNull()
+                                .or(APPLICATION.ACTUAL_RETIREMENT_DATE.greaterOrEqual(DSL.now())));
+
+                Field<Boolean> retiring = DSL
+                        .when(isRetiring, true)
+                        .otherwise(false)
+                        .as("retiring");
+
+                dsl.select(APPLICATION.ID, APPLICATION.KIND, APPLICATION.LIFECYCLE_PHASE, retiring)
+                        .from(APPLICATION)
+                        .where(APPLICATION.ID.in(ids))
+                        .forEach(r -> factsById
+                                .get(r.get(APPLICATION.ID))
+                                .setAttributes(
+                                        r.get(APPLICATION.KIND),
+                                        r.get(APPLICATION.LIFECYCLE_PHASE),
+                                        r.get(retiring)));
+                break;
+            case CHANGE_INITIATIVE:
+                dsl.select(CHANGE_INITIATIVE.ID, CHANGE_INITIATIVE.LIFECYCLE_PHASE)
+                        .from(CHANGE_INITIATIVE)
+                        .where(CHANGE_INITIATIVE.ID.in(ids))
+                        .forEach(r -> factsById
+                                .get(r.get(CHANGE_INITIATIVE.ID))
+                                .setAttributes(
+                                        null,
+                                        r.get(CHANGE_INITIATIVE.LIFECYCLE_PHASE),
+                                        false));
+                break;
+            default:
+                // other kinds have no attributes which predicates can refer to
+        }
+    }
+
+
+    private static void loadOrgUnits(DSLContext dsl,
+                                     EntityKind subjectKind,
+                                     List<Long> ids,
+                                     Map<Long, SubjectFacts> factsById) {
+        switch (subjectKind) {
+            case APPLICATION:
+                loadOrgUnits(dsl, APPLICATION, APPLICATION.ID, APPLICATION.ORGANISATIONAL_UNIT_ID, ids, factsById);
+                break;
+            case CHANGE_INITIATIVE:
+                loadOrgUnits(dsl, CHANGE_INITIATIVE, CHANGE_INITIATIVE.ID, CHANGE_INITIATIVE.ORGANISATIONAL_UNIT_ID, ids, factsById);
+                break;
+            default:
+                // other kinds do not belong to org units
+        }
+    }
+
+
+    private static void loadOrgUnits(DSLContext dsl,
+                                     Table<?> subjectTable,
+                                     Field<Long> subjectId,
+                                     Field<Long> subjectOu,
+                                     List<Long> ids,
+                                     Map<Long, SubjectFacts> factsById) {
+        EntityHierarchy eh = ENTITY_HIERARCHY.as("eh");
+        OrganisationalUnit ou = ORGANISATIONAL_UNIT.as("ou");
+
+        // the subject belongs to its own org unit and all of that unit's ancestors
+        dsl.select(subjectId, ou.NAME, ou.EXTERNAL_ID)
+                .from(subjectTable)
+                .innerJoin(eh)
+                .on(eh.ID.eq(subjectOu).and(eh.KIND.eq(EntityKind.ORG_UNIT.name())))
+                .innerJoin(ou)
+                .on(ou.ID.eq(eh.ANCESTOR_ID))
+                .where(subjectId.in(ids))
+                .forEach(r -> factsById
+                        .get(r.get(subjectId))
+                        .addOrgUnit(r.get(ou.NAME), r.get(ou.EXTERNAL_ID)));
+    }
+
+
+    private static void loadDataTypes(DSLContext dsl,
+                                      EntityKind subjectKind,
+                                      List<Long> ids,
+                                      Map<Long, SubjectFacts> factsById) {
+        DataTypeUsage dtu = DATA_TYPE_USAGE.as("dtu");
+        DataType dt = DATA_TYPE.as("dt");
+        EntityHierarchy eh = ENTITY_HIERARCHY.as("eh");
+
+        // a usage of a data type is also a usage of all of its ancestors
+        dsl.select(dtu.ENTITY_ID, dt.NAME, dt.CODE, dtu.USAGE_KIND)
+                .from(dtu)
+                .innerJoin(eh)
+                .on(eh.ID.eq(dtu.DATA_TYPE_ID).and(eh.KIND.eq(EntityKind.DATA_TYPE.name())))
+                .innerJoin(dt)
+                .on(dt.ID.eq(eh.ANCESTOR_ID))
+                .where(dtu.ENTITY_KIND.eq(subjectKind.name()))
+                .and(dtu.ENTITY_ID.in(ids))
+                .forEach(r -> factsById
+                        .get(r.get(dtu.ENTITY_ID))
+                        .addDataTypeUsage(r.get(dt.NAME), r.get(dt.CODE), r.get(dtu.USAGE_KIND)));
+    }
+
+
+    private static void loadInvolvements(DSLContext dsl,
+                                         EntityKind subjectKind,
+                                         List<Long> ids,
+                                         Map<Long, SubjectFacts> factsById) {
+        dsl.select(INVOLVEMENT.ENTITY_ID, INVOLVEMENT_KIND.NAME)
+                .from(INVOLVEMENT)
+                .innerJoin(INVOLVEMENT_KIND).on(INVOLVEMENT.KIND_ID.eq(INVOLVEMENT_KIND.ID))
+                .where(INVOLVEMENT.ENTITY_KIND.eq(subjectKind.name()))
+                .and(INVOLVEMENT.ENTITY_ID.in(ids))
+                .forEach(r -> factsById
+                        .get(r.get(INVOLVEMENT.ENTITY_ID))
+                        .addInvolvementKind(r.get(INVOLVEMENT_KIND.NAME)));
+    }
+
+
+    private static void loadAssessments(DSLContext dsl,
+                                        EntityKind subjectKind,
+                                        List<Long> ids,
+                                        Map<Long, SubjectFacts> factsById) {
+        dsl.select(ASSESSMENT_RATING.ENTITY_ID,
+                        ASSESSMENT_DEFINITION.NAME,
+                        ASSESSMENT_DEFINITION.EXTERNAL_ID,
+                        RATING_SCHEME_ITEM.CODE)
+                .from(ASSESSMENT_DEFINITION)
+                .innerJoin(ASSESSMENT_RATING).on(ASSESSMENT_RATING.ASSESSMENT_DEFINITION_ID.eq(ASSESSMENT_DEFINITION.ID))
+                .innerJoin(RATING_SCHEME_ITEM).on(RATING_SCHEME_ITEM.ID.eq(ASSESSMENT_RATING.RATING_ID))
+                .where(ASSESSMENT_RATING.ENTITY_KIND.eq(subjectKind.name()))
+                .and(ASSESSMENT_RATING.ENTITY_ID.in(ids))
+                .forEach(r -> factsById
+                        .get(r.get(ASSESSMENT_RATING.ENTITY_ID))
+                        .addAssessmentRating(
+                                r.get(ASSESSMENT_DEFINITION.NAME),
+                                r.get(ASSESSMENT_DEFINITION.EXTERNAL_ID),
+                                r.get(RATING_SCHEME_ITEM.CODE)));
+    }
+
+}
@@ -41,6 +41,7 @@ import org.springframework.stereotype.Service;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 import static java.util.stream.Collectors.toMap;
 import static org.finos.waltz.common.Checks.*;
@@ -142,15 +143,25 @@ public class TaxonomyChangeService {
 
         updatedCommand = taxonomyChangeDao.update(updatedCommand);
 
-        // rebuild measurable hierarchy
+        // update measurable hierarchy
         if (command.changeDomain().kind() == EntityKind.MEASURABLE_CATEGORY
                 && isHierarchyChange(command)) {
             long categoryId = command.changeDomain().id();
-            int insertCount = entityHierarchyService.buildForMeasurableByCategory(categoryId);
-            LOG.info(
-                    "Rebuilt measurable category: {},  inserted {} new records",
-                    categoryId,
-                    insertCount);
+            Optional<Long> subtreeRootId = determineAffectedSubtreeRoot(command);
+            if (subtreeRootId.isPresent()) {
+                int changeCount = entityHierarchyService.updateSubtree(EntityReference.mkRef(EntityKind.MEASURABLE, subtreeRootId.get()));
+                LOG.info(
+                        "Updated measurable hierarchy below: {} in category: {}, changed {} records",
+                        subtreeRootId.get(),
+                        categoryId,
+                        changeCount);
+            } else {
+                int insertCount = entityHierarchyService.buildForMeasurableByCategory(categoryId);
+                LOG.info(
+                        "Rebuilt measurable category: {},  inserted {} new records",
+                        categoryId,
+                        insertCount);
+            }
         }
 
         return updatedCommand;
@@ -212,6 +223,27 @@ public class TaxonomyChangeService {
     }
 
 
+    /**
+     * Determines the node whose subtree contains every hierarchy change made by the command.
+     * Moved and removed nodes are their own subtree, new nodes are within their parent's subtree.
+     * New root nodes have no such subtree, in which case the whole category must be rebuilt.
+     */
+    private Optional<Long> determineAffectedSubtreeRoot(TaxonomyChangeCommand command) {
+        switch (command.changeType()) {
+            case ADD_CHILD:
+            case MOVE:
+            case REMOVE:
+                return Optional.of(command.primaryReference().id());
+            case ADD_PEER:
+                return measurableService
+                        .getById(command.primaryReference().id())
+                        .parentId();
+            default:
+                return Optional.empty();
+        }
+    }
+
+
     private boolean isHierarchyChange(TaxonomyChangeCommand command) {
         return command.changeType() == TaxonomyChangeType.ADD_CHILD
                 || command.changeType() == TaxonomyChangeType.ADD_PEER
@@ -25,6 +25,7 @@ import org.finos.waltz.model.role.Role;
 import org.finos.waltz.model.user.BulkUserOperationRowPreview;
 import org.finos.waltz.model.user.ImmutableBulkUserOperationRowPreview;
 import org.finos.waltz.service.changelog.ChangeLogService;
+import org.finos.waltz.service.permission.UserAuthorizationCache;
 import org.finos.waltz.service.person.PersonService;
 import org.finos.waltz.common.SetUtilities;
 import org.finos.waltz.common.StringUtilities;
@@ -83,24 +84,29 @@ public class UserRoleService {
 
     private final PersonService personService;
 
+    private final UserAuthorizationCache userAuthorizationCache;
+
 
     @Autowired
     public UserRoleService(UserRoleDao userRoleDao,
                            UserDao userDao,
                            RoleDao roleDao,
                            ChangeLogService changeLogService,
-                           PersonService personService) {
+                           PersonService personService,
+                           UserAuthorizationCache userAuthorizationCache) {
         checkNotNull(userRoleDao, "userRoleDao must not be null");
         checkNotNull(userDao, "userDao must not be null");
         checkNotNull(roleDao, "roleDao must not be null");
         checkNotNull(changeLogService, "changeLogService must not be null");
         checkNotNull(personService, "personService must not be null");
+        checkNotNull(userAuthorizationCache, "userAuthorizationCache must not be null");
 
         this.userRoleDao = userRoleDao;
         this.userDao = userDao;
         this.roleDao = roleDao;
         this.changeLogService = changeLogService;
         this.personService = personService;
+        this.userAuthorizationCache = userAuthorizationCache;
     }
 
 
@@ -115,7 +121,7 @@ public class UserRoleService {
 
 
     public boolean hasRole(String userName, Set<String> requiredRoles) {
-        Set<String> userRoles = userRoleDao.getUserRoles(userName);
+        Set<String> userRoles = getUserRoles(userName);
         return userRoles.containsAll(requiredRoles);
     }
 
@@ -126,7 +132,7 @@ public class UserRoleService {
 
 
     public boolean hasAnyRole(String userName, Set<String> requiredRoles) {
-        Set<String> userRoles = userRoleDao.getUserRoles(userName);
+        Set<String> userRoles = getUserRoles(userName);
         return ! SetUtilities.intersection(userRoles, requiredRoles)
                     .isEmpty();
     }
@@ -140,7 +146,7 @@ public class UserRoleService {
     public User getByUserId(String userId) {
         return ImmutableUser.builder()
                 .userName(userId)
-                .addAllRoles(userRoleDao.getUserRoles(userId))
+                .addAllRoles(getUserRoles(userId))
                 .build();
     }
 
@@ -167,12 +173,14 @@ public class UserRoleService {
             changeLogService.write(logEntry);
         }
 
-        return userRoleDao.updateRoles(targetUserName, command.roles());
+        int rc = userRoleDao.updateRoles(targetUserName, command.roles());
+        userAuthorizationCache.invalidateUser(targetUserName);
+        return rc;
     }
 
 
     public Set<String> getUserRoles(String userName) {
-        return userRoleDao.getUserRoles(userName);
+        return userAuthorizationCache.getUserRoles(userName);
     }
 
 
@@ -201,16 +209,23 @@ public class UserRoleService {
                 .map(d -> tuple(d.resolvedUser(), d.resolvedRole()))
                 .collect(Collectors.toSet());
 
+        int rc;
         switch (mode) {
             case ADD_ONLY:
-                return userRoleDao.addRoles(usersAndRolesToUpdate);
+                rc = userRoleDao.addRoles(usersAndRolesToUpdate);
+                break;
             case REMOVE_ONLY:
-                return userRoleDao.removeRoles(usersAndRolesToUpdate);
+                rc = userRoleDao.removeRoles(usersAndRolesToUpdate);
+                break;
             case REPLACE:
-                return userRoleDao.replaceRoles(usersAndRolesToUpdate);
+                rc = userRoleDao.replaceRoles(usersAndRolesToUpdate);
+                break;
             default:
                 throw new UnsupportedOperationException("Unsupported mode: " + mode);
         }
+
+        usersAndRolesToUpdate.forEach(t -> userAuthorizationCache.invalidateUser(t.v1));
+        return rc;
     }
 
 
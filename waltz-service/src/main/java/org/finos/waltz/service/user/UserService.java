@@ -18,6 +18,7 @@
 
 package org.finos.waltz.service.user;
 
+import org.finos.waltz.service.permission.UserAuthorizationCache;
 import org.finos.waltz.service.settings.SettingsService;
 import org.finos.waltz.common.Checks;
 import org.finos.waltz.data.user.UserDao;
@@ -48,22 +49,26 @@ public class UserService {
     private final PasswordService passwordService;
     private final UserRoleDao userRoleDao;
     private final SettingsService settingsService;
+    private final UserAuthorizationCache userAuthorizationCache;
 
 
     @Autowired
     public UserService(UserDao userDao,
                        UserRoleDao userRoleDao,
                        PasswordService passwordService,
-                       SettingsService settingsService) {
+                       SettingsService settingsService,
+                       UserAuthorizationCache userAuthorizationCache) {
         checkNotNull(userDao, "userDao must not be null");
         checkNotNull(userRoleDao, "userRoleDao cannot be null");
         checkNotNull(passwordService, "passwordService must not be null");
         checkNotNull(settingsService, "settingsService cannot be null");
+        checkNotNull(userAuthorizationCache, "userAuthorizationCache cannot be null");
 
         this.userDao = userDao;
         this.userRoleDao = userRoleDao;
         this.passwordService = passwordService;
         this.settingsService = settingsService;
+        this.userAuthorizationCache = userAuthorizationCache;
     }
 
 
@@ -89,6 +94,7 @@ public class UserService {
     public boolean deleteUser(String userName) {
         LOG.info("Deleting user: " + userName);
         userDao.deleteUser(userName);
+        userAuthorizationCache.invalidateUser(userName);
         LOG.info("Deleted user: " + userName);
         return true;
     }
@@ -139,7 +145,10 @@ public class UserService {
         if (setting != null ) {
             setting.value()
                     .map(s -> tokenise(s, ","))
-                    .ifPresent(roles -> userRoleDao.updateRoles(username, fromCollection(roles)));
+                    .ifPresent(roles -> {
+                        userRoleDao.updateRoles(username, fromCollection(roles));
+                        userAuthorizationCache.invalidateUser(username);
+                    });
 
         }
     }
@@ -0,0 +1,96 @@
+package org.finos.waltz.service.entity_hierarchy;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.entity_hierarchy.EntityHierarchyItem;
+import org.finos.waltz.model.entity_hierarchy.ImmutableEntityHierarchyItem;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HierarchyClosureCalculatorTest {
+
+    /*
+     *  1
+     *  +- 2
+     *  |  +- 4
+     *  +- 3
+     *  5
+     *  6 -> (missing 99)
+     */
+    private static Map<Long, Long> mkTree() {
+        Map<Long, Long> parentsById = new HashMap<>();
+        parentsById.put(1L, null);
+        parentsById.put(2L, 1L);
+        parentsById.put(3L, 1L);
+        parentsById.put(4L, 2L);
+        parentsById.put(5L, 5L);
+        parentsById.put(6L, 99L);
+        return parentsById;
+    }
+
+
+    @Test
+    public void subtreeIncludesTheNodeAndAllDescendants() {
+        HierarchyClosureCalculator calculator = new HierarchyClosureCalculator(EntityKind.MEASURABLE, mkTree());
+
+        assertEquals(asSet(1L, 2L, 3L, 4L), calculator.findSubtreeIds(1L));
+        assertEquals(asSet(2L, 4L), calculator.findSubtreeIds(2L));
+        assertTrue(calculator.findSubtreeIds(99L).isEmpty());
+    }
+
+
+    @Test
+    public void itemsIncludeSelfAndAncestorRows() {
+        HierarchyClosureCalculator calculator = new HierarchyClosureCalculator(EntityKind.MEASURABLE, mkTree());
+
+        Set<EntityHierarchyItem> items = calculator.mkItems(asSet(4L));
+
+        assertEquals(
+                asSet(mkItem(4L, 4L, 3, 3), mkItem(4L, 2L, 2, 3), mkItem(4L, 1L, 1, 3)),
+                items);
+    }
+
+
+    @Test
+    public void selfParentedNodesAreRoots() {
+        HierarchyClosureCalculator calculator = new HierarchyClosureCalculator(EntityKind.MEASURABLE, mkTree());
+        assertEquals(asSet(mkItem(5L, 5L, 1, 1)), calculator.mkItems(asSet(5L)));
+    }
+
+
+    @Test
+    public void nodesWhichCannotReachARootHaveUnknownLevels() {
+        Map<Long, Long> tree = mkTree();
+        tree.put(7L, 8L);
+        tree.put(8L, 7L);
+        HierarchyClosureCalculator calculator = new HierarchyClosureCalculator(EntityKind.MEASURABLE, tree);
+
+        assertEquals(asSet(mkItem(6L, 6L, -1, -1)), calculator.mkItems(asSet(6L)));
+        assertEquals(asSet(mkItem(7L, 7L, -1, -1), mkItem(7L, 8L, -1, -1)), calculator.mkItems(asSet(7L)));
+    }
+
+
+    @Test
+    public void unknownIdsAreIgnored() {
+        HierarchyClosureCalculator calculator = new HierarchyClosureCalculator(EntityKind.MEASURABLE, mkTree());
+        assertTrue(calculator.mkItems(asSet(99L)).isEmpty());
+    }
+
+
+    private static EntityHierarchyItem mkItem(long id, long ancestorId, int ancestorLevel, int descendantLevel) {
+        return ImmutableEntityHierarchyItem.builder()
+                .id(id)
+                .parentId(ancestorId)
+                .ancestorLevel(ancestorLevel)
+                .descendantLevel(descendantLevel)
+                .kind(EntityKind.MEASURABLE)
+                .build();
+    }
+
+}
@@ -0,0 +1,223 @@
+package org.finos.waltz.service.flow_classification_rule;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.data_flow_decorator.ImmutableLogicalFlowDecoratorRating;
+import org.finos.waltz.model.data_flow_decorator.LogicalFlowDecoratorRating;
+import org.finos.waltz.model.entity_hierarchy.EntityHierarchyItem;
+import org.finos.waltz.model.entity_hierarchy.ImmutableEntityHierarchyItem;
+import org.finos.waltz.model.flow_classification_rule.FlowClassificationRuleVantagePoint;
+import org.finos.waltz.model.flow_classification_rule.ImmutableFlowClassificationRuleVantagePoint;
+import org.finos.waltz.model.rating.AuthoritativenessRatingValue;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.finos.waltz.common.ListUtilities.newArrayList;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class FlowClassificationRecalculatorTest {
+
+    private static final AuthoritativenessRatingValue PRIMARY = AuthoritativenessRatingValue.of("PRIMARY");
+    private static final AuthoritativenessRatingValue SECONDARY = AuthoritativenessRatingValue.of("SECONDARY");
+
+    private static final EntityReference SOURCE_APP = mkRef(EntityKind.APPLICATION, 100L);
+    private static final EntityReference OTHER_SOURCE_APP = mkRef(EntityKind.APPLICATION, 101L);
+    private static final EntityReference TARGET_APP = mkRef(EntityKind.APPLICATION, 200L);
+
+    /*
+     * org units:  1 -> 2 -> 3
+     * data types: 10 -> 11 -> 12
+     */
+    private static final List<EntityHierarchyItem> ORG_UNITS = mkHierarchy(EntityKind.ORG_UNIT, 1L, 2L, 3L);
+    private static final List<EntityHierarchyItem> DATA_TYPES = mkHierarchy(EntityKind.DATA_TYPE, 10L, 11L, 12L);
+
+
+    @Test
+    public void decoratorsWithNoApplicableRulesHaveNoOpinion() {
+        FlowClassificationRecalculator recalculator = mkRecalculator(
+                newArrayList(mkOrgUnitRule(1L, 3, 2L, 11L, 2, SOURCE_APP, PRIMARY)),
+                Collections.emptyList());
+
+        LogicalFlowDecoratorRating result = recalculator.calculate(mkDecorator(10L, SOURCE_APP, 3L));
+
+        assertEquals(Optional.of(AuthoritativenessRatingValue.NO_OPINION), result.rating());
+        assertEquals(Optional.empty(), result.flowClassificationRuleId());
+    }
+
+
+    @Test
+    public void mostSpecificRuleNamingTheSourceWins() {
+        FlowClassificationRecalculator recalculator = mkRecalculator(
+                newArrayList(
+                        mkOrgUnitRule(1L, 1, 1L, 10L, 1, SOURCE_APP, SECONDARY),
+                        mkOrgUnitRule(2L, 2, 2L, 10L, 1, SOURCE_APP, PRIMARY),
+                        mkOrgUnitRule(3L, 2, 2L, 11L, 2, OTHER_SOURCE_APP, PRIMARY)),
+                Collections.emptyList());
+
+        LogicalFlowDecoratorRating result = recalculator.calculate(mkDecorator(12L, SOURCE_APP, 3L));
+
+        assertEquals(Optional.of(PRIMARY), result.rating());
+        assertEquals(Optional.of(2L), result.flowClassificationRuleId());
+    }
+
+
+    @Test
+    public void sourcesNotNamedByAnApplicableRuleAreDiscouraged() {
+        FlowClassificationRecalculator recalculator = mkRecalculator(
+                newArrayList(mkOrgUnitRule(1L, 1, 1L, 10L, 1, OTHER_SOURCE_APP, PRIMARY)),
+                Collections.emptyList());
+
+        LogicalFlowDecoratorRating result = recalculator.calculate(mkDecorator(11L, SOURCE_APP, 2L));
+
+        assertEquals(Optional.of(AuthoritativenessRatingValue.DISCOURAGED), result.rating());
+        assertEquals(Optional.empty(), result.flowClassificationRuleId());
+    }
+
+
+    @Test
+    public void pointToPointRulesTakePrecedence() {
+        FlowClassificationRecalculator recalculator = mkRecalculator(
+                newArrayList(mkOrgUnitRule(1L, 3, 3L, 12L, 3, SOURCE_APP, PRIMARY)),
+                newArrayList(
+                        mkPointToPointRule(2L, TARGET_APP, 10L, 1, SOURCE_APP, SECONDARY),
+                        mkPointToPointRule(3L, TARGET_APP, 11L, 2, SOURCE_APP, AuthoritativenessRatingValue.DISCOURAGED),
+                        mkPointToPointRule(4L, TARGET_APP, 12L, 3, OTHER_SOURCE_APP, PRIMARY)));
+
+        LogicalFlowDecoratorRating result = recalculator.calculate(mkDecorator(12L, SOURCE_APP, 3L));
+
+        assertEquals(Optional.of(AuthoritativenessRatingValue.DISCOURAGED), result.rating());
+        assertEquals(Optional.of(3L), result.flowClassificationRuleId());
+    }
+
+
+    @Test
+    public void onlyChangedRatingsAreReturned() {
+        FlowClassificationRecalculator recalculator = mkRecalculator(
+                newArrayList(mkOrgUnitRule(1L, 1, 1L, 10L, 1, SOURCE_APP, PRIMARY)),
+                Collections.emptyList());
+
+        LogicalFlowDecoratorRating unchanged = ImmutableLogicalFlowDecoratorRating
+                .copyOf(mkDecorator(11L, SOURCE_APP, 3L))
+                .withRating(PRIMARY)
+                .withFlowClassificationRuleId(1L);
+
+        LogicalFlowDecoratorRating changed = mkDecorator(12L, SOURCE_APP, 3L);
+
+        List<LogicalFlowDecoratorRating> result = recalculator.findChangedRatings(newArrayList(unchanged, changed));
+
+        assertEquals(1, result.size());
+        assertEquals(changed.decoratorId(), result.get(0).decoratorId());
+        assertEquals(Optional.of(PRIMARY), result.get(0).rating());
+    }
+
+
+    @Test
+    public void flowsToNonApplicationsOnlyUsePointToPointRules() {
+        EntityReference actor = mkRef(EntityKind.ACTOR, 300L);
+
+        FlowClassificationRecalculator recalculator = mkRecalculator(
+                newArrayList(mkOrgUnitRule(1L, 1, 1L, 10L, 1, SOURCE_APP, PRIMARY)),
+                newArrayList(mkPointToPointRule(2L, actor, 10L, 1, SOURCE_APP, SECONDARY)));
+
+        LogicalFlowDecoratorRating toActor = ImmutableLogicalFlowDecoratorRating
+                .copyOf(mkDecorator(11L, SOURCE_APP, 3L))
+                .withTarget(actor)
+                .withTargetOrgUnitId(Optional.empty());
+
+        assertEquals(Optional.of(SECONDARY), recalculator.calculate(toActor).rating());
+
+        LogicalFlowDecoratorRating toOtherActor = ImmutableLogicalFlowDecoratorRating
+                .copyOf(toActor)
+                .withTarget(mkRef(EntityKind.ACTOR, 301L));
+
+        assertEquals(Optional.of(AuthoritativenessRatingValue.NO_OPINION), recalculator.calculate(toOtherActor).rating());
+    }
+
+
+    // -- HELPERS ---
+
+    private static FlowClassificationRecalculator mkRecalculator(List<FlowClassificationRuleVantagePoint> orgUnitRules,
+                                                                 List<FlowClassificationRuleVantagePoint> pointToPointRules) {
+        return new FlowClassificationRecalculator(orgUnitRules, pointToPointRules, ORG_UNITS, DATA_TYPES);
+    }
+
+
+    private static LogicalFlowDecoratorRating mkDecorator(long dataTypeId,
+                                                          EntityReference source,
+                                                          long targetOrgUnitId) {
+        return ImmutableLogicalFlowDecoratorRating.builder()
+                .decoratorId(dataTypeId * 1000)
+                .dataTypeId(dataTypeId)
+                .source(source)
+                .target(TARGET_APP)
+                .targetOrgUnitId(targetOrgUnitId)
+                .rating(AuthoritativenessRatingValue.NO_OPINION)
+                .build();
+    }
+
+
+    private static FlowClassificationRuleVantagePoint mkOrgUnitRule(long ruleId,
+                                                                    int orgUnitLevel,
+                                                                    long orgUnitId,
+                                                                    long dataTypeId,
+                                                                    int dataTypeLevel,
+                                                                    EntityReference subject,
+                                                                    AuthoritativenessRatingValue rating) {
+        return mkRule(ruleId, mkRef(EntityKind.ORG_UNIT, orgUnitId), orgUnitLevel, dataTypeId, dataTypeLevel, subject, rating);
+    }
+
+
+    private static FlowClassificationRuleVantagePoint mkPointToPointRule(long ruleId,
+                                                                         EntityReference target,
+                                                                         long dataTypeId,
+                                                                         int dataTypeLevel,
+                                                                         EntityReference subject,
+                                                                         AuthoritativenessRatingValue rating) {
+        return mkRule(ruleId, target, 0, dataTypeId, dataTypeLevel, subject, rating);
+    }
+
+
+    private static FlowClassificationRuleVantagePoint mkRule(long ruleId,
+                                                             EntityReference vantagePoint,
+                                                             int vantagePointRank,
+                                                             long dataTypeId,
+                                                             int dataTypeRank,
+                                                             EntityReference subject,
+                                                             AuthoritativenessRatingValue rating) {
+        return ImmutableFlowClassificationRuleVantagePoint.builder()
+                .ruleId(ruleId)
+                .vantagePoint(vantagePoint)
+                .vantagePointRank(vantagePointRank)
+                .dataType(mkRef(EntityKind.DATA_TYPE, dataTypeId))
+                .dataTypeRank(dataTypeRank)
+                .subjectReference(subject)
+                .classificationCode(rating.value())
+                .build();
+    }
+
+
+    /**
+     * Builds hierarchy items (self and ancestor rows) for a simple chain where each id is the child of the previous
+     */
+    private static List<EntityHierarchyItem> mkHierarchy(EntityKind kind, Long... chain) {
+        List<EntityHierarchyItem> items = new ArrayList<>();
+        for (int i = 0; i < chain.length; i++) {
+            for (int j = 0; j <= i; j++) {
+                items.add(ImmutableEntityHierarchyItem.builder()
+                        .kind(kind)
+                        .id(chain[i])
+                        .parentId(chain[j])
+                        .ancestorLevel(j + 1)
+                        .descendantLevel(i + 1)
+                        .build());
+            }
+        }
+        return items;
+    }
+
+}
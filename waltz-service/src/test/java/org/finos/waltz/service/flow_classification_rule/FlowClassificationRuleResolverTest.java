@@ -25,6 +25,7 @@ import org.finos.waltz.model.ImmutableEntityReference;
 import org.finos.waltz.model.flow_classification_rule.FlowClassificationRuleVantagePoint;
 import org.finos.waltz.model.flow_classification_rule.ImmutableFlowClassificationRuleVantagePoint;
 import org.finos.waltz.model.rating.AuthoritativenessRatingValue;
+import org.finos.waltz.service.flow_classification_rule.FlowClassificationRuleResolver.Resolution;
 import org.junit.jupiter.api.Test;
 
 
@@ -34,6 +35,7 @@ import java.util.Optional;
 
 import static org.finos.waltz.model.EntityReference.mkRef;
 import static org.finos.waltz.service.flow_classification_rule.FlowClassificationRuleResolver.getMostSpecificRanked;
+import static org.finos.waltz.service.flow_classification_rule.FlowClassificationRuleResolver.mkKey;
 import static org.finos.waltz.common.ListUtilities.newArrayList;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -180,4 +182,49 @@ public class FlowClassificationRuleResolverTest {
         assertFalse(bestRanked.isPresent());
     }
 
-}
\ No newline at end of file
+
+    @Test
+    public void resolveAllMatchesIndividualResolution() {
+
+        List<FlowClassificationRuleVantagePoint> vantagePoints = new ArrayList<>();
+        vantagePoints.add(ImmutableFlowClassificationRuleVantagePoint.builder()
+                .vantagePoint(vantagePoint)
+                .vantagePointRank(1)
+                .dataType(mkRef(EntityKind.DATA_TYPE, 20))
+                .dataTypeRank(1)
+                .subjectReference(sourceApp)
+                .classificationCode(AuthoritativenessRatingValue.of("PRIMARY").value())
+                .ruleId(1L)
+                .build());
+
+        FlowClassificationRuleResolver flowClassificationRuleResolver = new FlowClassificationRuleResolver(vantagePoints);
+
+        EntityReference otherApp = mkRef(EntityKind.APPLICATION, 205L);
+        EntityReference otherOrgUnit = mkRef(EntityKind.ORG_UNIT, 21L);
+
+        Resolution[] resolutions = flowClassificationRuleResolver.resolveAll(
+                new long[] {mkKey(vantagePoint), mkKey(vantagePoint), mkKey(otherOrgUnit), mkKey(vantagePoint)},
+                new long[] {mkKey(sourceApp), mkKey(otherApp), mkKey(sourceApp), mkKey(sourceApp)},
+                new long[] {20L, 20L, 20L, 30L});
+
+        assertEquals(4, resolutions.length);
+
+        assertEquals(AuthoritativenessRatingValue.of("PRIMARY"), resolutions[0].rating());
+        assertEquals(Optional.of(1L), resolutions[0].rule().map(FlowClassificationRuleVantagePoint::ruleId));
+
+        assertEquals(AuthoritativenessRatingValue.DISCOURAGED, resolutions[1].rating());
+        assertFalse(resolutions[1].rule().isPresent());
+
+        assertEquals(AuthoritativenessRatingValue.NO_OPINION, resolutions[2].rating());
+        assertEquals(AuthoritativenessRatingValue.NO_OPINION, resolutions[3].rating());
+    }
+
+
+    @Test
+    public void keysDistinguishKindsWithTheSameId() {
+        assertNotEquals(
+                mkKey(mkRef(EntityKind.APPLICATION, 1L)),
+                mkKey(mkRef(EntityKind.ACTOR, 1L)));
+    }
+
+}
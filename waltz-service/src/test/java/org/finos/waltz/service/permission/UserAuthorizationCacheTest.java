@@ -0,0 +1,185 @@
+package org.finos.waltz.service.permission;
+
+import org.finos.waltz.data.EntityNameDictionary;
+import org.finos.waltz.data.changelog.ChangeLogDao;
+import org.finos.waltz.data.involvement.InvolvementDao;
+import org.finos.waltz.data.permission.PermissionGroupDao;
+import org.finos.waltz.data.person.PersonDao;
+import org.finos.waltz.data.user.UserRoleDao;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.permission_group.Permission;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.common.SetUtilities.fromCollection;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class UserAuthorizationCacheTest {
+
+    private static final DSLContext DSL_CONTEXT = DSL.using(SQLDialect.H2);
+    private static final String USER = "user";
+
+    private static final EntityReference APP_1 = mkRef(EntityKind.APPLICATION, 1L);
+    private static final EntityReference APP_2 = mkRef(EntityKind.APPLICATION, 2L);
+
+
+    @Test
+    public void involvementsLoadedWhilstInvalidatedAreNotCached() {
+        StubInvolvementDao involvementDao = new StubInvolvementDao();
+        UserAuthorizationCache cache = mkCache(involvementDao, new StubPermissionGroupDao());
+
+        // simulate the involvements being changed whilst they are being loaded
+        involvementDao.onLoad = () -> cache.invalidateInvolvements(APP_1);
+        cache.findInvolvementKindIds(APP_1, USER);
+
+        involvementDao.onLoad = () -> {};
+        cache.findInvolvementKindIds(APP_1, USER);
+        cache.findInvolvementKindIds(APP_1, USER);
+
+        assertEquals(2, involvementDao.loadCount.get(), "result loaded before the invalidation should not be cached");
+    }
+
+
+    @Test
+    public void batchInvolvementsLoadedWhilstInvalidatedAreNotCached() {
+        StubInvolvementDao involvementDao = new StubInvolvementDao();
+        UserAuthorizationCache cache = mkCache(involvementDao, new StubPermissionGroupDao());
+
+        involvementDao.onLoad = () -> cache.invalidateUser(USER);
+        cache.findInvolvementKindIds(asList(APP_1, APP_2), USER);
+
+        involvementDao.onLoad = () -> {};
+        cache.findInvolvementKindIds(asList(APP_1, APP_2), USER);
+        cache.findInvolvementKindIds(asList(APP_1, APP_2), USER);
+
+        assertEquals(2, involvementDao.loadCount.get(), "result loaded before the invalidation should not be cached");
+    }
+
+
+    @Test
+    public void batchInvolvementLookupsOnlyLoadUncachedEntities() {
+        StubInvolvementDao involvementDao = new StubInvolvementDao();
+        UserAuthorizationCache cache = mkCache(involvementDao, new StubPermissionGroupDao());
+
+        cache.findInvolvementKindIds(APP_1, USER);
+        Map<EntityReference, Set<Long>> result = cache.findInvolvementKindIds(asList(APP_1, APP_2), USER);
+
+        assertEquals(asSet(APP_1, APP_2), result.keySet());
+        assertEquals(singletonList(asSet(APP_2)), involvementDao.batchRequests);
+    }
+
+
+    @Test
+    public void permissionsLoadedWhilstInvalidatedAreNotCached() {
+        StubPermissionGroupDao permissionGroupDao = new StubPermissionGroupDao();
+        UserAuthorizationCache cache = mkCache(new StubInvolvementDao(), permissionGroupDao);
+
+        permissionGroupDao.onLoad = cache::invalidatePermissionGroups;
+        cache.findPermissionsForParentEntities(asList(APP_1, APP_2));
+
+        permissionGroupDao.onLoad = () -> {};
+        cache.findPermissionsForParentEntities(asList(APP_1, APP_2));
+        cache.findPermissionsForParentEntity(APP_1);
+        cache.findPermissionsForParentEntities(asList(APP_1, APP_2));
+
+        assertEquals(2, permissionGroupDao.loadCount.get(), "result loaded before the invalidation should not be cached");
+    }
+
+
+    // -- HELPERS ---
+
+    private static UserAuthorizationCache mkCache(InvolvementDao involvementDao,
+                                                  PermissionGroupDao permissionGroupDao) {
+        return new UserAuthorizationCache(
+                new UserRoleDao(DSL_CONTEXT),
+                new PersonDao(DSL_CONTEXT),
+                involvementDao,
+                permissionGroupDao,
+                true,
+                1000,
+                5);
+    }
+
+
+    private static <T> Map<EntityReference, T> toMap(Collection<EntityReference> refs, Function<EntityReference, T> valueFn) {
+        return refs
+                .stream()
+                .collect(Collectors.toMap(ref -> ref, valueFn));
+    }
+
+
+    private static class StubInvolvementDao extends InvolvementDao {
+
+        private final AtomicInteger loadCount = new AtomicInteger();
+        private final List<Set<EntityReference>> batchRequests = new ArrayList<>();
+        private Runnable onLoad = () -> {};
+
+
+        private StubInvolvementDao() {
+            super(DSL_CONTEXT, new EntityNameDictionary(DSL_CONTEXT, new ChangeLogDao(DSL_CONTEXT), false, 60));
+        }
+
+
+        @Override
+        public Set<Long> findExistingInvolvementKindIdsForUser(EntityReference parentEntityRef, String username) {
+            loadCount.incrementAndGet();
+            onLoad.run();
+            return asSet(parentEntityRef.id());
+        }
+
+
+        @Override
+        public Map<EntityReference, Set<Long>> findExistingInvolvementKindIdsForUser(Collection<EntityReference> parentEntityRefs, String username) {
+            loadCount.incrementAndGet();
+            batchRequests.add(fromCollection(parentEntityRefs));
+            onLoad.run();
+            return toMap(parentEntityRefs, ref -> asSet(ref.id()));
+        }
+    }
+
+
+    private static class StubPermissionGroupDao extends PermissionGroupDao {
+
+        private final AtomicInteger loadCount = new AtomicInteger();
+        private Runnable onLoad = () -> {};
+
+
+        private StubPermissionGroupDao() {
+            super(DSL_CONTEXT);
+        }
+
+
+        @Override
+        public Set<Permission> findPermissionsForParentEntityReference(EntityReference parentEntityRef) {
+            loadCount.incrementAndGet();
+            onLoad.run();
+            return Collections.emptySet();
+        }
+
+
+        @Override
+        public Map<EntityReference, Set<Permission>> findPermissionsForParentEntityReferences(Collection<EntityReference> parentEntityRefs) {
+            loadCount.incrementAndGet();
+            onLoad.run();
+            return toMap(parentEntityRefs, ref -> Collections.<Permission>emptySet());
+        }
+    }
+
+}
@@ -0,0 +1,129 @@
+package org.finos.waltz.service.physical_flow;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.physical_flow.CriticalityValue;
+import org.finos.waltz.model.physical_flow.FrequencyKindValue;
+import org.finos.waltz.model.physical_flow.ImmutablePhysicalFlowParsed;
+import org.finos.waltz.model.physical_flow.PhysicalFlowParsed;
+import org.finos.waltz.model.physical_flow.TransportKindValue;
+import org.finos.waltz.model.physical_specification.DataFormatKindValue;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.finos.waltz.service.physical_flow.PhysicalFlowUploadState.logicalFlowKey;
+import static org.finos.waltz.service.physical_flow.PhysicalFlowUploadState.physicalFlowKey;
+import static org.finos.waltz.service.physical_flow.PhysicalFlowUploadState.specificationKey;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PhysicalFlowUploadStateTest {
+
+    private static final EntityReference APP_A = mkRef(EntityKind.APPLICATION, 1L, "App A");
+    private static final EntityReference APP_B = mkRef(EntityKind.APPLICATION, 2L, "App B");
+    private static final long DATA_TYPE_ID = 10L;
+
+
+    @Test
+    public void existingFlowsAreMatchedRegardlessOfReferenceNames() {
+        PhysicalFlowParsed flow = mkFlow("spec");
+        PhysicalFlowUploadState state = mkStateWithFlow(flow, 100L);
+
+        PhysicalFlowParsed unnamed = ImmutablePhysicalFlowParsed
+                .copyOf(flow)
+                .withSource(mkRef(EntityKind.APPLICATION, 1L))
+                .withTarget(mkRef(EntityKind.APPLICATION, 2L))
+                .withOwner(mkRef(EntityKind.APPLICATION, 1L));
+
+        assertEquals(Optional.of(100L), state.findExistingPhysicalFlowId(flow));
+        assertEquals(Optional.of(100L), state.findExistingPhysicalFlowId(unnamed));
+    }
+
+
+    @Test
+    public void existingFlowsMustMatchAllAttributes() {
+        PhysicalFlowParsed flow = mkFlow("spec");
+        PhysicalFlowUploadState state = mkStateWithFlow(flow, 100L);
+
+        assertFalse(state.findExistingPhysicalFlowId(mkFlow("other spec")).isPresent());
+        assertFalse(state.findExistingPhysicalFlowId(ImmutablePhysicalFlowParsed.copyOf(flow).withBasisOffset(1)).isPresent());
+        assertFalse(state.findExistingPhysicalFlowId(ImmutablePhysicalFlowParsed.copyOf(flow).withTarget(APP_A)).isPresent());
+    }
+
+
+    @Test
+    public void existingFlowsMustHaveTheDataTypeOnTheirSpecification() {
+        PhysicalFlowParsed flow = mkFlow("spec");
+        PhysicalFlowUploadState state = mkStateWithFlow(flow, 100L);
+
+        PhysicalFlowParsed otherDataType = ImmutablePhysicalFlowParsed
+                .copyOf(flow)
+                .withDataType(mkRef(EntityKind.DATA_TYPE, DATA_TYPE_ID + 1));
+
+        assertFalse(state.findExistingPhysicalFlowId(otherDataType).isPresent());
+        assertTrue(state.addSpecificationDataType(20L, DATA_TYPE_ID + 1));
+        assertEquals(Optional.of(100L), state.findExistingPhysicalFlowId(otherDataType));
+    }
+
+
+    @Test
+    public void removedLogicalFlowsAreOnlyUsedOnceRestored() {
+        PhysicalFlowParsed flow = mkFlow("spec");
+        PhysicalFlowUploadState state = new PhysicalFlowUploadState();
+        state.addLogicalFlow(logicalFlowKey(flow), 5L, true);
+        state.addLogicalFlow(logicalFlowKey(flow), 6L, true);
+
+        assertNull(state.findLogicalFlowId(flow));
+        assertEquals(Long.valueOf(6L), state.findRemovedLogicalFlowId(flow), "latest removed flow should be restored");
+
+        state.restoreLogicalFlow(logicalFlowKey(flow));
+
+        assertEquals(Long.valueOf(6L), state.findLogicalFlowId(flow));
+        assertNull(state.findRemovedLogicalFlowId(flow));
+    }
+
+
+    @Test
+    public void dataTypesAreOnlyReportedAsAddedOnce() {
+        PhysicalFlowUploadState state = new PhysicalFlowUploadState();
+
+        assertTrue(state.addLogicalFlowDataType(1L, DATA_TYPE_ID));
+        assertFalse(state.addLogicalFlowDataType(1L, DATA_TYPE_ID));
+        assertTrue(state.hasLogicalFlowDataType(1L, DATA_TYPE_ID));
+        assertFalse(state.hasLogicalFlowDataType(2L, DATA_TYPE_ID));
+    }
+
+
+    // -- HELPERS ---
+
+    private static PhysicalFlowUploadState mkStateWithFlow(PhysicalFlowParsed flow, long physicalFlowId) {
+        PhysicalFlowUploadState state = new PhysicalFlowUploadState();
+        state.addLogicalFlow(logicalFlowKey(flow), 10L, false);
+        state.addSpecification(specificationKey(flow), 20L);
+        state.addSpecificationDataType(20L, DATA_TYPE_ID);
+        state.addPhysicalFlow(physicalFlowKey(10L, 20L, flow), physicalFlowId);
+        return state;
+    }
+
+
+    private static PhysicalFlowParsed mkFlow(String specName) {
+        return ImmutablePhysicalFlowParsed.builder()
+                .source(APP_A)
+                .target(APP_B)
+                .owner(APP_A)
+                .name(specName)
+                .format(DataFormatKindValue.of("BINARY"))
+                .basisOffset(0)
+                .criticality(CriticalityValue.of("HIGH"))
+                .frequency(FrequencyKindValue.of("DAILY"))
+                .transport(TransportKindValue.of("FILE_TRANSPORT"))
+                .description("test flow")
+                .dataType(mkRef(EntityKind.DATA_TYPE, DATA_TYPE_ID))
+                .build();
+    }
+
+}
@@ -0,0 +1,107 @@
+package org.finos.waltz.service.report_grid;
+
+import org.apache.commons.jexl3.JexlBuilder;
+import org.apache.commons.jexl3.JexlEngine;
+import org.finos.waltz.model.either.Either;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.finos.waltz.common.ListUtilities.asList;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DerivedColumnEvaluationPlanTest {
+
+    private static final Set<String> DERIVED_EXT_IDS = asSet("A", "B", "C");
+
+    private static final JexlEngine JEXL = new JexlBuilder().create();
+
+
+    @Test
+    public void referencesAreFoundInVariables() {
+        Optional<Set<String>> refs = findReferences("A == null ? B : subjectName", "C");
+        assertEquals(Optional.of(asSet("A", "B")), refs);
+    }
+
+
+    @Test
+    public void selfReferencesAndOtherVariablesAreIgnored() {
+        Optional<Set<String>> refs = findReferences("A == null ? subjectName : fixedCol", "A");
+        assertEquals(Optional.of(asSet()), refs);
+    }
+
+
+    @Test
+    public void referencesViaLiteralsCannotBeResolved() {
+        assertEquals(Optional.empty(), findReferences("cell('B') == null ? mkResult('yes') : null", "C"));
+        assertEquals(Optional.empty(), findReferences("anyCellsProvided('A', \"B\") ? mkResult(A) : null", "C"));
+    }
+
+
+    @Test
+    public void selfReferencesViaLiteralsDoNotPreventResolution() {
+        assertEquals(Optional.of(asSet()), findReferences("cell('A') == null ? mkResult('yes') : null", "A"));
+    }
+
+
+    @Test
+    public void scriptsWhichDoNotCompileHaveNoReferences() {
+        assertEquals(
+                Optional.of(asSet()),
+                DerivedColumnEvaluationPlan.findDerivedColumnReferences(Either.left("bad script"), "A +", "C", DERIVED_EXT_IDS));
+        assertEquals(
+                Optional.of(asSet()),
+                DerivedColumnEvaluationPlan.findDerivedColumnReferences(Either.left("no script"), null, "C", DERIVED_EXT_IDS));
+    }
+
+
+    @Test
+    public void columnsAreOrderedAfterTheirDependencies() {
+        Map<String, Set<String>> deps = new HashMap<>();
+        deps.put("A", asSet("C"));
+        deps.put("B", asSet("A", "C"));
+        deps.put("C", asSet());
+
+        List<String> ordered = DerivedColumnEvaluationPlan.topologicalSort(deps, asList("A", "B", "C"));
+
+        assertEquals(asList("C", "A", "B"), ordered);
+    }
+
+
+    @Test
+    public void independentColumnsKeepTheirOriginalOrder() {
+        List<String> ordered = DerivedColumnEvaluationPlan.topologicalSort(new HashMap<>(), asList("B", "A", "C"));
+        assertEquals(asList("B", "A", "C"), ordered);
+    }
+
+
+    @Test
+    public void cyclicColumnsAndTheirDependentsAreOmitted() {
+        Map<String, Set<String>> deps = new HashMap<>();
+        deps.put("A", asSet("B"));
+        deps.put("B", asSet("A"));
+        deps.put("C", asSet("A"));
+        deps.put("D", asSet());
+
+        List<String> ordered = DerivedColumnEvaluationPlan.topologicalSort(deps, asList("A", "B", "C", "D"));
+
+        assertEquals(asList("D"), ordered);
+    }
+
+
+    // -- HELPERS ---
+
+    private static Optional<Set<String>> findReferences(String script, String ownExtId) {
+        return DerivedColumnEvaluationPlan.findDerivedColumnReferences(
+                Either.right(JEXL.createScript(script)),
+                script,
+                ownExtId,
+                DERIVED_EXT_IDS);
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.report_grid;
+
+import org.finos.waltz.data.changelog.ChangeLogDao;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.IdSelectionOptions;
+import org.finos.waltz.model.Operation;
+import org.finos.waltz.model.changelog.ChangeLog;
+import org.finos.waltz.model.changelog.ImmutableChangeLog;
+import org.finos.waltz.model.report_grid.ImmutableReportGridDefinition;
+import org.finos.waltz.model.report_grid.ImmutableReportGridInstance;
+import org.finos.waltz.model.report_grid.ReportGridDefinition;
+import org.finos.waltz.model.report_grid.ReportGridInstance;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static java.util.Collections.singletonList;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.finos.waltz.model.IdSelectionOptions.mkOpts;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReportGridInstanceCacheTest {
+
+    private static final ReportGridDefinition GRID = ImmutableReportGridDefinition.builder()
+            .id(1L)
+            .name("grid")
+            .lastUpdatedBy("test")
+            .subjectKind(EntityKind.APPLICATION)
+            .build();
+
+    private static final IdSelectionOptions OPTS = mkOpts(mkRef(EntityKind.ORG_UNIT, 10L));
+
+
+    @Test
+    public void relevantChangesWhilstComputingAreNotLost() {
+        CapturingChangeLogDao changeLogDao = new CapturingChangeLogDao();
+        ReportGridInstanceCache cache = new ReportGridInstanceCache(changeLogDao, 1000, 0);
+        AtomicInteger computeCount = new AtomicInteger();
+
+        cache.getOrCompute(GRID, OPTS, () -> {
+            computeCount.incrementAndGet();
+            // simulate an app being changed whilst the grid is being computed
+            changeLogDao.fire(mkChange(EntityKind.APPLICATION));
+            return mkInstance();
+        });
+
+        assertFalse(cache.find(GRID, OPTS).isPresent(), "instance computed before the change should not be cached");
+
+        cache.getOrCompute(GRID, OPTS, () -> { computeCount.incrementAndGet(); return mkInstance(); });
+        cache.getOrCompute(GRID, OPTS, () -> { computeCount.incrementAndGet(); return mkInstance(); });
+
+        assertEquals(2, computeCount.get());
+    }
+
+
+    @Test
+    public void irrelevantChangesWhilstComputingDoNotPreventCaching() {
+        CapturingChangeLogDao changeLogDao = new CapturingChangeLogDao();
+        ReportGridInstanceCache cache = new ReportGridInstanceCache(changeLogDao, 1000, 0);
+
+        cache.getOrCompute(GRID, OPTS, () -> {
+            changeLogDao.fire(mkChange(EntityKind.FLOW_DIAGRAM));
+            return mkInstance();
+        });
+
+        assertTrue(cache.find(GRID, OPTS).isPresent());
+    }
+
+
+    @Test
+    public void invalidatingTheGridWhilstComputingIsNotLost() {
+        CapturingChangeLogDao changeLogDao = new CapturingChangeLogDao();
+        ReportGridInstanceCache cache = new ReportGridInstanceCache(changeLogDao, 1000, 0);
+
+        cache.getOrCompute(GRID, OPTS, () -> {
+            cache.invalidateGrid(GRID.id().get());
+            return mkInstance();
+        });
+
+        assertFalse(cache.find(GRID, OPTS).isPresent());
+    }
+
+
+    // -- HELPERS ---
+
+    private static ReportGridInstance mkInstance() {
+        return ImmutableReportGridInstance.builder().build();
+    }
+
+
+    private static ChangeLog mkChange(EntityKind kind) {
+        return ImmutableChangeLog.builder()
+                .parentReference(mkRef(kind, 99L))
+                .message("changed")
+                .userId("test")
+                .operation(Operation.UPDATE)
+                .build();
+    }
+
+
+    private static class CapturingChangeLogDao extends ChangeLogDao {
+
+        private Consumer<Collection<ChangeLog>> listener;
+
+
+        private CapturingChangeLogDao() {
+            super(DSL.using(SQLDialect.H2));
+        }
+
+
+        @Override
+        public void addWriteListener(Consumer<Collection<ChangeLog>> listener) {
+            this.listener = listener;
+        }
+
+
+        private void fire(ChangeLog changeLog) {
+            listener.accept(singletonList(changeLog));
+        }
+    }
+
+}
@@ -0,0 +1,112 @@
+package org.finos.waltz.service.scheduled_job;
+
+import org.finos.waltz.model.scheduled_job.JobKey;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.model.scheduled_job.JobKey.*;
+import static org.finos.waltz.service.scheduled_job.ScheduledJobDefinition.mkJob;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ScheduledJobServiceTest {
+
+    private static final Runnable NOOP = () -> {};
+
+    private static final Map<JobKey, ScheduledJobDefinition> DEFINITIONS = mkDefinitions(
+            mkJob(HIERARCHY_REBUILD_DATA_TYPE, NOOP),
+            mkJob(HIERARCHY_REBUILD_PERSON, NOOP),
+            mkJob(DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL, NOOP)
+                    .dependsOn(HIERARCHY_REBUILD_DATA_TYPE)
+                    .conflictsWith(DATA_TYPE_USAGE_RECALC_APPLICATION),
+            mkJob(DATA_TYPE_USAGE_RECALC_APPLICATION, NOOP),
+            mkJob(LOGICAL_FLOW_CLEANUP_ORPHANS, NOOP));
+
+
+    @Test
+    public void independentJobsCanAllStartTogether() {
+        Set<JobKey> started = findStartable(
+                asSet(HIERARCHY_REBUILD_DATA_TYPE, HIERARCHY_REBUILD_PERSON, LOGICAL_FLOW_CLEANUP_ORPHANS),
+                none(),
+                none());
+
+        assertEquals(asSet(HIERARCHY_REBUILD_DATA_TYPE, HIERARCHY_REBUILD_PERSON, LOGICAL_FLOW_CLEANUP_ORPHANS), started);
+    }
+
+
+    @Test
+    public void jobsWaitForDependenciesWhichAreDueOrRunning() {
+        assertEquals(
+                asSet(HIERARCHY_REBUILD_DATA_TYPE),
+                findStartable(asSet(HIERARCHY_REBUILD_DATA_TYPE, DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL), none(), none()));
+
+        assertEquals(
+                none(),
+                findStartable(asSet(DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL), none(), asSet(HIERARCHY_REBUILD_DATA_TYPE)));
+
+        assertEquals(
+                none(),
+                findStartable(asSet(DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL), asSet(HIERARCHY_REBUILD_DATA_TYPE), none()));
+    }
+
+
+    @Test
+    public void dependenciesWhichAreNotDueDoNotBlock() {
+        assertEquals(
+                asSet(DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL),
+                findStartable(asSet(DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL), none(), none()));
+    }
+
+
+    @Test
+    public void conflictingJobsNeverRunTogether() {
+        assertEquals(
+                none(),
+                findStartable(asSet(DATA_TYPE_USAGE_RECALC_APPLICATION), none(), asSet(DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL)),
+                "conflicts should apply in both directions");
+
+        assertEquals(
+                asSet(DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL),
+                findStartable(asSet(DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL, DATA_TYPE_USAGE_RECALC_APPLICATION), none(), none()),
+                "only one of a conflicting pair should be started in a batch");
+    }
+
+
+    // -- HELPERS ---
+
+    private static Set<JobKey> findStartable(Set<JobKey> waiting,
+                                             Set<JobKey> deferred,
+                                             Set<JobKey> running) {
+        List<ScheduledJobDefinition> startable = ScheduledJobService.findStartableJobs(
+                DEFINITIONS,
+                waiting,
+                deferred,
+                running);
+
+        return startable
+                .stream()
+                .map(ScheduledJobDefinition::key)
+                .collect(Collectors.toSet());
+    }
+
+
+    private static Set<JobKey> none() {
+        return EnumSet.noneOf(JobKey.class);
+    }
+
+
+    private static Map<JobKey, ScheduledJobDefinition> mkDefinitions(ScheduledJobDefinition... definitions) {
+        Map<JobKey, ScheduledJobDefinition> byKey = new LinkedHashMap<>();
+        for (ScheduledJobDefinition d : definitions) {
+            byKey.put(d.key(), d);
+        }
+        return byKey;
+    }
+
+}
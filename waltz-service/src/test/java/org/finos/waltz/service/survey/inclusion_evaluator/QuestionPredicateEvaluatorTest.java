@@ -0,0 +1,165 @@
+package org.finos.waltz.service.survey.inclusion_evaluator;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.survey.ImmutableSurveyQuestion;
+import org.finos.waltz.model.survey.ImmutableSurveyQuestionResponse;
+import org.finos.waltz.model.survey.SurveyQuestion;
+import org.finos.waltz.model.survey.SurveyQuestionFieldType;
+import org.finos.waltz.model.survey.SurveyQuestionResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static java.util.Arrays.asList;
+import static org.finos.waltz.common.ListUtilities.newArrayList;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QuestionPredicateEvaluatorTest {
+
+    @Test
+    public void onlyFactsReferredToByPredicatesAreRequired() {
+        List<SurveyQuestion> qs = newArrayList(
+                mkQuestion(1L, "Q1", null),
+                mkQuestion(2L, "Q2", "isChecked('Q1')"),
+                mkQuestion(3L, "Q3", "belongsToOrgUnit('CIB') && hasDataType('Trade')"));
+
+        assertEquals(
+                EnumSet.of(SubjectFact.ORG_UNITS, SubjectFact.DATA_TYPES),
+                SubjectFact.findRequiredFacts(qs));
+
+        assertTrue(SubjectFact.findRequiredFacts(qs.subList(0, 2)).isEmpty());
+    }
+
+
+    @Test
+    public void questionsAreFilteredUsingSubjectFacts() {
+        SubjectFacts facts = new SubjectFacts();
+        facts.setAttributes("IN_HOUSE", "PRODUCTION", false);
+        facts.addOrgUnit("Corporate Banking", "CIB");
+        facts.addDataTypeUsage("Trade", "TRD", "ORIGINATOR");
+        facts.addInvolvementKind("IT Owner");
+        facts.addAssessmentRating("Criticality", "CRIT", "H");
+
+        List<SurveyQuestion> qs = newArrayList(
+                mkQuestion(1L, "Q1", null),
+                mkQuestion(2L, "Q2", "isAppKind('IN_HOUSE') && hasLifecyclePhase('PRODUCTION')"),
+                mkQuestion(3L, "Q3", "isRetiring()"),
+                mkQuestion(4L, "Q4", "belongsToOrgUnit('CIB') && hasDataType('TRD')"),
+                mkQuestion(5L, "Q5", "hasDataType('Settlement')"),
+                mkQuestion(6L, "Q6", "hasInvolvement('it owner') && assessmentRating('CRIT') == 'H'"),
+                mkQuestion(7L, "Q7", "assessmentRating('Missing', 'none') == 'none'"));
+
+        QuestionAppPredicateNamespace namespace = new QuestionAppPredicateNamespace(
+                mkRef(EntityKind.APPLICATION, 1L),
+                facts,
+                qs,
+                Collections.emptyMap());
+
+        assertEquals(
+                asList("Q1", "Q2", "Q4", "Q6", "Q7"),
+                toExternalIds(QuestionPredicateEvaluator.determineActiveQs(qs, namespace)));
+    }
+
+
+    @Test
+    public void subjectFactsAreMatchedExactly() {
+        SubjectFacts facts = mkFacts();
+
+        assertTrue(facts.isKind("IN_HOUSE"));
+        assertTrue(facts.hasLifecyclePhase("PRODUCTION"));
+        assertTrue(facts.belongsToOrgUnit("Corporate Banking"));
+        assertTrue(facts.belongsToOrgUnit("CIB"));
+        assertEquals(Collections.singleton("ORIGINATOR"), facts.dataTypeUsages("Trade"));
+        assertEquals(Collections.singleton("ORIGINATOR"), facts.dataTypeUsages("TRD"));
+        assertEquals(Optional.of("H"), facts.assessmentRating("Criticality"));
+        assertEquals(Optional.of("H"), facts.assessmentRating("CRIT"));
+
+        assertFalse(facts.isKind("in_house"));
+        assertFalse(facts.hasLifecyclePhase("Production"));
+        assertFalse(facts.belongsToOrgUnit("corporate banking"));
+        assertFalse(facts.belongsToOrgUnit("cib"));
+        assertTrue(facts.dataTypeUsages("trade").isEmpty());
+        assertTrue(facts.dataTypeUsages("Trd").isEmpty());
+        assertEquals(Optional.empty(), facts.assessmentRating("criticality"));
+        assertEquals(Optional.empty(), facts.assessmentRating("crit"));
+
+        assertFalse(facts.isKind(null));
+        assertFalse(facts.belongsToOrgUnit("Markets"));
+    }
+
+
+    @Test
+    public void involvementKindsAreMatchedCaseInsensitively() {
+        SubjectFacts facts = mkFacts();
+
+        assertTrue(facts.hasInvolvement("IT Owner"));
+        assertTrue(facts.hasInvolvement("IT OWNER"));
+        assertTrue(facts.hasInvolvement("it owner"));
+        assertFalse(facts.hasInvolvement("Business Owner"));
+    }
+
+
+    @Test
+    public void predicatesCanReferToResponsesAndOtherPredicates() {
+        List<SurveyQuestion> qs = newArrayList(
+                mkQuestion(1L, "Q1", null),
+                mkQuestion(2L, "Q2", "isChecked('Q1')"),
+                mkQuestion(3L, "Q3", "ditto('Q2')"),
+                mkQuestion(4L, "Q4", "! isChecked('Q1')"));
+
+        Map<Long, SurveyQuestionResponse> responsesByQuestionId = new HashMap<>();
+        responsesByQuestionId.put(1L, ImmutableSurveyQuestionResponse.builder()
+                .questionId(1L)
+                .booleanResponse(true)
+                .build());
+
+        QuestionBasePredicateNamespace namespace = new QuestionBasePredicateNamespace(qs, responsesByQuestionId);
+
+        assertEquals(
+                asList("Q1", "Q2", "Q3"),
+                toExternalIds(QuestionPredicateEvaluator.determineActiveQs(qs, namespace)));
+    }
+
+
+    // -- HELPERS ---
+
+    private static SurveyQuestion mkQuestion(long id, String externalId, String predicate) {
+        return ImmutableSurveyQuestion.builder()
+                .id(id)
+                .externalId(externalId)
+                .surveyTemplateId(1L)
+                .questionText(externalId)
+                .fieldType(SurveyQuestionFieldType.BOOLEAN)
+                .inclusionPredicate(Optional.ofNullable(predicate))
+                .build();
+    }
+
+
+    private static List<String> toExternalIds(List<SurveyQuestion> qs) {
+        return qs
+                .stream()
+                .map(q -> q.externalId().get())
+                .collect(Collectors.toList());
+    }
+
+
+    private static SubjectFacts mkFacts() {
+        SubjectFacts facts = new SubjectFacts();
+        facts.setAttributes("IN_HOUSE", "PRODUCTION", false);
+        facts.addOrgUnit("Corporate Banking", "CIB");
+        facts.addDataTypeUsage("Trade", "TRD", "ORIGINATOR");
+        facts.addInvolvementKind("IT Owner");
+        facts.addAssessmentRating("Criticality", "CRIT", "H");
+        return facts;
+    }
+
+}
@@ -25,13 +25,16 @@ import org.finos.waltz.model.*;
 import org.finos.waltz.model.user.SystemRole;
 import org.finos.waltz.service.user.UserRoleService;
 import org.finos.waltz.web.endpoints.auth.AuthenticationUtilities;
+import org.finos.waltz.web.endpoints.metrics.EndpointMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import spark.Request;
 import spark.Response;
 import spark.ResponseTransformer;
 
+import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URLConnection;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -41,6 +44,7 @@ import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 import static java.util.stream.Collectors.toList;
 import static org.finos.waltz.common.Checks.checkNotNull;
@@ -57,6 +61,8 @@ public class WebUtilities {
     public static final String TYPE_JSON = "application/json";
     public static final ResponseTransformer transformer = getJsonMapper()::writeValueAsString;
 
+    private static final int STREAMING_BUFFER_SIZE = 64 * 1024;
+
 
     /**
      * @see StringUtilities
@@ -89,6 +95,47 @@ public class WebUtilities {
     }
 
 
+    /**
+     * Serialises the given object as json directly to the servlet output stream,
+     * avoiding the intermediate (potentially multi-megabyte) string produced
+     * by the standard `transformer`.  If the client accepts gzip encoding
+     * the output is compressed on the fly.
+     * <p>
+     * The response is committed once this method returns, therefore callers
+     * must not attempt to write a further body.
+     *
+     * @param request  spark request, used to check the accepted encodings
+     * @param response  spark response to write to
+     * @param obj  object to serialise
+     * @throws IOException  if the object could not be written to the response
+     */
+    public static void streamJson(Request request,
+                                  Response response,
+                                  Object obj) throws IOException {
+        HttpServletResponse rawResponse = response.raw();
+        rawResponse.setContentType(TYPE_JSON);
+        rawResponse.addHeader("Vary", "Accept-Encoding");
+
+        boolean useGzip = acceptsGzip(request);
+        if (useGzip) {
+            rawResponse.setHeader("Content-Encoding", "gzip");
+        }
+
+        OutputStream rawStream = EndpointMetrics.countBytes(rawResponse.getOutputStream());
+        try (OutputStream out = useGzip
+                ? new GZIPOutputStream(rawStream, STREAMING_BUFFER_SIZE)
+                : rawStream) {
+            getJsonMapper().writeValue(out, obj);
+        }
+    }
+
+
+    public static boolean acceptsGzip(Request request) {
+        String acceptEncoding = request.headers("Accept-Encoding");
+        return acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+    }
+
+
     public static long getLong(Request request,
                                String paramName) {
         checkNotNull(request, "request must not be null");
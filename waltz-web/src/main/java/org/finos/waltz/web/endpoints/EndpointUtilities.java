@@ -24,6 +24,7 @@ import org.finos.waltz.web.WebUtilities;
 import spark.*;
 
 import static org.finos.waltz.web.WebUtilities.TYPE_JSON;
+import static org.finos.waltz.web.endpoints.metrics.EndpointMetrics.instrument;
 
 
 public class EndpointUtilities {
@@ -39,7 +40,7 @@ public class EndpointUtilities {
      * @param <T>
      */
     public static <T> void getForList(String path, ListRoute<T> handler) {
-        Spark.get(path, wrapListHandler(handler), transformer);
+        Spark.get(path, instrument("GET", path, wrapListHandler(handler)));
     }
 
 
@@ -52,31 +53,84 @@ public class EndpointUtilities {
      * @param <T>
      */
     public static <T> void getForDatum(String path, DatumRoute<T> handler) {
-        Spark.get(path, wrapDatumHandler(handler), transformer);
+        Spark.get(path, instrument("GET", path, wrapDatumHandler(handler)));
     }
 
     public static <T> void postForDatum(String path, DatumRoute<T> handler) {
-        Spark.post(path, wrapDatumHandler(handler), transformer);
+        Spark.post(path, instrument("POST", path, wrapDatumHandler(handler)));
     }
 
     public static <T> void postForList(String path, ListRoute<T> handler) {
-        Spark.post(path, wrapListHandler(handler), transformer);
+        Spark.post(path, instrument("POST", path, wrapListHandler(handler)));
     }
 
     public static <T> void deleteForList(String path, ListRoute<T> handler) {
-        Spark.delete(path, wrapListHandler(handler), transformer);
+        Spark.delete(path, instrument("DELETE", path, wrapListHandler(handler)));
     }
 
     public static <T> void deleteForDatum(String path, DatumRoute<T> handler) {
-        Spark.delete(path, wrapDatumHandler(handler), transformer);
+        Spark.delete(path, instrument("DELETE", path, wrapDatumHandler(handler)));
     }
 
     public static <T> void putForDatum(String path, DatumRoute<T> handler) {
-        Spark.put(path, wrapDatumHandler(handler), transformer);
+        Spark.put(path, instrument("PUT", path, wrapDatumHandler(handler)));
     }
 
     public static <T> void putForList(String path, ListRoute<T> handler) {
-        Spark.put(path, wrapListHandler(handler), transformer);
+        Spark.put(path, instrument("PUT", path, wrapListHandler(handler)));
+    }
+
+    /**
+     * Registers a route whose (potentially large) list result is streamed
+     * directly to the response rather than being rendered to a string first.
+     * @see WebUtilities#streamJson(Request, Response, Object)
+     */
+    public static <T> void getForStreamedList(String path, ListRoute<T> handler) {
+        Spark.get(path, instrument("GET", path, wrapStreamingHandler(handler::apply)));
+    }
+
+    public static <T> void postForStreamedList(String path, ListRoute<T> handler) {
+        Spark.post(path, instrument("POST", path, wrapStreamingHandler(handler::apply)));
+    }
+
+    public static <T> void getForStreamedDatum(String path, DatumRoute<T> handler) {
+        Spark.get(path, instrument("GET", path, wrapStreamingHandler(handler)));
+    }
+
+    public static <T> void postForStreamedDatum(String path, DatumRoute<T> handler) {
+        Spark.post(path, instrument("POST", path, wrapStreamingHandler(handler)));
+    }
+
+    /**
+     * Registers a route which writes its own response (e.g. extracts and static resources).
+     * As with the other helpers the route is instrumented, see {@link org.finos.waltz.web.endpoints.metrics.EndpointMetrics}.
+     */
+    public static void get(String path, Route route) {
+        Spark.get(path, instrument("GET", path, route));
+    }
+
+    public static void post(String path, Route route) {
+        Spark.post(path, instrument("POST", path, route));
+    }
+
+    public static void delete(String path, Route route) {
+        Spark.delete(path, instrument("DELETE", path, route));
+    }
+
+    public static void get(String path, Route route, ResponseTransformer responseTransformer) {
+        get(path, render(route, responseTransformer));
+    }
+
+    public static void post(String path, Route route, ResponseTransformer responseTransformer) {
+        post(path, render(route, responseTransformer));
+    }
+
+    public static void delete(String path, Route route, ResponseTransformer responseTransformer) {
+        delete(path, render(route, responseTransformer));
+    }
+
+    public static void get(String path, TemplateViewRoute route, TemplateEngine engine) {
+        get(path, (request, response) -> engine.render(route.handle(request, response)));
     }
 
     public static <T extends Exception> void addExceptionHandler(Class<T> exceptionClass, ExceptionHandler<T> handler) {
@@ -94,17 +148,33 @@ public class EndpointUtilities {
 
     // -- helpers ---
 
+    // results are rendered here (rather than by spark) so the response size can be recorded
+
     private static <T> Route wrapListHandler(ListRoute<T> handler) {
         return (request, response) -> {
             response.type(TYPE_JSON);
-            return handler.apply(request, response);
+            return transformer.render(handler.apply(request, response));
         };
     }
 
     private static <T> Route wrapDatumHandler(DatumRoute<T> handler) {
         return (request, response) -> {
             response.type(TYPE_JSON);
-            return handler.apply(request, response);
+            return transformer.render(handler.apply(request, response));
+        };
+    }
+
+    private static Route render(Route route, ResponseTransformer responseTransformer) {
+        return (request, response) -> responseTransformer.render(route.handle(request, response));
+    }
+
+    private static <T> Route wrapStreamingHandler(DatumRoute<T> handler) {
+        return (request, response) -> {
+            // evaluate fully before writing so any exceptions are reported via the usual handlers
+            T result = handler.apply(request, response);
+            WebUtilities.streamJson(request, response, result);
+            // response has already been committed, an empty body prevents spark writing anything further
+            return "";
         };
     }
 
@@ -97,6 +97,9 @@ public class ApplicationEndpoint implements Endpoint {
                     .id(appId)
                     .build();
 
+            // update first so change log listeners (e.g. server side caches) see the new values
+            appService.update(appChange.app());
+
             appChange.changes()
                     .forEach(c -> {
                         changeLogService.write(
@@ -109,7 +112,6 @@ public class ApplicationEndpoint implements Endpoint {
                                         .build());
                     });
 
-            appService.update(appChange.app());
             return true;
         };
 
@@ -32,7 +32,9 @@ package org.finos.waltz.web.endpoints.api;
 
     import static org.finos.waltz.web.WebUtilities.*;
     import static org.finos.waltz.common.Checks.checkNotNull;
-    import static spark.Spark.*;
+    import static org.finos.waltz.web.endpoints.EndpointUtilities.delete;
+    import static org.finos.waltz.web.endpoints.EndpointUtilities.get;
+    import static org.finos.waltz.web.endpoints.EndpointUtilities.post;
 
 @Service
 public class BookmarksEndpoint implements Endpoint {
@@ -95,6 +95,7 @@ public class LogicalFlowEndpoint implements Endpoint {
         String findFlowPermissionsForParentEntityPath = mkPath(BASE_URL, "entity", ":kind", ":id", "permissions");
         String findEditableFlowIdsForParentReferencePath = mkPath(BASE_URL, "entity", ":kind", ":id", "editable-flows");
         String findPermissionsForFlowPath = mkPath(BASE_URL, "id", ":id", "permissions");
+        String findPermissionsForFlowsPath = mkPath(BASE_URL, "ids", "permissions");
         String findUpstreamFlowsForEntityReferencesPath = mkPath(BASE_URL, "find-upstream-flows");
         String getByIdPath = mkPath(BASE_URL, ":id");
         String removeFlowPath = mkPath(BASE_URL, ":id");
@@ -133,6 +134,10 @@ public class LogicalFlowEndpoint implements Endpoint {
                 getId(request),
                 getUsername(request));
 
+        DatumRoute<Map<Long, Set<Operation>>> findPermissionsForFlowsRoute = (request, response) -> flowPermissionChecker.findPermissionsForFlows(
+                readIdsFromBody(request),
+                getUsername(request));
+
         DatumRoute<LogicalFlowStatistics> findStatsRoute = (request, response)
                 -> logicalFlowService.calculateStats(readIdSelectionOptionsFromBody(request));
 
@@ -153,11 +158,12 @@ public class LogicalFlowEndpoint implements Endpoint {
         getForList(findEditableFlowIdsForParentReferencePath, findEditableFlowIdsForParentReferenceRoute);
         getForDatum(getByIdPath, getByIdRoute);
         getForDatum(getFlowGraphSummaryPath, getGraphSummaryRoute);
-        postForList(findByIdsPath, findByIdsRoute);
+        postForStreamedList(findByIdsPath, findByIdsRoute);
         postForList(findUpstreamFlowsForEntityReferencesPath, findUpstreamFlowsForEntityReferencesRoute);
-        postForList(findBySelectorPath, findBySelectorRoute);
+        postForStreamedList(findBySelectorPath, findBySelectorRoute);
         postForDatum(findBySourceAndTargetsPath, this::findBySourceAndTargetsRoute);
         postForDatum(findStatsPath, findStatsRoute);
+        postForDatum(findPermissionsForFlowsPath, findPermissionsForFlowsRoute);
         deleteForDatum(removeFlowPath, this::removeFlowRoute);
         postForDatum(addFlowPath, this::addFlowRoute);
         postForList(addFlowsPath, this::addFlowsRoute);
@@ -117,8 +117,8 @@ public class MeasurableRatingEndpoint implements Endpoint {
                 readIdSelectionOptionsFromBody(request));
 
         getForList(findForEntityPath, findForEntityRoute);
-        postForList(findByMeasurableSelectorPath, findByMeasurableSelectorRoute);
-        postForList(findByAppSelectorPath, findByAppSelectorRoute);
+        postForStreamedList(findByMeasurableSelectorPath, findByMeasurableSelectorRoute);
+        postForStreamedList(findByAppSelectorPath, findByAppSelectorRoute);
         getForList(findByCategoryPath, findByCategoryRoute);
         deleteForList(modifyMeasurableForEntityPath, this::removeRoute);
         deleteForList(modifyCategoryForEntityPath, this::removeCategoryRoute);
@@ -0,0 +1,86 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.web.endpoints.api;
+
+import org.finos.waltz.model.endpoint_metrics.EndpointStatistics;
+import org.finos.waltz.model.endpoint_metrics.QueryBudgetBreach;
+import org.finos.waltz.model.user.SystemRole;
+import org.finos.waltz.service.QueryStatsListener;
+import org.finos.waltz.service.user.UserRoleService;
+import org.finos.waltz.web.DatumRoute;
+import org.finos.waltz.web.ListRoute;
+import org.finos.waltz.web.endpoints.Endpoint;
+import org.finos.waltz.web.endpoints.metrics.EndpointMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.web.WebUtilities.mkPath;
+import static org.finos.waltz.web.WebUtilities.requireRole;
+import static org.finos.waltz.web.endpoints.EndpointUtilities.getForList;
+import static org.finos.waltz.web.endpoints.EndpointUtilities.postForDatum;
+
+@Service
+public class MetricsEndpoint implements Endpoint {
+
+    private static final String BASE_URL = mkPath("api", "metrics");
+
+    private final UserRoleService userRoleService;
+    private final QueryStatsListener queryStatsListener;
+
+
+    @Autowired
+    public MetricsEndpoint(UserRoleService userRoleService,
+                           QueryStatsListener queryStatsListener) {
+        checkNotNull(userRoleService, "userRoleService cannot be null");
+        checkNotNull(queryStatsListener, "queryStatsListener cannot be null");
+
+        this.userRoleService = userRoleService;
+        this.queryStatsListener = queryStatsListener;
+    }
+
+
+    @Override
+    public void register() {
+        String resetPath = mkPath(BASE_URL, "reset");
+        String findQueryBudgetBreachesPath = mkPath(BASE_URL, "query-budget-breaches");
+
+        ListRoute<EndpointStatistics> findAllRoute = (request, response) -> {
+            requireRole(userRoleService, request, SystemRole.ADMIN);
+            return EndpointMetrics.findAll();
+        };
+
+        ListRoute<QueryBudgetBreach> findQueryBudgetBreachesRoute = (request, response) -> {
+            requireRole(userRoleService, request, SystemRole.ADMIN);
+            return queryStatsListener.findWorstOffenders();
+        };
+
+        DatumRoute<Boolean> resetRoute = (request, response) -> {
+            requireRole(userRoleService, request, SystemRole.ADMIN);
+            EndpointMetrics.reset();
+            queryStatsListener.reset();
+            return true;
+        };
+
+        getForList(BASE_URL, findAllRoute);
+        getForList(findQueryBudgetBreachesPath, findQueryBudgetBreachesRoute);
+        postForDatum(resetPath, resetRoute);
+    }
+
+}
@@ -68,7 +68,7 @@ public class ReportGridEndpoint implements Endpoint {
         getForList(findGridInfoForUserPath, (req, resp) -> reportGridService.findGridInfoForUser(getUsername(req)));
         getForList(findForOwnerPath, this::findDefinitionsForOwnerRoute);
         getForList(findAdditionalColumnOptionsForKindPath, this::findAdditionalColumnOptionsForKindRoute);
-        postForDatum(getViewByIdPath, this::getViewByIdRoute);
+        postForStreamedDatum(getViewByIdPath, this::getViewByIdRoute);
         getForDatum(getDefinitionByIdPath, this::getDefinitionByIdRoute);
         postForDatum(updateColumnDefsPath, this::updateColumnDefsRoute);
         postForDatum(createPath, this::createRoute);
@@ -31,7 +31,7 @@ import java.util.Map;
 
 import static org.finos.waltz.web.WebUtilities.getId;
 import static org.finos.waltz.web.WebUtilities.mkPath;
-import static spark.Spark.get;
+import static org.finos.waltz.web.endpoints.EndpointUtilities.get;
 
 @Service
 public class ReportGridPageEndpoint implements Endpoint {
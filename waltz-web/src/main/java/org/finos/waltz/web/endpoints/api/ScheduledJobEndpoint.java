@@ -0,0 +1,69 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.web.endpoints.api;
+
+import org.finos.waltz.model.scheduled_job.JobKey;
+import org.finos.waltz.model.user.SystemRole;
+import org.finos.waltz.service.scheduled_job.ScheduledJobService;
+import org.finos.waltz.service.user.UserRoleService;
+import org.finos.waltz.web.DatumRoute;
+import org.finos.waltz.web.endpoints.Endpoint;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.web.WebUtilities.*;
+import static org.finos.waltz.web.endpoints.EndpointUtilities.postForDatum;
+
+@Service
+public class ScheduledJobEndpoint implements Endpoint {
+
+    private static final String BASE_URL = mkPath("api", "scheduled-job");
+
+    private final ScheduledJobService scheduledJobService;
+    private final UserRoleService userRoleService;
+
+
+    @Autowired
+    public ScheduledJobEndpoint(ScheduledJobService scheduledJobService,
+                                UserRoleService userRoleService) {
+        checkNotNull(scheduledJobService, "scheduledJobService cannot be null");
+        checkNotNull(userRoleService, "userRoleService cannot be null");
+
+        this.scheduledJobService = scheduledJobService;
+        this.userRoleService = userRoleService;
+    }
+
+
+    @Override
+    public void register() {
+        String triggerPath = mkPath(BASE_URL, "trigger", ":jobKey");
+
+        DatumRoute<Boolean> triggerRoute = (request, response) -> {
+            requireRole(userRoleService, request, SystemRole.ADMIN);
+            JobKey jobKey = readEnum(request, "jobKey", JobKey.class, s -> {
+                throw new IllegalArgumentException("Unknown job: " + s);
+            });
+            return scheduledJobService.triggerJob(jobKey);
+        };
+
+        postForDatum(triggerPath, triggerRoute);
+    }
+
+}
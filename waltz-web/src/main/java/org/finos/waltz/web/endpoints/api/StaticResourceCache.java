@@ -0,0 +1,302 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.web.endpoints.api;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.IOUtilities.copyStream;
+import static org.finos.waltz.web.WebUtilities.getMimeType;
+
+/**
+ * Holds the static (UI bundle) resources served by the {@link StaticResourcesEndpoint}.
+ * <p>
+ * Each resource is read from the classpath the first time it is requested and kept in
+ * (read only, direct) buffers along with a strong ETag.  Compressible resources also
+ * have a gzipped variant, compressed once at load time, with its own ETag.  The
+ * <code>index.html</code> page is rewritten once for each context path it is served under.
+ * <p>
+ * Only resources which exist are cached, so the cache is bounded by the size of the bundle.
+ */
+class StaticResourceCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StaticResourceCache.class);
+
+    private static final int MIN_COMPRESSIBLE_SIZE = 1024;
+
+    private static final List<String> COMPRESSIBLE_EXTENSIONS = Arrays.asList(
+            ".js", ".css", ".html", ".json", ".map", ".svg", ".txt", ".xml", ".ttf");
+
+    private static final Pattern BASE_TAG_PATTERN = Pattern.compile(
+            "<base href=(['\"])/(['\"])\\s*/>",
+            Pattern.CASE_INSENSITIVE);
+
+    private final ClassLoader classLoader;
+    private final Map<String, StaticAsset> assetsByPath = new ConcurrentHashMap<>();
+    private final Map<String, StaticAsset> indexPagesByContextPath = new ConcurrentHashMap<>();
+
+
+    StaticResourceCache(ClassLoader classLoader) {
+        checkNotNull(classLoader, "classLoader cannot be null");
+        this.classLoader = classLoader;
+    }
+
+
+    boolean contains(String resourcePath) {
+        return assetsByPath.containsKey(resourcePath);
+    }
+
+
+    /**
+     * @param resourcePath  classpath location of the resource
+     * @return  the cached resource, or empty if there is no such resource
+     * @throws IOException  if the resource exists but cannot be read
+     */
+    Optional<StaticAsset> find(String resourcePath) throws IOException {
+        StaticAsset asset = assetsByPath.get(resourcePath);
+        if (asset != null) {
+            return Optional.of(asset);
+        }
+
+        try (InputStream stream = classLoader.getResourceAsStream(resourcePath)) {
+            if (stream == null) {
+                return Optional.empty();
+            }
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            copyStream(stream, bytes);
+
+            StaticAsset loaded = mkAsset(resourcePath, bytes.toByteArray());
+            LOG.debug("Loaded static resource: {} ({} bytes)", resourcePath, loaded.getContentLength(false));
+
+            StaticAsset existing = assetsByPath.putIfAbsent(resourcePath, loaded);
+            return Optional.of(existing == null ? loaded : existing);
+        }
+    }
+
+
+    /**
+     * index.html needs a <code>&lt;base href="/[site_context]/" /&gt;</code> tag so html5 mode works
+     * in AngularJS.  The rewritten page is computed once per context path.
+     *
+     * @param indexAsset  the index page, as found in the bundle
+     * @param contextPath  context path the page is being served under
+     * @return  the index page with the amended <code>&lt;base&gt;</code> tag
+     */
+    StaticAsset findIndexPage(StaticAsset indexAsset, String contextPath) {
+        return indexPagesByContextPath.computeIfAbsent(
+                contextPath,
+                cp -> {
+                    String html = new String(indexAsset.toByteArray(), StandardCharsets.UTF_8);
+                    LOG.info("Adding context path: {} to <base> tag of {}", cp, indexAsset.getPath());
+                    return mkAsset(
+                            indexAsset.getPath(),
+                            rewriteBaseTag(html, cp).getBytes(StandardCharsets.UTF_8));
+                });
+    }
+
+
+    // -- HELPERS ---
+
+    static String rewriteBaseTag(String html, String contextPath) {
+        int headEnd = html.toLowerCase().indexOf("</head>");
+        String head = headEnd == -1 ? html : html.substring(0, headEnd);
+
+        Matcher matcher = BASE_TAG_PATTERN.matcher(head);
+        if (! matcher.find()) {
+            return html;
+        }
+
+        return html.substring(0, matcher.start())
+                + "<base href=\"" + contextPath + "/\" />"
+                + html.substring(matcher.end());
+    }
+
+
+    /**
+     * Checks an <code>If-None-Match</code> header against an ETag.  Weak comparison
+     * is used, as permitted for this header.
+     */
+    static boolean matchesETag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*") || trimmed.equals(etag) || trimmed.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    static StaticAsset mkAsset(String resourcePath, byte[] content) {
+        String contentType = getMimeType(resourcePath);
+        String etag = mkETag(content);
+
+        byte[] gzipped = isCompressible(resourcePath, contentType, content.length)
+                ? gzip(content)
+                : null;
+
+        return gzipped != null && gzipped.length < content.length
+                ? new StaticAsset(resourcePath, contentType, etag, content, gzipped)
+                : new StaticAsset(resourcePath, contentType, etag, content, null);
+    }
+
+
+    private static boolean isCompressible(String resourcePath, String contentType, int length) {
+        // older jdks do not know the mime type of some bundle files (e.g. '.js'), so check the extension too
+        String lowerPath = resourcePath.toLowerCase();
+        return length >= MIN_COMPRESSIBLE_SIZE
+                && (COMPRESSIBLE_EXTENSIONS.stream().anyMatch(lowerPath::endsWith)
+                    || contentType.startsWith("text/")
+                    || contentType.contains("javascript")
+                    || contentType.contains("json")
+                    || contentType.contains("xml")
+                    || contentType.contains("svg")
+                    || contentType.equals("application/x-font-ttf"));
+    }
+
+
+    private static byte[] gzip(byte[] content) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(content.length / 2);
+        // GZIPOutputStream does not expose the compression level, hence the subclass
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes) {{ def.setLevel(Deflater.BEST_COMPRESSION); }}) {
+            out.write(content);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not gzip static resource", e);
+        }
+        return bytes.toByteArray();
+    }
+
+
+    private static String mkETag(byte[] content) {
+        try {
+            byte[] digest = MessageDigest
+                    .getInstance("SHA-256")
+                    .digest(content);
+            return "\""
+                    + Base64.getUrlEncoder().withoutPadding().encodeToString(digest).substring(0, 22)
+                    + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+
+    private static ByteBuffer toDirectBuffer(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes);
+        buffer.flip();
+        return buffer.asReadOnlyBuffer();
+    }
+
+
+    static class StaticAsset {
+
+        private final String path;
+        private final String contentType;
+        private final String etag;
+        private final ByteBuffer content;
+        private final ByteBuffer gzippedContent;
+
+
+        private StaticAsset(String path,
+                            String contentType,
+                            String etag,
+                            byte[] content,
+                            byte[] gzippedContent) {
+            this.path = path;
+            this.contentType = contentType;
+            this.etag = etag;
+            this.content = toDirectBuffer(content);
+            this.gzippedContent = gzippedContent == null
+                    ? null
+                    : toDirectBuffer(gzippedContent);
+        }
+
+
+        String getPath() {
+            return path;
+        }
+
+
+        String getContentType() {
+            return contentType;
+        }
+
+
+        boolean hasGzippedContent() {
+            return gzippedContent != null;
+        }
+
+
+        /**
+         * The gzipped variant is a different representation so has a different (strong) ETag
+         */
+        String getETag(boolean gzipped) {
+            return gzipped
+                    ? etag.substring(0, etag.length() - 1) + "-gz\""
+                    : etag;
+        }
+
+
+        int getContentLength(boolean gzipped) {
+            return (gzipped ? gzippedContent : content).remaining();
+        }
+
+
+        /**
+         * @return  a new view of the content, safe to be consumed by a single response
+         */
+        ByteBuffer getContent(boolean gzipped) {
+            return (gzipped ? gzippedContent : content).duplicate();
+        }
+
+
+        byte[] toByteArray() {
+            ByteBuffer buffer = content.duplicate();
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            return bytes;
+        }
+    }
+
+}
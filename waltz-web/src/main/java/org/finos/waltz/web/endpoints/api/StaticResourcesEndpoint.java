@@ -19,24 +19,27 @@
 package org.finos.waltz.web.endpoints.api;
 
 import org.finos.waltz.web.endpoints.Endpoint;
+import org.finos.waltz.web.endpoints.EndpointUtilities;
+import org.finos.waltz.web.endpoints.api.StaticResourceCache.StaticAsset;
 import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.server.HttpOutput;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import spark.Request;
 import spark.Response;
-import spark.Spark;
 
-import java.io.*;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.net.URL;
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
-import static org.finos.waltz.web.WebUtilities.getMimeType;
-import static java.lang.String.format;
-import static org.finos.waltz.common.IOUtilities.copyStream;
-import static org.finos.waltz.common.IOUtilities.readLines;
-import static org.finos.waltz.common.StringUtilities.lower;
 import static org.finos.waltz.common.StringUtilities.notEmpty;
+import static org.finos.waltz.web.WebUtilities.acceptsGzip;
 
 public class StaticResourcesEndpoint implements Endpoint {
 
@@ -47,12 +50,14 @@ public class StaticResourcesEndpoint implements Endpoint {
     private final ClassLoader classLoader = StaticResourcesEndpoint.class
             .getClassLoader();
 
+    private final StaticResourceCache cache = new StaticResourceCache(classLoader);
+
 
     @Override
     public void register() {
         LOG.debug("Registering static resources");
 
-        Spark.get("/*", (request, response) -> {
+        EndpointUtilities.get("/*", (request, response) -> {
 
             String resolvedPath = resolvePath(request);
 
@@ -60,28 +65,15 @@ public class StaticResourcesEndpoint implements Endpoint {
                 return null;
             }
 
-            try (
-                InputStream resourceAsStream = classLoader.getResourceAsStream(resolvedPath)
-            ) {
-                if (resourceAsStream == null) {
+            try {
+                Optional<StaticAsset> asset = cache.find(resolvedPath);
+
+                if (! asset.isPresent()) {
                     return null;
                 } else {
-                    String message = format(
-                            "Serving %s in response to request for %s",
-                            resolvedPath,
-                            request.pathInfo());
-                    LOG.info(message);
-
-                    response.type(getMimeType(resolvedPath));
-
-                    addCacheHeadersIfNeeded(response, resolvedPath);
-                    InputStream modifiedStream = modifyIndexBaseTagIfNeeded(request, resolvedPath, resourceAsStream);
+                    LOG.debug("Serving {} in response to request for {}", resolvedPath, request.pathInfo());
 
-                    OutputStream out = response
-                            .raw()
-                            .getOutputStream();
-                    copyStream(modifiedStream, out);
-                    out.flush();
+                    serve(request, response, modifyIndexBaseTagIfNeeded(request, asset.get()));
 
                     return new Object(); // indicate we have handled the request
                 }
@@ -93,6 +85,50 @@ public class StaticResourcesEndpoint implements Endpoint {
     }
 
 
+    /**
+     * Writes the asset, gzipped if the client accepts it, unless the client already
+     * holds the current version (as identified by the <code>If-None-Match</code> header)
+     * in which case a <code>304 Not Modified</code> is sent instead.
+     * <p>
+     * The response is committed once this method returns.
+     */
+    private void serve(Request request,
+                       Response response,
+                       StaticAsset asset) throws IOException {
+        HttpServletResponse rawResponse = response.raw();
+        boolean gzipped = asset.hasGzippedContent() && acceptsGzip(request);
+        String etag = asset.getETag(gzipped);
+
+        rawResponse.setContentType(asset.getContentType());
+        rawResponse.setHeader(HttpHeader.ETAG.toString(), etag);
+        if (asset.hasGzippedContent()) {
+            rawResponse.addHeader(HttpHeader.VARY.toString(), HttpHeader.ACCEPT_ENCODING.toString());
+        }
+        addCacheHeadersIfNeeded(response, asset.getPath());
+
+        if (StaticResourceCache.matchesETag(request.headers(HttpHeader.IF_NONE_MATCH.toString()), etag)) {
+            rawResponse.setStatus(HttpStatus.NOT_MODIFIED_304);
+            rawResponse.flushBuffer();
+            return;
+        }
+
+        if (gzipped) {
+            rawResponse.setHeader(HttpHeader.CONTENT_ENCODING.toString(), "gzip");
+        }
+        rawResponse.setContentLength(asset.getContentLength(gzipped));
+
+        ByteBuffer content = asset.getContent(gzipped);
+        ServletOutputStream out = rawResponse.getOutputStream();
+        if (out instanceof HttpOutput) {
+            // hands the (direct) buffer straight to jetty, avoiding a copy into the response buffer
+            ((HttpOutput) out).sendContent(content);
+        } else {
+            Channels.newChannel(out).write(content);
+            out.flush();
+        }
+    }
+
+
     /**
      * We want to add a cache-control: max-age value to all resources except html.
      * This is because the html resources have references to 'cache-busted' js files
@@ -111,57 +147,17 @@ public class StaticResourcesEndpoint implements Endpoint {
 
     /**
      * index.html need to have a <base href="/[site_context]/" /> tag in the head section to ensure
-     * html5 mode works correctly in AngularJS.  This method will ensure the existing <base href="/" /> tag
-     * is replace with one that includes the correct site context as deployed.
+     * html5 mode works correctly in AngularJS.  If the site is deployed with a context path
+     * the cache supplies a version of the page with the <code>&lt;base&gt;</code> tag amended.
      * @param request
-     * @param resolvedPath
-     * @param resourceStream
-     * @return the modified input stream with the amended <base> tag or the original unmodified resourceStream
-     * @throws IOException
+     * @param asset
+     * @return the index page with the amended <base> tag or the original unmodified asset
      */
-    private InputStream modifyIndexBaseTagIfNeeded(Request request,
-                                                   String resolvedPath,
-                                                   InputStream resourceStream) throws IOException {
-        if(resolvedPath.endsWith("index.html") && notEmpty(request.contextPath())) {
-            List<String> lines = readLines(resourceStream);
-
-            for(int i = 0; i < lines.size(); i++) {
-                String line = lower(lines.get(i));
-
-                if (line.contains("<base href=")) {
-                    LOG.info("Found <base> tag: " + line + ", adding context path: " + request.contextPath());
-                    line = line.replaceFirst(
-                            "<base href=(['\"])/(['\"])\\s*/>",
-                            format(
-                                "\t<base href=\"%s/\" />",
-                                request.contextPath()));
-                    LOG.info("Updated <base> tag: " + line);
-                    lines.set(i, line);
-
-                    // done, exit loop
-                    break;
-                }
-
-                if (line.contains("</head>") ) {
-                    // don't need to continue if have reached here and no base tag found
-                    break;
-                }
-            }
-
-            // copy amended file into a stream
-            try(ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-                 OutputStreamWriter writer = new OutputStreamWriter(outputStream)) {
-
-                for(String line : lines) {
-                    writer.write(line);
-                    writer.write(System.lineSeparator());
-                }
-
-                writer.flush();
-                return new ByteArrayInputStream(outputStream.toByteArray());
-            }
-        }
-        return resourceStream;
+    private StaticAsset modifyIndexBaseTagIfNeeded(Request request,
+                                                   StaticAsset asset) {
+        return asset.getPath().endsWith("index.html") && notEmpty(request.contextPath())
+                ? cache.findIndexPage(asset, request.contextPath())
+                : asset;
     }
 
 
@@ -170,6 +166,10 @@ public class StaticResourcesEndpoint implements Endpoint {
         String path = request.pathInfo().replaceFirst("/", "");
         String resourcePath = path.length() > 0 ? ("static/" + path) : indexPath;
 
+        if (cache.contains(resourcePath)) {
+            return resourcePath;
+        }
+
         URL resource = classLoader.getResource(resourcePath);
 
         if (resource == null) {
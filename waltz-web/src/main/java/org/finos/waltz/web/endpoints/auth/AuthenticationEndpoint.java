@@ -32,6 +32,7 @@ import org.finos.waltz.service.user.UserRoleService;
 import org.finos.waltz.service.user.UserService;
 import org.finos.waltz.web.WebUtilities;
 import org.finos.waltz.web.endpoints.Endpoint;
+import org.finos.waltz.web.endpoints.EndpointUtilities;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -103,7 +104,7 @@ public class AuthenticationEndpoint implements Endpoint {
     @Override
     public void register() {
 
-        Spark.post(WebUtilities.mkPath(BASE_URL, "login"), (request, response) -> {
+        EndpointUtilities.post(WebUtilities.mkPath(BASE_URL, "login"), (request, response) -> {
 
             LoginRequest login = WebUtilities.readBody(request, LoginRequest.class);
             AuthenticationResponse authResponse = authenticate(login);
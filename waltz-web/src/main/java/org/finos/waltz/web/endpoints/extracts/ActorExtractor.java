@@ -31,7 +31,7 @@ import java.sql.Timestamp;
 
 import static org.finos.waltz.schema.Tables.ACTOR;
 import static org.finos.waltz.web.WebUtilities.mkPath;
-import static spark.Spark.get;
+import static org.finos.waltz.web.endpoints.EndpointUtilities.get;
 
 
 @Service
@@ -29,7 +29,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import static org.finos.waltz.schema.Tables.*;
-import static spark.Spark.post;
+import static org.finos.waltz.web.endpoints.EndpointUtilities.post;
 
 
 
@@ -31,7 +31,7 @@ import org.springframework.stereotype.Service;
 
 import static org.finos.waltz.schema.Tables.APPLICATION;
 import static org.finos.waltz.schema.Tables.ORGANISATIONAL_UNIT;
-import static spark.Spark.post;
+import static org.finos.waltz.web.endpoints.EndpointUtilities.post;
 
 
 @Service
@@ -33,7 +33,7 @@ import java.sql.Timestamp;
 
 import static org.finos.waltz.common.SetUtilities.asSet;
 import static org.finos.waltz.schema.Tables.*;
-import static spark.Spark.post;
+import static org.finos.waltz.web.endpoints.EndpointUtilities.post;
 
 
 @Service
@@ -33,8 +33,8 @@ import java.sql.Timestamp;
 import static org.finos.waltz.schema.Tables.CHANGE_LOG;
 import static org.finos.waltz.schema.Tables.PERSON;
 import static java.lang.String.format;
-import static spark.Spark.get;
-import static spark.Spark.post;
+import static org.finos.waltz.web.endpoints.EndpointUtilities.get;
+import static org.finos.waltz.web.endpoints.EndpointUtilities.post;
 
 
 @Service
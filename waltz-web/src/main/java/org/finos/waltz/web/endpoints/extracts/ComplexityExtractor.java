@@ -38,7 +38,7 @@ import static org.finos.waltz.schema.Tables.COMPLEXITY_KIND;
 import static java.lang.String.format;
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.ListUtilities.newArrayList;
-import static spark.Spark.post;
+import static org.finos.waltz.web.endpoints.EndpointUtilities.post;
 
 
 @Service
@@ -31,7 +31,7 @@ import static org.finos.waltz.schema.Tables.*;
 import static org.finos.waltz.web.WebUtilities.getEntityReference;
 import static java.lang.String.format;
 import static org.jooq.lambda.tuple.Tuple.tuple;
-import static spark.Spark.get;
+import static org.finos.waltz.web.endpoints.EndpointUtilities.get;
 
 
 @Service
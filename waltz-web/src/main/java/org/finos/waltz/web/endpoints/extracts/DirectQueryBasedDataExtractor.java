@@ -25,26 +25,49 @@ import org.apache.poi.ss.util.CellRangeAddress;
 import org.apache.poi.xssf.streaming.SXSSFSheet;
 import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.eclipse.jetty.http.MimeTypes;
+import org.finos.waltz.web.endpoints.metrics.EndpointMetrics;
+import org.jooq.Cursor;
 import org.jooq.DSLContext;
 import org.jooq.JSONFormat;
-import org.jooq.Result;
+import org.jooq.Record;
 import org.jooq.Select;
+import org.jooq.impl.DSL;
 import org.jooq.lambda.Unchecked;
+import org.jooq.lambda.fi.util.function.CheckedConsumer;
 import org.jooq.lambda.tuple.Tuple2;
 import spark.Request;
 import spark.Response;
 
 import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.FunctionUtilities.time;
 
 
+/**
+ * Base class for extracts which are backed by a single query (or, for multi-sheet
+ * excel extracts, a query per sheet).
+ * <p>
+ * Rows are read through a cursor, in chunks of <code>FETCH_SIZE</code>, and written
+ * to the response output stream as they are read.  This keeps the memory used by an
+ * extract roughly constant regardless of the number of rows returned.  Excel extracts
+ * use a streaming workbook which flushes rows to a temporary file, the completed
+ * workbook is then written directly to the response.
+ */
 public abstract class DirectQueryBasedDataExtractor implements DataExtractor {
 
+    private static final int FETCH_SIZE = 1000;
+    private static final int QUERY_TIMEOUT_SECONDS = (int) TimeUnit.MINUTES.toSeconds(5);
+    private static final int EXCEL_ROW_WINDOW_SIZE = 2000;
 
     protected DSLContext dsl;
 
@@ -84,20 +107,38 @@ public abstract class DirectQueryBasedDataExtractor implements DataExtractor {
         }
     }
 
-    private String writeAsJson(Select<?> qry,
-                               Response response) {
-        response.type(MimeTypes.Type.APPLICATION_JSON_UTF_8.name());
-        return query(dsl, qry)
-                .formatJSON(new JSONFormat()
-                        .header(false)
-                        .recordFormat(JSONFormat.RecordFormat.OBJECT));
-    }
 
+    private Object writeAsJson(Select<?> qry,
+                               Response response) throws IOException {
+        HttpServletResponse httpResponse = response.raw();
+        httpResponse.setContentType(MimeTypes.Type.APPLICATION_JSON_UTF_8.asString());
+
+        JSONFormat format = new JSONFormat()
+                .header(false)
+                .recordFormat(JSONFormat.RecordFormat.OBJECT);
+
+        try (Writer writer = mkResponseWriter(httpResponse)) {
+            writer.write('[');
+            time("streaming json", () -> withCursor(dsl, qry, cursor -> {
+                boolean first = true;
+                while (cursor.hasNext()) {
+                    // each chunk is formatted as a json array, we strip the brackets to splice the chunks together
+                    String chunk = cursor.fetchNext(FETCH_SIZE).formatJSON(format).trim();
+                    String records = chunk.substring(1, chunk.length() - 1);
+                    if (records.isEmpty()) {
+                        continue;
+                    }
+                    if (! first) {
+                        writer.write(',');
+                    }
+                    writer.write(records);
+                    first = false;
+                }
+            }));
+            writer.write(']');
+        }
 
-    private Result<?> query(DSLContext dslContext, Select<?> qry){
-        return dslContext == null
-                ? qry.fetch()
-                : time("fetch", () -> dslContext.fetch(dslContext.renderInlined(qry)));
+        return httpResponse;
     }
 
 
@@ -106,20 +147,14 @@ public abstract class DirectQueryBasedDataExtractor implements DataExtractor {
                                                 String suggestedFilenameStem,
                                                 Response response,
                                                 Tuple2<String, Select<?>>... sheetDefinitions) {
-        SXSSFWorkbook workbook = new SXSSFWorkbook(2000);
+        SXSSFWorkbook workbook = new SXSSFWorkbook(EXCEL_ROW_WINDOW_SIZE);
 
         for (Tuple2<String, Select<?>> sheetDef : sheetDefinitions) {
             time("preparing excel sheet: " + sheetDef.v1, () -> {
                 SXSSFSheet sheet = workbook.createSheet(ExtractorUtilities.sanitizeSheetName(sheetDef.v1));
                 writeExcelHeader(sheetDef.v2, sheet);
                 time("writing body", () -> writeExcelBody(sheetDef.v2, sheet, dsl));
-
-                int endFilterColumnIndex = sheetDef.v2.fields().length == 0
-                        ? 0
-                        : sheetDef.v2.fields().length - 1;
-
-                sheet.setAutoFilter(new CellRangeAddress(0, 0, 0, endFilterColumnIndex));
-                sheet.createFreezePane(0, 1);
+                addExcelFilterAndFreezePane(sheetDef.v2, sheet);
             });
         }
 
@@ -130,41 +165,48 @@ public abstract class DirectQueryBasedDataExtractor implements DataExtractor {
     }
 
 
-    private static Object writeAsExcel(String suggestedFilenameStem,
-                                       Select<?> qry,
-                                       Response response) throws IOException {
-        SXSSFWorkbook workbook = new SXSSFWorkbook(2000);
+    private Object writeAsExcel(String suggestedFilenameStem,
+                                Select<?> qry,
+                                Response response) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(EXCEL_ROW_WINDOW_SIZE);
         SXSSFSheet sheet = workbook.createSheet(ExtractorUtilities.sanitizeSheetName(suggestedFilenameStem));
 
         writeExcelHeader(qry, sheet);
-        writeExcelBody(qry, sheet, null);
+        time("writing body", () -> writeExcelBody(qry, sheet, dsl));
+        addExcelFilterAndFreezePane(qry, sheet);
 
+        return writeExcelToResponse(suggestedFilenameStem, response, workbook);
+    }
+
+
+    private static void addExcelFilterAndFreezePane(Select<?> qry,
+                                                    SXSSFSheet sheet) {
         int endFilterColumnIndex = qry.fields().length == 0
                 ? 0
                 : qry.fields().length - 1;
 
         sheet.setAutoFilter(new CellRangeAddress(0, 0, 0, endFilterColumnIndex));
         sheet.createFreezePane(0, 1);
-
-        return writeExcelToResponse(suggestedFilenameStem, response, workbook);
     }
 
 
     private static HttpServletResponse writeExcelToResponse(String suggestedFilenameStem,
                                                             Response response,
                                                             SXSSFWorkbook workbook) throws IOException {
-        byte[] bytes = ExtractorUtilities.convertExcelToByteArray(workbook);
-
         HttpServletResponse httpResponse = response.raw();
 
         httpResponse.setHeader("Content-Type", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
         httpResponse.setHeader("Content-Disposition", "attachment; filename=" + suggestedFilenameStem + ".xlsx");
         httpResponse.setHeader("Content-Transfer-Encoding", "7bit");
 
-        httpResponse.setContentLength(bytes.length);
-        httpResponse.getOutputStream().write(bytes);
-        httpResponse.getOutputStream().flush();
-        httpResponse.getOutputStream().close();
+        try (OutputStream out = EndpointMetrics.countBytes(httpResponse.getOutputStream())) {
+            workbook.write(out);
+            out.flush();
+        } finally {
+            // removes the temporary files backing the streamed sheets
+            workbook.dispose();
+            workbook.close();
+        }
 
         return httpResponse;
     }
@@ -172,11 +214,23 @@ public abstract class DirectQueryBasedDataExtractor implements DataExtractor {
 
     private Object writeAsCSV(String suggestedFilenameStem,
                               Select<?> qry,
-                              Response response) {
-        String csv = qry.fetch().formatCSV();
-        response.type(MimeTypes.Type.TEXT_PLAIN.name());
-        response.header("Content-disposition", "attachment; filename=" + suggestedFilenameStem + ".csv");
-        return csv;
+                              Response response) throws IOException {
+        HttpServletResponse httpResponse = response.raw();
+        httpResponse.setContentType(MimeTypes.Type.TEXT_PLAIN_UTF_8.asString());
+        httpResponse.setHeader("Content-disposition", "attachment; filename=" + suggestedFilenameStem + ".csv");
+
+        try (Writer writer = mkResponseWriter(httpResponse)) {
+            time("streaming csv", () -> withCursor(dsl, qry, cursor -> {
+                boolean includeHeader = true;
+                do {
+                    // an empty first chunk still yields the header row
+                    cursor.fetchNext(FETCH_SIZE).formatCSV(writer, includeHeader);
+                    includeHeader = false;
+                } while (cursor.hasNext());
+            }));
+        }
+
+        return httpResponse;
     }
 
 
@@ -184,13 +238,10 @@ public abstract class DirectQueryBasedDataExtractor implements DataExtractor {
                                        SXSSFSheet sheet,
                                        DSLContext dsl) {
         AtomicInteger rowCounter = new AtomicInteger(1);
-        Result<?> records = dsl == null
-                ? qry.fetch()
-                : time("fetch", () -> dsl.fetch(dsl.renderInlined(qry)));
+        int colCount = qry.fields().length;
 
-        time("record chomper", () -> {
-            int colCount = qry.fields().length;
-            records.forEach(r -> {
+        withCursor(dsl, qry, cursor -> {
+            for (Record r : cursor) {
                 int rowNum = rowCounter.getAndIncrement();
                 Row row = sheet.createRow(rowNum);
                 for (int col = 0; col < colCount; col++) {
@@ -200,7 +251,7 @@ public abstract class DirectQueryBasedDataExtractor implements DataExtractor {
                         cell.setCellValue(val.toString());
                     }
                 }
-            });
+            }
         });
     }
 
@@ -214,4 +265,38 @@ public abstract class DirectQueryBasedDataExtractor implements DataExtractor {
         });
     }
 
+
+    /**
+     * Executes the (inlined) query and passes a lazily fetched cursor to the given consumer.
+     * The query runs within a transaction as some drivers (notably postgres) ignore the fetch
+     * size, and read the entire result set into memory, when in auto-commit mode.
+     * <p>
+     * The query is subject to a timeout of <code>QUERY_TIMEOUT_SECONDS</code>, it is executed
+     * before any rows are written so a slow query fails before the response is committed.
+     * Once rows are being written the extract is never aborted, the transaction (and therefore
+     * a pooled connection) is held until the client has read the response or the server's idle
+     * timeout fails the write.
+     */
+    private static void withCursor(DSLContext dsl,
+                                   Select<?> qry,
+                                   CheckedConsumer<Cursor<Record>> cursorConsumer) {
+        dsl.transaction(ctx -> {
+            DSLContext tx = DSL.using(ctx);
+            try (Cursor<Record> cursor = tx
+                    .resultQuery(tx.renderInlined(qry))
+                    .fetchSize(FETCH_SIZE)
+                    .queryTimeout(QUERY_TIMEOUT_SECONDS)
+                    .fetchLazy()) {
+                cursorConsumer.accept(cursor);
+            }
+        });
+    }
+
+
+    private static Writer mkResponseWriter(HttpServletResponse httpResponse) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(
+                EndpointMetrics.countBytes(httpResponse.getOutputStream()),
+                StandardCharsets.UTF_8));
+    }
+
 }
@@ -37,8 +37,8 @@ import static org.finos.waltz.schema.Tables.COST;
 import static org.finos.waltz.schema.Tables.COST_KIND;
 import static java.lang.String.format;
 import static org.finos.waltz.common.ListUtilities.newArrayList;
-import static spark.Spark.get;
-import static spark.Spark.post;
+import static org.finos.waltz.web.endpoints.EndpointUtilities.get;
+import static org.finos.waltz.web.endpoints.EndpointUtilities.post;
 
 
 @Service
@@ -19,7 +19,7 @@ import static org.finos.waltz.schema.tables.EntityRelationship.ENTITY_RELATIONSH
 import static org.finos.waltz.schema.tables.Measurable.MEASURABLE;
 import static org.finos.waltz.common.ListUtilities.asList;
 import static org.finos.waltz.common.ListUtilities.map;
-import static spark.Spark.get;
+import static org.finos.waltz.web.endpoints.EndpointUtilities.get;
 
 @Service
 public class EntityRelationshipsExtractor extends DirectQueryBasedDataExtractor{
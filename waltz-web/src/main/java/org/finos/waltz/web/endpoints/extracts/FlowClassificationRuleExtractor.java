@@ -12,7 +12,7 @@ import org.springframework.stereotype.Service;
 import static org.finos.waltz.common.ListUtilities.newArrayList;
 import static org.finos.waltz.schema.Tables.*;
 import static org.finos.waltz.schema.tables.DataType.DATA_TYPE;
-import static spark.Spark.get;
+import static org.finos.waltz.web.endpoints.EndpointUtilities.get;
 
 @Service
 public class FlowClassificationRuleExtractor extends DirectQueryBasedDataExtractor {
@@ -35,7 +35,7 @@ import static java.lang.String.format;
 import static org.finos.waltz.common.ListUtilities.newArrayList;
 import static org.finos.waltz.model.IdSelectionOptions.mkOpts;
 import static org.finos.waltz.schema.Tables.*;
-import static spark.Spark.get;
+import static org.finos.waltz.web.endpoints.EndpointUtilities.get;
 
 
 @Service
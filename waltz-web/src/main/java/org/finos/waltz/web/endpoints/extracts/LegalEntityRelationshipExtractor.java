@@ -60,7 +60,7 @@ import static org.finos.waltz.web.WebUtilities.mkPath;
 import static org.finos.waltz.web.endpoints.extracts.ExtractorUtilities.sanitizeSheetName;
 import static org.jooq.lambda.fi.util.function.CheckedConsumer.unchecked;
 import static org.jooq.lambda.tuple.Tuple.tuple;
-import static spark.Spark.post;
+import static org.finos.waltz.web.endpoints.EndpointUtilities.post;
 
 @Service
 public class LegalEntityRelationshipExtractor implements DataExtractor {
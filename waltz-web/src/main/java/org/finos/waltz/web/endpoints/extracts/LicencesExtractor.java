@@ -33,7 +33,7 @@ import static org.finos.waltz.model.IdSelectionOptions.mkOpts;
 import static org.finos.waltz.schema.Tables.LICENCE;
 import static org.finos.waltz.schema.tables.SoftwareUsage.SOFTWARE_USAGE;
 import static org.finos.waltz.schema.tables.SoftwareVersionLicence.SOFTWARE_VERSION_LICENCE;
-import static spark.Spark.get;
+import static org.finos.waltz.web.endpoints.EndpointUtilities.get;
 
 
 @Service
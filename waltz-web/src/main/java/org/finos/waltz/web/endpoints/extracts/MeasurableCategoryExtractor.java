@@ -51,7 +51,7 @@ import static org.finos.waltz.schema.tables.Person.PERSON;
 import static org.finos.waltz.web.WebUtilities.getId;
 import static org.finos.waltz.web.WebUtilities.mkPath;
 import static org.jooq.lambda.tuple.Tuple.tuple;
-import static spark.Spark.get;
+import static org.finos.waltz.web.endpoints.EndpointUtilities.get;
 
 
 @Service
@@ -34,7 +34,7 @@ import org.springframework.stereotype.Service;
 import static org.finos.waltz.schema.Tables.*;
 import static org.finos.waltz.web.WebUtilities.getEntityReference;
 import static org.finos.waltz.model.IdSelectionOptions.mkOpts;
-import static spark.Spark.post;
+import static org.finos.waltz.web.endpoints.EndpointUtilities.post;
 
 
 @Service
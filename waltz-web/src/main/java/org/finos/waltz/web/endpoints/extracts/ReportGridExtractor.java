@@ -57,7 +57,7 @@ import static org.finos.waltz.model.utils.IdUtilities.indexById;
 import static org.finos.waltz.service.report_grid.ReportGridColumnCalculator.calculate;
 import static org.finos.waltz.web.WebUtilities.readIdSelectionOptionsFromBody;
 import static org.jooq.lambda.tuple.Tuple.tuple;
-import static spark.Spark.post;
+import static org.finos.waltz.web.endpoints.EndpointUtilities.post;
 
 @Service
 public class ReportGridExtractor implements SupportsJsonExtraction {
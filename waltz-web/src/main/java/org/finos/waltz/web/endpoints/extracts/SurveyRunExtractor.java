@@ -41,7 +41,7 @@ import static org.finos.waltz.schema.Tables.*;
 import static org.finos.waltz.schema.tables.Application.APPLICATION;
 import static java.lang.String.format;
 import static org.finos.waltz.model.IdSelectionOptions.mkOpts;
-import static spark.Spark.get;
+import static org.finos.waltz.web.endpoints.EndpointUtilities.get;
 
 
 @Service
@@ -35,7 +35,7 @@ import static org.finos.waltz.schema.tables.Application.APPLICATION;
 import static org.finos.waltz.web.WebUtilities.getEntityReference;
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.model.IdSelectionOptions.mkOpts;
-import static spark.Spark.get;
+import static org.finos.waltz.web.endpoints.EndpointUtilities.get;
 
 
 @Service
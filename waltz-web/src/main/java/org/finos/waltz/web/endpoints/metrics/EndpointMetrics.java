@@ -0,0 +1,210 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.web.endpoints.metrics;
+
+import org.finos.waltz.data.QueryStats;
+import org.finos.waltz.model.endpoint_metrics.EndpointStatistics;
+import spark.Response;
+import spark.Route;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.stream.Collectors.toList;
+import static org.finos.waltz.common.Checks.checkNotNull;
+
+/**
+ * Collects latency, throughput, response size and database usage statistics for
+ * each registered route, keyed by http method and path template (e.g.
+ * <code>GET api/app/id/:id</code>).
+ * <p>
+ * Routes are instrumented as they are registered via {@link org.finos.waltz.web.endpoints.EndpointUtilities}.
+ * Database usage is gathered via {@link QueryStats}, so includes queries run on the
+ * <code>DBExecutorPool</code> on behalf of the request.
+ * <p>
+ * Response sizes are in bytes.  Bodies returned as strings are measured by their utf-8 length
+ * (as that is how they are written by Spark), endpoints which write directly to the servlet
+ * output stream should wrap it via {@link #countBytes(OutputStream)}.  Failing either, the
+ * <code>Content-Length</code> header is used, if present.
+ */
+public class EndpointMetrics {
+
+    private static final Map<String, RouteMetrics> METRICS_BY_ROUTE = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<AtomicLong> BYTES_WRITTEN = new ThreadLocal<>();
+
+
+    public static Route instrument(String method, String path, Route route) {
+        checkNotNull(method, "method cannot be null");
+        checkNotNull(path, "path cannot be null");
+        checkNotNull(route, "route cannot be null");
+
+        RouteMetrics metrics = METRICS_BY_ROUTE.computeIfAbsent(
+                method + " " + path,
+                k -> new RouteMetrics(method, path));
+
+        return (request, response) -> {
+            metrics.begin();
+            QueryStats queryStats = QueryStats.start(method + " " + path);
+            AtomicLong bytesWritten = new AtomicLong();
+            BYTES_WRITTEN.set(bytesWritten);
+            long start = System.nanoTime();
+            boolean failed = true;
+            Object result = null;
+            try {
+                result = route.handle(request, response);
+                failed = false;
+                return result;
+            } finally {
+                QueryStats.stop();
+                BYTES_WRITTEN.remove();
+                metrics.end(
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                        failed,
+                        determineResponseSize(result, bytesWritten.get(), response),
+                        queryStats);
+            }
+        };
+    }
+
+
+    /**
+     * @return statistics for every route which has handled at least one request, slowest (by total time) first
+     */
+    public static List<EndpointStatistics> findAll() {
+        return METRICS_BY_ROUTE
+                .values()
+                .stream()
+                .map(RouteMetrics::snapshot)
+                .filter(s -> s.requestCount() > 0 || s.inFlightCount() > 0)
+                .sorted(Comparator.comparingLong(EndpointStatistics::totalMillis).reversed())
+                .collect(toList());
+    }
+
+
+    public static void reset() {
+        METRICS_BY_ROUTE.values().forEach(RouteMetrics::reset);
+    }
+
+
+    /**
+     * Wraps the given (response) output stream so that bytes written to it are included
+     * in the response size of the route currently being handled on this thread.  If the
+     * current thread is not handling an instrumented route the stream is returned as is.
+     *
+     * @param out  stream to count, typically the servlet output stream
+     * @return stream which counts the bytes written through it
+     */
+    public static OutputStream countBytes(OutputStream out) {
+        checkNotNull(out, "out cannot be null");
+        AtomicLong bytesWritten = BYTES_WRITTEN.get();
+        return bytesWritten == null
+                ? out
+                : new CountingOutputStream(out, bytesWritten);
+    }
+
+
+    // -- HELPERS ---
+
+    private static long determineResponseSize(Object result,
+                                              long bytesWritten,
+                                              Response response) {
+        if (result instanceof String && ! ((String) result).isEmpty()) {
+            return utf8Length((String) result);
+        }
+
+        if (bytesWritten > 0) {
+            return bytesWritten;
+        }
+
+        HttpServletResponse httpResponse = response.raw();
+        String contentLength = httpResponse == null
+                ? null
+                : httpResponse.getHeader("Content-Length");
+
+        try {
+            return contentLength == null
+                    ? -1
+                    : Long.parseLong(contentLength);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+
+    /**
+     * Number of bytes needed to encode the string as utf-8, without encoding it
+     */
+    static long utf8Length(String str) {
+        long length = 0;
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < str.length() && Character.isLowSurrogate(str.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                // unpaired surrogates are encoded as a single '?'
+                length += 1;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private final AtomicLong bytesWritten;
+
+
+        private CountingOutputStream(OutputStream out,
+                                     AtomicLong bytesWritten) {
+            super(out);
+            this.bytesWritten = bytesWritten;
+        }
+
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            bytesWritten.incrementAndGet();
+        }
+
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            bytesWritten.addAndGet(len);
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.web.endpoints.metrics;
+
+import org.finos.waltz.model.endpoint_metrics.EndpointStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Service;
+
+import static java.lang.String.format;
+
+/**
+ * Exposes the {@link EndpointMetrics} over JMX.
+ */
+@Service
+@ManagedResource(description = "Latency, throughput and database usage of web endpoints")
+public class EndpointMetricsMonitor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EndpointMetricsMonitor.class);
+
+
+    @ManagedAttribute(description = "Per route statistics, slowest (by total time) first")
+    public String[] getRoutes() {
+        return EndpointMetrics
+                .findAll()
+                .stream()
+                .map(s -> format(
+                        "%s %s: requests=%d, errors=%d, inFlight=%d, mean=%.1fms, p95=%dms, p99=%dms, max=%dms, meanSize=%.0f, meanDb=%.1fms, meanQueries=%.1f, maxQueries=%d",
+                        s.method(),
+                        s.path(),
+                        s.requestCount(),
+                        s.errorCount(),
+                        s.inFlightCount(),
+                        s.meanMillis(),
+                        s.p95Millis(),
+                        s.p99Millis(),
+                        s.maxMillis(),
+                        s.meanResponseSize(),
+                        s.meanDatabaseMillis(),
+                        s.meanQueryCount(),
+                        s.maxQueryCount()))
+                .toArray(String[]::new);
+    }
+
+
+    @ManagedAttribute
+    public long getRequestCount() {
+        return EndpointMetrics
+                .findAll()
+                .stream()
+                .mapToLong(EndpointStatistics::requestCount)
+                .sum();
+    }
+
+
+    @ManagedAttribute(description = "Number of requests currently being handled")
+    public long getInFlightCount() {
+        return EndpointMetrics
+                .findAll()
+                .stream()
+                .mapToLong(EndpointStatistics::inFlightCount)
+                .sum();
+    }
+
+
+    @ManagedOperation(description = "Clear the accumulated endpoint statistics")
+    public void reset() {
+        LOG.info("Resetting endpoint metrics (via jmx)");
+        EndpointMetrics.reset();
+    }
+
+}
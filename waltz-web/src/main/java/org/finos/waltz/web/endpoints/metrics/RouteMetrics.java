@@ -0,0 +1,200 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.web.endpoints.metrics;
+
+import org.finos.waltz.data.QueryStats;
+import org.finos.waltz.model.endpoint_metrics.EndpointStatistics;
+import org.finos.waltz.model.endpoint_metrics.ImmutableEndpointStatistics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Accumulates request statistics for a single route.
+ */
+class RouteMetrics {
+
+    static final long[] BUCKET_BOUNDS_MILLIS = {
+            5, 10, 25, 50, 100, 250, 500,
+            1_000, 2_500, 5_000, 10_000, 30_000 };
+
+    private final String method;
+    private final String path;
+
+    // final bucket counts requests slower than the last bound
+    private final AtomicLongArray bucketCounts = new AtomicLongArray(BUCKET_BOUNDS_MILLIS.length + 1);
+    private final AtomicLong inFlightCount = new AtomicLong();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+    private final AtomicLong totalMillis = new AtomicLong();
+    private final AtomicLong maxMillis = new AtomicLong();
+    private final AtomicLong sizedCount = new AtomicLong();
+    private final AtomicLong totalResponseSize = new AtomicLong();
+    private final AtomicLong maxResponseSize = new AtomicLong();
+    private final AtomicLong totalDatabaseMillis = new AtomicLong();
+    private final AtomicLong totalQueryCount = new AtomicLong();
+    private final AtomicLong maxQueryCount = new AtomicLong();
+
+
+    RouteMetrics(String method, String path) {
+        this.method = method;
+        this.path = path;
+    }
+
+
+    void begin() {
+        inFlightCount.incrementAndGet();
+    }
+
+
+    /**
+     * @param elapsedMillis  time taken to handle the request
+     * @param failed  true if the request was ended by an exception
+     * @param responseSize  size of the response body, or -1 if not known
+     * @param queryStats  database queries made whilst handling the request
+     */
+    void end(long elapsedMillis,
+             boolean failed,
+             long responseSize,
+             QueryStats queryStats) {
+        inFlightCount.decrementAndGet();
+        requestCount.incrementAndGet();
+        if (failed) {
+            errorCount.incrementAndGet();
+        }
+
+        bucketCounts.incrementAndGet(determineBucket(elapsedMillis));
+        totalMillis.addAndGet(elapsedMillis);
+        maxMillis.accumulateAndGet(elapsedMillis, Math::max);
+
+        if (responseSize >= 0) {
+            sizedCount.incrementAndGet();
+            totalResponseSize.addAndGet(responseSize);
+            maxResponseSize.accumulateAndGet(responseSize, Math::max);
+        }
+
+        totalDatabaseMillis.addAndGet(queryStats.getTotalMillis());
+        totalQueryCount.addAndGet(queryStats.getQueryCount());
+        maxQueryCount.accumulateAndGet(queryStats.getQueryCount(), Math::max);
+    }
+
+
+    /**
+     * Clears the accumulated statistics, requests currently in flight are still tracked.
+     */
+    void reset() {
+        for (int i = 0; i < bucketCounts.length(); i++) {
+            bucketCounts.set(i, 0);
+        }
+        requestCount.set(0);
+        errorCount.set(0);
+        totalMillis.set(0);
+        maxMillis.set(0);
+        sizedCount.set(0);
+        totalResponseSize.set(0);
+        maxResponseSize.set(0);
+        totalDatabaseMillis.set(0);
+        totalQueryCount.set(0);
+        maxQueryCount.set(0);
+    }
+
+
+    EndpointStatistics snapshot() {
+        long[] counts = new long[bucketCounts.length()];
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = bucketCounts.get(i);
+            String label = i < BUCKET_BOUNDS_MILLIS.length
+                    ? "<=" + BUCKET_BOUNDS_MILLIS[i] + "ms"
+                    : ">" + BUCKET_BOUNDS_MILLIS[BUCKET_BOUNDS_MILLIS.length - 1] + "ms";
+            histogram.put(label, counts[i]);
+        }
+
+        long requests = requestCount.get();
+        long max = maxMillis.get();
+
+        return ImmutableEndpointStatistics
+                .builder()
+                .method(method)
+                .path(path)
+                .requestCount(requests)
+                .errorCount(errorCount.get())
+                .inFlightCount(inFlightCount.get())
+                .meanMillis(mean(totalMillis.get(), requests))
+                .maxMillis(max)
+                .p50Millis(estimatePercentile(counts, 0.5, max))
+                .p95Millis(estimatePercentile(counts, 0.95, max))
+                .p99Millis(estimatePercentile(counts, 0.99, max))
+                .totalMillis(totalMillis.get())
+                .latencyHistogram(histogram)
+                .meanResponseSize(mean(totalResponseSize.get(), sizedCount.get()))
+                .maxResponseSize(maxResponseSize.get())
+                .meanDatabaseMillis(mean(totalDatabaseMillis.get(), requests))
+                .meanQueryCount(mean(totalQueryCount.get(), requests))
+                .maxQueryCount(maxQueryCount.get())
+                .build();
+    }
+
+
+    // -- HELPERS ---
+
+    static int determineBucket(long elapsedMillis) {
+        for (int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++) {
+            if (elapsedMillis <= BUCKET_BOUNDS_MILLIS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_BOUNDS_MILLIS.length;
+    }
+
+
+    /**
+     * Returns the upper bound of the bucket containing the given percentile,
+     * never more than the slowest request seen.
+     */
+    static long estimatePercentile(long[] counts, double percentile, long maxMillis) {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long threshold = (long) Math.ceil(total * percentile);
+        long cumulative = 0;
+        for (int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++) {
+            cumulative += counts[i];
+            if (cumulative >= threshold) {
+                return Math.min(BUCKET_BOUNDS_MILLIS[i], maxMillis);
+            }
+        }
+        return maxMillis;
+    }
+
+
+    private static double mean(long total, long count) {
+        return count == 0
+                ? 0
+                : (double) total / count;
+    }
+
+}
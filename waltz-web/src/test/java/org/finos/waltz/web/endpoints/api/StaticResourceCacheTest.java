@@ -0,0 +1,106 @@
+package org.finos.waltz.web.endpoints.api;
+
+import org.finos.waltz.web.endpoints.api.StaticResourceCache.StaticAsset;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.finos.waltz.common.IOUtilities.copyStream;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StaticResourceCacheTest {
+
+    @Test
+    public void baseTagIsRewrittenWithContextPath() {
+        String html = "<html><head>\n<BASE href='/' />\n</head><body><base href=\"/\" /></body></html>";
+
+        assertEquals(
+                "<html><head>\n<base href=\"/waltz/\" />\n</head><body><base href=\"/\" /></body></html>",
+                StaticResourceCache.rewriteBaseTag(html, "/waltz"));
+    }
+
+
+    @Test
+    public void baseTagsOutsideTheHeadAreIgnored() {
+        String html = "<html><head></head><body><base href=\"/\" /></body></html>";
+        assertEquals(html, StaticResourceCache.rewriteBaseTag(html, "/waltz"));
+    }
+
+
+    @Test
+    public void ifNoneMatchUsesWeakComparison() {
+        String etag = "\"abc\"";
+
+        assertTrue(StaticResourceCache.matchesETag("\"abc\"", etag));
+        assertTrue(StaticResourceCache.matchesETag("\"xyz\", W/\"abc\"", etag));
+        assertTrue(StaticResourceCache.matchesETag("*", etag));
+        assertFalse(StaticResourceCache.matchesETag("\"abcd\"", etag));
+        assertFalse(StaticResourceCache.matchesETag(null, etag));
+    }
+
+
+    @Test
+    public void compressibleAssetsHaveGzippedVariant() throws IOException {
+        byte[] content = mkContent(4096);
+        StaticAsset asset = StaticResourceCache.mkAsset("static/app.js", content);
+
+        assertTrue(asset.hasGzippedContent());
+        assertTrue(asset.getContentLength(true) < asset.getContentLength(false));
+        assertNotEquals(asset.getETag(false), asset.getETag(true));
+        assertArrayEquals(content, toBytes(asset.getContent(false)));
+        assertArrayEquals(content, gunzip(toBytes(asset.getContent(true))));
+    }
+
+
+    @Test
+    public void smallOrBinaryAssetsAreNotGzipped() {
+        assertFalse(StaticResourceCache.mkAsset("static/app.js", mkContent(100)).hasGzippedContent());
+        assertFalse(StaticResourceCache.mkAsset("static/logo.png", mkContent(4096)).hasGzippedContent());
+    }
+
+
+    @Test
+    public void etagsAreDerivedFromContent() {
+        StaticAsset a = StaticResourceCache.mkAsset("static/a.css", mkContent(10));
+        StaticAsset b = StaticResourceCache.mkAsset("static/b.css", mkContent(10));
+        StaticAsset c = StaticResourceCache.mkAsset("static/a.css", mkContent(11));
+
+        assertEquals(a.getETag(false), b.getETag(false));
+        assertNotEquals(a.getETag(false), c.getETag(false));
+    }
+
+
+    // -- HELPERS ---
+
+    private static byte[] mkContent(int length) {
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < length) {
+            sb.append("function f() { return 42; }\n");
+        }
+        return sb.substring(0, length).getBytes(StandardCharsets.UTF_8);
+    }
+
+
+    private static byte[] toBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+
+    private static byte[] gunzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        copyStream(new GZIPInputStream(new ByteArrayInputStream(bytes)), out);
+        return out.toByteArray();
+    }
+
+}
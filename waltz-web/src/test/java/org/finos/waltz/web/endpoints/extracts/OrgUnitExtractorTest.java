@@ -16,7 +16,12 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import spark.Request;
 import spark.Response;
 
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 
 import static org.finos.waltz.schema.tables.OrganisationalUnit.ORGANISATIONAL_UNIT;
@@ -33,6 +38,8 @@ class OrgUnitExtractorTest {
     private Request request;
     @Mock
     private Response response;
+    @Mock
+    private HttpServletResponse httpResponse;
 
     @BeforeEach
     public void setUp(){
@@ -43,12 +50,17 @@ class OrgUnitExtractorTest {
 
     @Test
     void recordsFoundAreTransformRecordsToJsonModel() throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
         when(request.queryParams("format"))
                 .thenReturn("JSON");
-        Object obj =
-                orgUnitExtractor.writeExtract("name",createDummyQuery(),request, response);
-        assertTrue(obj instanceof String);
-        String responseJSON = (String)obj;
+        when(response.raw())
+                .thenReturn(httpResponse);
+        when(httpResponse.getOutputStream())
+                .thenReturn(mkCapturingOutputStream(body));
+
+        orgUnitExtractor.writeExtract("name",createDummyQuery(),request, response);
+
+        String responseJSON = new String(body.toByteArray(), StandardCharsets.UTF_8);
         assertTrue(responseJSON.length()>0);
         JsonNode node = JacksonUtilities.getJsonMapper().readTree(responseJSON);
         JsonNode arrElement = node.get(0);
@@ -77,6 +89,25 @@ class OrgUnitExtractorTest {
     }
 
 
+    private ServletOutputStream mkCapturingOutputStream(ByteArrayOutputStream target) {
+        return new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+                target.write(b);
+            }
+        };
+    }
+
+
     private SelectJoinStep<Record6<Long, Long, String, String, String, String>> createDummyQuery(){
         return testDslContext
                 .select(
@@ -0,0 +1,86 @@
+package org.finos.waltz.web.endpoints.metrics;
+
+import org.finos.waltz.model.endpoint_metrics.EndpointStatistics;
+import org.junit.jupiter.api.Test;
+import spark.Route;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class EndpointMetricsTest {
+
+    @Test
+    public void stringResponsesAreMeasuredInBytes() throws Exception {
+        String body = "héllo €";
+        Route route = EndpointMetrics.instrument("GET", "api/test/metrics/string", (req, resp) -> body);
+
+        route.handle(null, null);
+
+        assertEquals(
+                body.getBytes(StandardCharsets.UTF_8).length,
+                findStats("api/test/metrics/string").maxResponseSize());
+    }
+
+
+    @Test
+    public void streamedResponsesAreMeasuredByCountingTheOutputStream() throws Exception {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        Route route = EndpointMetrics.instrument("GET", "api/test/metrics/streamed", (req, resp) -> {
+            try (OutputStream out = EndpointMetrics.countBytes(target)) {
+                out.write(new byte[1000], 0, 1000);
+                out.write(new byte[500], 100, 234);
+                out.write('x');
+            }
+            return null;
+        });
+
+        route.handle(null, null);
+
+        assertEquals(1235, target.size());
+        assertEquals(1235, findStats("api/test/metrics/streamed").maxResponseSize());
+    }
+
+
+    @Test
+    public void streamsAreNotWrappedOutsideOfInstrumentedRoutes() {
+        OutputStream out = new ByteArrayOutputStream();
+        assertSame(out, EndpointMetrics.countBytes(out));
+    }
+
+
+    @Test
+    public void utf8LengthMatchesEncodedLength() {
+        String[] samples = {
+                "",
+                "plain ascii",
+                "café",
+                "中文",
+                "emoji 😀 pair",
+                "lone \ud83d surrogate"
+        };
+
+        for (String sample : samples) {
+            assertEquals(
+                    sample.getBytes(StandardCharsets.UTF_8).length,
+                    EndpointMetrics.utf8Length(sample),
+                    sample);
+        }
+    }
+
+
+    // -- HELPERS ---
+
+    private static EndpointStatistics findStats(String path) {
+        return EndpointMetrics
+                .findAll()
+                .stream()
+                .filter(s -> s.path().equals(path))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No statistics for: " + path));
+    }
+
+}
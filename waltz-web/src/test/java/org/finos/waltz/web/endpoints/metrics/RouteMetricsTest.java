@@ -0,0 +1,86 @@
+package org.finos.waltz.web.endpoints.metrics;
+
+import org.finos.waltz.data.QueryStats;
+import org.finos.waltz.model.endpoint_metrics.EndpointStatistics;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class RouteMetricsTest {
+
+    @Test
+    public void requestsAreBucketedByUpperBound() {
+        assertEquals(0, RouteMetrics.determineBucket(0));
+        assertEquals(0, RouteMetrics.determineBucket(5));
+        assertEquals(1, RouteMetrics.determineBucket(6));
+        assertEquals(RouteMetrics.BUCKET_BOUNDS_MILLIS.length, RouteMetrics.determineBucket(60_000));
+    }
+
+
+    @Test
+    public void percentilesAreEstimatedFromBuckets() {
+        RouteMetrics metrics = new RouteMetrics("GET", "api/test/:id");
+        for (int i = 0; i < 90; i++) {
+            record(metrics, 3, -1);
+        }
+        for (int i = 0; i < 9; i++) {
+            record(metrics, 200, -1);
+        }
+        record(metrics, 400, -1);
+
+        EndpointStatistics stats = metrics.snapshot();
+
+        assertEquals(100, stats.requestCount());
+        assertEquals(5, stats.p50Millis());
+        assertEquals(250, stats.p95Millis(), "bucket upper bound");
+        assertEquals(400, stats.maxMillis());
+        assertEquals(90, stats.latencyHistogram().get("<=5ms").longValue());
+    }
+
+
+    @Test
+    public void percentilesNeverExceedTheSlowestRequest() {
+        RouteMetrics metrics = new RouteMetrics("GET", "api/test");
+        record(metrics, 40_000, -1);
+
+        EndpointStatistics stats = metrics.snapshot();
+
+        assertEquals(40_000, stats.p99Millis());
+        assertEquals(1, stats.latencyHistogram().get(">30000ms").longValue());
+    }
+
+
+    @Test
+    public void responseSizesOnlyIncludeKnownSizes() {
+        RouteMetrics metrics = new RouteMetrics("GET", "api/test");
+        record(metrics, 1, 100);
+        record(metrics, 1, 300);
+        record(metrics, 1, -1);
+
+        EndpointStatistics stats = metrics.snapshot();
+
+        assertEquals(200, stats.meanResponseSize());
+        assertEquals(300, stats.maxResponseSize());
+    }
+
+
+    @Test
+    public void resetClearsStatisticsButKeepsInFlightRequests() {
+        RouteMetrics metrics = new RouteMetrics("GET", "api/test");
+        record(metrics, 10, 10);
+        metrics.begin();
+
+        metrics.reset();
+        EndpointStatistics stats = metrics.snapshot();
+
+        assertEquals(0, stats.requestCount());
+        assertEquals(1, stats.inFlightCount());
+    }
+
+
+    private static void record(RouteMetrics metrics, long elapsedMillis, long responseSize) {
+        metrics.begin();
+        metrics.end(elapsedMillis, false, responseSize, new QueryStats("test"));
+    }
+
+}